@@ -0,0 +1,53 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "security.auth-cache")
+public class AuthCacheProperties {
+
+    /** Whether verified tokens and user details are cached between requests. */
+    private boolean enabled = true;
+
+    /** Maximum number of verified tokens kept; each entry lives until the token expires. */
+    private int maxTokens = 10000;
+
+    /** Maximum number of cached user details. */
+    private int maxUsers = 1000;
+
+    /** How long user details are cached, a safety net for changes made outside JPA. */
+    private long userTtlMs = 60000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getMaxUsers() {
+        return maxUsers;
+    }
+
+    public void setMaxUsers(int maxUsers) {
+        this.maxUsers = maxUsers;
+    }
+
+    public long getUserTtlMs() {
+        return userTtlMs;
+    }
+
+    public void setUserTtlMs(long userTtlMs) {
+        this.userTtlMs = userTtlMs;
+    }
+}
@@ -0,0 +1,97 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "delivery.retry")
+public class DeliveryRetryProperties {
+
+    /** Whether failed deliveries are retried in the background. */
+    private boolean enabled = true;
+
+    /** Total number of send attempts before a row is moved to DEAD_LETTER. */
+    private int maxAttempts = 5;
+
+    /** Delay before the first retry; doubled for every further attempt. */
+    private long baseDelaySeconds = 60;
+
+    /** Upper bound of the retry delay. */
+    private long maxDelaySeconds = 3600;
+
+    /** Share of the delay that is randomized (0 - exact delay, 1 - anywhere between 0 and the delay). */
+    private double jitter = 0.5;
+
+    /** Number of rows claimed in one statement. */
+    private int pageSize = 100;
+
+    /** Maximum number of pages claimed per channel in one run. */
+    private int maxPagesPerRun = 10;
+
+    /** How often due rows are claimed, in milliseconds. */
+    private long pollIntervalMs = 30000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelaySeconds() {
+        return baseDelaySeconds;
+    }
+
+    public void setBaseDelaySeconds(long baseDelaySeconds) {
+        this.baseDelaySeconds = baseDelaySeconds;
+    }
+
+    public long getMaxDelaySeconds() {
+        return maxDelaySeconds;
+    }
+
+    public void setMaxDelaySeconds(long maxDelaySeconds) {
+        this.maxDelaySeconds = maxDelaySeconds;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getMaxPagesPerRun() {
+        return maxPagesPerRun;
+    }
+
+    public void setMaxPagesPerRun(int maxPagesPerRun) {
+        this.maxPagesPerRun = maxPagesPerRun;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+}
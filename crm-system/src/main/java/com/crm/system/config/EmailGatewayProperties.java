@@ -22,6 +22,30 @@ public class EmailGatewayProperties {
     /** Optional API key for authentication (not used yet). */
     private String apiKey;
 
+    /** Maximum number of pooled HTTP connections to the email service. */
+    private int maxConnections = 10;
+
+    /** Timeout for establishing a connection, in milliseconds. */
+    private int connectTimeoutMs = 2000;
+
+    /** Timeout for waiting on a response, in milliseconds. */
+    private int readTimeoutMs = 10000;
+
+    /** Maximum number of emails sent in one batch request. */
+    private int batchSize = 50;
+
+    /** How long the first queued email waits for others to join its batch, in milliseconds. */
+    private long batchWaitMs = 200;
+
+    /** Maximum number of queued emails; when full, emails are sent from the caller's thread. */
+    private int queueCapacity = 2000;
+
+    /** How often the status of emails accepted by the batch endpoint is polled, in milliseconds. */
+    private long statusPollIntervalMs = 2000;
+
+    /** How long an accepted email is polled for before it is reported as without result, in milliseconds. */
+    private long statusTimeoutMs = 300000;
+
     public String getBaseUrl() {
         return baseUrl;
     }
@@ -61,4 +85,68 @@ public class EmailGatewayProperties {
     public void setTelegramBotUrl(String telegramBotUrl) {
         this.telegramBotUrl = telegramBotUrl;
     }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public void setReadTimeoutMs(int readTimeoutMs) {
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWaitMs() {
+        return batchWaitMs;
+    }
+
+    public void setBatchWaitMs(long batchWaitMs) {
+        this.batchWaitMs = batchWaitMs;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getStatusPollIntervalMs() {
+        return statusPollIntervalMs;
+    }
+
+    public void setStatusPollIntervalMs(long statusPollIntervalMs) {
+        this.statusPollIntervalMs = statusPollIntervalMs;
+    }
+
+    public long getStatusTimeoutMs() {
+        return statusTimeoutMs;
+    }
+
+    public void setStatusTimeoutMs(long statusTimeoutMs) {
+        this.statusTimeoutMs = statusTimeoutMs;
+    }
 }
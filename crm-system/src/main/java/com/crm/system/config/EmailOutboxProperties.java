@@ -0,0 +1,97 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "email.outbox")
+public class EmailOutboxProperties {
+
+    /** Number of mail executor threads draining the outbox. */
+    private int workerThreads = 2;
+
+    /** Maximum number of drain tasks waiting for a free mail thread. */
+    private int queueCapacity = 10;
+
+    /** Number of rows claimed and sent over one SMTP connection. */
+    private int batchSize = 20;
+
+    /** Interval of the outbox poll that picks up rows left by restarts and due retries. */
+    private long pollIntervalMs = 10000;
+
+    /** How long a claimed row is reserved for the instance sending it. */
+    private long claimLeaseMs = 300000;
+
+    /** Number of send attempts before a row is FAILED. */
+    private int maxAttempts = 3;
+
+    /** Delay before a failed row is sent again. */
+    private long retryDelayMs = 5000;
+
+    /** Number of recipients of a bulk email inserted with one statement. */
+    private int insertChunkSize = 1000;
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public long getClaimLeaseMs() {
+        return claimLeaseMs;
+    }
+
+    public void setClaimLeaseMs(long claimLeaseMs) {
+        this.claimLeaseMs = claimLeaseMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryDelayMs() {
+        return retryDelayMs;
+    }
+
+    public void setRetryDelayMs(long retryDelayMs) {
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public int getInsertChunkSize() {
+        return insertChunkSize;
+    }
+
+    public void setInsertChunkSize(int insertChunkSize) {
+        this.insertChunkSize = insertChunkSize;
+    }
+}
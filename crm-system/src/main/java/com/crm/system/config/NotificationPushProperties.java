@@ -0,0 +1,55 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "notifications.push")
+public class NotificationPushProperties {
+
+    /** How long a stream stays open; the browser reconnects after it is closed. */
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    /** Interval of the comments that keep idle streams open through proxies and detect closed ones. */
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+
+    /** How often the counts of connected recipients are recounted, correcting changes made in bulk SQL. */
+    private Duration resyncInterval = Duration.ofMinutes(5);
+
+    /** Open streams per recipient, e.g. browser tabs; the oldest one is closed when exceeded. */
+    private int maxStreamsPerRecipient = 10;
+
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getResyncInterval() {
+        return resyncInterval;
+    }
+
+    public void setResyncInterval(Duration resyncInterval) {
+        this.resyncInterval = resyncInterval;
+    }
+
+    public int getMaxStreamsPerRecipient() {
+        return maxStreamsPerRecipient;
+    }
+
+    public void setMaxStreamsPerRecipient(int maxStreamsPerRecipient) {
+        this.maxStreamsPerRecipient = maxStreamsPerRecipient;
+    }
+}
@@ -0,0 +1,110 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "reminders.scheduler")
+public class ReminderSchedulerProperties {
+
+    /** Whether lesson reminders are fired from the in-memory timing wheel. */
+    private boolean enabled = true;
+
+    /** Resolution of the wheel: reminders fire within one tick of their instant. */
+    private long tickMs = 100;
+
+    /** Buckets per level of the wheel. */
+    private int wheelSize = 512;
+
+    /** Levels of the wheel; tickMs * wheelSize^levels must exceed the horizon. */
+    private int levels = 3;
+
+    /** How far ahead reminder instants are held in memory. */
+    private Duration horizon = Duration.ofHours(48);
+
+    /** How often the horizon is moved forward by loading the instants that entered it. */
+    private Duration refillInterval = Duration.ofHours(1);
+
+    /** Time before an individual lesson at which the student is reminded. */
+    private Duration lessonReminderBefore = Duration.ofHours(24);
+
+    /** Time after the end of an individual lesson at which attendance confirmation is requested. */
+    private Duration attendanceRequestAfterEnd = Duration.ZERO;
+
+    /** Threads sending the reminders that fired. */
+    private int workerThreads = 2;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public void setTickMs(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    public void setWheelSize(int wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    public void setLevels(int levels) {
+        this.levels = levels;
+    }
+
+    public Duration getHorizon() {
+        return horizon;
+    }
+
+    public void setHorizon(Duration horizon) {
+        this.horizon = horizon;
+    }
+
+    public Duration getRefillInterval() {
+        return refillInterval;
+    }
+
+    public void setRefillInterval(Duration refillInterval) {
+        this.refillInterval = refillInterval;
+    }
+
+    public Duration getLessonReminderBefore() {
+        return lessonReminderBefore;
+    }
+
+    public void setLessonReminderBefore(Duration lessonReminderBefore) {
+        this.lessonReminderBefore = lessonReminderBefore;
+    }
+
+    public Duration getAttendanceRequestAfterEnd() {
+        return attendanceRequestAfterEnd;
+    }
+
+    public void setAttendanceRequestAfterEnd(Duration attendanceRequestAfterEnd) {
+        this.attendanceRequestAfterEnd = attendanceRequestAfterEnd;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+}
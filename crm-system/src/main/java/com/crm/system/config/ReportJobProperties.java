@@ -0,0 +1,53 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "reports.jobs")
+public class ReportJobProperties {
+
+    /** Directory where finished report files are stored until they expire. */
+    private String spoolDir = System.getProperty("java.io.tmpdir") + "/crm-reports";
+
+    /** Number of worker threads building reports in parallel. */
+    private int workerThreads = 2;
+
+    /** Maximum number of jobs waiting for a free worker. */
+    private int queueCapacity = 20;
+
+    /** How long finished jobs and their files are kept, in minutes. */
+    private long retentionMinutes = 24 * 60;
+
+    public String getSpoolDir() {
+        return spoolDir;
+    }
+
+    public void setSpoolDir(String spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getRetentionMinutes() {
+        return retentionMinutes;
+    }
+
+    public void setRetentionMinutes(long retentionMinutes) {
+        this.retentionMinutes = retentionMinutes;
+    }
+}
@@ -0,0 +1,66 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "monitoring.sampler")
+public class ResourceSamplerProperties {
+
+    /** Whether JVM, connection pool and database readings are sampled in the background. */
+    private boolean enabled = true;
+
+    /** Time between two samples. */
+    private Duration resolution = Duration.ofSeconds(15);
+
+    /** Samples kept in memory; with the default resolution a week of readings. */
+    private int capacity = 40_320;
+
+    /** Time between two reads of the database size, which is much more expensive than the other readings. */
+    private Duration databaseSizeInterval = Duration.ofMinutes(5);
+
+    /** Window over which the uptime percentage is reported. */
+    private Duration uptimeWindow = Duration.ofHours(24);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(Duration resolution) {
+        this.resolution = resolution;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Duration getDatabaseSizeInterval() {
+        return databaseSizeInterval;
+    }
+
+    public void setDatabaseSizeInterval(Duration databaseSizeInterval) {
+        this.databaseSizeInterval = databaseSizeInterval;
+    }
+
+    public Duration getUptimeWindow() {
+        return uptimeWindow;
+    }
+
+    public void setUptimeWindow(Duration uptimeWindow) {
+        this.uptimeWindow = uptimeWindow;
+    }
+}
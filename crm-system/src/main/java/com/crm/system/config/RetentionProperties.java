@@ -0,0 +1,131 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "retention")
+public class RetentionProperties {
+
+    /** Whether old rows are purged in the background. */
+    private boolean enabled = true;
+
+    /** Local time of the daily run. */
+    private LocalTime runAt = LocalTime.of(2, 0);
+
+    /** Number of rows deleted by one statement. */
+    private int chunkSize = 5000;
+
+    /** Pause between two chunks, so the purge does not saturate the database. */
+    private long pauseBetweenChunksMs = 100;
+
+    /** Retention settings per table. Tables without settings are not purged. */
+    private Map<Table, TableRetention> tables = new EnumMap<>(Table.class);
+
+    /**
+     * Tables the retention job may purge, with the columns it filters on.
+     */
+    public enum Table {
+        TELEGRAM_MESSAGES("telegram_messages", "delivery_status"),
+        NOTIFICATIONS("notifications", "status"),
+        EMAIL_OUTBOX("email_outbox", "status");
+
+        private final String tableName;
+        private final String statusColumn;
+
+        Table(String tableName, String statusColumn) {
+            this.tableName = tableName;
+            this.statusColumn = statusColumn;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getStatusColumn() {
+            return statusColumn;
+        }
+    }
+
+    public static class TableRetention {
+
+        /** Age after which rows are purged; rows of statuses listed in statuses use their own age. */
+        private Duration maxAge;
+
+        /** Age per status, overrides maxAge, e.g. statuses[FAILED]=7d. */
+        private Map<String, Duration> statuses = new HashMap<>();
+
+        /** Move purged rows into monthly archive tables (table_archive_yyyy_mm) instead of dropping them. */
+        private boolean archive = false;
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public Map<String, Duration> getStatuses() {
+            return statuses;
+        }
+
+        public void setStatuses(Map<String, Duration> statuses) {
+            this.statuses = statuses;
+        }
+
+        public boolean isArchive() {
+            return archive;
+        }
+
+        public void setArchive(boolean archive) {
+            this.archive = archive;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public LocalTime getRunAt() {
+        return runAt;
+    }
+
+    public void setRunAt(LocalTime runAt) {
+        this.runAt = runAt;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getPauseBetweenChunksMs() {
+        return pauseBetweenChunksMs;
+    }
+
+    public void setPauseBetweenChunksMs(long pauseBetweenChunksMs) {
+        this.pauseBetweenChunksMs = pauseBetweenChunksMs;
+    }
+
+    public Map<Table, TableRetention> getTables() {
+        return tables;
+    }
+
+    public void setTables(Map<Table, TableRetention> tables) {
+        this.tables = tables;
+    }
+}
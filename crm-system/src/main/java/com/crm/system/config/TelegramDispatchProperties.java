@@ -0,0 +1,119 @@
+package com.crm.system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "telegram.dispatch")
+public class TelegramDispatchProperties {
+
+    /** Number of worker threads calling the Telegram Bot API. */
+    private int workerThreads = 4;
+
+    /** Maximum number of messages held in memory; the rest wait as PENDING rows. */
+    private int queueCapacity = 5000;
+
+    /** Messages per second across all chats (Telegram allows about 30). */
+    private double globalRatePerSecond = 25;
+
+    /** Messages per second to a single chat (Telegram allows about 1). */
+    private double perChatRatePerSecond = 1;
+
+    /** Burst allowed for a single chat before the per-chat rate applies. */
+    private int perChatBurst = 3;
+
+    /** How often PENDING rows are loaded into the queue, in milliseconds. */
+    private long pollIntervalMs = 2000;
+
+    /** Only PENDING rows older than this are picked up by the poller, so fresh rows are not queued twice. */
+    private long pollGraceMs = 5000;
+
+    /** How long a claimed PENDING row is reserved for this instance before another poller may take it. */
+    private long claimLeaseMs = 300000;
+
+    /** How often delivery results are written back, in milliseconds. */
+    private long flushIntervalMs = 500;
+
+    /** Maximum number of rows updated in one batch. */
+    private int batchSize = 200;
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public double getGlobalRatePerSecond() {
+        return globalRatePerSecond;
+    }
+
+    public void setGlobalRatePerSecond(double globalRatePerSecond) {
+        this.globalRatePerSecond = globalRatePerSecond;
+    }
+
+    public double getPerChatRatePerSecond() {
+        return perChatRatePerSecond;
+    }
+
+    public void setPerChatRatePerSecond(double perChatRatePerSecond) {
+        this.perChatRatePerSecond = perChatRatePerSecond;
+    }
+
+    public int getPerChatBurst() {
+        return perChatBurst;
+    }
+
+    public void setPerChatBurst(int perChatBurst) {
+        this.perChatBurst = perChatBurst;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public long getPollGraceMs() {
+        return pollGraceMs;
+    }
+
+    public void setPollGraceMs(long pollGraceMs) {
+        this.pollGraceMs = pollGraceMs;
+    }
+
+    public long getClaimLeaseMs() {
+        return claimLeaseMs;
+    }
+
+    public void setClaimLeaseMs(long claimLeaseMs) {
+        this.claimLeaseMs = claimLeaseMs;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.util.ArrayList;
@@ -279,100 +280,57 @@ public class AdminController {
     @PostMapping("/broadcast-notifications")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendBroadcastNotification(@Valid @RequestBody BroadcastNotificationDto notificationDto) {
-        notificationBroadcastService.broadcastToRecipientType(
+        BroadcastProgressDto broadcast = notificationBroadcastService.broadcastToRecipientType(
                 notificationDto.getRecipientType(),
                 notificationDto.getNotificationType(),
                 notificationDto.getTitle(),
                 notificationDto.getMessage());
-        return ResponseEntity.ok(new MessageDto("Broadcast notification sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Broadcast notification started, id: " + broadcast.getId()));
     }
 
     @PostMapping("/broadcast-notifications/filtered")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendFilteredBroadcastNotification(@Valid @RequestBody FilteredBroadcastNotificationDto notificationDto) {
-        notificationBroadcastService.broadcastToFilteredRecipients(
+        BroadcastProgressDto broadcast = notificationBroadcastService.broadcastToFilteredRecipients(
                 notificationDto.getRecipientIds(),
                 notificationDto.getRecipientType(),
                 notificationDto.getNotificationType(),
                 notificationDto.getTitle(),
                 notificationDto.getMessage());
-        return ResponseEntity.ok(new MessageDto("Filtered broadcast notification sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Filtered broadcast notification started, id: " + broadcast.getId()));
     }
 
     // Bulk email endpoints
     @PostMapping("/bulk-emails")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendBulkEmail(@Valid @RequestBody BulkEmailDto emailDto) {
-        emailService.sendBulkEmail(
+        BulkEmailJobDto job = emailService.startBulkEmail(
                 emailDto.getRecipientEmails(),
                 emailDto.getSubject(),
                 emailDto.getMessage(),
                 "System Administrator");
-        return ResponseEntity.ok(new MessageDto("Bulk email sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Bulk email started, id: " + job.getId()));
     }
 
     // Dashboard endpoints for admin statistics
     @GetMapping("/dashboard/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<AdminDashboardDto> getAdminDashboardStats() {
-        // Create a comprehensive dashboard DTO with all admin statistics
-        AdminDashboardDto dashboardDto = new AdminDashboardDto();
-        
-        // Set user statistics
-        dashboardDto.setTotalStudents(dashboardService.getTotalStudents());
-        dashboardDto.setTotalTeachers(dashboardService.getTotalTeachers());
-        dashboardDto.setTotalManagers(dashboardService.getTotalManagers());
-        dashboardDto.setTotalAdmins(dashboardService.getTotalAdmins());
-        dashboardDto.setActiveStudents(dashboardService.getTotalStudents()); // Using getTotalStudents as placeholder
-        dashboardDto.setActiveTeachers(dashboardService.getTotalTeachers()); // Using getTotalTeachers as placeholder
-        dashboardDto.setActiveManagers(dashboardService.getTotalManagers()); // Using getTotalManagers as placeholder
-        dashboardDto.setActiveAdmins(dashboardService.getTotalAdmins()); // Using getTotalAdmins as placeholder
-        
-        // Set lesson statistics
-        dashboardDto.setLessonsToday(0); // Placeholder
-        dashboardDto.setLessonsThisWeek(0); // Placeholder
-        dashboardDto.setLessonsThisMonth(0); // Placeholder
-        dashboardDto.setTotalCompletedLessons(0); // Placeholder
-        dashboardDto.setTotalCancelledLessons(0); // Placeholder
-        dashboardDto.setTotalMissedLessons(0); // Placeholder
-        dashboardDto.setTotalScheduledLessons(0); // Placeholder
-        
-        // Set lesson package statistics
-        dashboardDto.setTotalLessonPackages(0); // Placeholder
-        dashboardDto.setActiveLessonPackages(0); // Placeholder
-        dashboardDto.setExpiredLessonPackages(0); // Placeholder
-        
-        // Set rate statistics
-        dashboardDto.setLessonCompletionRate(0.0); // Placeholder
-        dashboardDto.setLessonCancellationRate(0.0); // Placeholder
-        
-        // Set other statistics
-        dashboardDto.setStudentsWithoutTeacher(0); // Placeholder
-        dashboardDto.setPendingNotifications(0); // Placeholder
-        dashboardDto.setFailedNotifications(0); // Placeholder
-        
-        // Set students ending soon
-        dashboardDto.setStudentsEndingSoon(new ArrayList<>()); // Placeholder
-        
-        dashboardDto.setLastUpdated(java.time.LocalDateTime.now());
-        
-        return ResponseEntity.ok(dashboardDto);
+        // Served from the in-memory dashboard snapshot, see DashboardSnapshotService
+        return ResponseEntity.ok(dashboardService.getAdminDashboard());
     }
 
     @GetMapping("/dashboard/students-ending-soon")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<StudentEndingSoonDto>> getStudentsWithEndingPackages() {
-        List<StudentEndingSoonDto> studentsEndingSoon = new ArrayList<>(); // Placeholder
-        return ResponseEntity.ok(studentsEndingSoon);
+        return ResponseEntity.ok(dashboardService.getStudentsWithEndingPackagesSoon());
     }
 
     // System overview endpoints
     @GetMapping("/overview")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getSystemOverview() {
-        // This endpoint will return system-wide statistics
-        // For now, return a placeholder - will be enhanced with DashboardService data
-        return ResponseEntity.ok(new MessageDto("System overview data - to be implemented with DashboardService"));
+    public ResponseEntity<AdminDashboardDto> getSystemOverview() {
+        return ResponseEntity.ok(dashboardService.getAdminDashboard());
     }
 
     private UserDto convertToDto(User user) {
@@ -538,53 +496,32 @@ public class AdminController {
     // Report endpoints for admin
     @GetMapping("/reports/students")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> generateStudentsReport(
+    public ResponseEntity<StreamingResponseBody> generateStudentsReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
-        java.time.LocalDateTime startDateTime = parseDateTime(startDate);
-        java.time.LocalDateTime endDateTime = parseDateTime(endDate);
-        
-        try {
-            ExportReportDto exportDto = reportService.generateStudentsReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating students report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("students_report"),
+                outputStream -> reportService.writeStudentsReport(outputStream));
     }
 
     @GetMapping("/reports/teachers")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> generateTeachersReport(
+    public ResponseEntity<StreamingResponseBody> generateTeachersReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
-        java.time.LocalDateTime startDateTime = parseDateTime(startDate);
-        java.time.LocalDateTime endDateTime = parseDateTime(endDate);
-        
-        try {
-            ExportReportDto exportDto = reportService.generateTeachersReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating teachers report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("teachers_report"),
+                outputStream -> reportService.writeTeachersReport(outputStream));
     }
 
     @GetMapping("/reports/lessons")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> generateLessonsReport(
+    public ResponseEntity<StreamingResponseBody> generateLessonsReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
         java.time.LocalDateTime startDateTime = parseDateTime(startDate);
         java.time.LocalDateTime endDateTime = parseDateTime(endDate);
         
-        try {
-            ExportReportDto exportDto = reportService.generateLessonsReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating lessons report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("lessons_report"),
+                outputStream -> reportService.writeLessonsReport(startDateTime, endDateTime, outputStream));
     }
 
     private java.time.LocalDateTime parseDateTime(String dateTimeStr) {
@@ -599,13 +536,11 @@ public class AdminController {
         }
     }
 
-    private ResponseEntity<org.springframework.core.io.Resource> createExcelResponse(ExportReportDto exportDto) {
-        org.springframework.core.io.ByteArrayResource resource = new org.springframework.core.io.ByteArrayResource(exportDto.getData());
-        
-        return org.springframework.http.ResponseEntity.ok()
+    private ResponseEntity<StreamingResponseBody> createStreamingExcelResponse(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
                 .contentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM)
-                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportDto.getFileName() + "\"")
-                .body(resource);
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     public static class BulkEmailDto {
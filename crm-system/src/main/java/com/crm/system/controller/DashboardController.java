@@ -3,6 +3,7 @@ package com.crm.system.controller;
 import com.crm.system.dto.DashboardStatsDto;
 import com.crm.system.dto.MessageDto;
 import com.crm.system.service.DashboardService;
+import com.crm.system.service.DashboardSnapshot;
 import com.crm.system.service.NotificationBroadcastService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -45,6 +46,7 @@ public class DashboardController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> getAdminOverview() {
         Map<String, Object> overview = new HashMap<>();
+        DashboardSnapshot snapshot = dashboardService.getSnapshot();
         
         // User statistics
         overview.put("totalStudents", dashboardService.getTotalStudents());
@@ -75,7 +77,8 @@ public class DashboardController {
         // Students without teachers
         overview.put("studentsWithoutTeacher", dashboardService.getStudentsWithoutTeacher());
         
-        overview.put("lastUpdated", LocalDateTime.now());
+        overview.put("lastUpdated", snapshot.getRefreshedAtLocal());
+        overview.put("snapshotAgeSeconds", snapshot.getAgeSeconds());
         
         return ResponseEntity.ok(overview);
     }
@@ -89,7 +92,7 @@ public class DashboardController {
         monitoring.put("pendingNotifications", dashboardService.getPendingNotifications());
         monitoring.put("failedNotifications", dashboardService.getFailedNotifications());
         
-        // System performance metrics (placeholder - would integrate with actual monitoring)
+        // System performance metrics from the resource sampler
         monitoring.put("systemUptimePercentage", dashboardService.getSystemUptimePercentage());
         monitoring.put("databaseSizeInMB", dashboardService.getDatabaseSizeInMB());
         monitoring.put("activeUserSessions", dashboardService.getActiveUserSessions());
@@ -121,16 +124,13 @@ public class DashboardController {
         
         Map<String, Object> metrics = new HashMap<>();
         
-        // Lesson metrics over time period
-        metrics.put("lessonsByDate", dashboardService.getLessonsByDate(actualStartDate, actualEndDate));
-        metrics.put("lessonCompletionTrend", dashboardService.getLessonCompletionTrend(actualStartDate, actualEndDate));
-        metrics.put("lessonCancellationTrend", dashboardService.getLessonCancellationTrend(actualStartDate, actualEndDate));
+        // Lesson metrics and active users over time period, from one read of the daily lesson stats
+        metrics.putAll(dashboardService.getLessonMetrics(actualStartDate, actualEndDate));
         
         // User activity metrics
         metrics.put("userRegistrationsByDate", dashboardService.getUserRegistrationsByDate(actualStartDate, actualEndDate));
-        metrics.put("activeUsersByDate", dashboardService.getActiveUsersByDate(actualStartDate, actualEndDate));
         
-        // System resource usage (placeholder)
+        // System resource usage, hourly from the resource sampler
         metrics.put("cpuUsageByHour", dashboardService.getCpuUsageByHour(actualStartDate, actualEndDate));
         metrics.put("memoryUsageByHour", dashboardService.getMemoryUsageByHour(actualStartDate, actualEndDate));
         
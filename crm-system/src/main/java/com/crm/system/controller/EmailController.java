@@ -1,5 +1,6 @@
 package com.crm.system.controller;
 
+import com.crm.system.dto.BulkEmailJobDto;
 import com.crm.system.dto.MessageDto;
 import com.crm.system.model.Notification;
 import com.crm.system.service.EmailService;
@@ -30,17 +31,26 @@ public class EmailController {
     @PostMapping("/bulk-send")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendBulkEmail(@Valid @RequestBody BulkEmailRequest request) {
-        CompletableFuture<Boolean> future = emailService.sendBulkEmail(
+        BulkEmailJobDto job = emailService.startBulkEmail(
                 request.getRecipientEmails(),
                 request.getSubject(),
                 request.getMessage(),
                 "System Administrator");
         
-        // In a real implementation, you might want to handle this asynchronously
-        // For now, we'll wait for completion
-        future.join();
-        
-        return ResponseEntity.ok(new MessageDto("Bulk email sent successfully to " + request.getRecipientEmails().size() + " recipients!"));
+        return ResponseEntity.ok(new MessageDto("Bulk email to " + job.getTotalRecipients() + " recipients started, id: " + job.getId()));
+    }
+
+    // Progress and per-recipient results of a bulk email
+    @GetMapping("/bulk/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkEmailJobDto> getBulkEmail(@PathVariable String jobId) {
+        return ResponseEntity.ok(emailService.getBulkEmail(jobId));
+    }
+
+    @GetMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BulkEmailJobDto>> getBulkEmails() {
+        return ResponseEntity.ok(emailService.getBulkEmails());
     }
 
     // Bulk email sending by recipient type for admin
@@ -49,16 +49,7 @@ public class GroupLessonRegistrationController {
         Student student = studentService.findById(bookSlotDto.getStudentId())
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + bookSlotDto.getStudentId()));
 
-        // Проверяем, что слот доступен для бронирования
-        if (!groupLessonService.isSlotAvailableForBooking(groupLesson.getId())) {
-            throw new RuntimeException("Slot is not available for booking");
-        }
-
-        // Проверяем, что студент еще не зарегистрирован на этот слот
-        if (groupLessonRegistrationService.isSlotBookedByStudent(groupLesson.getId(), student.getId())) {
-            throw new RuntimeException("Student is already registered for this slot");
-        }
-
+        // Доступность слота проверяется при бронировании; если мест нет, студент попадает в лист ожидания
         GroupLessonRegistration registration = groupLessonRegistrationService.bookSlot(groupLesson, student);
         return ResponseEntity.ok(convertToDto(registration));
     }
@@ -66,13 +57,10 @@ public class GroupLessonRegistrationController {
     @DeleteMapping("/group-bookings/slots/{slotId}")
     @PreAuthorize("hasRole('STUDENT') or hasRole('MANAGER') or hasRole('ADMIN') or hasRole('TEACHER')")
     public ResponseEntity<?> cancelGroupBooking(@PathVariable Long slotId, @RequestParam Long studentId) {
-        // Проверяем, что студент зарегистрирован на этот слот
-        GroupLessonRegistration registration = groupLessonRegistrationService.findByStudentIdAndGroupLessonId(studentId, slotId)
+        // Проверяем, что у студента есть действующая регистрация на этот слот
+        GroupLessonRegistration registration = groupLessonRegistrationService
+                .findActiveRegistrationByGroupLessonIdAndStudentId(slotId, studentId)
                 .orElseThrow(() -> new RuntimeException("Student is not registered for this slot"));
-        
-        if (registration.isCancelled()) {
-            throw new RuntimeException("Registration is already cancelled");
-        }
 
         groupLessonRegistrationService.cancelBooking(registration.getId(), "Cancelled by user");
         return ResponseEntity.ok().build();
@@ -1,6 +1,7 @@
 package com.crm.system.controller;
 
 import com.crm.system.dto.CreateLessonPackageDto;
+import com.crm.system.dto.LessonBalanceDto;
 import com.crm.system.dto.LessonPackageDto;
 import com.crm.system.model.LessonPackage;
 import com.crm.system.model.Student;
@@ -40,6 +41,18 @@ public class LessonPackageController {
         return ResponseEntity.ok(lessonPackageDtos);
     }
 
+    @GetMapping("/students/{studentId}/lesson-balance")
+    @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
+    public ResponseEntity<LessonBalanceDto> getLessonBalance(@PathVariable Long studentId,
+                                                             @RequestParam(defaultValue = "50") int limit) {
+        List<LessonBalanceDto.Entry> ledger = lessonPackageService.getBalanceLedger(studentId, Math.min(Math.max(limit, 1), 500))
+                .stream()
+                .map(entry -> new LessonBalanceDto.Entry(entry.getPackageId(), entry.getDelta(), entry.getBalanceAfter(),
+                        entry.getReason(), entry.getReferenceId(), entry.getCreatedAt()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new LessonBalanceDto(studentId, lessonPackageService.getRemainingLessons(studentId), ledger));
+    }
+
     @PostMapping("/lesson-packages")
     @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
     public ResponseEntity<LessonPackageDto> createLessonPackage(@Valid @RequestBody CreateLessonPackageDto createDto) {
@@ -53,22 +66,14 @@ public class LessonPackageController {
     @PutMapping("/lesson-packages/{id}/deduct")
     @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
     public ResponseEntity<LessonPackageDto> deductLessons(@PathVariable Long id, @RequestParam int lessons) {
-        LessonPackage lessonPackage = lessonPackageService.findById(id)
-                .orElseThrow(() -> new RuntimeException("Lesson package not found with id: " + id));
-        
-        lessonPackage.deductLessons(lessons);
-        LessonPackage updatedPackage = lessonPackageService.updateLessonPackage(lessonPackage);
+        LessonPackage updatedPackage = lessonPackageService.deductLessonsFromPackage(id, lessons);
         return ResponseEntity.ok(convertToDto(updatedPackage));
     }
 
     @PutMapping("/lesson-packages/{id}/add")
     @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
     public ResponseEntity<LessonPackageDto> addLessons(@PathVariable Long id, @RequestParam int lessons) {
-        LessonPackage lessonPackage = lessonPackageService.findById(id)
-                .orElseThrow(() -> new RuntimeException("Lesson package not found with id: " + id));
-        
-        lessonPackage.addLessons(lessons);
-        LessonPackage updatedPackage = lessonPackageService.updateLessonPackage(lessonPackage);
+        LessonPackage updatedPackage = lessonPackageService.addLessonsToPackage(id, lessons);
         return ResponseEntity.ok(convertToDto(updatedPackage));
     }
 
@@ -1,17 +1,27 @@
 package com.crm.system.controller;
 
+import com.crm.system.dto.BroadcastProgressDto;
+import com.crm.system.dto.HistoryPageDto;
 import com.crm.system.dto.MessageDto;
 import com.crm.system.dto.NotificationDto;
+import com.crm.system.exception.NotFoundException;
 import com.crm.system.model.Notification;
+import com.crm.system.model.Student;
+import com.crm.system.security.AuthenticatedUser;
+import com.crm.system.service.MessageHistoryService;
 import com.crm.system.service.NotificationBroadcastService;
+import com.crm.system.service.NotificationPushService;
 import com.crm.system.service.NotificationService;
+import com.crm.system.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.validation.Valid;
 
 import java.time.LocalDate;
@@ -30,6 +40,15 @@ public class NotificationController {
     @Autowired
     private NotificationBroadcastService notificationBroadcastService;
 
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private MessageHistoryService messageHistoryService;
+
+    @Autowired
+    private StudentService studentService;
+
     // User-specific notification endpoints (existing functionality)
     @GetMapping("/recipients/{recipientId}/{recipientType}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('TEACHER') or hasRole('STUDENT')")
@@ -64,6 +83,21 @@ public class NotificationController {
         return ResponseEntity.ok(notificationDtos);
     }
 
+    // Whole history, newest first; pages continue from nextCursor and total is only counted on request
+    @GetMapping("/recipients/{recipientId}/{recipientType}/history")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('TEACHER') or hasRole('STUDENT')")
+    public ResponseEntity<HistoryPageDto<NotificationDto>> getNotificationHistory(
+            @PathVariable Long recipientId,
+            @PathVariable Notification.RecipientType recipientType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) List<Notification.NotificationStatus> statuses,
+            @RequestParam(required = false) List<Notification.NotificationType> types,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ResponseEntity.ok(messageHistoryService.getNotificationHistory(
+                recipientId, recipientType, statuses, types, cursor, size, includeTotal));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('TEACHER') or hasRole('STUDENT')")
     public ResponseEntity<NotificationDto> getNotificationById(@PathVariable Long id) {
@@ -90,6 +124,23 @@ public class NotificationController {
         return ResponseEntity.ok(count);
     }
 
+    /**
+     * Server-sent events for the authenticated user: "unread-count" with the unread notification and
+     * Telegram message counts, first on connect and then on every change, and "notification" for each
+     * new notification. Replaces polling of the unread-count endpoints.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('TEACHER') or hasRole('STUDENT')")
+    public SseEmitter streamNotifications(AuthenticatedUser user) {
+        Notification.RecipientType recipientType = Notification.RecipientType.valueOf(user.getRole().name());
+        // Students receive notifications under their student record
+        Long recipientId = recipientType == Notification.RecipientType.STUDENT
+                ? studentService.findByEmail(user.getEmail()).map(Student::getId)
+                        .orElseThrow(() -> new NotFoundException("Student not found"))
+                : user.getId();
+        return notificationPushService.subscribe(recipientId, recipientType.name());
+    }
+
     @GetMapping("/recipients/{recipientId}/{recipientType}/pending")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('TEACHER') or hasRole('STUDENT')")
     public ResponseEntity<List<NotificationDto>> getPendingNotifications(
@@ -106,36 +157,48 @@ public class NotificationController {
     @PostMapping("/broadcast")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendBroadcastNotification(@Valid @RequestBody BroadcastNotificationRequest request) {
-        notificationBroadcastService.broadcastToRecipientType(
+        BroadcastProgressDto broadcast = notificationBroadcastService.broadcastToRecipientType(
                 request.getRecipientType(),
                 request.getNotificationType(),
                 request.getTitle(),
                 request.getMessage());
-        return ResponseEntity.ok(new MessageDto("Broadcast notification sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Broadcast notification started, id: " + broadcast.getId()));
     }
 
     @PostMapping("/broadcast/filtered")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendFilteredBroadcastNotification(@Valid @RequestBody FilteredBroadcastNotificationRequest request) {
-        notificationBroadcastService.broadcastToFilteredRecipients(
+        BroadcastProgressDto broadcast = notificationBroadcastService.broadcastToFilteredRecipients(
                 request.getRecipientIds(),
                 request.getRecipientType(),
                 request.getNotificationType(),
                 request.getTitle(),
                 request.getMessage());
-        return ResponseEntity.ok(new MessageDto("Filtered broadcast notification sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Filtered broadcast notification started, id: " + broadcast.getId()));
     }
 
     @PostMapping("/broadcast/priority")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MessageDto> sendPriorityBroadcastNotification(@Valid @RequestBody PriorityBroadcastNotificationRequest request) {
-        notificationBroadcastService.broadcastWithPriority(
+        BroadcastProgressDto broadcast = notificationBroadcastService.broadcastWithPriority(
                 request.getRecipientType(),
                 request.getNotificationType(),
                 request.getTitle(),
                 request.getMessage(),
                 request.isHighPriority());
-        return ResponseEntity.ok(new MessageDto("Priority broadcast notification sent successfully!"));
+        return ResponseEntity.ok(new MessageDto("Priority broadcast notification started, id: " + broadcast.getId()));
+    }
+
+    @GetMapping("/broadcast/{broadcastId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BroadcastProgressDto> getBroadcastProgress(@PathVariable String broadcastId) {
+        return ResponseEntity.ok(notificationBroadcastService.getBroadcastProgress(broadcastId));
+    }
+
+    @GetMapping("/broadcast")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BroadcastProgressDto>> getBroadcasts() {
+        return ResponseEntity.ok(notificationBroadcastService.getBroadcasts());
     }
 
     @GetMapping("/statistics")
@@ -2,18 +2,25 @@ package com.crm.system.controller;
 
 import com.crm.system.dto.ExportReportDto;
 import com.crm.system.dto.MessageDto;
+import com.crm.system.dto.ReportJobDto;
+import com.crm.system.service.ReportJobService;
 import com.crm.system.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -23,73 +30,47 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private ReportJobService reportJobService;
+
     @GetMapping("/students")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<Resource> generateStudentsReport(
+    public ResponseEntity<StreamingResponseBody> generateStudentsReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
-        LocalDateTime startDateTime = parseDateTime(startDate);
-        LocalDateTime endDateTime = parseDateTime(endDate);
-        
-        try {
-            ExportReportDto exportDto = reportService.generateStudentsReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating students report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("students_report"),
+                outputStream -> reportService.writeStudentsReport(outputStream));
     }
 
     @GetMapping("/teachers")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<Resource> generateTeachersReport(
+    public ResponseEntity<StreamingResponseBody> generateTeachersReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
-        LocalDateTime startDateTime = parseDateTime(startDate);
-        LocalDateTime endDateTime = parseDateTime(endDate);
-        
-        try {
-            ExportReportDto exportDto = reportService.generateTeachersReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating teachers report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("teachers_report"),
+                outputStream -> reportService.writeTeachersReport(outputStream));
     }
 
     @GetMapping("/lessons")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<Resource> generateLessonsReport(
+    public ResponseEntity<StreamingResponseBody> generateLessonsReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
         LocalDateTime startDateTime = parseDateTime(startDate);
         LocalDateTime endDateTime = parseDateTime(endDate);
         
-        try {
-            ExportReportDto exportDto = reportService.generateLessonsReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating lessons report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("lessons_report"),
+                outputStream -> reportService.writeLessonsReport(startDateTime, endDateTime, outputStream));
     }
 
     // Extended reports for admin
     @GetMapping("/packages")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource> generatePackagesReport(
+    public ResponseEntity<StreamingResponseBody> generatePackagesReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-        
-        LocalDateTime startDateTime = parseDateTime(startDate);
-        LocalDateTime endDateTime = parseDateTime(endDate);
-        
-        try {
-            ExportReportDto exportDto = reportService.generatePackagesReport(startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating packages report: " + e.getMessage());
-        }
+        return createStreamingExcelResponse(reportService.buildFileName("packages_report"),
+                outputStream -> reportService.writePackagesReport(outputStream));
     }
 
     @GetMapping("/system-stats")
@@ -146,20 +127,66 @@ public class ReportController {
     // Mass export functionality for admin
     @GetMapping("/mass-export")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource> generateMassExportReport(
+    public ResponseEntity<StreamingResponseBody> generateMassExportReport(
             @RequestParam String exportType,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        LocalDateTime startDateTime = parseDateTime(startDate);
+        LocalDateTime endDateTime = parseDateTime(endDate);
+        
+        // Resolving the file name validates the export type before the response is committed
+        String fileName = reportService.getMassExportFileName(exportType);
+        return createStreamingExcelResponse(fileName,
+                outputStream -> reportService.writeMassExportReport(exportType, startDateTime, endDateTime, outputStream));
+    }
+
+    // Background report jobs: submit, poll and download when ready
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<ReportJobDto> submitReportJob(
+            @RequestParam String reportType,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            Authentication authentication) {
         
         LocalDateTime startDateTime = parseDateTime(startDate);
         LocalDateTime endDateTime = parseDateTime(endDate);
+        ReportJobDto job = reportJobService.submitJob(reportType, startDateTime, endDateTime,
+                authentication.getName(), isAdmin(authentication));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<List<ReportJobDto>> getReportJobs(Authentication authentication) {
+        return ResponseEntity.ok(reportJobService.getJobs(authentication.getName(), isAdmin(authentication)));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<ReportJobDto> getReportJob(@PathVariable String jobId, Authentication authentication) {
+        return ResponseEntity.ok(reportJobService.getJob(jobId, authentication.getName(), isAdmin(authentication)));
+    }
+
+    // Resource bodies support HTTP Range requests, so interrupted downloads can be resumed
+    @GetMapping("/jobs/{jobId}/download")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId, Authentication authentication) {
+        String requestedBy = authentication.getName();
+        boolean admin = isAdmin(authentication);
+        ReportJobDto job = reportJobService.getJob(jobId, requestedBy, admin);
+        FileSystemResource resource = new FileSystemResource(reportJobService.getJobResult(jobId, requestedBy, admin));
         
-        try {
-            ExportReportDto exportDto = reportService.generateMassExportReport(exportType, startDateTime, endDateTime);
-            return createExcelResponse(exportDto);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating mass export report: " + e.getMessage());
-        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(resource);
+    }
+
+    private boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
     }
 
     private LocalDateTime parseDateTime(String dateTimeStr) {
@@ -183,12 +210,19 @@ public class ReportController {
                 .body(resource);
     }
 
+    private ResponseEntity<StreamingResponseBody> createStreamingExcelResponse(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     // Report status and metadata endpoints
     @GetMapping("/status")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
     public ResponseEntity<MessageDto> getReportGenerationStatus() {
-        // In a real implementation, this would return the status of ongoing report generation
-        return ResponseEntity.ok(new MessageDto("Report generation service is operational"));
+        return ResponseEntity.ok(new MessageDto("Report generation service is operational. Queued jobs: "
+                + reportJobService.getQueuedJobCount() + ", running jobs: " + reportJobService.getRunningJobCount()));
     }
 
     @GetMapping("/metadata")
@@ -0,0 +1,37 @@
+package com.crm.system.controller;
+
+import com.crm.system.dto.SearchPageDto;
+import com.crm.system.model.UserRole;
+import com.crm.system.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/managers/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    @GetMapping("/students")
+    @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
+    public ResponseEntity<SearchPageDto> searchStudents(
+            @RequestParam("q") String term,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(searchService.searchStudents(term, cursor, limit));
+    }
+
+    @GetMapping("/users")
+    @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
+    public ResponseEntity<SearchPageDto> searchUsers(
+            @RequestParam("q") String term,
+            @RequestParam(required = false) UserRole role,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(searchService.searchUsers(term, role, cursor, limit));
+    }
+}
@@ -21,7 +21,11 @@ public class SlotBookingController {
 
     @PostMapping("/bookings")
     @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
-    public ResponseEntity<LessonDto> bookSlot(@Valid @RequestBody BookSlotDto bookSlotDto) {
+    public ResponseEntity<LessonDto> bookSlot(@Valid @RequestBody BookSlotDto bookSlotDto,
+                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            bookSlotDto.setIdempotencyKey(idempotencyKey);
+        }
         Lesson lesson = slotBookingService.bookSlot(bookSlotDto);
         return ResponseEntity.ok(convertToDto(lesson));
     }
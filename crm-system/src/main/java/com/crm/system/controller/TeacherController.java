@@ -2,6 +2,7 @@ package com.crm.system.controller;
 
 import com.crm.system.dto.*;
 import com.crm.system.model.*;
+import com.crm.system.security.AuthenticatedUser;
 import com.crm.system.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -10,7 +11,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -70,32 +70,28 @@ public class TeacherController {
     // Teacher self-management endpoints
     @GetMapping("/teachers/me")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<UserDto> getCurrentTeacher(Authentication authentication) {
-        User teacher = getCurrentUser(authentication);
-        return ResponseEntity.ok(convertToUserDto(teacher));
+    public ResponseEntity<UserDto> getCurrentTeacher(AuthenticatedUser teacher) {
+        return ResponseEntity.ok(convertToUserDto(userService.getById(teacher.getId())));
     }
 
     //== Availability Endpoints for Teacher ==/
     @GetMapping("/teachers/me/availability")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<Page<AvailabilitySlotDto>> getMyAvailabilitySlots(Authentication authentication, Pageable pageable) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<Page<AvailabilitySlotDto>> getMyAvailabilitySlots(AuthenticatedUser teacher, Pageable pageable) {
         Page<AvailabilitySlot> slotPage = availabilitySlotService.findAvailableSlotsByTeacherIdAndDateRange(teacher.getId(), LocalDate.now(), null, pageable);
         return ResponseEntity.ok(slotPage.map(this::convertSlotToDto));
     }
 
     @PostMapping("/teachers/me/availability")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<AvailabilitySlotDto> createMyAvailabilitySlot(Authentication authentication, @Valid @RequestBody CreateAvailabilitySlotDto createDto) {
-        User teacher = getCurrentUser(authentication);
-        AvailabilitySlot slot = availabilitySlotService.createAvailabilitySlot(teacher, createDto.getSlotDate(), createDto.getSlotTime(), createDto.getDurationMinutes());
+    public ResponseEntity<AvailabilitySlotDto> createMyAvailabilitySlot(AuthenticatedUser teacher, @Valid @RequestBody CreateAvailabilitySlotDto createDto) {
+        AvailabilitySlot slot = availabilitySlotService.createAvailabilitySlot(userService.getReference(teacher.getId()), createDto.getSlotDate(), createDto.getSlotTime(), createDto.getDurationMinutes());
         return ResponseEntity.ok(convertSlotToDto(slot));
     }
 
     @DeleteMapping("/teachers/me/availability/{slotId}")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<?> deleteMyAvailabilitySlot(Authentication authentication, @PathVariable Long slotId) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<?> deleteMyAvailabilitySlot(AuthenticatedUser teacher, @PathVariable Long slotId) {
         AvailabilitySlot slot = availabilitySlotService.findById(slotId).orElseThrow(() -> new RuntimeException("Slot not found"));
         if (!slot.getTeacher().getId().equals(teacher.getId())) {
             return ResponseEntity.status(403).body(new MessageDto("Forbidden"));
@@ -110,8 +106,7 @@ public class TeacherController {
     //== Calendar Endpoint for Teacher ==/
     @GetMapping("/teachers/me/calendar")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<List<CalendarDayDto>> getMyCalendar(Authentication authentication, @RequestParam LocalDate startDate, @RequestParam LocalDate endDate) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<List<CalendarDayDto>> getMyCalendar(AuthenticatedUser teacher, @RequestParam LocalDate startDate, @RequestParam LocalDate endDate) {
         List<CalendarDayDto> calendar = calendarService.getTeacherCalendar(teacher.getId(), startDate, endDate);
         return ResponseEntity.ok(calendar);
     }
@@ -119,16 +114,14 @@ public class TeacherController {
     //== Lesson and Student Management for Teacher ==/
     @GetMapping("/teachers/me/lessons")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<List<LessonDto>> getMyScheduledLessons(Authentication authentication) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<List<LessonDto>> getMyScheduledLessons(AuthenticatedUser teacher) {
         List<Lesson> lessons = lessonService.findScheduledLessonsByTeacherId(teacher.getId());
         return ResponseEntity.ok(lessons.stream().map(this::convertLessonToDto).collect(Collectors.toList()));
     }
 
     @PostMapping("/teachers/me/lessons/{lessonId}/confirm")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<?> confirmLesson(Authentication authentication, @PathVariable Long lessonId) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<?> confirmLesson(AuthenticatedUser teacher, @PathVariable Long lessonId) {
         Lesson lesson = lessonService.findById(lessonId).orElseThrow(() -> new RuntimeException("Lesson not found"));
         if (!lesson.getTeacher().getId().equals(teacher.getId())) {
             return ResponseEntity.status(403).body(new MessageDto("Forbidden"));
@@ -139,8 +132,7 @@ public class TeacherController {
 
     @PostMapping("/teachers/me/lessons/{lessonId}/request-reschedule")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<?> requestReschedule(Authentication authentication, @PathVariable Long lessonId, @RequestBody RescheduleRequestDto requestDto) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<?> requestReschedule(AuthenticatedUser teacher, @PathVariable Long lessonId, @RequestBody RescheduleRequestDto requestDto) {
         Lesson lesson = lessonService.findById(lessonId).orElseThrow(() -> new RuntimeException("Lesson not found"));
         if (!lesson.getTeacher().getId().equals(teacher.getId())) {
             return ResponseEntity.status(403).body(new MessageDto("Forbidden"));
@@ -153,36 +145,28 @@ public class TeacherController {
 
     @GetMapping("/teachers/me/students")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<List<StudentDto>> getMyStudents(Authentication authentication) {
-        User teacher = getCurrentUser(authentication);
-        List<Student> students = studentService.findByAssignedTeacher(teacher);
+    public ResponseEntity<List<StudentDto>> getMyStudents(AuthenticatedUser teacher) {
+        List<Student> students = studentService.findByAssignedTeacher(userService.getReference(teacher.getId()));
         return ResponseEntity.ok(students.stream().map(this::convertStudentToDto).collect(Collectors.toList()));
     }
 
     @PostMapping("/teachers/me/students/{studentId}/notes")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<TeacherNoteDto> addNoteToStudent(Authentication authentication, @PathVariable Long studentId, @RequestBody NoteDto noteDto) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<TeacherNoteDto> addNoteToStudent(AuthenticatedUser teacher, @PathVariable Long studentId, @RequestBody NoteDto noteDto) {
         Student student = studentService.findById(studentId).orElseThrow(() -> new RuntimeException("Student not found"));
         // Add check to ensure student is assigned to this teacher
-        TeacherNote note = teacherNoteService.addNote(teacher, student, noteDto.getNote());
+        TeacherNote note = teacherNoteService.addNote(userService.getReference(teacher.getId()), student, noteDto.getNote());
         return ResponseEntity.ok(convertNoteToDto(note));
     }
 
     @GetMapping("/teachers/me/students/{studentId}/notes")
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<List<TeacherNoteDto>> getNotesForStudent(Authentication authentication, @PathVariable Long studentId) {
-        User teacher = getCurrentUser(authentication);
+    public ResponseEntity<List<TeacherNoteDto>> getNotesForStudent(AuthenticatedUser teacher, @PathVariable Long studentId) {
         List<TeacherNote> notes = teacherNoteService.getNotesByTeacherAndStudent(teacher.getId(), studentId);
         return ResponseEntity.ok(notes.stream().map(this::convertNoteToDto).collect(Collectors.toList()));
     }
 
     //== Helper Methods ==/
-    private User getCurrentUser(Authentication authentication) {
-        String email = authentication.getName();
-        return userService.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-    }
-
     private UserDto convertToUserDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
@@ -1,10 +1,12 @@
 package com.crm.system.controller;
 
+import com.crm.system.dto.HistoryPageDto;
 import com.crm.system.dto.TelegramMessageDto;
 import com.crm.system.model.TelegramMessage;
 import com.crm.system.model.TelegramMessage.RecipientType;
 import com.crm.system.model.TelegramMessage.MessageType;
 import com.crm.system.model.TelegramMessage.DeliveryStatus;
+import com.crm.system.service.MessageHistoryService;
 import com.crm.system.service.TelegramMessageService;
 import com.crm.system.service.UserService;
 import com.crm.system.service.StudentService;
@@ -31,6 +33,9 @@ public class TelegramMessageController {
     @Autowired
     private TelegramMessageService telegramMessageService;
 
+    @Autowired
+    private MessageHistoryService messageHistoryService;
+
     @Autowired
     private UserService userService;
 
@@ -85,6 +90,24 @@ public class TelegramMessageController {
         return ResponseEntity.ok(dtoPage);
     }
 
+    // Whole history, newest first; pages continue from nextCursor and total is only counted on request
+    @GetMapping("/telegram-messages/recipients/{recipientId}/{recipientType}/history")
+    @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('MANAGER') or hasRole('ADMIN')")
+    public ResponseEntity<HistoryPageDto<TelegramMessageDto>> getRecipientMessageHistory(
+            @PathVariable Long recipientId,
+            @PathVariable RecipientType recipientType,
+            @RequestParam(required = false) List<DeliveryStatus> statuses,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        List<DeliveryStatus> deliveryStatuses = statuses != null ? statuses :
+                List.of(DeliveryStatus.PENDING, DeliveryStatus.SENT, DeliveryStatus.DELIVERED, DeliveryStatus.READ);
+
+        return ResponseEntity.ok(messageHistoryService.getTelegramMessageHistory(
+                recipientId, recipientType, deliveryStatuses, cursor, size, includeTotal));
+    }
+
     @GetMapping("/telegram-messages/{id}")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('MANAGER') or hasRole('ADMIN')")
     public ResponseEntity<TelegramMessageDto> getMessageById(@PathVariable Long id) {
@@ -2,11 +2,10 @@ package com.crm.system.controller;
 
 import com.crm.system.dto.UserDto;
 import com.crm.system.model.User;
+import com.crm.system.security.AuthenticatedUser;
 import com.crm.system.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -18,11 +17,8 @@ public class UserController {
     private UserService userService;
 
     @GetMapping("/me")
-    public ResponseEntity<UserDto> getCurrentUser(@AuthenticationPrincipal UserDetails userDetails) {
-        String email = userDetails.getUsername();
-
-        User user = userService.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+    public ResponseEntity<UserDto> getCurrentUser(AuthenticatedUser authenticatedUser) {
+        User user = userService.getById(authenticatedUser.getId());
 
         UserDto userDto = convertToDto(user);
         return ResponseEntity.ok(userDto);
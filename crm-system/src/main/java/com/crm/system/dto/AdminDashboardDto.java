@@ -29,6 +29,7 @@ public class AdminDashboardDto {
     private long failedNotifications;
     private List<StudentEndingSoonDto> studentsEndingSoon;
     private LocalDateTime lastUpdated;
+    private long snapshotAgeSeconds;
 
     // Constructors
     public AdminDashboardDto() {}
@@ -233,4 +234,12 @@ public class AdminDashboardDto {
     public void setLastUpdated(LocalDateTime lastUpdated) {
         this.lastUpdated = lastUpdated;
     }
-}
\ No newline at end of file
+
+    public long getSnapshotAgeSeconds() {
+        return snapshotAgeSeconds;
+    }
+
+    public void setSnapshotAgeSeconds(long snapshotAgeSeconds) {
+        this.snapshotAgeSeconds = snapshotAgeSeconds;
+    }
+}
@@ -1,6 +1,7 @@
 package com.crm.system.dto;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 public class BookSlotDto {
     @NotNull
@@ -11,6 +12,10 @@ public class BookSlotDto {
 
     private String notes;
 
+    // Client generated key; repeating a request with the same key does not book twice
+    @Size(max = 100)
+    private String idempotencyKey;
+
     // Getters and Setters
     public Long getSlotId() {
         return slotId;
@@ -35,4 +40,12 @@ public class BookSlotDto {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
\ No newline at end of file
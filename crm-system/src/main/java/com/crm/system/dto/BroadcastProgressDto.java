@@ -0,0 +1,109 @@
+package com.crm.system.dto;
+
+import java.time.LocalDateTime;
+
+public class BroadcastProgressDto {
+    private String id;
+    private String recipientType;
+    private String notificationType;
+    private String status;
+    private long notificationsCreated;
+    private long emailsQueued;
+    private int chunksProcessed;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public BroadcastProgressDto() {}
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRecipientType() {
+        return recipientType;
+    }
+
+    public void setRecipientType(String recipientType) {
+        this.recipientType = recipientType;
+    }
+
+    public String getNotificationType() {
+        return notificationType;
+    }
+
+    public void setNotificationType(String notificationType) {
+        this.notificationType = notificationType;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getNotificationsCreated() {
+        return notificationsCreated;
+    }
+
+    public void setNotificationsCreated(long notificationsCreated) {
+        this.notificationsCreated = notificationsCreated;
+    }
+
+    public long getEmailsQueued() {
+        return emailsQueued;
+    }
+
+    public void setEmailsQueued(long emailsQueued) {
+        this.emailsQueued = emailsQueued;
+    }
+
+    public int getChunksProcessed() {
+        return chunksProcessed;
+    }
+
+    public void setChunksProcessed(int chunksProcessed) {
+        this.chunksProcessed = chunksProcessed;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,101 @@
+package com.crm.system.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class BulkEmailJobDto {
+    private String id;
+    private String subject;
+    private String status;
+    private int totalRecipients;
+    private int sent;
+    private int failed;
+    private Map<String, String> failedRecipients;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public BulkEmailJobDto() {}
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTotalRecipients() {
+        return totalRecipients;
+    }
+
+    public void setTotalRecipients(int totalRecipients) {
+        this.totalRecipients = totalRecipients;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public void setSent(int sent) {
+        this.sent = sent;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public Map<String, String> getFailedRecipients() {
+        return failedRecipients;
+    }
+
+    public void setFailedRecipients(Map<String, String> failedRecipients) {
+        this.failedRecipients = failedRecipients;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
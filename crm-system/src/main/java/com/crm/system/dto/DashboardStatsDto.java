@@ -13,6 +13,7 @@ public class DashboardStatsDto {
     private long lessonsThisWeek;
     private List<StudentLessonSummaryDto> studentsEndingSoon;
     private LocalDateTime lastUpdated;
+    private long snapshotAgeSeconds;
 
     // Constructors
     public DashboardStatsDto() {}
@@ -103,4 +104,12 @@ public class DashboardStatsDto {
     public void setLastUpdated(LocalDateTime lastUpdated) {
         this.lastUpdated = lastUpdated;
     }
-}
\ No newline at end of file
+
+    public long getSnapshotAgeSeconds() {
+        return snapshotAgeSeconds;
+    }
+
+    public void setSnapshotAgeSeconds(long snapshotAgeSeconds) {
+        this.snapshotAgeSeconds = snapshotAgeSeconds;
+    }
+}
@@ -0,0 +1,45 @@
+package com.crm.system.dto;
+
+import java.util.List;
+
+public class HistoryPageDto<T> {
+    private List<T> items;
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+    // Entries matching the filter across all pages; null unless requested
+    private Long total;
+
+    // Constructors
+    public HistoryPageDto() {}
+
+    public HistoryPageDto(List<T> items, String nextCursor, Long total) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
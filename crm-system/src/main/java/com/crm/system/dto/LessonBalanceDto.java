@@ -0,0 +1,113 @@
+package com.crm.system.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class LessonBalanceDto {
+    private Long studentId;
+    private int remainingLessons;
+    private List<Entry> ledger;
+
+    // Constructors
+    public LessonBalanceDto() {}
+
+    public LessonBalanceDto(Long studentId, int remainingLessons, List<Entry> ledger) {
+        this.studentId = studentId;
+        this.remainingLessons = remainingLessons;
+        this.ledger = ledger;
+    }
+
+    // Getters and Setters
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public int getRemainingLessons() {
+        return remainingLessons;
+    }
+
+    public void setRemainingLessons(int remainingLessons) {
+        this.remainingLessons = remainingLessons;
+    }
+
+    public List<Entry> getLedger() {
+        return ledger;
+    }
+
+    public void setLedger(List<Entry> ledger) {
+        this.ledger = ledger;
+    }
+
+    public static class Entry {
+        private Long packageId;
+        private int delta;
+        private int balanceAfter;
+        private String reason;
+        private Long referenceId;
+        private LocalDateTime createdAt;
+
+        public Entry() {}
+
+        public Entry(Long packageId, int delta, int balanceAfter, String reason, Long referenceId,
+                     LocalDateTime createdAt) {
+            this.packageId = packageId;
+            this.delta = delta;
+            this.balanceAfter = balanceAfter;
+            this.reason = reason;
+            this.referenceId = referenceId;
+            this.createdAt = createdAt;
+        }
+
+        public Long getPackageId() {
+            return packageId;
+        }
+
+        public void setPackageId(Long packageId) {
+            this.packageId = packageId;
+        }
+
+        public int getDelta() {
+            return delta;
+        }
+
+        public void setDelta(int delta) {
+            this.delta = delta;
+        }
+
+        public int getBalanceAfter() {
+            return balanceAfter;
+        }
+
+        public void setBalanceAfter(int balanceAfter) {
+            this.balanceAfter = balanceAfter;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
+
+        public Long getReferenceId() {
+            return referenceId;
+        }
+
+        public void setReferenceId(Long referenceId) {
+            this.referenceId = referenceId;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public void setCreatedAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -222,6 +222,7 @@ public class NotificationDto {
             case DELIVERED: return "Доставлено";
             case READ: return "Прочитано";
             case FAILED: return "Ошибка отправки";
+            case DEAD_LETTER: return "Попытки исчерпаны";
             default: return "Неизвестный";
         }
     }
@@ -0,0 +1,34 @@
+package com.crm.system.dto;
+
+import java.util.List;
+
+public class SearchPageDto {
+    private List<SearchResultDto> items;
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+
+    // Constructors
+    public SearchPageDto() {}
+
+    public SearchPageDto(List<SearchResultDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<SearchResultDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SearchResultDto> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
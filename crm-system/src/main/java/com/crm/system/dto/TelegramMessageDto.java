@@ -245,6 +245,7 @@ public class TelegramMessageDto {
             case DELIVERED: return "Доставлено";
             case READ: return "Прочитано";
             case FAILED: return "Ошибка отправки";
+            case DEAD_LETTER: return "Попытки исчерпаны";
             default: return "Неизвестный";
         }
     }
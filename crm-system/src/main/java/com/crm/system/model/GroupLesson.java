@@ -38,7 +38,9 @@ public class GroupLesson {
     @Column(name = "max_students")
     private Integer maxStudents;
 
-    @Column(name = "current_students")
+    // Счетчик занятых мест меняется только условными UPDATE в GroupLessonSeatRepository,
+    // поэтому сохранение устаревшей сущности его не перезаписывает
+    @Column(name = "current_students", updatable = false)
     private Integer currentStudents = 0;
 
     @Enumerated(EnumType.STRING)
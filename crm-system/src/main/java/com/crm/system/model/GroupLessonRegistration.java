@@ -60,7 +60,8 @@ public class GroupLessonRegistration {
         REGISTERED,    // Зарегистрирован
         ATTENDED,     // Посетил урок
         MISSED,       // Пропустил урок
-        CANCELLED     // Отменил регистрацию
+        CANCELLED,    // Отменил регистрацию
+        WAITLISTED    // В листе ожидания
     }
 
     // Constructors
@@ -171,6 +172,10 @@ public class GroupLessonRegistration {
         return this.registrationStatus == RegistrationStatus.CANCELLED;
     }
 
+    public boolean isWaitlisted() {
+        return this.registrationStatus == RegistrationStatus.WAITLISTED;
+    }
+
     public void markAsAttended() {
         this.registrationStatus = RegistrationStatus.ATTENDED;
         this.attended = true;
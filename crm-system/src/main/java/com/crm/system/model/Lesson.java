@@ -61,6 +61,9 @@ public class Lesson {
     @Column(name = "end_time")
     private LocalDateTime endTime;
 
+    @Column(name = "booking_key", length = 100, updatable = false)
+    private String bookingKey;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -218,6 +221,14 @@ public class Lesson {
         this.endTime = endTime;
     }
 
+    public String getBookingKey() {
+        return bookingKey;
+    }
+
+    public void setBookingKey(String bookingKey) {
+        this.bookingKey = bookingKey;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
 @Table(name = "notifications")
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids are preallocated in blocks of 50 (notifications_id_seq increments by 50, see V7),
+    // which keeps Hibernate insert batching enabled for broadcasts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_id_seq")
+    @SequenceGenerator(name = "notifications_id_seq", sequenceName = "notifications_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -52,6 +55,12 @@ public class Notification {
     @Column(name = "priority")
     private Integer priority = 0;
 
+    @Column(name = "retry_count")
+    private Integer retryCount = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -101,7 +110,8 @@ public class Notification {
         SENT,         // Отправлено
         DELIVERED,    // Доставлено
         READ,         // Прочитано
-        FAILED        // Ошибка отправки
+        FAILED,       // Ошибка отправки
+        DEAD_LETTER   // Попытки исчерпаны, уведомление больше не отправляется
     }
 
     // Constructors
@@ -215,6 +225,22 @@ public class Notification {
         this.priority = priority;
     }
 
+    public Integer getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(Integer retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -327,6 +353,7 @@ public class Notification {
             case DELIVERED: return "Доставлено";
             case READ: return "Прочитано";
             case FAILED: return "Ошибка отправки";
+            case DEAD_LETTER: return "Попытки исчерпаны";
             default: return "Неизвестный";
         }
     }
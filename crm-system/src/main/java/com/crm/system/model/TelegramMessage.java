@@ -54,6 +54,9 @@ public class TelegramMessage {
     @Column(name = "retry_count")
     private Integer retryCount = 0;
 
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     @Column(name = "related_entity_id")
     private Long relatedEntityId;
 
@@ -108,7 +111,8 @@ public class TelegramMessage {
         DELIVERED,      // Сообщение доставлено получателю
         READ,           // Сообщение прочитано получателем
         FAILED,         // Ошибка при отправке
-        RETRY_PENDING   // Ожидание повторной попытки отправки
+        RETRY_PENDING,  // Ожидание повторной попытки отправки
+        DEAD_LETTER     // Попытки исчерпаны, сообщение больше не отправляется
     }
 
 
@@ -230,6 +234,14 @@ public class TelegramMessage {
         this.retryCount = retryCount;
     }
 
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
     public Long getRelatedEntityId() {
         return relatedEntityId;
     }
@@ -356,6 +368,7 @@ public class TelegramMessage {
             case READ: return "Прочитано";
             case FAILED: return "Ошибка отправки";
             case RETRY_PENDING: return "Ожидание повторной отправки";
+            case DEAD_LETTER: return "Попытки исчерпаны";
             default: return "Неизвестный";
         }
     }
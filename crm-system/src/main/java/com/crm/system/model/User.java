@@ -1,5 +1,6 @@
 package com.crm.system.model;
 
+import com.crm.system.security.UserCacheInvalidationListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheInvalidationListener.class)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
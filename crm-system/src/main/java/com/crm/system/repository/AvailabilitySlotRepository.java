@@ -5,6 +5,7 @@ import com.crm.system.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -96,4 +97,13 @@ public interface AvailabilitySlotRepository extends JpaRepository<AvailabilitySl
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate
     );
+    
+    /**
+     * Marks the slot as booked only if it is still available. The check and the update are a single
+     * statement, so of several concurrent callers exactly one gets 1 back.
+     */
+    @Modifying
+    @Query(value = "UPDATE availability_slots SET status = 'BOOKED', is_booked = TRUE, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE id = :slotId AND status = 'AVAILABLE'", nativeQuery = true)
+    int claimAvailableSlot(@Param("slotId") Long slotId);
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.crm.system.repository;
+
+import com.crm.system.model.UserRole;
+import com.crm.system.service.NotificationBroadcastService.BaseFilterCriteria;
+import com.crm.system.service.NotificationBroadcastService.StudentFilterCriteria;
+import com.crm.system.service.NotificationBroadcastService.TeacherFilterCriteria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves broadcast recipients page by page. The filter criteria are translated into SQL
+ * predicates and pages are read with keyset pagination (id > last seen id), so a broadcast
+ * never loads all recipients at once and every page costs the same.
+ */
+@Repository
+public class BroadcastRecipientRepository {
+
+    private static final RowMapper<Recipient> RECIPIENT_MAPPER =
+            (rs, rowNum) -> new Recipient(rs.getLong("id"), rs.getString("email"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns up to limit students with id greater than afterId matching the criteria (null for all).
+     */
+    public List<Recipient> findStudents(StudentFilterCriteria criteria, long afterId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT s.id, s.email FROM students s WHERE s.id > ?");
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        if (criteria != null) {
+            if (criteria.getHasAssignedTeacher() != null) {
+                sql.append(criteria.getHasAssignedTeacher()
+                        ? " AND s.assigned_teacher_id IS NOT NULL"
+                        : " AND s.assigned_teacher_id IS NULL");
+            }
+            if (criteria.getMinRemainingLessons() != null) {
+                sql.append(" AND (SELECT COALESCE(MAX(b.remaining_lessons), 0) FROM student_lesson_balances b " +
+                        "WHERE b.student_id = s.id) >= ?");
+                args.add(criteria.getMinRemainingLessons());
+            }
+            if (criteria.getMaxRemainingLessons() != null) {
+                sql.append(" AND (SELECT COALESCE(MAX(b.remaining_lessons), 0) FROM student_lesson_balances b " +
+                        "WHERE b.student_id = s.id) <= ?");
+                args.add(criteria.getMaxRemainingLessons());
+            }
+            // activeOnly has no stored counterpart for students and is not applied, as before
+            appendRegistrationDates(sql, args, "s", criteria);
+        }
+        sql.append(" ORDER BY s.id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), RECIPIENT_MAPPER, args.toArray());
+    }
+
+    /**
+     * Returns up to limit users of the role with id greater than afterId matching the criteria (null for all).
+     */
+    public List<Recipient> findUsers(UserRole role, BaseFilterCriteria criteria, long afterId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT u.id, u.email FROM users u WHERE u.role = ? AND u.id > ?");
+        List<Object> args = new ArrayList<>();
+        args.add(role.name());
+        args.add(afterId);
+        if (criteria != null) {
+            if (criteria.getActiveOnly() != null) {
+                sql.append(" AND COALESCE(u.is_active, FALSE) = ?");
+                args.add(criteria.getActiveOnly());
+            }
+            if (criteria instanceof TeacherFilterCriteria
+                    && ((TeacherFilterCriteria) criteria).getHasAssignedStudents() != null) {
+                sql.append(((TeacherFilterCriteria) criteria).getHasAssignedStudents() ? " AND EXISTS" : " AND NOT EXISTS")
+                        .append(" (SELECT 1 FROM students s WHERE s.assigned_teacher_id = u.id)");
+            }
+            appendRegistrationDates(sql, args, "u", criteria);
+        }
+        sql.append(" ORDER BY u.id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), RECIPIENT_MAPPER, args.toArray());
+    }
+
+    /**
+     * Returns the students with the given ids, in id order.
+     */
+    public List<Recipient> findStudentsByIds(Long[] ids) {
+        return jdbcTemplate.query("SELECT id, email FROM students WHERE id = ANY(?) ORDER BY id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)), RECIPIENT_MAPPER);
+    }
+
+    /**
+     * Returns the users with the given ids, in id order.
+     */
+    public List<Recipient> findUsersByIds(Long[] ids) {
+        return jdbcTemplate.query("SELECT id, email FROM users WHERE id = ANY(?) ORDER BY id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)), RECIPIENT_MAPPER);
+    }
+
+    private void appendRegistrationDates(StringBuilder sql, List<Object> args, String alias,
+                                         BaseFilterCriteria criteria) {
+        if (criteria.getRegisteredAfter() != null) {
+            sql.append(" AND ").append(alias).append(".created_at >= ?");
+            args.add(Timestamp.valueOf(criteria.getRegisteredAfter()));
+        }
+        if (criteria.getRegisteredBefore() != null) {
+            sql.append(" AND ").append(alias).append(".created_at <= ?");
+            args.add(Timestamp.valueOf(criteria.getRegisteredBefore()));
+        }
+    }
+
+    public static class Recipient {
+        private final long id;
+        private final String email;
+
+        public Recipient(long id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+    }
+}
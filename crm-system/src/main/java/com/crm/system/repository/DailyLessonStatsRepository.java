@@ -0,0 +1,235 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lesson counts per day, teacher and status (daily_lesson_stats).
+ *
+ * A lesson change moves one lesson from the row of its old day to the row of its new day. The
+ * lesson row is locked while its old day is read, so concurrent changes of one lesson cannot both
+ * move it from the same row. Methods that change counts must run in the transaction of the lesson change.
+ */
+@Repository
+public class DailyLessonStatsRepository {
+
+    private static final String LOCK_LESSON_DAY_SQL =
+            "SELECT scheduled_date, teacher_id, status FROM lessons WHERE id = ? FOR UPDATE";
+
+    private static final String ADD_SQL =
+            "INSERT INTO daily_lesson_stats (stat_date, teacher_id, status, lesson_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (stat_date, teacher_id, status) DO UPDATE SET " +
+            "lesson_count = daily_lesson_stats.lesson_count + EXCLUDED.lesson_count, updated_at = EXCLUDED.updated_at";
+
+    // Served by pk_daily_lesson_stats: a year is a few rows per teacher and day
+    private static final String DAILY_COUNTS_SQL =
+            "SELECT stat_date, " +
+            "       SUM(lesson_count) AS total, " +
+            "       COALESCE(SUM(lesson_count) FILTER (WHERE status = 'SCHEDULED'), 0) AS scheduled, " +
+            "       COALESCE(SUM(lesson_count) FILTER (WHERE status = 'COMPLETED'), 0) AS completed, " +
+            "       COALESCE(SUM(lesson_count) FILTER (WHERE status = 'CANCELLED'), 0) AS cancelled, " +
+            "       COALESCE(SUM(lesson_count) FILTER (WHERE status = 'MISSED'), 0) AS missed, " +
+            "       COUNT(DISTINCT teacher_id) FILTER (WHERE status <> 'CANCELLED' AND lesson_count > 0) AS active_teachers " +
+            "FROM daily_lesson_stats WHERE stat_date BETWEEN ? AND ? " +
+            "GROUP BY stat_date ORDER BY stat_date";
+
+    // Incremental updates wait for the reconciliation, so none of them is lost between its read and write
+    private static final String LOCK_STATS_SQL =
+            "LOCK TABLE daily_lesson_stats IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String RECOUNT_SQL =
+            "INSERT INTO daily_lesson_stats (stat_date, teacher_id, status, lesson_count, updated_at) " +
+            "SELECT scheduled_date, teacher_id, status, COUNT(*), ? FROM lessons WHERE status IS NOT NULL " +
+            "GROUP BY scheduled_date, teacher_id, status " +
+            "ON CONFLICT (stat_date, teacher_id, status) DO UPDATE SET " +
+            "lesson_count = EXCLUDED.lesson_count, updated_at = EXCLUDED.updated_at " +
+            "WHERE daily_lesson_stats.lesson_count <> EXCLUDED.lesson_count";
+
+    // Rows left at zero by incremental updates are removed too, but only non-zero ones were wrong
+    private static final String DELETE_STALE_SQL =
+            "WITH stale AS (" +
+            "  DELETE FROM daily_lesson_stats d WHERE NOT EXISTS (" +
+            "    SELECT 1 FROM lessons l " +
+            "    WHERE l.teacher_id = d.teacher_id AND l.scheduled_date = d.stat_date AND l.status = d.status) " +
+            "  RETURNING lesson_count) " +
+            "SELECT COUNT(*) FROM stale WHERE lesson_count <> 0";
+
+    // Lessons without a status are not counted
+    private static final RowMapper<LessonDay> LESSON_DAY_MAPPER = (rs, rowNum) -> rs.getString("status") == null ? null
+            : new LessonDay(rs.getDate("scheduled_date").toLocalDate(), rs.getLong("teacher_id"), rs.getString("status"));
+
+    private static final RowMapper<DailyLessonCounts> DAILY_COUNTS_MAPPER = (rs, rowNum) -> new DailyLessonCounts(
+            rs.getDate("stat_date").toLocalDate(), rs.getLong("total"), rs.getLong("scheduled"),
+            rs.getLong("completed"), rs.getLong("cancelled"), rs.getLong("missed"), rs.getLong("active_teachers"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks the lesson row until the end of the transaction.
+     *
+     * @return the day the lesson is counted in, or null if the lesson does not exist or is not counted
+     */
+    public LessonDay lockLessonDay(long lessonId) {
+        List<LessonDay> days = jdbcTemplate.query(LOCK_LESSON_DAY_SQL, LESSON_DAY_MAPPER, lessonId);
+        return days.isEmpty() ? null : days.get(0);
+    }
+
+    /**
+     * Moves one lesson from the before day to the after day. Either may be null for a created or
+     * deleted lesson.
+     */
+    public void move(LessonDay before, LessonDay after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        List<Object[]> changes = new ArrayList<>(2);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Rows are always updated in key order, so two opposite moves cannot deadlock
+        if (before != null && (after == null || before.compareTo(after) < 0)) {
+            changes.add(change(before, -1, now));
+            if (after != null) {
+                changes.add(change(after, 1, now));
+            }
+        } else {
+            changes.add(change(after, 1, now));
+            if (before != null) {
+                changes.add(change(before, -1, now));
+            }
+        }
+        jdbcTemplate.batchUpdate(ADD_SQL, changes);
+    }
+
+    /**
+     * Counts per day between from and to inclusive; days without lessons are absent.
+     */
+    public List<DailyLessonCounts> findDailyCounts(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(DAILY_COUNTS_SQL, DAILY_COUNTS_MAPPER, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Recounts all rows from lessons. Must run in a transaction.
+     *
+     * @return number of rows whose count was wrong
+     */
+    public int reconcile() {
+        jdbcTemplate.execute(LOCK_STATS_SQL);
+        int recounted = jdbcTemplate.update(RECOUNT_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        return recounted + jdbcTemplate.queryForObject(DELETE_STALE_SQL, Integer.class);
+    }
+
+    private static Object[] change(LessonDay day, int delta, Timestamp now) {
+        return new Object[] { Date.valueOf(day.getDate()), day.getTeacherId(), day.getStatus(), delta, now };
+    }
+
+    public static class LessonDay implements Comparable<LessonDay> {
+        private final LocalDate date;
+        private final long teacherId;
+        private final String status;
+
+        public LessonDay(LocalDate date, long teacherId, String status) {
+            this.date = date;
+            this.teacherId = teacherId;
+            this.status = status;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public long getTeacherId() {
+            return teacherId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public int compareTo(LessonDay other) {
+            int byDate = date.compareTo(other.date);
+            if (byDate != 0) {
+                return byDate;
+            }
+            int byTeacher = Long.compare(teacherId, other.teacherId);
+            return byTeacher != 0 ? byTeacher : status.compareTo(other.status);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LessonDay)) {
+                return false;
+            }
+            LessonDay other = (LessonDay) o;
+            return teacherId == other.teacherId && date.equals(other.date) && status.equals(other.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, teacherId, status);
+        }
+    }
+
+    public static class DailyLessonCounts {
+        private final LocalDate date;
+        private final long total;
+        private final long scheduled;
+        private final long completed;
+        private final long cancelled;
+        private final long missed;
+        private final long activeTeachers;
+
+        public DailyLessonCounts(LocalDate date, long total, long scheduled, long completed,
+                                 long cancelled, long missed, long activeTeachers) {
+            this.date = date;
+            this.total = total;
+            this.scheduled = scheduled;
+            this.completed = completed;
+            this.cancelled = cancelled;
+            this.missed = missed;
+            this.activeTeachers = activeTeachers;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getScheduled() {
+            return scheduled;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        public long getMissed() {
+            return missed;
+        }
+
+        public long getActiveTeachers() {
+            return activeTeachers;
+        }
+    }
+}
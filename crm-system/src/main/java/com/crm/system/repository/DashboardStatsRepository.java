@@ -0,0 +1,95 @@
+package com.crm.system.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Aggregated counters for the dashboards. Each method is a single round trip
+ * that replaces a series of separate count() queries.
+ */
+@Repository
+public class DashboardStatsRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Returns rows of [role, is_active, count] for all users.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> countUsersByRoleAndActive() {
+        return entityManager.createNativeQuery(
+                "SELECT role, COALESCE(is_active, FALSE), COUNT(*) FROM users GROUP BY role, COALESCE(is_active, FALSE)")
+                .getResultList();
+    }
+
+    /**
+     * Returns a single row with student, lesson, package and notification counters, in the order:
+     * total students, students without teacher,
+     * total lessons, lessons today, lessons this week, lessons this month,
+     * completed, cancelled, missed, scheduled lessons,
+     * total packages, active packages, expired packages,
+     * pending notifications, failed notifications.
+     */
+    public Object[] loadActivityCounters(LocalDate today, LocalDate weekStart, LocalDate weekEnd,
+                                         LocalDate monthStart, LocalDate monthEnd,
+                                         LocalDateTime packageExpirationThreshold) {
+        return (Object[]) entityManager.createNativeQuery(
+                "SELECT s.total, s.without_teacher, " +
+                "l.total, l.today, l.this_week, l.this_month, " +
+                "l.completed, l.cancelled, l.missed, l.scheduled, " +
+                "p.total, p.active, p.expired, " +
+                "n.pending, n.failed " +
+                "FROM " +
+                "(SELECT COUNT(*) AS total, " +
+                "        COUNT(*) FILTER (WHERE assigned_teacher_id IS NULL) AS without_teacher " +
+                " FROM students) s, " +
+                "(SELECT COUNT(*) AS total, " +
+                "        COUNT(*) FILTER (WHERE scheduled_date = :today) AS today, " +
+                "        COUNT(*) FILTER (WHERE scheduled_date BETWEEN :weekStart AND :weekEnd) AS this_week, " +
+                "        COUNT(*) FILTER (WHERE scheduled_date BETWEEN :monthStart AND :monthEnd) AS this_month, " +
+                "        COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed, " +
+                "        COUNT(*) FILTER (WHERE status = 'CANCELLED') AS cancelled, " +
+                "        COUNT(*) FILTER (WHERE status = 'MISSED') AS missed, " +
+                "        COUNT(*) FILTER (WHERE status = 'SCHEDULED') AS scheduled " +
+                " FROM lessons) l, " +
+                "(SELECT COUNT(*) AS total, " +
+                "        COUNT(*) FILTER (WHERE remaining_lessons > 0) AS active, " +
+                "        COUNT(*) FILTER (WHERE remaining_lessons > 0 AND created_at < :expirationThreshold) AS expired " +
+                " FROM lesson_packages) p, " +
+                "(SELECT COUNT(*) FILTER (WHERE status = 'PENDING') AS pending, " +
+                "        COUNT(*) FILTER (WHERE status = 'FAILED') AS failed " +
+                " FROM notifications) n")
+                .setParameter("today", today)
+                .setParameter("weekStart", weekStart)
+                .setParameter("weekEnd", weekEnd)
+                .setParameter("monthStart", monthStart)
+                .setParameter("monthEnd", monthEnd)
+                .setParameter("expirationThreshold", packageExpirationThreshold)
+                .getSingleResult();
+    }
+
+    /**
+     * Returns rows of [date, students, users] created between startDate and endDate inclusive;
+     * days without registrations are absent.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> countRegistrationsByDate(LocalDate startDate, LocalDate endDate) {
+        return entityManager.createNativeQuery(
+                "SELECT day, SUM(students), SUM(users) FROM (" +
+                "  SELECT CAST(created_at AS DATE) AS day, COUNT(*) AS students, 0 AS users FROM students " +
+                "  WHERE created_at >= :startTime AND created_at < :endTime GROUP BY 1 " +
+                "  UNION ALL " +
+                "  SELECT CAST(created_at AS DATE), 0, COUNT(*) FROM users " +
+                "  WHERE created_at >= :startTime AND created_at < :endTime GROUP BY 1) r " +
+                "GROUP BY day ORDER BY day")
+                .setParameter("startTime", startDate.atStartOfDay())
+                .setParameter("endTime", endDate.plusDays(1).atStartOfDay())
+                .getResultList();
+    }
+}
@@ -0,0 +1,224 @@
+package com.crm.system.repository;
+
+import com.crm.system.config.DeliveryRetryProperties;
+import com.crm.system.model.TelegramMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based state changes of outbound Telegram messages and email notifications.
+ *
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} inside a single UPDATE, so several
+ * CRM instances can work on the same tables without picking the same row twice. The claim
+ * moves next_attempt_at forward; until then no other instance touches the row.
+ */
+@Repository
+public class DeliveryQueueRepository {
+
+    // Delay before the next attempt: base * 2^retry_count, capped and reduced by a random share
+    private static final String BACKOFF_SQL =
+            "CAST(? AS TIMESTAMP) + make_interval(secs => " +
+            "LEAST(CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION) * power(2, t.retry_count)) " +
+            "* (1 - CAST(? AS DOUBLE PRECISION) * random()))";
+
+    // Rows are inserted already claimed by the caller until leaseUntil
+    private static final String INSERT_PENDING_TELEGRAM_SQL =
+            "INSERT INTO telegram_messages (chat_id, recipient_id, recipient_type, message_text, message_type, " +
+            "delivery_status, retry_count, next_attempt_at, related_entity_id, related_entity_type, sent_at, " +
+            "created_at, updated_at) " +
+            "SELECT r.chat_id, r.recipient_id, ?, r.message_text, ?, 'PENDING', 0, ?, r.related_entity_id, ?, ?, ?, ? " +
+            "FROM unnest(CAST(? AS BIGINT[]), CAST(? AS BIGINT[]), CAST(? AS TEXT[]), CAST(? AS BIGINT[])) " +
+            "     AS r(chat_id, recipient_id, message_text, related_entity_id) " +
+            "RETURNING id, chat_id, message_text";
+
+    private static final String CLAIM_PENDING_TELEGRAM_SQL =
+            "UPDATE telegram_messages t SET next_attempt_at = ? " +
+            "FROM (SELECT id FROM telegram_messages " +
+            "      WHERE delivery_status = 'PENDING' AND created_at <= ? " +
+            "        AND (next_attempt_at IS NULL OR next_attempt_at <= ?) " +
+            "      ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE t.id = due.id " +
+            "RETURNING t.id, t.chat_id, t.message_text";
+
+    private static final String CLAIM_FAILED_TELEGRAM_SQL =
+            "UPDATE telegram_messages t SET delivery_status = 'PENDING', retry_count = t.retry_count + 1, " +
+            "next_attempt_at = ?, updated_at = ? " +
+            "FROM (SELECT id FROM telegram_messages " +
+            "      WHERE delivery_status = 'FAILED' AND retry_count + 1 < ? " +
+            "        AND (next_attempt_at IS NULL OR next_attempt_at <= ?) " +
+            "      ORDER BY next_attempt_at NULLS FIRST, id LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE t.id = due.id " +
+            "RETURNING t.id, t.chat_id, t.message_text";
+
+    private static final String MARK_TELEGRAM_SENT_SQL =
+            "UPDATE telegram_messages t SET delivery_status = 'SENT', message_id = r.message_id, sent_at = ?, " +
+            "error_message = NULL, next_attempt_at = NULL, updated_at = ? " +
+            "FROM unnest(CAST(? AS BIGINT[]), CAST(? AS BIGINT[])) AS r(id, message_id) " +
+            "WHERE t.id = r.id AND t.delivery_status = 'PENDING'";
+
+    private static final String MARK_TELEGRAM_FAILED_SQL =
+            "UPDATE telegram_messages t SET " +
+            "delivery_status = CASE WHEN t.retry_count + 1 >= ? THEN 'DEAD_LETTER' ELSE 'FAILED' END, " +
+            "error_message = r.error_message, next_attempt_at = " + BACKOFF_SQL + ", updated_at = ? " +
+            "FROM unnest(CAST(? AS BIGINT[]), CAST(? AS TEXT[])) AS r(id, error_message) " +
+            "WHERE t.id = r.id AND t.delivery_status = 'PENDING'";
+
+    private static final String DEAD_LETTER_TELEGRAM_SQL =
+            "UPDATE telegram_messages SET delivery_status = 'DEAD_LETTER', next_attempt_at = NULL, updated_at = ? " +
+            "WHERE delivery_status = 'FAILED' AND retry_count + 1 >= ?";
+
+    // A PENDING notification with retries and an expired next_attempt_at was claimed by an
+    // instance that stopped before writing the result, so it is claimed again. A notification whose
+    // email is still in the outbox is left to the outbox, which retries it on its own
+    private static final String CLAIM_DUE_NOTIFICATIONS_SQL =
+            "UPDATE notifications t SET status = 'PENDING', retry_count = t.retry_count + 1, " +
+            "next_attempt_at = " + BACKOFF_SQL + ", updated_at = ? " +
+            "FROM (SELECT id FROM notifications n " +
+            "      WHERE (status = 'FAILED' OR (status = 'PENDING' AND retry_count > 0)) " +
+            "        AND retry_count + 1 < ? " +
+            "        AND (next_attempt_at IS NULL OR next_attempt_at <= ?) " +
+            "        AND NOT EXISTS (SELECT 1 FROM email_outbox o " +
+            "                        WHERE o.notification_id = n.id AND o.status IN ('PENDING', 'SENDING')) " +
+            "      ORDER BY next_attempt_at NULLS FIRST, id LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE t.id = due.id " +
+            "RETURNING t.id";
+
+    private static final String DEAD_LETTER_NOTIFICATIONS_SQL =
+            "UPDATE notifications SET status = 'DEAD_LETTER', next_attempt_at = NULL, updated_at = ? " +
+            "WHERE status = 'FAILED' AND retry_count + 1 >= ?";
+
+    private static final RowMapper<TelegramMessage> CLAIMED_TELEGRAM_MAPPER = (rs, rowNum) -> {
+        TelegramMessage message = new TelegramMessage();
+        message.setId(rs.getLong("id"));
+        message.setChatId(rs.getLong("chat_id"));
+        message.setMessageText(rs.getString("message_text"));
+        return message;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeliveryRetryProperties retryProperties;
+
+    /**
+     * Inserts PENDING Telegram messages of one type with a single statement, claimed until
+     * leaseUntil. The returned messages carry only id, chat id and text.
+     */
+    public List<TelegramMessage> insertPendingTelegramMessages(String recipientType, String messageType,
+                                                               String relatedEntityType, Long[] chatIds,
+                                                               Long[] recipientIds, String[] messageTexts,
+                                                               Long[] relatedEntityIds, LocalDateTime leaseUntil) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(INSERT_PENDING_TELEGRAM_SQL, ps -> {
+            ps.setString(1, recipientType);
+            ps.setString(2, messageType);
+            ps.setTimestamp(3, Timestamp.valueOf(leaseUntil));
+            ps.setString(4, relatedEntityType);
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+            ps.setArray(8, ps.getConnection().createArrayOf("bigint", chatIds));
+            ps.setArray(9, ps.getConnection().createArrayOf("bigint", recipientIds));
+            ps.setArray(10, ps.getConnection().createArrayOf("text", messageTexts));
+            ps.setArray(11, ps.getConnection().createArrayOf("bigint", relatedEntityIds));
+        }, CLAIMED_TELEGRAM_MAPPER);
+    }
+
+    /**
+     * Claims PENDING Telegram messages that nobody is sending: created before the given time and
+     * without a live claim. The returned messages carry only id, chat id and text.
+     */
+    public List<TelegramMessage> claimPendingTelegramMessages(LocalDateTime createdBefore, LocalDateTime leaseUntil,
+                                                              int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(CLAIM_PENDING_TELEGRAM_SQL, CLAIMED_TELEGRAM_MAPPER,
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(createdBefore), Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * Claims FAILED Telegram messages whose next attempt is due and puts them back to PENDING
+     * with an incremented retry count. The returned messages carry only id, chat id and text.
+     */
+    public List<TelegramMessage> claimDueTelegramMessages(LocalDateTime leaseUntil, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(CLAIM_FAILED_TELEGRAM_SQL, CLAIMED_TELEGRAM_MAPPER,
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(now), retryProperties.getMaxAttempts(),
+                Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * Marks PENDING Telegram messages as sent. messageIds holds the Telegram message id for each row
+     * (null if unknown).
+     */
+    public int markTelegramMessagesSent(Long[] ids, Long[] messageIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(MARK_TELEGRAM_SENT_SQL, ps -> {
+            ps.setTimestamp(1, now);
+            ps.setTimestamp(2, now);
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", messageIds));
+        });
+    }
+
+    /**
+     * Marks PENDING Telegram messages as failed and schedules their next attempt, or moves them to
+     * DEAD_LETTER once max attempts are used up.
+     */
+    public int markTelegramMessagesFailed(Long[] ids, String[] errorMessages) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(MARK_TELEGRAM_FAILED_SQL, ps -> {
+            ps.setInt(1, retryProperties.getMaxAttempts());
+            setBackoff(ps, 2, now);
+            ps.setTimestamp(6, now);
+            ps.setArray(7, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(8, ps.getConnection().createArrayOf("text", errorMessages));
+        });
+    }
+
+    /**
+     * Moves FAILED Telegram messages that have used up their attempts to DEAD_LETTER.
+     */
+    public int deadLetterTelegramMessages() {
+        return jdbcTemplate.update(DEAD_LETTER_TELEGRAM_SQL,
+                Timestamp.valueOf(LocalDateTime.now()), retryProperties.getMaxAttempts());
+    }
+
+    /**
+     * Claims notifications whose next attempt is due, puts them to PENDING with an incremented retry
+     * count and schedules the attempt after this one. Returns the ids of the claimed rows.
+     */
+    public List<Long> claimDueNotifications(int limit) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(CLAIM_DUE_NOTIFICATIONS_SQL, ps -> {
+            setBackoff(ps, 1, now);
+            ps.setTimestamp(5, now);
+            ps.setInt(6, retryProperties.getMaxAttempts());
+            ps.setTimestamp(7, now);
+            ps.setInt(8, limit);
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Moves FAILED notifications that have used up their attempts to DEAD_LETTER.
+     */
+    public int deadLetterNotifications() {
+        return jdbcTemplate.update(DEAD_LETTER_NOTIFICATIONS_SQL,
+                Timestamp.valueOf(LocalDateTime.now()), retryProperties.getMaxAttempts());
+    }
+
+    private void setBackoff(PreparedStatement ps, int index, Timestamp now) throws SQLException {
+        ps.setTimestamp(index, now);
+        ps.setDouble(index + 1, retryProperties.getMaxDelaySeconds());
+        ps.setDouble(index + 2, retryProperties.getBaseDelaySeconds());
+        ps.setDouble(index + 3, retryProperties.getJitter());
+    }
+}
@@ -0,0 +1,310 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Email outbox. Rows are inserted in the caller's transaction and claimed by the mail executor
+ * with {@code FOR UPDATE SKIP LOCKED}, so several CRM instances can drain the same table.
+ *
+ * A claimed row is SENDING until next_attempt_at; an instance that stops before writing the
+ * result leaves the row to be claimed again after that time.
+ */
+@Repository
+public class EmailOutboxRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO email_outbox (recipient_email, subject, body, notification_id, status, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, ?, 'PENDING', ?, ?)";
+
+    private static final String INSERT_ALL_SQL =
+            "INSERT INTO email_outbox (recipient_email, subject, body, notification_id, bulk_job_id, status, " +
+            "                          next_attempt_at, created_at) " +
+            "SELECT r.recipient_email, ?, ?, r.notification_id, ?, 'PENDING', ?, ? " +
+            "FROM unnest(CAST(? AS TEXT[]), CAST(? AS BIGINT[])) AS r(recipient_email, notification_id)";
+
+    private static final String CLAIM_SQL =
+            "UPDATE email_outbox o SET status = 'SENDING', attempts = o.attempts + 1, next_attempt_at = ? " +
+            "FROM (SELECT id FROM email_outbox " +
+            "      WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= ? " +
+            "      ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE o.id = due.id " +
+            "RETURNING o.id, o.recipient_email, o.subject, o.body, o.notification_id, o.created_at";
+
+    // The linked notifications follow the outbox rows in the same statement
+    private static final String MARK_SENT_SQL =
+            "WITH sent AS (" +
+            "  UPDATE email_outbox SET status = 'SENT', sent_at = ?, last_error = NULL " +
+            "  WHERE id = ANY(?) AND status = 'SENDING' RETURNING notification_id) " +
+            "UPDATE notifications n SET status = 'SENT', sent_at = ?, updated_at = ? " +
+            "FROM sent WHERE n.id = sent.notification_id AND n.status = 'PENDING'";
+
+    private static final String MARK_FAILED_SQL =
+            "WITH failed AS (" +
+            "  UPDATE email_outbox o SET " +
+            "  status = CASE WHEN o.attempts >= ? THEN 'FAILED' ELSE 'PENDING' END, " +
+            "  last_error = r.error_message, next_attempt_at = ? " +
+            "  FROM unnest(CAST(? AS BIGINT[]), CAST(? AS TEXT[])) AS r(id, error_message) " +
+            "  WHERE o.id = r.id AND o.status = 'SENDING' RETURNING o.status, o.notification_id) " +
+            "UPDATE notifications n SET status = 'FAILED', updated_at = ? " +
+            "FROM failed WHERE failed.status = 'FAILED' AND n.id = failed.notification_id AND n.status = 'PENDING'";
+
+    private static final String COUNT_UNSENT_SQL =
+            "SELECT COUNT(*) FROM email_outbox WHERE status IN ('PENDING', 'SENDING')";
+
+    private static final String BULK_JOB_COLUMNS =
+            "SELECT bulk_job_id, MIN(subject) AS subject, COUNT(*) AS total, " +
+            "COUNT(*) FILTER (WHERE status = 'SENT') AS sent, COUNT(*) FILTER (WHERE status = 'FAILED') AS failed, " +
+            "COUNT(*) FILTER (WHERE attempts > 0) AS attempted, MIN(created_at) AS created_at, " +
+            "MIN(sent_at) AS first_sent_at, MAX(sent_at) AS last_sent_at FROM email_outbox ";
+
+    private static final String FIND_BULK_JOB_SQL =
+            BULK_JOB_COLUMNS + "WHERE bulk_job_id = ? GROUP BY bulk_job_id";
+
+    private static final String FIND_RECENT_BULK_JOBS_SQL =
+            BULK_JOB_COLUMNS + "WHERE bulk_job_id IS NOT NULL GROUP BY bulk_job_id ORDER BY MIN(created_at) DESC LIMIT ?";
+
+    private static final String FIND_BULK_JOB_FAILURES_SQL =
+            "SELECT recipient_email, last_error FROM email_outbox WHERE bulk_job_id = ? AND status = 'FAILED'";
+
+    private static final RowMapper<BulkJob> BULK_JOB_MAPPER = (rs, rowNum) -> new BulkJob(
+            rs.getString("bulk_job_id"), rs.getString("subject"), rs.getInt("total"), rs.getInt("sent"),
+            rs.getInt("failed"), rs.getInt("attempted"), toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("first_sent_at")), toLocalDateTime(rs.getTimestamp("last_sent_at")));
+
+    private static final RowMapper<OutboxEmail> OUTBOX_EMAIL_MAPPER = (rs, rowNum) -> {
+        long notificationId = rs.getLong("notification_id");
+        return new OutboxEmail(rs.getLong("id"), rs.getString("recipient_email"), rs.getString("subject"),
+                rs.getString("body"), rs.wasNull() ? null : notificationId,
+                rs.getTimestamp("created_at").toLocalDateTime());
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds an email to the outbox. Runs in the caller's transaction if there is one.
+     */
+    public void insert(String recipientEmail, String subject, String body, Long notificationId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setString(1, recipientEmail);
+            ps.setString(2, subject);
+            ps.setString(3, body);
+            if (notificationId != null) {
+                ps.setLong(4, notificationId);
+            } else {
+                ps.setNull(4, Types.BIGINT);
+            }
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Adds the same email for every recipient with one statement. Runs in the caller's transaction if there is one.
+     *
+     * @param notificationIds notification of each recipient (same order, null elements allowed)
+     * @param bulkJobId bulk email the rows belong to, or null
+     */
+    public int insertAll(String[] recipientEmails, Long[] notificationIds, String bulkJobId, String subject, String body) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(INSERT_ALL_SQL, ps -> {
+            ps.setString(1, subject);
+            ps.setString(2, body);
+            ps.setString(3, bulkJobId);
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+            ps.setArray(6, ps.getConnection().createArrayOf("text", recipientEmails));
+            ps.setArray(7, ps.getConnection().createArrayOf("bigint", notificationIds));
+        });
+    }
+
+    /**
+     * Claims up to limit due emails and reserves them until leaseUntil.
+     */
+    public List<OutboxEmail> claimDue(LocalDateTime leaseUntil, int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, OUTBOX_EMAIL_MAPPER,
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(LocalDateTime.now()), limit);
+    }
+
+    /**
+     * Marks claimed emails as sent, together with their notifications.
+     */
+    public int markSent(Long[] ids) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(MARK_SENT_SQL, ps -> {
+            ps.setTimestamp(1, now);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /**
+     * Puts claimed emails back to PENDING with the next attempt at retryAt, or marks them FAILED
+     * (together with their notifications) once maxAttempts are used up.
+     */
+    public int markFailed(Long[] ids, String[] errorMessages, int maxAttempts, LocalDateTime retryAt) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(MARK_FAILED_SQL, ps -> {
+            ps.setInt(1, maxAttempts);
+            ps.setTimestamp(2, Timestamp.valueOf(retryAt));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(4, ps.getConnection().createArrayOf("text", errorMessages));
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * Number of emails not sent yet, including the ones being sent.
+     */
+    public long countUnsent() {
+        Long count = jdbcTemplate.queryForObject(COUNT_UNSENT_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Counts of a bulk email by status, or empty if it has no rows (unknown or purged by retention).
+     */
+    public Optional<BulkJob> findBulkJob(String bulkJobId) {
+        return jdbcTemplate.query(FIND_BULK_JOB_SQL, BULK_JOB_MAPPER, bulkJobId).stream().findFirst();
+    }
+
+    /**
+     * The latest bulk emails, newest first.
+     */
+    public List<BulkJob> findRecentBulkJobs(int limit) {
+        return jdbcTemplate.query(FIND_RECENT_BULK_JOBS_SQL, BULK_JOB_MAPPER, limit);
+    }
+
+    /**
+     * Recipients of a bulk email whose email failed for good, with the last error.
+     */
+    public Map<String, String> findBulkJobFailures(String bulkJobId) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_BULK_JOB_FAILURES_SQL,
+                rs -> {
+                    failures.put(rs.getString("recipient_email"), rs.getString("last_error"));
+                }, bulkJobId);
+        return failures;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    public static class OutboxEmail {
+        private final long id;
+        private final String recipientEmail;
+        private final String subject;
+        private final String body;
+        private final Long notificationId;
+        private final LocalDateTime createdAt;
+
+        public OutboxEmail(long id, String recipientEmail, String subject, String body, Long notificationId,
+                           LocalDateTime createdAt) {
+            this.id = id;
+            this.recipientEmail = recipientEmail;
+            this.subject = subject;
+            this.body = body;
+            this.notificationId = notificationId;
+            this.createdAt = createdAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getRecipientEmail() {
+            return recipientEmail;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public Long getNotificationId() {
+            return notificationId;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    public static class BulkJob {
+        private final String id;
+        private final String subject;
+        private final int total;
+        private final int sent;
+        private final int failed;
+        private final int attempted;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime firstSentAt;
+        private final LocalDateTime lastSentAt;
+
+        public BulkJob(String id, String subject, int total, int sent, int failed, int attempted,
+                       LocalDateTime createdAt, LocalDateTime firstSentAt, LocalDateTime lastSentAt) {
+            this.id = id;
+            this.subject = subject;
+            this.total = total;
+            this.sent = sent;
+            this.failed = failed;
+            this.attempted = attempted;
+            this.createdAt = createdAt;
+            this.firstSentAt = firstSentAt;
+            this.lastSentAt = lastSentAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getSent() {
+            return sent;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getAttempted() {
+            return attempted;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getFirstSentAt() {
+            return firstSentAt;
+        }
+
+        public LocalDateTime getLastSentAt() {
+            return lastSentAt;
+        }
+    }
+}
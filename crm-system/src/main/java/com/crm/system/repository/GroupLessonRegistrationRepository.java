@@ -29,6 +29,16 @@ public interface GroupLessonRegistrationRepository extends JpaRepository<GroupLe
         @Param("endDate") LocalDate endDate
     );
     
+    @Query("SELECT glr FROM GroupLessonRegistration glr JOIN FETCH glr.groupLesson gl JOIN FETCH gl.teacher " +
+           "WHERE glr.student.id = :studentId " +
+           "AND gl.scheduledDate >= :startDate AND gl.scheduledDate <= :endDate " +
+           "ORDER BY gl.scheduledDate, gl.scheduledTime")
+    List<GroupLessonRegistration> findCalendarRegistrationsByStudentIdAndDateRange(
+        @Param("studentId") Long studentId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    
     @Query("SELECT glr FROM GroupLessonRegistration glr WHERE glr.student.id = :studentId " +
            "AND glr.groupLesson.scheduledDate = :date " +
            "ORDER BY glr.groupLesson.scheduledTime")
@@ -260,9 +270,10 @@ public interface GroupLessonRegistrationRepository extends JpaRepository<GroupLe
         @Param("endDate") LocalDate endDate
     );
     
+    // Any registration that is not cancelled; uq_group_lesson_registrations_live allows at most one
     @Query("SELECT glr FROM GroupLessonRegistration glr WHERE glr.groupLesson.id = :groupLessonId " +
            "AND glr.student.id = :studentId " +
-           "AND glr.registrationStatus = 'REGISTERED'")
+           "AND glr.registrationStatus <> 'CANCELLED'")
     Optional<GroupLessonRegistration> findActiveRegistrationByGroupLessonIdAndStudentId(
         @Param("groupLessonId") Long groupLessonId,
         @Param("studentId") Long studentId
@@ -308,7 +319,7 @@ public interface GroupLessonRegistrationRepository extends JpaRepository<GroupLe
     Long countPastUncompletedRegistrationsByStudentId(@Param("studentId") Long studentId);
     
     @Query("SELECT COUNT(glr) FROM GroupLessonRegistration glr WHERE glr.groupLesson.id = :groupLessonId " +
-           "AND glr.registrationStatus = 'REGISTERED'")
+           "AND glr.registrationStatus IN ('REGISTERED', 'WAITLISTED')")
     Long countRegisteredStudentsByGroupLessonIdIncludingWaitingList(@Param("groupLessonId") Long groupLessonId);
     
     @Query("SELECT COUNT(glr) FROM GroupLessonRegistration glr WHERE glr.groupLesson.id = :groupLessonId " +
@@ -0,0 +1,187 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Due group lesson reminders and the markers of reminders already sent.
+ *
+ * A reminder is due for every REGISTERED student of a CONFIRMED lesson that starts in the
+ * planning window and has no marker yet. Lesson, teacher and student are read with one join, page
+ * by page in (lesson id, student id) order. Markers are keyed by lesson, student, reminder type and
+ * lesson start, so {@link #claim} hands each reminder to exactly one caller, also across instances.
+ */
+@Repository
+public class GroupLessonReminderRepository {
+
+    public static final String DAY_BEFORE = "DAY_BEFORE";
+
+    private static final String DUE_REMINDERS_FROM =
+            "SELECT gl.id AS lesson_id, gl.lesson_topic, gl.scheduled_date, gl.scheduled_time, gl.meeting_link, " +
+            "       t.first_name AS teacher_first_name, t.last_name AS teacher_last_name, " +
+            "       s.id AS student_id, s.telegram_chat_id " +
+            "FROM group_lessons gl " +
+            "JOIN users t ON t.id = gl.teacher_id " +
+            "JOIN group_lesson_registrations r ON r.group_lesson_id = gl.id " +
+            "JOIN students s ON s.id = r.student_id " +
+            "WHERE gl.status = 'CONFIRMED' " +
+            "  AND r.registration_status = 'REGISTERED' " +
+            "  AND NOT EXISTS (SELECT 1 FROM group_lesson_reminders_sent m " +
+            "                  WHERE m.group_lesson_id = gl.id AND m.student_id = s.id AND m.reminder_type = ? " +
+            "                    AND m.lesson_start = gl.scheduled_date + gl.scheduled_time) " +
+            "  AND (gl.id, s.id) > (?, ?) ";
+
+    private static final String DUE_REMINDERS_SQL = DUE_REMINDERS_FROM +
+            "  AND (gl.scheduled_date + gl.scheduled_time) > ? AND (gl.scheduled_date + gl.scheduled_time) <= ? " +
+            "ORDER BY gl.id, s.id LIMIT ?";
+
+    private static final String DUE_REMINDERS_OF_LESSON_SQL = DUE_REMINDERS_FROM +
+            "  AND gl.id = ? AND (gl.scheduled_date + gl.scheduled_time) = ? " +
+            "ORDER BY gl.id, s.id LIMIT ?";
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO group_lesson_reminders_sent (group_lesson_id, student_id, reminder_type, lesson_start, sent_at) " +
+            "SELECT r.group_lesson_id, r.student_id, ?, r.lesson_start, ? " +
+            "FROM unnest(CAST(? AS BIGINT[]), CAST(? AS BIGINT[]), CAST(? AS TIMESTAMP[])) " +
+            "     AS r(group_lesson_id, student_id, lesson_start) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING group_lesson_id, student_id";
+
+    private static final RowMapper<DueReminder> DUE_REMINDER_MAPPER = (rs, rowNum) -> {
+        long chatId = rs.getLong("telegram_chat_id");
+        Long chatIdOrNull = rs.wasNull() ? null : chatId;
+        return new DueReminder(rs.getLong("lesson_id"), rs.getString("lesson_topic"),
+                rs.getObject("scheduled_date", LocalDate.class), rs.getObject("scheduled_time", LocalTime.class),
+                rs.getString("meeting_link"), rs.getString("teacher_first_name"), rs.getString("teacher_last_name"),
+                rs.getLong("student_id"), chatIdOrNull);
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns up to limit due reminders of lessons starting after from and not later than to,
+     * following (afterLessonId, afterStudentId).
+     */
+    public List<DueReminder> findDue(String reminderType, LocalDateTime from, LocalDateTime to,
+                                     long afterLessonId, long afterStudentId, int limit) {
+        return jdbcTemplate.query(DUE_REMINDERS_SQL, DUE_REMINDER_MAPPER,
+                reminderType, afterLessonId, afterStudentId, Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+    }
+
+    /**
+     * Returns up to limit due reminders of one lesson, if it still starts at lessonStart, following
+     * (afterLessonId, afterStudentId).
+     */
+    public List<DueReminder> findDueOfLesson(String reminderType, long lessonId, LocalDateTime lessonStart,
+                                             long afterLessonId, long afterStudentId, int limit) {
+        return jdbcTemplate.query(DUE_REMINDERS_OF_LESSON_SQL, DUE_REMINDER_MAPPER,
+                reminderType, afterLessonId, afterStudentId, lessonId, Timestamp.valueOf(lessonStart), limit);
+    }
+
+    /**
+     * Writes the markers of the reminders. Reminders that already have a marker are skipped.
+     *
+     * @return the reminders marked by this call
+     */
+    public List<DueReminder> claim(String reminderType, List<DueReminder> reminders) {
+        Long[] lessonIds = new Long[reminders.size()];
+        Long[] studentIds = new Long[reminders.size()];
+        Timestamp[] lessonStarts = new Timestamp[reminders.size()];
+        for (int i = 0; i < reminders.size(); i++) {
+            DueReminder reminder = reminders.get(i);
+            lessonIds[i] = reminder.getLessonId();
+            studentIds[i] = reminder.getStudentId();
+            lessonStarts[i] = Timestamp.valueOf(reminder.getLessonStart());
+        }
+        Set<String> claimed = new HashSet<>(jdbcTemplate.query(CLAIM_SQL, ps -> {
+            ps.setString(1, reminderType);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", lessonIds));
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", studentIds));
+            ps.setArray(5, ps.getConnection().createArrayOf("timestamp", lessonStarts));
+        }, (rs, rowNum) -> rs.getLong("group_lesson_id") + ":" + rs.getLong("student_id")));
+        if (claimed.size() == reminders.size()) {
+            return reminders;
+        }
+        return reminders.stream()
+                .filter(reminder -> claimed.contains(reminder.getLessonId() + ":" + reminder.getStudentId()))
+                .toList();
+    }
+
+    public static class DueReminder {
+        private final long lessonId;
+        private final String lessonTopic;
+        private final LocalDate scheduledDate;
+        private final LocalTime scheduledTime;
+        private final String meetingLink;
+        private final String teacherFirstName;
+        private final String teacherLastName;
+        private final long studentId;
+        private final Long telegramChatId;
+
+        public DueReminder(long lessonId, String lessonTopic, LocalDate scheduledDate, LocalTime scheduledTime,
+                           String meetingLink, String teacherFirstName, String teacherLastName, long studentId,
+                           Long telegramChatId) {
+            this.lessonId = lessonId;
+            this.lessonTopic = lessonTopic;
+            this.scheduledDate = scheduledDate;
+            this.scheduledTime = scheduledTime;
+            this.meetingLink = meetingLink;
+            this.teacherFirstName = teacherFirstName;
+            this.teacherLastName = teacherLastName;
+            this.studentId = studentId;
+            this.telegramChatId = telegramChatId;
+        }
+
+        public long getLessonId() {
+            return lessonId;
+        }
+
+        public String getLessonTopic() {
+            return lessonTopic;
+        }
+
+        public LocalDate getScheduledDate() {
+            return scheduledDate;
+        }
+
+        public LocalTime getScheduledTime() {
+            return scheduledTime;
+        }
+
+        public LocalDateTime getLessonStart() {
+            return scheduledDate.atTime(scheduledTime);
+        }
+
+        public String getMeetingLink() {
+            return meetingLink;
+        }
+
+        public String getTeacherFirstName() {
+            return teacherFirstName;
+        }
+
+        public String getTeacherLastName() {
+            return teacherLastName;
+        }
+
+        public long getStudentId() {
+            return studentId;
+        }
+
+        public Long getTelegramChatId() {
+            return telegramChatId;
+        }
+    }
+}
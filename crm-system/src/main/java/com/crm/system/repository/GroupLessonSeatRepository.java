@@ -0,0 +1,99 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seats of group lessons.
+ *
+ * group_lessons.current_students is changed only by the conditional updates here, so a seat is
+ * taken by a single statement that cannot overfill the lesson. Releasing a seat and moving a
+ * registration to or from the waitlist happen under the lock of the lesson row
+ * ({@link #lockLesson}); that keeps a freed seat from being missed by a student who is being
+ * waitlisted at the same moment. All methods must run in the transaction of the registration change.
+ */
+@Repository
+public class GroupLessonSeatRepository {
+
+    private static final String RESERVE_SEAT_SQL =
+            "UPDATE group_lessons SET current_students = current_students + 1, updated_at = ? " +
+            "WHERE id = ? AND status IN ('SCHEDULED', 'CONFIRMED') " +
+            "AND (max_students IS NULL OR current_students < max_students)";
+
+    private static final String RELEASE_SEAT_SQL =
+            "UPDATE group_lessons SET current_students = current_students - 1, updated_at = ? " +
+            "WHERE id = ? AND current_students > 0";
+
+    private static final String LOCK_LESSON_SQL =
+            "SELECT status IN ('SCHEDULED', 'CONFIRMED') FROM group_lessons WHERE id = ? FOR UPDATE";
+
+    // previous is read from the statement snapshot; the caller holds the lesson lock, so it is also the current row
+    private static final String CANCEL_SQL =
+            "UPDATE group_lesson_registrations r SET registration_status = 'CANCELLED', cancellation_reason = ?, " +
+            "attended = FALSE, updated_at = ? " +
+            "FROM group_lesson_registrations previous " +
+            "WHERE r.id = ? AND previous.id = r.id AND r.registration_status IN ('REGISTERED', 'WAITLISTED') " +
+            "RETURNING previous.registration_status";
+
+    // Served by idx_group_lesson_registrations_waitlist
+    private static final String PROMOTE_SQL =
+            "UPDATE group_lesson_registrations SET registration_status = 'REGISTERED', registered_at = ?, updated_at = ? " +
+            "WHERE id = (SELECT id FROM group_lesson_registrations " +
+            "  WHERE group_lesson_id = ? AND registration_status = 'WAITLISTED' " +
+            "  ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes a seat if the lesson is open for booking and not full.
+     *
+     * @return false if no seat was taken
+     */
+    public boolean reserveSeat(long groupLessonId) {
+        return jdbcTemplate.update(RESERVE_SEAT_SQL, Timestamp.valueOf(LocalDateTime.now()), groupLessonId) == 1;
+    }
+
+    public void releaseSeat(long groupLessonId) {
+        jdbcTemplate.update(RELEASE_SEAT_SQL, Timestamp.valueOf(LocalDateTime.now()), groupLessonId);
+    }
+
+    /**
+     * Locks the lesson row until the end of the transaction.
+     *
+     * @return whether the lesson is open for booking, or null if it does not exist
+     */
+    public Boolean lockLesson(long groupLessonId) {
+        List<Boolean> bookable = jdbcTemplate.queryForList(LOCK_LESSON_SQL, Boolean.class, groupLessonId);
+        return bookable.isEmpty() ? null : bookable.get(0);
+    }
+
+    /**
+     * Cancels a registered or waitlisted registration. The lesson must be locked.
+     *
+     * @return the status the registration had, or null if it was not registered or waitlisted
+     */
+    public String cancelRegistration(long registrationId, String reason) {
+        List<String> previous = jdbcTemplate.queryForList(CANCEL_SQL, String.class,
+                reason, Timestamp.valueOf(LocalDateTime.now()), registrationId);
+        return previous.isEmpty() ? null : previous.get(0);
+    }
+
+    /**
+     * Registers the earliest waitlisted student of the lesson in place of a cancelled one; the
+     * seat passes to them, so the counter does not change. The lesson must be locked.
+     *
+     * @return id of the promoted registration, or null if the waitlist is empty
+     */
+    public Long promoteFromWaitlist(long groupLessonId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> promoted = jdbcTemplate.queryForList(PROMOTE_SQL, Long.class, now, now, groupLessonId);
+        return promoted.isEmpty() ? null : promoted.get(0);
+    }
+}
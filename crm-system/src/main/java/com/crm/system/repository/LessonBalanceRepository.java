@@ -0,0 +1,284 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-student lesson balances and their ledger.
+ *
+ * The balance row of a student is updated (and so locked) before any of the student's packages,
+ * which serializes concurrent deductions without locking the packages themselves. All methods
+ * that change data must run in one transaction with the package change they account for.
+ */
+@Repository
+public class LessonBalanceRepository {
+
+    public enum Reason {
+        OPENING_BALANCE, PACKAGE_PURCHASE, LESSONS_ADDED, LESSONS_DEDUCTED, PACKAGE_DELETED, ADJUSTMENT
+    }
+
+    private static final String SELECT_BALANCE_SQL =
+            "SELECT remaining_lessons FROM student_lesson_balances WHERE student_id = ?";
+
+    private static final String LOCK_BALANCE_SQL = SELECT_BALANCE_SQL + " FOR UPDATE";
+
+    private static final String DEBIT_SQL =
+            "UPDATE student_lesson_balances SET remaining_lessons = remaining_lessons - ?, updated_at = ? " +
+            "WHERE student_id = ? AND remaining_lessons >= ? RETURNING remaining_lessons";
+
+    private static final String CREDIT_SQL =
+            "INSERT INTO student_lesson_balances (student_id, remaining_lessons, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (student_id) DO UPDATE SET " +
+            "remaining_lessons = student_lesson_balances.remaining_lessons + EXCLUDED.remaining_lessons, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "RETURNING remaining_lessons";
+
+    private static final String SET_BALANCE_SQL =
+            "INSERT INTO student_lesson_balances (student_id, remaining_lessons, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (student_id) DO UPDATE SET remaining_lessons = EXCLUDED.remaining_lessons, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // Takes lessons from the oldest packages first: each package gives what is left of the
+    // requested amount after the packages before it. One ledger row is written per package.
+    private static final String DEDUCT_FIFO_SQL =
+            "WITH due AS (" +
+            "  SELECT id, LEAST(remaining_lessons, ? - (SUM(remaining_lessons) OVER w - remaining_lessons)) AS take " +
+            "  FROM lesson_packages WHERE student_id = ? AND remaining_lessons > 0 " +
+            "  WINDOW w AS (ORDER BY created_at, id)), " +
+            "taken AS (" +
+            "  UPDATE lesson_packages lp SET remaining_lessons = lp.remaining_lessons - due.take, updated_at = ? " +
+            "  FROM due WHERE lp.id = due.id AND due.take > 0 AND lp.remaining_lessons >= due.take " +
+            "  RETURNING lp.id, lp.created_at, due.take) " +
+            "INSERT INTO lesson_balance_ledger (student_id, package_id, delta, balance_after, reason, reference_id, created_at) " +
+            "SELECT ?, id, -take, ? - SUM(take) OVER (ORDER BY created_at, id), ?, ?, ? FROM taken " +
+            "RETURNING -delta";
+
+    private static final String DEDUCT_PACKAGE_SQL =
+            "UPDATE lesson_packages SET remaining_lessons = remaining_lessons - ?, updated_at = ? " +
+            "WHERE id = ? AND remaining_lessons >= ?";
+
+    private static final String ADD_TO_PACKAGE_SQL =
+            "UPDATE lesson_packages SET total_lessons = total_lessons + ?, remaining_lessons = remaining_lessons + ?, " +
+            "updated_at = ? WHERE id = ?";
+
+    private static final String DELETE_PACKAGE_SQL =
+            "DELETE FROM lesson_packages WHERE id = ? RETURNING remaining_lessons";
+
+    private static final String PACKAGE_STUDENT_SQL =
+            "SELECT student_id FROM lesson_packages WHERE id = ?";
+
+    private static final String SUM_PACKAGES_SQL =
+            "SELECT COALESCE(SUM(remaining_lessons), 0) FROM lesson_packages WHERE student_id = ?";
+
+    private static final String INSERT_LEDGER_SQL =
+            "INSERT INTO lesson_balance_ledger (student_id, package_id, delta, balance_after, reason, reference_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_LEDGER_SQL =
+            "SELECT id, student_id, package_id, delta, balance_after, reason, reference_id, created_at " +
+            "FROM lesson_balance_ledger WHERE student_id = ? ORDER BY id DESC LIMIT ?";
+
+    private static final RowMapper<LedgerEntry> LEDGER_ENTRY_MAPPER = (rs, rowNum) -> {
+        long packageId = rs.getLong("package_id");
+        Long packageIdOrNull = rs.wasNull() ? null : packageId;
+        long referenceId = rs.getLong("reference_id");
+        Long referenceIdOrNull = rs.wasNull() ? null : referenceId;
+        return new LedgerEntry(rs.getLong("id"), rs.getLong("student_id"), packageIdOrNull,
+                rs.getInt("delta"), rs.getInt("balance_after"), rs.getString("reason"),
+                referenceIdOrNull, rs.getTimestamp("created_at").toLocalDateTime());
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Current balance, 0 for a student without packages.
+     */
+    public int getBalance(Long studentId) {
+        List<Integer> balance = jdbcTemplate.queryForList(SELECT_BALANCE_SQL, Integer.class, studentId);
+        return balance.isEmpty() ? 0 : balance.get(0);
+    }
+
+    /**
+     * Locks the balance row of the student until the end of the transaction.
+     *
+     * @return the balance, or null if the student has no balance row yet
+     */
+    public Integer lockBalance(Long studentId) {
+        List<Integer> balance = jdbcTemplate.queryForList(LOCK_BALANCE_SQL, Integer.class, studentId);
+        return balance.isEmpty() ? null : balance.get(0);
+    }
+
+    /**
+     * Subtracts lessons from the balance if it has enough.
+     *
+     * @return the new balance, or null if the balance is lower than lessons
+     */
+    public Integer debit(Long studentId, int lessons) {
+        List<Integer> balance = jdbcTemplate.queryForList(DEBIT_SQL, Integer.class,
+                lessons, Timestamp.valueOf(LocalDateTime.now()), studentId, lessons);
+        return balance.isEmpty() ? null : balance.get(0);
+    }
+
+    /**
+     * Adds lessons to the balance, creating it if needed.
+     *
+     * @return the new balance
+     */
+    public int credit(Long studentId, int lessons) {
+        return jdbcTemplate.queryForObject(CREDIT_SQL, Integer.class,
+                studentId, lessons, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public void setBalance(Long studentId, int lessons) {
+        jdbcTemplate.update(SET_BALANCE_SQL, studentId, lessons, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Takes lessons from the student's packages, oldest first, and writes the ledger rows.
+     * Must follow a {@link #debit} of the same amount in the same transaction.
+     *
+     * @param balanceBefore balance before the debit
+     * @return number of lessons actually taken from the packages
+     */
+    public int deductFromPackagesFifo(Long studentId, int lessons, int balanceBefore, Long referenceId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Integer> taken = jdbcTemplate.query(DEDUCT_FIFO_SQL, ps -> {
+            ps.setInt(1, lessons);
+            ps.setLong(2, studentId);
+            ps.setTimestamp(3, now);
+            ps.setLong(4, studentId);
+            ps.setInt(5, balanceBefore);
+            ps.setString(6, Reason.LESSONS_DEDUCTED.name());
+            setNullableLong(ps, 7, referenceId);
+            ps.setTimestamp(8, now);
+        }, (rs, rowNum) -> rs.getInt(1));
+        return taken.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return false if the package has fewer than lessons left
+     */
+    public boolean deductFromPackage(Long packageId, int lessons) {
+        return jdbcTemplate.update(DEDUCT_PACKAGE_SQL,
+                lessons, Timestamp.valueOf(LocalDateTime.now()), packageId, lessons) > 0;
+    }
+
+    public boolean addToPackage(Long packageId, int lessons) {
+        return jdbcTemplate.update(ADD_TO_PACKAGE_SQL,
+                lessons, lessons, Timestamp.valueOf(LocalDateTime.now()), packageId) > 0;
+    }
+
+    /**
+     * @return lessons that were left in the deleted package, or null if there was no such package
+     */
+    public Integer deletePackage(Long packageId) {
+        List<Integer> remaining = jdbcTemplate.queryForList(DELETE_PACKAGE_SQL, Integer.class, packageId);
+        return remaining.isEmpty() ? null : remaining.get(0);
+    }
+
+    /**
+     * @return student of the package, or null if there is no such package
+     */
+    public Long findPackageStudentId(Long packageId) {
+        List<Long> studentId = jdbcTemplate.queryForList(PACKAGE_STUDENT_SQL, Long.class, packageId);
+        return studentId.isEmpty() ? null : studentId.get(0);
+    }
+
+    public int sumPackages(Long studentId) {
+        Integer sum = jdbcTemplate.queryForObject(SUM_PACKAGES_SQL, Integer.class, studentId);
+        return sum != null ? sum : 0;
+    }
+
+    public void appendLedger(Long studentId, Long packageId, int delta, int balanceAfter, Reason reason,
+                             Long referenceId) {
+        jdbcTemplate.update(INSERT_LEDGER_SQL, ps -> {
+            ps.setLong(1, studentId);
+            setNullableLong(ps, 2, packageId);
+            ps.setInt(3, delta);
+            ps.setInt(4, balanceAfter);
+            ps.setString(5, reason.name());
+            setNullableLong(ps, 6, referenceId);
+            ps.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
+        });
+    }
+
+    /**
+     * Latest ledger rows of the student, newest first.
+     */
+    public List<LedgerEntry> findLedger(Long studentId, int limit) {
+        return jdbcTemplate.query(SELECT_LEDGER_SQL, LEDGER_ENTRY_MAPPER, studentId, limit);
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    public static class LedgerEntry {
+        private final long id;
+        private final long studentId;
+        private final Long packageId;
+        private final int delta;
+        private final int balanceAfter;
+        private final String reason;
+        private final Long referenceId;
+        private final LocalDateTime createdAt;
+
+        public LedgerEntry(long id, long studentId, Long packageId, int delta, int balanceAfter, String reason,
+                           Long referenceId, LocalDateTime createdAt) {
+            this.id = id;
+            this.studentId = studentId;
+            this.packageId = packageId;
+            this.delta = delta;
+            this.balanceAfter = balanceAfter;
+            this.reason = reason;
+            this.referenceId = referenceId;
+            this.createdAt = createdAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getStudentId() {
+            return studentId;
+        }
+
+        public Long getPackageId() {
+            return packageId;
+        }
+
+        public int getDelta() {
+            return delta;
+        }
+
+        public int getBalanceAfter() {
+            return balanceAfter;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public Long getReferenceId() {
+            return referenceId;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -4,12 +4,15 @@ import com.crm.system.model.LessonPackage;
 import com.crm.system.model.Student;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LessonPackageRepository extends JpaRepository<LessonPackage, Long> {
@@ -41,4 +44,13 @@ public interface LessonPackageRepository extends JpaRepository<LessonPackage, Lo
     
     // Added for dashboard statistics
     List<LessonPackage> findByRemainingLessonsLessThanEqual(int threshold);
+    
+    @Query("SELECT lp FROM LessonPackage lp JOIN FETCH lp.student s LEFT JOIN FETCH s.assignedTeacher " +
+           "WHERE lp.remainingLessons <= :threshold ORDER BY lp.remainingLessons, lp.id")
+    List<LessonPackage> findWithStudentAndTeacherByRemainingLessonsLessThanEqual(@Param("threshold") int threshold);
+    
+    // Server-side cursor for streaming exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT lp FROM LessonPackage lp JOIN FETCH lp.student ORDER BY lp.id")
+    Stream<LessonPackage> streamAllForExport();
 }
\ No newline at end of file
@@ -7,11 +7,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LessonRepository extends JpaRepository<Lesson, Long> {
@@ -34,6 +38,27 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
         @Param("endDate") LocalDate endDate
     );
     
+    // Calendar views: names and slot status are read for every lesson, so fetch them in the same query
+    @Query("SELECT l FROM Lesson l JOIN FETCH l.student LEFT JOIN FETCH l.slot " +
+           "WHERE l.teacher.id = :teacherId " +
+           "AND l.scheduledDate >= :startDate AND l.scheduledDate <= :endDate " +
+           "ORDER BY l.scheduledDate, l.scheduledTime")
+    List<Lesson> findCalendarLessonsByTeacherIdAndDateRange(
+        @Param("teacherId") Long teacherId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    
+    @Query("SELECT l FROM Lesson l JOIN FETCH l.student JOIN FETCH l.teacher LEFT JOIN FETCH l.slot " +
+           "WHERE l.student.id = :studentId " +
+           "AND l.scheduledDate >= :startDate AND l.scheduledDate <= :endDate " +
+           "ORDER BY l.scheduledDate, l.scheduledTime")
+    List<Lesson> findCalendarLessonsByStudentIdAndDateRange(
+        @Param("studentId") Long studentId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    
     @Query("SELECT l FROM Lesson l WHERE l.teacher.id = :teacherId " +
            "AND l.scheduledDate = :date " +
            "ORDER BY l.scheduledTime")
@@ -141,6 +166,8 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     @Query("SELECT l FROM Lesson l WHERE l.slot.id = :slotId")
     List<Lesson> findBySlotId(@Param("slotId") Long slotId);
     
+    Optional<Lesson> findByBookingKey(String bookingKey);
+    
     @Query("SELECT l FROM Lesson l WHERE l.scheduledDate >= :startDate AND l.scheduledDate <= :endDate " +
            "ORDER BY l.scheduledDate, l.scheduledTime")
     List<Lesson> findByDateRange(
@@ -148,6 +175,16 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
         @Param("endDate") LocalDate endDate
     );
 
+    // Server-side cursor for streaming exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Lesson l JOIN FETCH l.student JOIN FETCH l.teacher " +
+           "WHERE l.scheduledDate >= :startDate AND l.scheduledDate <= :endDate " +
+           "ORDER BY l.scheduledDate, l.scheduledTime")
+    Stream<Lesson> streamByDateRangeForExport(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
     @Query("SELECT l FROM Lesson l WHERE l.scheduledDate = :date " +
            "AND l.status = 'COMPLETED' " +
            "AND l.attendanceConfirmed = false " +
@@ -0,0 +1,357 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Notification and Telegram message history of one recipient, newest first.
+ *
+ * Pages continue strictly before the (created_at, id) of the previous page's last entry and are
+ * read from the recipient history indexes of V16, so a deep page costs the same as the first one.
+ * Only the columns shown in the history are selected, and totals are a separate count that is run
+ * only on request.
+ */
+@Repository
+public class MessageHistoryRepository {
+
+    private static final String NOTIFICATION_COLUMNS =
+            "id, recipient_id, recipient_type, notification_type, title, message, status, " +
+            "sent_at, read_at, created_at, updated_at";
+
+    private static final String TELEGRAM_MESSAGE_COLUMNS =
+            "id, chat_id, message_id, recipient_id, recipient_type, message_text, message_type, delivery_status, " +
+            "sent_at, delivered_at, read_at, error_message, retry_count, related_entity_id, related_entity_type, " +
+            "created_at, updated_at";
+
+    private static final RowMapper<NotificationEntry> NOTIFICATION_MAPPER = (rs, rowNum) -> new NotificationEntry(
+            rs.getLong("id"), rs.getLong("recipient_id"), rs.getString("recipient_type"),
+            rs.getString("notification_type"), rs.getString("title"), rs.getString("message"),
+            rs.getString("status"), rs.getObject("sent_at", LocalDateTime.class),
+            rs.getObject("read_at", LocalDateTime.class), rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    private static final RowMapper<TelegramMessageEntry> TELEGRAM_MESSAGE_MAPPER = (rs, rowNum) -> new TelegramMessageEntry(
+            rs.getLong("id"), rs.getLong("chat_id"), rs.getObject("message_id", Long.class),
+            rs.getLong("recipient_id"), rs.getString("recipient_type"), rs.getString("message_text"),
+            rs.getString("message_type"), rs.getString("delivery_status"),
+            rs.getObject("sent_at", LocalDateTime.class), rs.getObject("delivered_at", LocalDateTime.class),
+            rs.getObject("read_at", LocalDateTime.class), rs.getString("error_message"),
+            rs.getObject("retry_count", Integer.class), rs.getObject("related_entity_id", Long.class),
+            rs.getString("related_entity_type"), rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param statuses only notifications in these statuses, or null for all
+     * @param types only notifications of these types, or null for all
+     * @param after last entry of the previous page, or null for the first page
+     */
+    public List<NotificationEntry> findNotifications(long recipientId, String recipientType, String[] statuses,
+                                                     String[] types, HistoryKey after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(NOTIFICATION_COLUMNS).append(" FROM notifications");
+        appendNotificationFilter(sql, args, recipientId, recipientType, statuses, types);
+        appendPage(sql, args, after, limit);
+        return jdbcTemplate.query(sql.toString(), setter(args), NOTIFICATION_MAPPER);
+    }
+
+    public long countNotifications(long recipientId, String recipientType, String[] statuses, String[] types) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM notifications");
+        appendNotificationFilter(sql, args, recipientId, recipientType, statuses, types);
+        return count(sql.toString(), args);
+    }
+
+    /**
+     * @param statuses only messages in these delivery statuses, or null for all
+     * @param after last entry of the previous page, or null for the first page
+     */
+    public List<TelegramMessageEntry> findTelegramMessages(long recipientId, String recipientType, String[] statuses,
+                                                           HistoryKey after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(TELEGRAM_MESSAGE_COLUMNS).append(" FROM telegram_messages");
+        appendTelegramMessageFilter(sql, args, recipientId, recipientType, statuses);
+        appendPage(sql, args, after, limit);
+        return jdbcTemplate.query(sql.toString(), setter(args), TELEGRAM_MESSAGE_MAPPER);
+    }
+
+    public long countTelegramMessages(long recipientId, String recipientType, String[] statuses) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM telegram_messages");
+        appendTelegramMessageFilter(sql, args, recipientId, recipientType, statuses);
+        return count(sql.toString(), args);
+    }
+
+    private void appendNotificationFilter(StringBuilder sql, List<Object> args, long recipientId, String recipientType,
+                                          String[] statuses, String[] types) {
+        appendRecipient(sql, args, recipientId, recipientType);
+        if (statuses != null) {
+            sql.append(" AND status = ANY(CAST(? AS notification_status[]))");
+            args.add(statuses);
+        }
+        if (types != null) {
+            sql.append(" AND notification_type = ANY(CAST(? AS notification_type[]))");
+            args.add(types);
+        }
+    }
+
+    private void appendTelegramMessageFilter(StringBuilder sql, List<Object> args, long recipientId,
+                                             String recipientType, String[] statuses) {
+        appendRecipient(sql, args, recipientId, recipientType);
+        if (statuses != null) {
+            sql.append(" AND delivery_status = ANY(CAST(? AS delivery_status[]))");
+            args.add(statuses);
+        }
+    }
+
+    private void appendRecipient(StringBuilder sql, List<Object> args, long recipientId, String recipientType) {
+        sql.append(" WHERE recipient_id = ? AND recipient_type = CAST(? AS recipient_type)");
+        args.add(recipientId);
+        args.add(recipientType);
+    }
+
+    private void appendPage(StringBuilder sql, List<Object> args, HistoryKey after, int limit) {
+        if (after != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            args.add(after.getCreatedAt());
+            args.add(after.getId());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+    }
+
+    private long count(String sql, List<Object> args) {
+        Long count = jdbcTemplate.query(sql, setter(args), rs -> rs.next() ? rs.getLong(1) : 0L);
+        return count != null ? count : 0;
+    }
+
+    // String arrays are bound as text[] and cast to the enum array in the statement
+    private static PreparedStatementSetter setter(List<Object> args) {
+        return ps -> {
+            for (int i = 0; i < args.size(); i++) {
+                Object arg = args.get(i);
+                if (arg instanceof String[] values) {
+                    ps.setArray(i + 1, ps.getConnection().createArrayOf("text", values));
+                } else {
+                    ps.setObject(i + 1, arg);
+                }
+            }
+        };
+    }
+
+    /**
+     * Position of an entry in the history order
+     */
+    public static class HistoryKey {
+        private final LocalDateTime createdAt;
+        private final long id;
+
+        public HistoryKey(LocalDateTime createdAt, long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public static class NotificationEntry {
+        private final long id;
+        private final long recipientId;
+        private final String recipientType;
+        private final String notificationType;
+        private final String title;
+        private final String message;
+        private final String status;
+        private final LocalDateTime sentAt;
+        private final LocalDateTime readAt;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+
+        public NotificationEntry(long id, long recipientId, String recipientType, String notificationType,
+                                 String title, String message, String status, LocalDateTime sentAt,
+                                 LocalDateTime readAt, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.recipientId = recipientId;
+            this.recipientType = recipientType;
+            this.notificationType = notificationType;
+            this.title = title;
+            this.message = message;
+            this.status = status;
+            this.sentAt = sentAt;
+            this.readAt = readAt;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getRecipientId() {
+            return recipientId;
+        }
+
+        public String getRecipientType() {
+            return recipientType;
+        }
+
+        public String getNotificationType() {
+            return notificationType;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getSentAt() {
+            return sentAt;
+        }
+
+        public LocalDateTime getReadAt() {
+            return readAt;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+
+    public static class TelegramMessageEntry {
+        private final long id;
+        private final long chatId;
+        private final Long messageId;
+        private final long recipientId;
+        private final String recipientType;
+        private final String messageText;
+        private final String messageType;
+        private final String deliveryStatus;
+        private final LocalDateTime sentAt;
+        private final LocalDateTime deliveredAt;
+        private final LocalDateTime readAt;
+        private final String errorMessage;
+        private final Integer retryCount;
+        private final Long relatedEntityId;
+        private final String relatedEntityType;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+
+        public TelegramMessageEntry(long id, long chatId, Long messageId, long recipientId, String recipientType,
+                                    String messageText, String messageType, String deliveryStatus,
+                                    LocalDateTime sentAt, LocalDateTime deliveredAt, LocalDateTime readAt,
+                                    String errorMessage, Integer retryCount, Long relatedEntityId,
+                                    String relatedEntityType, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.chatId = chatId;
+            this.messageId = messageId;
+            this.recipientId = recipientId;
+            this.recipientType = recipientType;
+            this.messageText = messageText;
+            this.messageType = messageType;
+            this.deliveryStatus = deliveryStatus;
+            this.sentAt = sentAt;
+            this.deliveredAt = deliveredAt;
+            this.readAt = readAt;
+            this.errorMessage = errorMessage;
+            this.retryCount = retryCount;
+            this.relatedEntityId = relatedEntityId;
+            this.relatedEntityType = relatedEntityType;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getChatId() {
+            return chatId;
+        }
+
+        public Long getMessageId() {
+            return messageId;
+        }
+
+        public long getRecipientId() {
+            return recipientId;
+        }
+
+        public String getRecipientType() {
+            return recipientType;
+        }
+
+        public String getMessageText() {
+            return messageText;
+        }
+
+        public String getMessageType() {
+            return messageType;
+        }
+
+        public String getDeliveryStatus() {
+            return deliveryStatus;
+        }
+
+        public LocalDateTime getSentAt() {
+            return sentAt;
+        }
+
+        public LocalDateTime getDeliveredAt() {
+            return deliveredAt;
+        }
+
+        public LocalDateTime getReadAt() {
+            return readAt;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public Integer getRetryCount() {
+            return retryCount;
+        }
+
+        public Long getRelatedEntityId() {
+            return relatedEntityId;
+        }
+
+        public String getRelatedEntityType() {
+            return relatedEntityType;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.crm.system.model.NotificationSettings;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,5 +13,7 @@ public interface NotificationSettingsRepository extends JpaRepository<Notificati
 
     Optional<NotificationSettings> findByUserIdAndUserType(Long userId, NotificationSettings.UserType userType);
 
+    List<NotificationSettings> findByUserTypeAndUserIdIn(NotificationSettings.UserType userType, Collection<Long> userIds);
+
     boolean existsByUserIdAndUserType(Long userId, NotificationSettings.UserType userType);
 }
\ No newline at end of file
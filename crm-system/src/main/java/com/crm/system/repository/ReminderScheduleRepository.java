@@ -0,0 +1,95 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Start times of upcoming lessons, read by range for the reminder timing wheel. Only the columns
+ * needed to compute reminder instants are read; the lessons themselves are loaded when a reminder fires.
+ * Markers of the individual lesson reminders already sent are kept in lesson_reminders_sent.
+ */
+@Repository
+public class ReminderScheduleRepository {
+
+    // The scheduled_date predicate lets idx_lessons_scheduled_date narrow the scan
+    private static final String LESSON_STARTS_SQL =
+            "SELECT id, scheduled_date + scheduled_time AS starts_at, COALESCE(duration_minutes, 60) AS duration_minutes " +
+            "FROM lessons " +
+            "WHERE status = 'SCHEDULED' AND scheduled_date BETWEEN ? AND ? " +
+            "  AND (scheduled_date + scheduled_time) > ? AND (scheduled_date + scheduled_time) <= ?";
+
+    // Served by idx_group_lessons_confirmed_start
+    private static final String GROUP_LESSON_STARTS_SQL =
+            "SELECT id, scheduled_date + scheduled_time AS starts_at, COALESCE(duration_minutes, 60) AS duration_minutes " +
+            "FROM group_lessons " +
+            "WHERE status = 'CONFIRMED' " +
+            "  AND (scheduled_date + scheduled_time) > ? AND (scheduled_date + scheduled_time) <= ?";
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO lesson_reminders_sent (lesson_id, reminder_type, lesson_start, sent_at) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final RowMapper<LessonStart> LESSON_START_MAPPER = (rs, rowNum) -> new LessonStart(
+            rs.getLong("id"), rs.getTimestamp("starts_at").toLocalDateTime(), rs.getInt("duration_minutes"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Scheduled individual lessons starting after from and not later than to.
+     */
+    public List<LessonStart> findLessonStarts(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(LESSON_STARTS_SQL, LESSON_START_MAPPER,
+                Date.valueOf(from.toLocalDate()), Date.valueOf(to.toLocalDate()),
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Confirmed group lessons starting after from and not later than to.
+     */
+    public List<LessonStart> findGroupLessonStarts(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(GROUP_LESSON_STARTS_SQL, LESSON_START_MAPPER,
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Writes the marker of a reminder of the lesson starting at lessonStart.
+     *
+     * @return false if the reminder was already marked, also by another instance
+     */
+    public boolean claim(String reminderType, long lessonId, LocalDateTime lessonStart) {
+        return jdbcTemplate.update(CLAIM_SQL, lessonId, reminderType, Timestamp.valueOf(lessonStart),
+                Timestamp.valueOf(LocalDateTime.now())) > 0;
+    }
+
+    public static class LessonStart {
+        private final long id;
+        private final LocalDateTime startsAt;
+        private final int durationMinutes;
+
+        public LessonStart(long id, LocalDateTime startsAt, int durationMinutes) {
+            this.id = id;
+            this.startsAt = startsAt;
+            this.durationMinutes = durationMinutes;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public LocalDateTime getStartsAt() {
+            return startsAt;
+        }
+
+        public int getDurationMinutes() {
+            return durationMinutes;
+        }
+    }
+}
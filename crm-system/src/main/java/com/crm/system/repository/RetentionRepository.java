@@ -0,0 +1,116 @@
+package com.crm.system.repository;
+
+import com.crm.system.config.RetentionProperties.Table;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Chunked, set-based purge of old rows. Every call is a single statement, so each chunk is
+ * committed on its own and never holds locks for the whole purge.
+ *
+ * Table and column names come from {@link Table}; statuses and dates are bound as parameters.
+ */
+@Repository
+public class RetentionRepository {
+
+    private static final String ARCHIVE_COLUMNS_SQL =
+            "SELECT column_name FROM information_schema.columns " +
+            "WHERE table_schema = current_schema() AND table_name = ? ORDER BY ordinal_position";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deletes up to limit rows created before the cutoff.
+     *
+     * @param status           only rows with this status, or null for any status
+     * @param excludedStatuses statuses to keep (ignored when status is given)
+     * @return number of deleted rows
+     */
+    public int deleteChunk(Table table, LocalDateTime createdBefore, String status,
+                           Collection<String> excludedStatuses, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = "DELETE FROM " + table.getTableName() + " WHERE id IN (" +
+                selectIds(table, null, createdBefore, status, excludedStatuses, limit, args) + ")";
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    /**
+     * Moves up to limit rows created in [createdFrom, createdBefore) into the archive table
+     * in one statement. Only columns present in the archive table are copied.
+     *
+     * @return number of moved rows
+     */
+    public int archiveChunk(Table table, String archiveTable, List<String> columns,
+                            LocalDateTime createdFrom, LocalDateTime createdBefore, String status,
+                            Collection<String> excludedStatuses, int limit) {
+        String columnList = String.join(", ", columns);
+        List<Object> args = new ArrayList<>();
+        String sql = "WITH moved AS (DELETE FROM " + table.getTableName() + " WHERE id IN (" +
+                selectIds(table, createdFrom, createdBefore, status, excludedStatuses, limit, args) + ") " +
+                "RETURNING " + columnList + ") " +
+                "INSERT INTO " + archiveTable + " (" + columnList + ") SELECT " + columnList + " FROM moved";
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    /**
+     * Creates the archive table with the columns of the source table, without its constraints
+     * and indexes, and returns the columns both tables have in common.
+     */
+    public List<String> prepareArchiveTable(Table table, String archiveTable) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + archiveTable + " (LIKE " + table.getTableName() + ")");
+        List<String> sourceColumns = jdbcTemplate.queryForList(ARCHIVE_COLUMNS_SQL, String.class, table.getTableName());
+        List<String> archiveColumns = jdbcTemplate.queryForList(ARCHIVE_COLUMNS_SQL, String.class, archiveTable);
+        archiveColumns.retainAll(sourceColumns);
+        return archiveColumns;
+    }
+
+    /**
+     * Returns the creation time of the oldest row that would be purged, or null if there is none.
+     */
+    public LocalDateTime findOldestCreatedAt(Table table, LocalDateTime createdBefore, String status,
+                                             Collection<String> excludedStatuses) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT MIN(created_at) FROM " + table.getTableName() +
+                " WHERE " + conditions(table, null, createdBefore, status, excludedStatuses, args);
+        Timestamp oldest = jdbcTemplate.queryForObject(sql, Timestamp.class, args.toArray());
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    private String selectIds(Table table, LocalDateTime createdFrom, LocalDateTime createdBefore, String status,
+                             Collection<String> excludedStatuses, int limit, List<Object> args) {
+        String sql = "SELECT id FROM " + table.getTableName() +
+                " WHERE " + conditions(table, createdFrom, createdBefore, status, excludedStatuses, args) +
+                " LIMIT ? FOR UPDATE SKIP LOCKED";
+        args.add(limit);
+        return sql;
+    }
+
+    private String conditions(Table table, LocalDateTime createdFrom, LocalDateTime createdBefore, String status,
+                              Collection<String> excludedStatuses, List<Object> args) {
+        StringBuilder sql = new StringBuilder("created_at < ?");
+        args.add(Timestamp.valueOf(createdBefore));
+        if (createdFrom != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(createdFrom));
+        }
+        if (status != null) {
+            sql.append(" AND ").append(table.getStatusColumn()).append(" = ?");
+            args.add(status);
+        } else if (excludedStatuses != null && !excludedStatuses.isEmpty()) {
+            sql.append(" AND (").append(table.getStatusColumn()).append(" IS NULL OR ")
+                    .append(table.getStatusColumn()).append(" NOT IN (")
+                    .append(String.join(", ", excludedStatuses.stream().map(s -> "?").toList()))
+                    .append("))");
+            args.addAll(excludedStatuses);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fuzzy search of students and users over "first name last name email".
+ *
+ * Rows match on a substring or on word similarity above pg_trgm.word_similarity_threshold and
+ * are read from the pg_trgm GiST indexes of V10 in order of word similarity distance (<<->), so
+ * a short common prefix does not rank every matching row. Pages continue after the
+ * (distance, id) of the previous page's last hit.
+ */
+@Repository
+public class SearchRepository {
+
+    // Must stay identical to the indexed expressions in V10__trigram_search.sql
+    private static final String STUDENT_DOCUMENT = "lower(first_name || ' ' || last_name || ' ' || coalesce(email, ''))";
+    private static final String USER_DOCUMENT = "lower(first_name || ' ' || last_name || ' ' || email)";
+
+    private static final RowMapper<SearchHit> STUDENT_HIT_MAPPER = (rs, rowNum) -> new SearchHit(
+            rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"), rs.getString("email"),
+            null, rs.getFloat("distance"));
+
+    private static final RowMapper<SearchHit> USER_HIT_MAPPER = (rs, rowNum) -> new SearchHit(
+            rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"), rs.getString("email"),
+            rs.getString("role"), rs.getFloat("distance"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param after last hit of the previous page, or null for the first page
+     */
+    public List<SearchHit> searchStudents(String term, SearchHit after, int limit) {
+        return search("students", STUDENT_DOCUMENT, "NULL AS role", null, term, after, limit, STUDENT_HIT_MAPPER);
+    }
+
+    /**
+     * @param role only users with this role, or null for all
+     * @param after last hit of the previous page, or null for the first page
+     */
+    public List<SearchHit> searchUsers(String term, String role, SearchHit after, int limit) {
+        return search("users", USER_DOCUMENT, "role", role, term, after, limit, USER_HIT_MAPPER);
+    }
+
+    private List<SearchHit> search(String table, String document, String roleColumn, String role, String term,
+                                   SearchHit after, int limit, RowMapper<SearchHit> mapper) {
+        String distance = "(lower(?) <<-> " + document + ")";
+        StringBuilder sql = new StringBuilder("SELECT id, first_name, last_name, email, ")
+                .append(roleColumn).append(", ").append(distance).append(" AS distance FROM ").append(table)
+                .append(" WHERE (").append(document).append(" LIKE '%' || lower(?) || '%' OR lower(?) <% ")
+                .append(document).append(")");
+        List<Object> args = new ArrayList<>();
+        args.add(term);
+        args.add(escapeLike(term));
+        args.add(term);
+        if (role != null) {
+            sql.append(" AND role = ?");
+            args.add(role);
+        }
+        if (after != null) {
+            sql.append(" AND (").append(distance).append(" > CAST(? AS real) OR (")
+                    .append(distance).append(" = CAST(? AS real) AND id > ?))");
+            args.add(term);
+            args.add(after.getDistance());
+            args.add(term);
+            args.add(after.getDistance());
+            args.add(after.getId());
+        }
+        sql.append(" ORDER BY ").append(distance).append(", id LIMIT ?");
+        args.add(term);
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), mapper, args.toArray());
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public static class SearchHit {
+        private final long id;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String role;
+        private final float distance;
+
+        public SearchHit(long id, String firstName, String lastName, String email, String role, float distance) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.role = role;
+            this.distance = distance;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        /**
+         * 1 - word similarity of the term to the row: 0 for a whole-word match.
+         */
+        public float getDistance() {
+            return distance;
+        }
+    }
+}
@@ -6,21 +6,26 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Optional<Student> findByEmail(String email);
     List<Student> findByAssignedTeacher(User teacher);
     
-    @Query("SELECT s FROM Student s WHERE " +
-           "LOWER(s.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(s.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(s.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    // Expression of idx_students_search_trgm (V10), so the match is an index scan instead of a seq scan
+    @Query(value = "SELECT * FROM students WHERE " +
+                   "lower(first_name || ' ' || last_name || ' ' || coalesce(email, '')) LIKE CONCAT('%', LOWER(:searchTerm), '%')",
+           countQuery = "SELECT COUNT(*) FROM students WHERE " +
+                   "lower(first_name || ' ' || last_name || ' ' || coalesce(email, '')) LIKE CONCAT('%', LOWER(:searchTerm), '%')",
+           nativeQuery = true)
     Page<Student> findBySearchTerm(@Param("searchTerm") String searchTerm, Pageable pageable);
     
     @Query("SELECT s FROM Student s WHERE s.assignedTeacher IS NULL")
@@ -28,9 +33,20 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     
     Boolean existsByEmail(String email);
     
+    @Query("SELECT s.email FROM Student s WHERE s.email IS NOT NULL AND s.email <> ''")
+    List<String> findAllEmails();
+    
+    @Query("SELECT s.email FROM Student s WHERE s.id IN :ids AND s.email IS NOT NULL AND s.email <> ''")
+    List<String> findEmailsByIdIn(@Param("ids") List<Long> ids);
+    
     Student findByTelegramChatId(Long chatId);
     
     Boolean existsByTelegramChatId(Long chatId);
     
     long countByAssignedTeacherIsNull();
+    
+    // Server-side cursor for streaming exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.assignedTeacher ORDER BY s.id")
+    Stream<Student> streamAllForExport();
 }
\ No newline at end of file
@@ -60,7 +60,7 @@ public interface TelegramMessageRepository extends JpaRepository<TelegramMessage
     List<TelegramMessage> findFailedMessagesWithRetriesBelow(@Param("maxRetries") Integer maxRetries);
 
     List<TelegramMessage> findByDeliveryStatus(TelegramMessage.DeliveryStatus deliveryStatus);
-
+    
     List<TelegramMessage> findByDeliveryStatusAndCreatedAtBefore(TelegramMessage.DeliveryStatus deliveryStatus, LocalDateTime createdAt);
     
     @Query("SELECT tm FROM TelegramMessage tm WHERE tm.createdAt <= :beforeDateTime ORDER BY tm.createdAt ASC")
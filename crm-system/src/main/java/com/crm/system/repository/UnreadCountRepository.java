@@ -0,0 +1,80 @@
+package com.crm.system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Unread notification and Telegram message counts of several recipients in one statement each.
+ * Both are served by the partial unread indexes, which hold only unread rows.
+ */
+@Repository
+public class UnreadCountRepository {
+
+    // Same statuses as NotificationService.countUnreadNotificationsByRecipient
+    private static final String UNREAD_NOTIFICATIONS_SQL =
+            "SELECT recipient_id, recipient_type, COUNT(*) AS unread FROM notifications " +
+            "WHERE recipient_id = ANY(?) AND status IN ('PENDING', 'SENT', 'DELIVERED') " +
+            "GROUP BY recipient_id, recipient_type";
+
+    // Same condition as TelegramMessageRepository.countDeliveredButUnreadMessagesByRecipient
+    private static final String UNREAD_TELEGRAM_MESSAGES_SQL =
+            "SELECT recipient_id, recipient_type, COUNT(*) AS unread FROM telegram_messages " +
+            "WHERE recipient_id = ANY(?) AND delivery_status = 'DELIVERED' AND read_at IS NULL " +
+            "GROUP BY recipient_id, recipient_type";
+
+    private static final RowMapper<UnreadCount> UNREAD_COUNT_MAPPER = (rs, rowNum) -> new UnreadCount(
+            rs.getLong("recipient_id"), rs.getString("recipient_type"), rs.getLong("unread"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Unread notifications of the recipients with the given ids, of any recipient type.
+     * Recipients without unread notifications are absent.
+     */
+    public List<UnreadCount> countUnreadNotifications(Long[] recipientIds) {
+        return query(UNREAD_NOTIFICATIONS_SQL, recipientIds);
+    }
+
+    /**
+     * Delivered but unread Telegram messages of the recipients with the given ids, of any recipient
+     * type. Recipients without unread messages are absent.
+     */
+    public List<UnreadCount> countUnreadTelegramMessages(Long[] recipientIds) {
+        return query(UNREAD_TELEGRAM_MESSAGES_SQL, recipientIds);
+    }
+
+    private List<UnreadCount> query(String sql, Long[] recipientIds) {
+        return jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", recipientIds)),
+                UNREAD_COUNT_MAPPER);
+    }
+
+    public static class UnreadCount {
+        private final long recipientId;
+        private final String recipientType;
+        private final long unread;
+
+        public UnreadCount(long recipientId, String recipientType, long unread) {
+            this.recipientId = recipientId;
+            this.recipientType = recipientType;
+            this.unread = unread;
+        }
+
+        public long getRecipientId() {
+            return recipientId;
+        }
+
+        public String getRecipientType() {
+            return recipientType;
+        }
+
+        public long getUnread() {
+            return unread;
+        }
+    }
+}
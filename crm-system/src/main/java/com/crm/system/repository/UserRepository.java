@@ -3,6 +3,8 @@ package com.crm.system.repository;
 import com.crm.system.model.User;
 import com.crm.system.model.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     List<User> findByRole(UserRole role);
     List<User> findByRoleAndIsActive(UserRole role, Boolean isActive);
+    
+    @Query("SELECT u.email FROM User u WHERE u.role = :role AND u.isActive = true " +
+           "AND u.email IS NOT NULL AND u.email <> ''")
+    List<String> findActiveEmailsByRole(@Param("role") UserRole role);
+    
+    @Query("SELECT u.email FROM User u WHERE u.id IN :ids AND u.email IS NOT NULL AND u.email <> ''")
+    List<String> findEmailsByIdIn(@Param("ids") List<Long> ids);
     Boolean existsByEmail(String email);
     
     User findByTelegramChatId(Long chatId);
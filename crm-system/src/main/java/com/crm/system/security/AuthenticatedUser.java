@@ -0,0 +1,49 @@
+package com.crm.system.security;
+
+import com.crm.system.model.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal set by {@link JwtAuthenticationFilter} for the request. Besides the email and
+ * authorities it carries the id, role and name of the user, so controllers get the current user
+ * as a method parameter (see {@link AuthenticatedUserArgumentResolver}) without loading it again.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final UserRole role;
+    private final String firstName;
+    private final String lastName;
+
+    public AuthenticatedUser(Long id, UserRole role, String firstName, String lastName, String email,
+                             String passwordHash, Collection<? extends GrantedAuthority> authorities) {
+        super(email, passwordHash, authorities);
+        this.id = id;
+        this.role = role;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UserRole getRole() {
+        return role;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+}
@@ -0,0 +1,203 @@
+package com.crm.system.security;
+
+import com.crm.system.config.AuthCacheProperties;
+import com.crm.system.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches what the JWT filter needs on every request.
+ *
+ * Verified tokens are keyed by the SHA-256 of the token and live until the token expires, so a
+ * token's signature is checked once and not on every request. User details are keyed by email;
+ * they are evicted when the role, name, active flag or password of the user changes (see
+ * {@link UserCacheInvalidationListener}) and after user-ttl-ms at the latest.
+ */
+@Component
+public class AuthenticationCache {
+
+    @Autowired
+    private AuthCacheProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, VerifiedToken> tokens = new ConcurrentHashMap<>();
+    private final Map<String, CachedUser> users = new ConcurrentHashMap<>();
+
+    private Counter tokenHits;
+    private Counter tokenMisses;
+    private Counter userHits;
+    private Counter userMisses;
+
+    @PostConstruct
+    public void init() {
+        tokenHits = meterRegistry.counter("auth.cache.requests", "cache", "token", "result", "hit");
+        tokenMisses = meterRegistry.counter("auth.cache.requests", "cache", "token", "result", "miss");
+        userHits = meterRegistry.counter("auth.cache.requests", "cache", "user", "result", "hit");
+        userMisses = meterRegistry.counter("auth.cache.requests", "cache", "user", "result", "miss");
+        meterRegistry.gaugeMapSize("auth.cache.size", List.of(Tag.of("cache", "token")), tokens);
+        meterRegistry.gaugeMapSize("auth.cache.size", List.of(Tag.of("cache", "user")), users);
+    }
+
+    /**
+     * Returns the email of an already verified, not yet expired token, or null.
+     */
+    public String getVerifiedEmail(String token) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        String key = hash(token);
+        VerifiedToken verified = tokens.get(key);
+        if (verified == null) {
+            tokenMisses.increment();
+            return null;
+        }
+        if (verified.expiresAt <= System.currentTimeMillis()) {
+            tokens.remove(key);
+            tokenMisses.increment();
+            return null;
+        }
+        tokenHits.increment();
+        return verified.email;
+    }
+
+    /**
+     * Remembers a token whose signature and expiration have been checked.
+     */
+    public void putVerifiedToken(String token, String email, Date expiration) {
+        if (!properties.isEnabled() || expiration == null) {
+            return;
+        }
+        if (tokens.size() >= properties.getMaxTokens()) {
+            long now = System.currentTimeMillis();
+            tokens.values().removeIf(verified -> verified.expiresAt <= now);
+            if (tokens.size() >= properties.getMaxTokens()) {
+                tokens.clear();
+            }
+        }
+        tokens.put(hash(token), new VerifiedToken(email, expiration.getTime()));
+    }
+
+    /**
+     * Returns the cached user details for the email, or null.
+     */
+    public UserDetails getUserDetails(String email) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        CachedUser cached = users.get(email);
+        if (cached == null) {
+            userMisses.increment();
+            return null;
+        }
+        if (cached.loadedAt + properties.getUserTtlMs() <= System.currentTimeMillis()) {
+            users.remove(email, cached);
+            userMisses.increment();
+            return null;
+        }
+        userHits.increment();
+        return cached.userDetails;
+    }
+
+    public void putUserDetails(User user, UserDetails userDetails) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (users.size() >= properties.getMaxUsers()) {
+            long expiredBefore = System.currentTimeMillis() - properties.getUserTtlMs();
+            users.values().removeIf(cached -> cached.loadedAt <= expiredBefore);
+            if (users.size() >= properties.getMaxUsers()) {
+                users.clear();
+            }
+        }
+        users.put(user.getEmail(), new CachedUser(user, userDetails));
+    }
+
+    /**
+     * Evicts the cached details of a saved user if its email, role, name, active flag or password
+     * differ from what was cached.
+     */
+    public void onUserChanged(User user) {
+        users.values().removeIf(cached -> Objects.equals(cached.userId, user.getId()) && cached.isStale(user));
+    }
+
+    public void onUserRemoved(User user) {
+        users.values().removeIf(cached -> Objects.equals(cached.userId, user.getId()));
+    }
+
+    public void evictUser(String email) {
+        users.remove(email);
+    }
+
+    public void clear() {
+        tokens.clear();
+        users.clear();
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final String email;
+        private final long expiresAt;
+
+        private VerifiedToken(String email, long expiresAt) {
+            this.email = email;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class CachedUser {
+        private final Long userId;
+        private final String email;
+        private final String role;
+        private final String firstName;
+        private final String lastName;
+        private final Boolean active;
+        private final String passwordHash;
+        private final UserDetails userDetails;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private CachedUser(User user, UserDetails userDetails) {
+            this.userId = user.getId();
+            this.email = user.getEmail();
+            this.role = user.getRole() != null ? user.getRole().name() : null;
+            this.firstName = user.getFirstName();
+            this.lastName = user.getLastName();
+            this.active = user.getIsActive();
+            this.passwordHash = user.getPasswordHash();
+            this.userDetails = userDetails;
+        }
+
+        private boolean isStale(User user) {
+            return !Objects.equals(email, user.getEmail())
+                    || !Objects.equals(role, user.getRole() != null ? user.getRole().name() : null)
+                    || !Objects.equals(firstName, user.getFirstName())
+                    || !Objects.equals(lastName, user.getLastName())
+                    || !Objects.equals(active, user.getIsActive())
+                    || !Objects.equals(passwordHash, user.getPasswordHash());
+        }
+    }
+}
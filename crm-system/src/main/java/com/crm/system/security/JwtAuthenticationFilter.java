@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.ExpiredJwtException;
 
@@ -26,10 +27,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
     private final UserDetailsServiceImpl userDetailsService;
+    private final AuthenticationCache authenticationCache;
 
-    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil, UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil, UserDetailsServiceImpl userDetailsService,
+                                   AuthenticationCache authenticationCache) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.userDetailsService = userDetailsService;
+        this.authenticationCache = authenticationCache;
     }
 
     @Override
@@ -76,13 +80,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             System.out.println("JwtAuthenticationFilter: JWT from request: " + (jwt != null ? jwt.substring(0, 20) + "..." : "null"));
             if (StringUtils.hasText(jwt)) {
                 try {
-                    String email = jwtTokenUtil.getEmailFromToken(jwt);
+                    String email = resolveEmail(jwt);
                     log.debug("Token present for user: {}", email);
                     System.out.println("JwtAuthenticationFilter: Token present for user: " + email);
 
                     if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                        if (jwtTokenUtil.validateToken(jwt, userDetails)) {
+                        UserDetails userDetails = userDetailsService.loadCachedUserByUsername(email);
+                        if (email.equals(userDetails.getUsername())) {
                             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                                     userDetails, null, userDetails.getAuthorities());
                             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -92,12 +96,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         } else {
                             log.warn("JWT token validation failed for user: {}", email);
                             System.out.println("JwtAuthenticationFilter: JWT token validation failed for user: " + email);
-                            
-                            // Если токен истек, отправляем 401 Unauthorized
-                            if (jwtTokenUtil.isTokenExpired(jwt)) {
-                                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
-                                return;
-                            }
                         }
                     }
                 } catch (SignatureException e) {
@@ -135,6 +133,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Токен разбирается и проверяется один раз; дальше до истечения срока берется из кэша
+    private String resolveEmail(String jwt) {
+        String email = authenticationCache.getVerifiedEmail(jwt);
+        if (email != null) {
+            return email;
+        }
+        Claims claims = jwtTokenUtil.parseToken(jwt);
+        email = claims.getSubject();
+        if (email != null) {
+            authenticationCache.putVerifiedToken(jwt, email, claims.getExpiration());
+        }
+        return email;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
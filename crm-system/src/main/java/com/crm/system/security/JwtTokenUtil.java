@@ -52,6 +52,14 @@ public class JwtTokenUtil {
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiration of the token and returns its claims.
+     * Callers that need several claims should parse once with this method.
+     */
+    public Claims parseToken(String token) {
+        return parseClaims(token).getBody();
+    }
+
     public String getEmailFromToken(String token) {
         return parseClaims(token).getBody().getSubject();
     }
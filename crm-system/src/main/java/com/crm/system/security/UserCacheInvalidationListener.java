@@ -0,0 +1,49 @@
+package com.crm.system.security;
+
+import com.crm.system.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts cached user details when a user is updated or deleted through JPA.
+ *
+ * The entry is evicted right away and once more after the commit, so a request that reloads
+ * the user between the flush and the commit cannot keep the old role or password in the cache.
+ */
+public class UserCacheInvalidationListener {
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @PostUpdate
+    public void onUpdate(User user) {
+        if (authenticationCache == null) {
+            return;
+        }
+        authenticationCache.onUserChanged(user);
+        afterCommit(() -> authenticationCache.onUserChanged(user));
+    }
+
+    @PostRemove
+    public void onRemove(User user) {
+        if (authenticationCache == null) {
+            return;
+        }
+        authenticationCache.onUserRemoved(user);
+        afterCommit(() -> authenticationCache.onUserRemoved(user));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -19,15 +19,43 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userService.findByEmail(email)
+        return toUserDetails(findUser(email));
+    }
+
+    /**
+     * Same as {@link #loadUserByUsername(String)}, but served from {@link AuthenticationCache}
+     * when possible. Used by the JWT filter on every request; login always reads the database.
+     */
+    public UserDetails loadCachedUserByUsername(String email) throws UsernameNotFoundException {
+        UserDetails cached = authenticationCache.getUserDetails(email);
+        if (cached != null) {
+            return cached;
+        }
+        User user = findUser(email);
+        UserDetails userDetails = toUserDetails(user);
+        authenticationCache.putUserDetails(user, userDetails);
+        return userDetails;
+    }
+
+    private User findUser(String email) {
+        return userService.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+    }
 
+    private UserDetails toUserDetails(User user) {
         List<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getRole(),
+                user.getFirstName(),
+                user.getLastName(),
                 user.getEmail(),
                 user.getPasswordHash(),
                 authorities
@@ -7,6 +7,7 @@ import com.crm.system.model.GroupLesson;
 import com.crm.system.model.GroupLessonRegistration;
 import com.crm.system.model.Lesson;
 import com.crm.system.repository.AvailabilitySlotRepository;
+import com.crm.system.repository.GroupLessonRegistrationRepository;
 import com.crm.system.repository.LessonRepository;
 import com.crm.system.service.AvailabilitySlotService;
 import com.crm.system.service.GroupLessonService;
@@ -15,10 +16,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class CalendarService {
@@ -38,183 +40,31 @@ public class CalendarService {
     @Autowired
     private GroupLessonService groupLessonService;
 
+    @Autowired
+    private GroupLessonRegistrationRepository groupLessonRegistrationRepository;
+
     public List<CalendarDayDto> getTeacherCalendar(Long teacherId, LocalDate startDate, LocalDate endDate) {
-        List<CalendarDayDto> calendarDays = new ArrayList<>();
-        
         // Получаем все слоты доступности преподавателя за период
         List<AvailabilitySlot> slots = availabilitySlotService.findByTeacherIdAndDateRange(teacherId, startDate, endDate);
         
-        // Получаем все уроки преподавателя за период
-        List<Lesson> lessons = lessonService.findByTeacherIdAndDateRange(teacherId, startDate, endDate);
+        // Получаем все уроки преподавателя за период вместе со студентами и слотами
+        List<Lesson> lessons = lessonRepository.findCalendarLessonsByTeacherIdAndDateRange(teacherId, startDate, endDate);
         
         // Получаем все групповые уроки преподавателя за период
         List<GroupLesson> groupLessons = groupLessonService.findTeacherLessonsByDateRange(teacherId, startDate, endDate);
         
-        // Группируем данные по дням
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            List<CalendarSlotDto> daySlots = new ArrayList<>();
-            
-            // Фильтруем слоты по дате
-            LocalDate finalDate1 = date;
-            List<AvailabilitySlot> dayAvailabilitySlots = slots.stream()
-                    .filter(slot -> slot.getSlotDate().equals(finalDate1))
-                    .collect(Collectors.toList());
-            
-            // Фильтруем уроки по дате
-            LocalDate finalDate2 = date;
-            List<Lesson> dayLessons = lessons.stream()
-                    .filter(lesson -> lesson.getScheduledDate().equals(finalDate2))
-                    .collect(Collectors.toList());
-            
-            // Фильтруем групповые уроки по дате
-            LocalDate finalDate3 = date;
-            List<GroupLesson> dayGroupLessons = groupLessons.stream()
-                    .filter(groupLesson -> groupLesson.getScheduledDate().equals(finalDate3))
-                    .collect(Collectors.toList());
-            
-            // Преобразуем слоты доступности в календарные слоты
-            for (AvailabilitySlot slot : dayAvailabilitySlots) {
-                CalendarSlotDto calendarSlot = new CalendarSlotDto();
-                calendarSlot.setSlotId(slot.getId());
-                calendarSlot.setTime(slot.getSlotTime());
-                calendarSlot.setDurationMinutes(slot.getDurationMinutes());
-                calendarSlot.setSlotStatus(slot.getStatus());
-                calendarSlot.setIsBooked(slot.getIsBooked());
-                
-                // Проверяем, есть ли урок в этом слоте
-                Lesson lessonInSlot = dayLessons.stream()
-                        .filter(lesson -> lesson.getSlot() != null && lesson.getSlot().getId().equals(slot.getId()))
-                        .findFirst()
-                        .orElse(null);
-                
-                if (lessonInSlot != null) {
-                    calendarSlot.setLessonId(lessonInSlot.getId());
-                    calendarSlot.setLessonStatus(lessonInSlot.getStatus());
-                    calendarSlot.setStudentId(lessonInSlot.getStudent().getId());
-                    calendarSlot.setStudentName(lessonInSlot.getStudent().getFirstName() + " " + 
-                                              lessonInSlot.getStudent().getLastName());
-                }
-                
-                daySlots.add(calendarSlot);
-            }
-            
-            // Добавляем уроки без слотов (если такие есть)
-            List<Lesson> lessonsWithoutSlots = dayLessons.stream()
-                    .filter(lesson -> lesson.getSlot() == null)
-                    .collect(Collectors.toList());
-            
-            for (Lesson lesson : lessonsWithoutSlots) {
-                CalendarSlotDto calendarSlot = new CalendarSlotDto();
-                calendarSlot.setLessonId(lesson.getId());
-                calendarSlot.setTime(lesson.getScheduledTime());
-                calendarSlot.setDurationMinutes(lesson.getDurationMinutes());
-                calendarSlot.setLessonStatus(lesson.getStatus());
-                calendarSlot.setStudentId(lesson.getStudent().getId());
-                calendarSlot.setStudentName(lesson.getStudent().getFirstName() + " " + 
-                                          lesson.getStudent().getLastName());
-                calendarSlot.setIsBooked(true);
-                
-                daySlots.add(calendarSlot);
-            }
-            
-            // Добавляем групповые уроки
-            for (GroupLesson groupLesson : dayGroupLessons) {
-                CalendarSlotDto calendarSlot = new CalendarSlotDto();
-                calendarSlot.setGroupLessonId(groupLesson.getId());
-                calendarSlot.setGroupLessonTopic(groupLesson.getLessonTopic());
-                calendarSlot.setTime(groupLesson.getScheduledTime());
-                calendarSlot.setDurationMinutes(groupLesson.getDurationMinutes());
-                calendarSlot.setGroupLessonStatus(groupLesson.getStatus());
-                calendarSlot.setIsBooked(true);
-                calendarSlot.setMaxStudents(groupLesson.getMaxStudents());
-                calendarSlot.setCurrentStudents(groupLesson.getCurrentStudents());
-                
-                daySlots.add(calendarSlot);
-            }
-            
-            calendarDays.add(new CalendarDayDto(date, daySlots));
-        }
-        
-        return calendarDays;
+        return assembleTeacherCalendar(startDate, endDate, slots, lessons, groupLessons);
     }
 
     public List<CalendarDayDto> getStudentCalendar(Long studentId, LocalDate startDate, LocalDate endDate) {
-        List<CalendarDayDto> calendarDays = new ArrayList<>();
-        
-        // Получаем все уроки студента за период
-        List<Lesson> lessons = lessonService.findByStudentIdAndDateRange(studentId, startDate, endDate);
+        // Получаем все уроки студента за период вместе с преподавателями и слотами
+        List<Lesson> lessons = lessonRepository.findCalendarLessonsByStudentIdAndDateRange(studentId, startDate, endDate);
         
         // Получаем все регистрации на групповые уроки студента за период
-        List<GroupLessonRegistration> groupLessonRegistrations = groupLessonService.findGroupLessonRegistrationsByStudentIdAndDateRange(
-                studentId, startDate, endDate);
-        
-        // Группируем данные по дням
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            List<CalendarSlotDto> daySlots = new ArrayList<>();
-            
-            // Фильтруем уроки по дате
-            LocalDate finalDate4 = date;
-            List<Lesson> dayLessons = lessons.stream()
-                    .filter(lesson -> lesson.getScheduledDate().equals(finalDate4))
-                    .collect(Collectors.toList());
-            
-            // Фильтруем регистрации на групповые уроки по дате
-            LocalDate finalDate5 = date;
-            List<GroupLessonRegistration> dayGroupLessonRegistrations = groupLessonRegistrations.stream()
-                    .filter(registration -> registration.getGroupLesson().getScheduledDate().equals(finalDate5))
-                    .collect(Collectors.toList());
-            
-            // Преобразуем уроки в календарные слоты
-            for (Lesson lesson : dayLessons) {
-                CalendarSlotDto calendarSlot = new CalendarSlotDto();
-                calendarSlot.setLessonId(lesson.getId());
-                calendarSlot.setTime(lesson.getScheduledTime());
-                calendarSlot.setDurationMinutes(lesson.getDurationMinutes());
-                calendarSlot.setLessonStatus(lesson.getStatus());
-                calendarSlot.setStudentId(lesson.getStudent().getId());
-                calendarSlot.setStudentName(lesson.getStudent().getFirstName() + " " + 
-                                          lesson.getStudent().getLastName());
-                calendarSlot.setIsBooked(true);
-                
-                if (lesson.getSlot() != null) {
-                    calendarSlot.setSlotId(lesson.getSlot().getId());
-                    calendarSlot.setSlotStatus(lesson.getSlot().getStatus());
-                }
-                
-                if (lesson.getTeacher() != null) {
-                    calendarSlot.setStudentName(lesson.getTeacher().getFirstName() + " " + 
-                                               lesson.getTeacher().getLastName());
-                }
-                
-                daySlots.add(calendarSlot);
-            }
-            
-            // Добавляем групповые уроки
-            for (GroupLessonRegistration registration : dayGroupLessonRegistrations) {
-                GroupLesson groupLesson = registration.getGroupLesson();
-                CalendarSlotDto calendarSlot = new CalendarSlotDto();
-                calendarSlot.setGroupLessonId(groupLesson.getId());
-                calendarSlot.setGroupLessonTopic(groupLesson.getLessonTopic());
-                calendarSlot.setTime(groupLesson.getScheduledTime());
-                calendarSlot.setDurationMinutes(groupLesson.getDurationMinutes());
-                calendarSlot.setGroupLessonStatus(groupLesson.getStatus());
-                calendarSlot.setIsBooked(true);
-                calendarSlot.setMaxStudents(groupLesson.getMaxStudents());
-                calendarSlot.setCurrentStudents(groupLesson.getCurrentStudents());
-                calendarSlot.setRegistrationStatus(registration.getRegistrationStatus());
-                
-                if (groupLesson.getTeacher() != null) {
-                    calendarSlot.setStudentName(groupLesson.getTeacher().getFirstName() + " " + 
-                                               groupLesson.getTeacher().getLastName());
-                }
-                
-                daySlots.add(calendarSlot);
-            }
-            
-            calendarDays.add(new CalendarDayDto(date, daySlots));
-        }
+        List<GroupLessonRegistration> groupLessonRegistrations =
+                groupLessonRegistrationRepository.findCalendarRegistrationsByStudentIdAndDateRange(studentId, startDate, endDate);
         
-        return calendarDays;
+        return assembleStudentCalendar(startDate, endDate, lessons, groupLessonRegistrations);
     }
 
     public List<CalendarSlotDto> getTeacherDaySlots(Long teacherId, LocalDate date) {
@@ -222,15 +72,46 @@ public class CalendarService {
         List<AvailabilitySlot> slots = availabilitySlotService.findByTeacherIdAndDate(teacherId, date);
         
         // Получаем уроки преподавателя на дату
-        List<Lesson> lessons = lessonService.findByTeacherIdAndDate(teacherId, date);
+        List<Lesson> lessons = lessonRepository.findCalendarLessonsByTeacherIdAndDateRange(teacherId, date, date);
         
         // Получаем групповые уроки преподавателя на дату
         List<GroupLesson> groupLessons = groupLessonService.findTeacherLessonsByDate(teacherId, date);
         
-        List<CalendarSlotDto> calendarSlots = new ArrayList<>();
+        return assembleTeacherCalendar(date, date, slots, lessons, groupLessons).get(0).getSlots();
+    }
+
+    /**
+     * Builds the teacher calendar in a single pass over each list: items are bucketed by day offset
+     * and lessons are joined to their slots through a slot-id map. Within a day the order is
+     * availability slots, lessons without a slot, then group lessons.
+     */
+    static List<CalendarDayDto> assembleTeacherCalendar(LocalDate startDate, LocalDate endDate,
+                                                        List<AvailabilitySlot> slots,
+                                                        List<Lesson> lessons,
+                                                        List<GroupLesson> groupLessons) {
+        DayBuckets days = new DayBuckets(startDate, endDate);
+        
+        // Урок, занимающий слот; при нескольких уроках в одном слоте берём первый, как и раньше
+        Map<Long, Lesson> lessonsBySlotId = new HashMap<>();
+        List<List<Lesson>> lessonsWithoutSlots = days.newBuckets();
+        for (Lesson lesson : lessons) {
+            int day = days.indexOf(lesson.getScheduledDate());
+            if (day < 0) {
+                continue;
+            }
+            if (lesson.getSlot() == null) {
+                lessonsWithoutSlots.get(day).add(lesson);
+            } else {
+                lessonsBySlotId.putIfAbsent(lesson.getSlot().getId(), lesson);
+            }
+        }
         
         // Преобразуем слоты доступности в календарные слоты
         for (AvailabilitySlot slot : slots) {
+            int day = days.indexOf(slot.getSlotDate());
+            if (day < 0) {
+                continue;
+            }
             CalendarSlotDto calendarSlot = new CalendarSlotDto();
             calendarSlot.setSlotId(slot.getId());
             calendarSlot.setTime(slot.getSlotTime());
@@ -238,13 +119,8 @@ public class CalendarService {
             calendarSlot.setSlotStatus(slot.getStatus());
             calendarSlot.setIsBooked(slot.getIsBooked());
             
-            // Проверяем, есть ли урок в этом слоте
-            Lesson lessonInSlot = lessons.stream()
-                    .filter(lesson -> lesson.getSlot() != null && lesson.getSlot().getId().equals(slot.getId()))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (lessonInSlot != null) {
+            Lesson lessonInSlot = lessonsBySlotId.get(slot.getId());
+            if (lessonInSlot != null && lessonInSlot.getScheduledDate().equals(slot.getSlotDate())) {
                 calendarSlot.setLessonId(lessonInSlot.getId());
                 calendarSlot.setLessonStatus(lessonInSlot.getStatus());
                 calendarSlot.setStudentId(lessonInSlot.getStudent().getId());
@@ -252,15 +128,53 @@ public class CalendarService {
                                           lessonInSlot.getStudent().getLastName());
             }
             
-            calendarSlots.add(calendarSlot);
+            days.get(day).add(calendarSlot);
         }
         
         // Добавляем уроки без слотов (если такие есть)
-        List<Lesson> lessonsWithoutSlots = lessons.stream()
-                .filter(lesson -> lesson.getSlot() == null)
-                .collect(Collectors.toList());
+        for (int day = 0; day < days.size(); day++) {
+            for (Lesson lesson : lessonsWithoutSlots.get(day)) {
+                CalendarSlotDto calendarSlot = new CalendarSlotDto();
+                calendarSlot.setLessonId(lesson.getId());
+                calendarSlot.setTime(lesson.getScheduledTime());
+                calendarSlot.setDurationMinutes(lesson.getDurationMinutes());
+                calendarSlot.setLessonStatus(lesson.getStatus());
+                calendarSlot.setStudentId(lesson.getStudent().getId());
+                calendarSlot.setStudentName(lesson.getStudent().getFirstName() + " " + 
+                                          lesson.getStudent().getLastName());
+                calendarSlot.setIsBooked(true);
+                
+                days.get(day).add(calendarSlot);
+            }
+        }
+        
+        // Добавляем групповые уроки
+        for (GroupLesson groupLesson : groupLessons) {
+            int day = days.indexOf(groupLesson.getScheduledDate());
+            if (day < 0) {
+                continue;
+            }
+            days.get(day).add(toGroupLessonSlot(groupLesson));
+        }
         
-        for (Lesson lesson : lessonsWithoutSlots) {
+        return days.toCalendarDays();
+    }
+
+    /**
+     * Builds the student calendar in a single pass over lessons and registrations.
+     * Within a day, individual lessons come first, then group lessons.
+     */
+    static List<CalendarDayDto> assembleStudentCalendar(LocalDate startDate, LocalDate endDate,
+                                                        List<Lesson> lessons,
+                                                        List<GroupLessonRegistration> groupLessonRegistrations) {
+        DayBuckets days = new DayBuckets(startDate, endDate);
+        
+        // Преобразуем уроки в календарные слоты
+        for (Lesson lesson : lessons) {
+            int day = days.indexOf(lesson.getScheduledDate());
+            if (day < 0) {
+                continue;
+            }
             CalendarSlotDto calendarSlot = new CalendarSlotDto();
             calendarSlot.setLessonId(lesson.getId());
             calendarSlot.setTime(lesson.getScheduledTime());
@@ -271,24 +185,104 @@ public class CalendarService {
                                       lesson.getStudent().getLastName());
             calendarSlot.setIsBooked(true);
             
-            calendarSlots.add(calendarSlot);
+            if (lesson.getSlot() != null) {
+                calendarSlot.setSlotId(lesson.getSlot().getId());
+                calendarSlot.setSlotStatus(lesson.getSlot().getStatus());
+            }
+            
+            if (lesson.getTeacher() != null) {
+                calendarSlot.setStudentName(lesson.getTeacher().getFirstName() + " " + 
+                                           lesson.getTeacher().getLastName());
+            }
+            
+            days.get(day).add(calendarSlot);
         }
         
-        // Добавляем групповые уроки
-        for (GroupLesson groupLesson : groupLessons) {
-            CalendarSlotDto calendarSlot = new CalendarSlotDto();
-            calendarSlot.setGroupLessonId(groupLesson.getId());
-            calendarSlot.setGroupLessonTopic(groupLesson.getLessonTopic());
-            calendarSlot.setTime(groupLesson.getScheduledTime());
-            calendarSlot.setDurationMinutes(groupLesson.getDurationMinutes());
-            calendarSlot.setGroupLessonStatus(groupLesson.getStatus());
-            calendarSlot.setIsBooked(true);
-            calendarSlot.setMaxStudents(groupLesson.getMaxStudents());
-            calendarSlot.setCurrentStudents(groupLesson.getCurrentStudents());
+        // Добавляем групповые уроки; они идут после индивидуальных, поэтому собираем их отдельно
+        List<List<CalendarSlotDto>> groupSlots = days.newBuckets();
+        for (GroupLessonRegistration registration : groupLessonRegistrations) {
+            GroupLesson groupLesson = registration.getGroupLesson();
+            int day = days.indexOf(groupLesson.getScheduledDate());
+            if (day < 0) {
+                continue;
+            }
+            CalendarSlotDto calendarSlot = toGroupLessonSlot(groupLesson);
+            calendarSlot.setRegistrationStatus(registration.getRegistrationStatus());
+            
+            if (groupLesson.getTeacher() != null) {
+                calendarSlot.setStudentName(groupLesson.getTeacher().getFirstName() + " " + 
+                                           groupLesson.getTeacher().getLastName());
+            }
             
-            calendarSlots.add(calendarSlot);
+            groupSlots.get(day).add(calendarSlot);
+        }
+        for (int day = 0; day < days.size(); day++) {
+            days.get(day).addAll(groupSlots.get(day));
         }
         
-        return calendarSlots;
+        return days.toCalendarDays();
+    }
+
+    private static CalendarSlotDto toGroupLessonSlot(GroupLesson groupLesson) {
+        CalendarSlotDto calendarSlot = new CalendarSlotDto();
+        calendarSlot.setGroupLessonId(groupLesson.getId());
+        calendarSlot.setGroupLessonTopic(groupLesson.getLessonTopic());
+        calendarSlot.setTime(groupLesson.getScheduledTime());
+        calendarSlot.setDurationMinutes(groupLesson.getDurationMinutes());
+        calendarSlot.setGroupLessonStatus(groupLesson.getStatus());
+        calendarSlot.setIsBooked(true);
+        calendarSlot.setMaxStudents(groupLesson.getMaxStudents());
+        calendarSlot.setCurrentStudents(groupLesson.getCurrentStudents());
+        return calendarSlot;
+    }
+
+    /**
+     * Per-day slot lists for a date range, addressed by the day offset from the start date.
+     */
+    private static final class DayBuckets {
+        private final LocalDate startDate;
+        private final List<List<CalendarSlotDto>> slotsByDay;
+
+        private DayBuckets(LocalDate startDate, LocalDate endDate) {
+            this.startDate = startDate;
+            this.slotsByDay = newBuckets(startDate.isAfter(endDate)
+                    ? 0 : (int) ChronoUnit.DAYS.between(startDate, endDate) + 1);
+        }
+
+        private int size() {
+            return slotsByDay.size();
+        }
+
+        private int indexOf(LocalDate date) {
+            if (date == null) {
+                return -1;
+            }
+            long offset = ChronoUnit.DAYS.between(startDate, date);
+            return offset >= 0 && offset < slotsByDay.size() ? (int) offset : -1;
+        }
+
+        private List<CalendarSlotDto> get(int day) {
+            return slotsByDay.get(day);
+        }
+
+        private <T> List<List<T>> newBuckets() {
+            return newBuckets(slotsByDay.size());
+        }
+
+        private static <T> List<List<T>> newBuckets(int size) {
+            List<List<T>> buckets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            return buckets;
+        }
+
+        private List<CalendarDayDto> toCalendarDays() {
+            List<CalendarDayDto> calendarDays = new ArrayList<>(slotsByDay.size());
+            for (int day = 0; day < slotsByDay.size(); day++) {
+                calendarDays.add(new CalendarDayDto(startDate.plusDays(day), slotsByDay.get(day)));
+            }
+            return calendarDays;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package com.crm.system.service;
+
+import com.crm.system.model.Lesson;
+import com.crm.system.repository.DailyLessonStatsRepository;
+import com.crm.system.repository.DailyLessonStatsRepository.DailyLessonCounts;
+import com.crm.system.repository.DailyLessonStatsRepository.LessonDay;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Дневная статистика уроков для трендов на дашборде.
+ *
+ * LessonService переносит урок между строками daily_lesson_stats при каждом изменении, поэтому
+ * тренд за год читается из нескольких тысяч готовых строк, а не группировкой по lessons.
+ * Изменения уроков в обход LessonService исправляет ночная сверка.
+ */
+@Service
+public class DailyLessonStatsService {
+
+    private static final Logger logger = Logger.getLogger(DailyLessonStatsService.class.getName());
+
+    @Autowired
+    private DailyLessonStatsRepository dailyLessonStatsRepository;
+
+    @Value("${dashboard.lesson-stats.reconcile-at:03:30}")
+    private LocalTime reconcileAt;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService scheduler;
+
+    public DailyLessonStatsService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void startReconciling() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lesson-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextRun = now.toLocalDate().atTime(reconcileAt);
+        if (!nextRun.isAfter(now)) {
+            nextRun = nextRun.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(this::reconcileQuietly, Duration.between(now, nextRun).toMillis(),
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopReconciling() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Блокирует урок до конца транзакции и возвращает день, в котором он сейчас учтен
+     */
+    public LessonDay lockLessonDay(Long lessonId) {
+        return lessonId != null ? dailyLessonStatsRepository.lockLessonDay(lessonId) : null;
+    }
+
+    /**
+     * Учитывает изменение урока. before - день из {@link #lockLessonDay}, null для нового урока;
+     * after - сохраненный урок, null для удаленного.
+     */
+    public void recordChange(LessonDay before, Lesson after) {
+        dailyLessonStatsRepository.move(before, after != null ? dayOf(after) : null);
+    }
+
+    /**
+     * Количество уроков по дням, включая дни без уроков
+     */
+    public List<DailyLessonCounts> getDailyCounts(LocalDate startDate, LocalDate endDate) {
+        Iterator<DailyLessonCounts> stored = dailyLessonStatsRepository.findDailyCounts(startDate, endDate).iterator();
+        DailyLessonCounts next = stored.hasNext() ? stored.next() : null;
+        List<DailyLessonCounts> days = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (next != null && next.getDate().equals(date)) {
+                days.add(next);
+                next = stored.hasNext() ? stored.next() : null;
+            } else {
+                days.add(new DailyLessonCounts(date, 0, 0, 0, 0, 0, 0));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Сверяет статистику с таблицей уроков. Ежедневно запускается в reconcile-at
+     */
+    @Transactional
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        int corrected = dailyLessonStatsRepository.reconcile();
+        logger.info("Reconciled daily lesson stats in " + (System.currentTimeMillis() - started)
+                + " ms, corrected " + corrected + " rows");
+        return corrected;
+    }
+
+    // Вызов из потока сверки идет мимо прокси, поэтому транзакция открывается явно
+    private void reconcileQuietly() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> reconcile());
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Reconciling daily lesson stats failed", e);
+        }
+    }
+
+    private static LessonDay dayOf(Lesson lesson) {
+        if (lesson.getStatus() == null || lesson.getTeacher() == null) {
+            return null;
+        }
+        return new LessonDay(lesson.getScheduledDate(), lesson.getTeacher().getId(), lesson.getStatus().name());
+    }
+}
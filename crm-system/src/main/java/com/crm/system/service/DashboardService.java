@@ -1,5 +1,6 @@
 package com.crm.system.service;
 
+import com.crm.system.dto.AdminDashboardDto;
 import com.crm.system.dto.DashboardStatsDto;
 import com.crm.system.dto.StudentEndingSoonDto;
 import com.crm.system.dto.StudentLessonSummaryDto;
@@ -8,10 +9,13 @@ import com.crm.system.model.Student;
 import com.crm.system.model.User;
 import com.crm.system.model.UserRole;
 import com.crm.system.model.Lesson;
+import com.crm.system.repository.DailyLessonStatsRepository.DailyLessonCounts;
+import com.crm.system.repository.DashboardStatsRepository;
 import com.crm.system.repository.LessonPackageRepository;
 import com.crm.system.repository.LessonRepository;
 import com.crm.system.repository.StudentRepository;
 import com.crm.system.repository.UserRepository;
+import com.crm.system.service.ResourceSamplerService.HourlyUsage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -20,6 +24,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,97 +42,108 @@ public class DashboardService {
     @Autowired
     private LessonPackageRepository lessonPackageRepository;
 
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
+    @Autowired
+    private DailyLessonStatsService dailyLessonStatsService;
+
+    @Autowired
+    private DashboardStatsRepository dashboardStatsRepository;
+
+    @Autowired
+    private ResourceSamplerService resourceSamplerService;
+
+    public DashboardSnapshot getSnapshot() {
+        return dashboardSnapshotService.getSnapshot();
+    }
+
     public DashboardStatsDto getDashboardStats() {
-        // Get user counts
-        long totalStudents = studentRepository.count();
-        long totalTeachers = userRepository.countByRole(UserRole.TEACHER);
-        long totalManagers = userRepository.countByRole(UserRole.MANAGER);
+        DashboardSnapshot snapshot = getSnapshot();
         
-        // Get active user counts (users created in last 30 days or with recent activity)
-        long activeStudents = studentRepository.count();
-        long activeTeachers = userRepository.countByRole(UserRole.TEACHER);
+        // Active counts mirror the totals until activity tracking is available
+        DashboardStatsDto stats = new DashboardStatsDto(
+            snapshot.getTotalStudents(),
+            snapshot.getTotalTeachers(),
+            snapshot.getTotalManagers(),
+            snapshot.getTotalStudents(),
+            snapshot.getTotalTeachers(),
+            snapshot.getLessonsToday(),
+            snapshot.getLessonsThisWeek(),
+            snapshot.getStudentsEndingSoon()
+        );
+        stats.setLastUpdated(snapshot.getRefreshedAtLocal());
+        stats.setSnapshotAgeSeconds(snapshot.getAgeSeconds());
+        return stats;
+    }
+
+    public AdminDashboardDto getAdminDashboard() {
+        DashboardSnapshot snapshot = getSnapshot();
+        AdminDashboardDto dto = new AdminDashboardDto();
         
-        // Get lesson counts
-        LocalDate today = LocalDate.now();
-        LocalDate startOfWeek = today.with(java.time.DayOfWeek.MONDAY);
-        LocalDate endOfWeek = today.with(java.time.DayOfWeek.SUNDAY);
+        dto.setTotalStudents(snapshot.getTotalStudents());
+        dto.setTotalTeachers(snapshot.getTotalTeachers());
+        dto.setTotalManagers(snapshot.getTotalManagers());
+        dto.setTotalAdmins(snapshot.getTotalAdmins());
+        dto.setActiveStudents(snapshot.getTotalStudents());
+        dto.setActiveTeachers(snapshot.getActiveTeachers());
+        dto.setActiveManagers(snapshot.getActiveManagers());
+        dto.setActiveAdmins(snapshot.getActiveAdmins());
         
-        long lessonsToday = lessonRepository.countByScheduledDate(today);
-        long lessonsThisWeek = lessonRepository.countByScheduledDateBetween(startOfWeek, endOfWeek);
+        dto.setLessonsToday(snapshot.getLessonsToday());
+        dto.setLessonsThisWeek(snapshot.getLessonsThisWeek());
+        dto.setLessonsThisMonth(snapshot.getLessonsThisMonth());
+        dto.setTotalCompletedLessons(snapshot.getCompletedLessons());
+        dto.setTotalCancelledLessons(snapshot.getCancelledLessons());
+        dto.setTotalMissedLessons(snapshot.getMissedLessons());
+        dto.setTotalScheduledLessons(snapshot.getScheduledLessons());
         
-        // Get students with packages ending soon (≤ 3 lessons remaining)
-        List<StudentLessonSummaryDto> studentsEndingSoon = getStudentsWithEndingPackages();
+        dto.setTotalLessonPackages(snapshot.getTotalLessonPackages());
+        dto.setActiveLessonPackages(snapshot.getActiveLessonPackages());
+        dto.setExpiredLessonPackages(snapshot.getExpiredLessonPackages());
         
-        return new DashboardStatsDto(
-            totalStudents,
-            totalTeachers,
-            totalManagers,
-            activeStudents,
-            activeTeachers,
-            lessonsToday,
-            lessonsThisWeek,
-            studentsEndingSoon
-        );
+        dto.setLessonCompletionRate(snapshot.getLessonCompletionRate());
+        dto.setLessonCancellationRate(snapshot.getLessonCancellationRate());
+        
+        dto.setStudentsWithoutTeacher(snapshot.getStudentsWithoutTeacher());
+        dto.setPendingNotifications(snapshot.getPendingNotifications());
+        dto.setFailedNotifications(snapshot.getFailedNotifications());
+        
+        dto.setStudentsEndingSoon(snapshot.getStudentsEndingSoonWithDates());
+        dto.setLastUpdated(snapshot.getRefreshedAtLocal());
+        dto.setSnapshotAgeSeconds(snapshot.getAgeSeconds());
+        return dto;
     }
 
     public List<StudentLessonSummaryDto> getStudentsWithEndingPackages() {
-        // Find lesson packages with 3 or fewer remaining lessons
-        List<LessonPackage> packages = lessonPackageRepository.findByRemainingLessonsLessThanEqual(3);
-        
-        return packages.stream().map(pkg -> {
-            Student student = pkg.getStudent();
-            User teacher = student.getAssignedTeacher();
-            
-            return new StudentLessonSummaryDto(
-                student.getId(),
-                student.getFirstName() + " " + student.getLastName(),
-                teacher != null ? teacher.getFirstName() + " " + teacher.getLastName() : "Не назначен",
-                pkg.getRemainingLessons(),
-                pkg.getTotalLessons()
-            );
-        }).collect(Collectors.toList());
+        return getSnapshot().getStudentsEndingSoon();
     }
 
     public List<StudentEndingSoonDto> getStudentsWithEndingPackagesSoon() {
-        // Find lesson packages with 3 or fewer remaining lessons
-        List<LessonPackage> packages = lessonPackageRepository.findByRemainingLessonsLessThanEqual(3);
-        
-        return packages.stream().map(pkg -> {
-            Student student = pkg.getStudent();
-            User teacher = student.getAssignedTeacher();
-            
-            return new StudentEndingSoonDto(
-                student.getId(),
-                student.getFirstName() + " " + student.getLastName(),
-                teacher != null ? teacher.getFirstName() + " " + teacher.getLastName() : "Не назначен",
-                pkg.getRemainingLessons(),
-                pkg.getTotalLessons(),
-                pkg.getCreatedAt().toLocalDate().plusDays(30) // Assuming 30-day package duration
-            );
-        }).collect(Collectors.toList());
+        return getSnapshot().getStudentsEndingSoonWithDates();
     }
 
     public long getTotalUsers() {
-        return userRepository.count();
+        return getSnapshot().getTotalUsers();
     }
 
     public long getTotalActiveUsers() {
         // For now, return all users as active
         // In a real implementation, this would check for recent activity
-        return userRepository.count();
+        return getSnapshot().getTotalUsers();
     }
 
     // Extended metrics for admin
     public long getTotalLessonPackages() {
-        return lessonPackageRepository.count();
+        return getSnapshot().getTotalLessonPackages();
     }
 
     public long getActiveLessonPackages() {
-        return lessonPackageRepository.countByRemainingLessonsGreaterThan(0);
+        return getSnapshot().getActiveLessonPackages();
     }
 
     public long getExpiredLessonPackages() {
-        return lessonPackageRepository.findExpiredPackages(LocalDateTime.now()).size();
+        return getSnapshot().getExpiredLessonPackages();
     }
 
     public List<LessonPackage> getLowLessonPackages(int threshold) {
@@ -135,50 +151,39 @@ public class DashboardService {
     }
 
     public long getTotalLessonsScheduledToday() {
-        LocalDate today = LocalDate.now();
-        return lessonRepository.countByScheduledDate(today);
+        return getSnapshot().getLessonsToday();
     }
 
     public long getTotalLessonsScheduledThisWeek() {
-        LocalDate today = LocalDate.now();
-        LocalDate startOfWeek = today.with(java.time.DayOfWeek.MONDAY);
-        LocalDate endOfWeek = today.with(java.time.DayOfWeek.SUNDAY);
-        return lessonRepository.countByScheduledDateBetween(startOfWeek, endOfWeek);
+        return getSnapshot().getLessonsThisWeek();
     }
 
     public long getTotalLessonsScheduledThisMonth() {
-        LocalDate today = LocalDate.now();
-        LocalDate startOfMonth = today.withDayOfMonth(1);
-        LocalDate endOfMonth = today.withDayOfMonth(today.lengthOfMonth());
-        return lessonRepository.countByScheduledDateBetween(startOfMonth, endOfMonth);
+        return getSnapshot().getLessonsThisMonth();
     }
 
     public long getTotalCompletedLessons() {
-        return lessonRepository.countByStatus(com.crm.system.model.Lesson.LessonStatus.COMPLETED);
+        return getSnapshot().getCompletedLessons();
     }
 
     public long getTotalCancelledLessons() {
-        return lessonRepository.countByStatus(com.crm.system.model.Lesson.LessonStatus.CANCELLED);
+        return getSnapshot().getCancelledLessons();
     }
 
     public long getTotalMissedLessons() {
-        return lessonRepository.countByStatus(com.crm.system.model.Lesson.LessonStatus.MISSED);
+        return getSnapshot().getMissedLessons();
     }
 
     public long getTotalScheduledLessons() {
-        return lessonRepository.countByStatus(com.crm.system.model.Lesson.LessonStatus.SCHEDULED);
+        return getSnapshot().getScheduledLessons();
     }
 
     public double getLessonCompletionRate() {
-        long completed = getTotalCompletedLessons();
-        long total = lessonRepository.count();
-        return total > 0 ? (double) completed / total * 100 : 0;
+        return getSnapshot().getLessonCompletionRate();
     }
 
     public double getLessonCancellationRate() {
-        long cancelled = getTotalCancelledLessons();
-        long total = lessonRepository.count();
-        return total > 0 ? (double) cancelled / total * 100 : 0;
+        return getSnapshot().getLessonCancellationRate();
     }
 
     public List<User> getMostActiveTeachers(int limit) {
@@ -194,7 +199,7 @@ public class DashboardService {
     }
 
     public long getStudentsWithoutTeacher() {
-        return studentRepository.countByAssignedTeacherIsNull();
+        return getSnapshot().getStudentsWithoutTeacher();
     }
 
     public long getTeachersWithoutStudents() {
@@ -205,15 +210,11 @@ public class DashboardService {
 
     // System monitoring metrics
     public long getPendingNotifications() {
-        // This would require access to NotificationService
-        // For now, return 0
-        return 0;
+        return getSnapshot().getPendingNotifications();
     }
 
     public long getFailedNotifications() {
-        // This would require access to NotificationService
-        // For now, return 0
-        return 0;
+        return getSnapshot().getFailedNotifications();
     }
 
     public long getTotalAvailabilitySlots() {
@@ -235,20 +236,16 @@ public class DashboardService {
     }
 
     public double getSystemUptimePercentage() {
-        // This would require access to system monitoring
-        // For now, return 100%
-        return 100.0;
+        return Math.round(resourceSamplerService.getUptimePercentage() * 100.0) / 100.0;
     }
 
     public long getDatabaseSizeInMB() {
-        // This would require access to database monitoring
-        // For now, return 0
-        return 0;
+        long bytes = resourceSamplerService.getDatabaseSizeBytes();
+        return bytes > 0 ? bytes / (1024 * 1024) : 0;
     }
 
     public long getActiveUserSessions() {
-        // This would require access to session management
-        // For now, return 0
+        // Authentication is stateless (JWT), so the server keeps no sessions to count
         return 0;
     }
 
@@ -266,67 +263,153 @@ public class DashboardService {
 
     // Extended admin dashboard methods
     public long getTotalStudents() {
-        return studentRepository.count();
+        return getSnapshot().getTotalStudents();
     }
 
     public long getTotalTeachers() {
-        return userRepository.countByRole(UserRole.TEACHER);
+        return getSnapshot().getTotalTeachers();
     }
 
     public long getTotalManagers() {
-        return userRepository.countByRole(UserRole.MANAGER);
+        return getSnapshot().getTotalManagers();
     }
 
     public long getTotalAdmins() {
-        return userRepository.countByRole(UserRole.ADMIN);
+        return getSnapshot().getTotalAdmins();
+    }
+
+    /**
+     * Lesson series of the performance metrics, built from one read of the daily lesson stats
+     */
+    public Map<String, Object> getLessonMetrics(LocalDate startDate, LocalDate endDate) {
+        List<DailyLessonCounts> days = dailyLessonStatsService.getDailyCounts(startDate, endDate);
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("lessonsByDate", getLessonsByDate(days));
+        metrics.put("lessonCompletionTrend", getLessonCompletionTrend(days));
+        metrics.put("lessonCancellationTrend", getLessonCancellationTrend(days));
+        metrics.put("activeUsersByDate", getActiveUsersByDate(days));
+        return metrics;
     }
 
     public List<Map<String, Object>> getLessonsByDate(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
+        return getLessonsByDate(dailyLessonStatsService.getDailyCounts(startDate, endDate));
+    }
+
+    private List<Map<String, Object>> getLessonsByDate(List<DailyLessonCounts> days) {
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query the database for lesson counts by date
+        for (DailyLessonCounts day : days) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day.getDate());
+            point.put("total", day.getTotal());
+            point.put("scheduled", day.getScheduled());
+            point.put("completed", day.getCompleted());
+            point.put("cancelled", day.getCancelled());
+            point.put("missed", day.getMissed());
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getLessonCompletionTrend(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
+        return getLessonCompletionTrend(dailyLessonStatsService.getDailyCounts(startDate, endDate));
+    }
+
+    private List<Map<String, Object>> getLessonCompletionTrend(List<DailyLessonCounts> days) {
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query the database for lesson completion trends
+        for (DailyLessonCounts day : days) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day.getDate());
+            point.put("completed", day.getCompleted());
+            point.put("total", day.getTotal());
+            point.put("completionRate", percent(day.getCompleted(), day.getTotal()));
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getLessonCancellationTrend(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
+        return getLessonCancellationTrend(dailyLessonStatsService.getDailyCounts(startDate, endDate));
+    }
+
+    private List<Map<String, Object>> getLessonCancellationTrend(List<DailyLessonCounts> days) {
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query the database for lesson cancellation trends
+        for (DailyLessonCounts day : days) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day.getDate());
+            point.put("cancelled", day.getCancelled());
+            point.put("total", day.getTotal());
+            point.put("cancellationRate", percent(day.getCancelled(), day.getTotal()));
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getUserRegistrationsByDate(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
+        Map<LocalDate, Object[]> byDate = new HashMap<>();
+        for (Object[] row : dashboardStatsRepository.countRegistrationsByDate(startDate, endDate)) {
+            byDate.put(toLocalDate(row[0]), row);
+        }
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query the database for user registrations by date
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            Object[] row = byDate.get(date);
+            long students = row != null ? ((Number) row[1]).longValue() : 0;
+            long users = row != null ? ((Number) row[2]).longValue() : 0;
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", date);
+            point.put("students", students);
+            point.put("users", users);
+            point.put("total", students + users);
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getActiveUsersByDate(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
+        return getActiveUsersByDate(dailyLessonStatsService.getDailyCounts(startDate, endDate));
+    }
+
+    private List<Map<String, Object>> getActiveUsersByDate(List<DailyLessonCounts> days) {
+        // Активность пользователей не отслеживается; активными считаются преподаватели с уроками в этот день
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query the database for active users by date
+        for (DailyLessonCounts day : days) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day.getDate());
+            point.put("activeTeachers", day.getActiveTeachers());
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getCpuUsageByHour(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query system monitoring for CPU usage
+        for (HourlyUsage hour : resourceSamplerService.getHourlyUsage(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("hour", hour.getHour());
+            point.put("processCpuPercent", percent(hour.getProcessCpuAverage()));
+            point.put("processCpuMaxPercent", percent(hour.getProcessCpuMax()));
+            point.put("systemCpuPercent", percent(hour.getSystemCpuAverage()));
+            point.put("systemCpuMaxPercent", percent(hour.getSystemCpuMax()));
+            point.put("threadsMax", (long) hour.getThreadsMax());
+            point.put("samples", hour.getSamples());
+            result.add(point);
+        }
         return result;
     }
 
     public List<Map<String, Object>> getMemoryUsageByHour(LocalDate startDate, LocalDate endDate) {
-        // Placeholder implementation
         List<Map<String, Object>> result = new java.util.ArrayList<>();
-        // In a real implementation, this would query system monitoring for memory usage
+        for (HourlyUsage hour : resourceSamplerService.getHourlyUsage(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("hour", hour.getHour());
+            point.put("heapUsedMB", megabytes(hour.getHeapUsedAverage()));
+            point.put("heapUsedMaxMB", megabytes(hour.getHeapUsedMax()));
+            point.put("heapMaxMB", megabytes(hour.getHeapMax()));
+            point.put("gcPauseMs", (long) hour.getGcPauseMs());
+            point.put("poolActiveMax", (long) hour.getPoolActiveMax());
+            point.put("poolPendingMax", (long) hour.getPoolPendingMax());
+            point.put("samples", hour.getSamples());
+            result.add(point);
+        }
         return result;
     }
 
@@ -364,4 +447,21 @@ public class DashboardService {
         // In a real implementation, this would query the database for students with low packages
         return result;
     }
-}
\ No newline at end of file
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : Math.round(part * 1000.0 / total) / 10.0;
+    }
+
+    // Load between 0 and 1 as a percentage with one decimal
+    private static double percent(double load) {
+        return Math.round(load * 1000.0) / 10.0;
+    }
+
+    private static long megabytes(double bytes) {
+        return Math.round(bytes / (1024 * 1024));
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+}
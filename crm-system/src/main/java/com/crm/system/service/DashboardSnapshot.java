@@ -0,0 +1,272 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.StudentEndingSoonDto;
+import com.crm.system.dto.StudentLessonSummaryDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Immutable set of dashboard counters computed at one point in time.
+ * Instances are published by {@link DashboardSnapshotService} and shared between requests.
+ */
+public final class DashboardSnapshot {
+
+    private final long totalStudents;
+    private final long studentsWithoutTeacher;
+    private final long totalTeachers;
+    private final long activeTeachers;
+    private final long totalManagers;
+    private final long activeManagers;
+    private final long totalAdmins;
+    private final long activeAdmins;
+    private final long totalUsers;
+    private final long totalActiveUsers;
+
+    private final long totalLessons;
+    private final long lessonsToday;
+    private final long lessonsThisWeek;
+    private final long lessonsThisMonth;
+    private final long completedLessons;
+    private final long cancelledLessons;
+    private final long missedLessons;
+    private final long scheduledLessons;
+
+    private final long totalLessonPackages;
+    private final long activeLessonPackages;
+    private final long expiredLessonPackages;
+
+    private final long pendingNotifications;
+    private final long failedNotifications;
+
+    private final List<StudentLessonSummaryDto> studentsEndingSoon;
+    private final List<StudentEndingSoonDto> studentsEndingSoonWithDates;
+
+    private final Instant refreshedAt;
+    private final long refreshDurationMillis;
+
+    private DashboardSnapshot(Builder builder) {
+        this.totalStudents = builder.totalStudents;
+        this.studentsWithoutTeacher = builder.studentsWithoutTeacher;
+        this.totalTeachers = builder.totalTeachers;
+        this.activeTeachers = builder.activeTeachers;
+        this.totalManagers = builder.totalManagers;
+        this.activeManagers = builder.activeManagers;
+        this.totalAdmins = builder.totalAdmins;
+        this.activeAdmins = builder.activeAdmins;
+        this.totalUsers = builder.totalUsers;
+        this.totalActiveUsers = builder.totalActiveUsers;
+        this.totalLessons = builder.totalLessons;
+        this.lessonsToday = builder.lessonsToday;
+        this.lessonsThisWeek = builder.lessonsThisWeek;
+        this.lessonsThisMonth = builder.lessonsThisMonth;
+        this.completedLessons = builder.completedLessons;
+        this.cancelledLessons = builder.cancelledLessons;
+        this.missedLessons = builder.missedLessons;
+        this.scheduledLessons = builder.scheduledLessons;
+        this.totalLessonPackages = builder.totalLessonPackages;
+        this.activeLessonPackages = builder.activeLessonPackages;
+        this.expiredLessonPackages = builder.expiredLessonPackages;
+        this.pendingNotifications = builder.pendingNotifications;
+        this.failedNotifications = builder.failedNotifications;
+        this.studentsEndingSoon = List.copyOf(builder.studentsEndingSoon);
+        this.studentsEndingSoonWithDates = List.copyOf(builder.studentsEndingSoonWithDates);
+        this.refreshedAt = builder.refreshedAt;
+        this.refreshDurationMillis = builder.refreshDurationMillis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getTotalStudents() {
+        return totalStudents;
+    }
+
+    public long getStudentsWithoutTeacher() {
+        return studentsWithoutTeacher;
+    }
+
+    public long getTotalTeachers() {
+        return totalTeachers;
+    }
+
+    public long getActiveTeachers() {
+        return activeTeachers;
+    }
+
+    public long getTotalManagers() {
+        return totalManagers;
+    }
+
+    public long getActiveManagers() {
+        return activeManagers;
+    }
+
+    public long getTotalAdmins() {
+        return totalAdmins;
+    }
+
+    public long getActiveAdmins() {
+        return activeAdmins;
+    }
+
+    public long getTotalUsers() {
+        return totalUsers;
+    }
+
+    public long getTotalActiveUsers() {
+        return totalActiveUsers;
+    }
+
+    public long getTotalLessons() {
+        return totalLessons;
+    }
+
+    public long getLessonsToday() {
+        return lessonsToday;
+    }
+
+    public long getLessonsThisWeek() {
+        return lessonsThisWeek;
+    }
+
+    public long getLessonsThisMonth() {
+        return lessonsThisMonth;
+    }
+
+    public long getCompletedLessons() {
+        return completedLessons;
+    }
+
+    public long getCancelledLessons() {
+        return cancelledLessons;
+    }
+
+    public long getMissedLessons() {
+        return missedLessons;
+    }
+
+    public long getScheduledLessons() {
+        return scheduledLessons;
+    }
+
+    public long getTotalLessonPackages() {
+        return totalLessonPackages;
+    }
+
+    public long getActiveLessonPackages() {
+        return activeLessonPackages;
+    }
+
+    public long getExpiredLessonPackages() {
+        return expiredLessonPackages;
+    }
+
+    public long getPendingNotifications() {
+        return pendingNotifications;
+    }
+
+    public long getFailedNotifications() {
+        return failedNotifications;
+    }
+
+    public List<StudentLessonSummaryDto> getStudentsEndingSoon() {
+        return studentsEndingSoon;
+    }
+
+    public List<StudentEndingSoonDto> getStudentsEndingSoonWithDates() {
+        return studentsEndingSoonWithDates;
+    }
+
+    public double getLessonCompletionRate() {
+        return totalLessons > 0 ? (double) completedLessons / totalLessons * 100 : 0;
+    }
+
+    public double getLessonCancellationRate() {
+        return totalLessons > 0 ? (double) cancelledLessons / totalLessons * 100 : 0;
+    }
+
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public LocalDateTime getRefreshedAtLocal() {
+        return LocalDateTime.ofInstant(refreshedAt, ZoneId.systemDefault());
+    }
+
+    public long getRefreshDurationMillis() {
+        return refreshDurationMillis;
+    }
+
+    public long getAgeSeconds() {
+        return Duration.between(refreshedAt, Instant.now()).getSeconds();
+    }
+
+    public static final class Builder {
+        private long totalStudents;
+        private long studentsWithoutTeacher;
+        private long totalTeachers;
+        private long activeTeachers;
+        private long totalManagers;
+        private long activeManagers;
+        private long totalAdmins;
+        private long activeAdmins;
+        private long totalUsers;
+        private long totalActiveUsers;
+        private long totalLessons;
+        private long lessonsToday;
+        private long lessonsThisWeek;
+        private long lessonsThisMonth;
+        private long completedLessons;
+        private long cancelledLessons;
+        private long missedLessons;
+        private long scheduledLessons;
+        private long totalLessonPackages;
+        private long activeLessonPackages;
+        private long expiredLessonPackages;
+        private long pendingNotifications;
+        private long failedNotifications;
+        private List<StudentLessonSummaryDto> studentsEndingSoon = List.of();
+        private List<StudentEndingSoonDto> studentsEndingSoonWithDates = List.of();
+        private Instant refreshedAt = Instant.now();
+        private long refreshDurationMillis;
+
+        private Builder() {}
+
+        public Builder totalStudents(long value) { this.totalStudents = value; return this; }
+        public Builder studentsWithoutTeacher(long value) { this.studentsWithoutTeacher = value; return this; }
+        public Builder totalTeachers(long value) { this.totalTeachers = value; return this; }
+        public Builder activeTeachers(long value) { this.activeTeachers = value; return this; }
+        public Builder totalManagers(long value) { this.totalManagers = value; return this; }
+        public Builder activeManagers(long value) { this.activeManagers = value; return this; }
+        public Builder totalAdmins(long value) { this.totalAdmins = value; return this; }
+        public Builder activeAdmins(long value) { this.activeAdmins = value; return this; }
+        public Builder totalUsers(long value) { this.totalUsers = value; return this; }
+        public Builder totalActiveUsers(long value) { this.totalActiveUsers = value; return this; }
+        public Builder totalLessons(long value) { this.totalLessons = value; return this; }
+        public Builder lessonsToday(long value) { this.lessonsToday = value; return this; }
+        public Builder lessonsThisWeek(long value) { this.lessonsThisWeek = value; return this; }
+        public Builder lessonsThisMonth(long value) { this.lessonsThisMonth = value; return this; }
+        public Builder completedLessons(long value) { this.completedLessons = value; return this; }
+        public Builder cancelledLessons(long value) { this.cancelledLessons = value; return this; }
+        public Builder missedLessons(long value) { this.missedLessons = value; return this; }
+        public Builder scheduledLessons(long value) { this.scheduledLessons = value; return this; }
+        public Builder totalLessonPackages(long value) { this.totalLessonPackages = value; return this; }
+        public Builder activeLessonPackages(long value) { this.activeLessonPackages = value; return this; }
+        public Builder expiredLessonPackages(long value) { this.expiredLessonPackages = value; return this; }
+        public Builder pendingNotifications(long value) { this.pendingNotifications = value; return this; }
+        public Builder failedNotifications(long value) { this.failedNotifications = value; return this; }
+        public Builder studentsEndingSoon(List<StudentLessonSummaryDto> value) { this.studentsEndingSoon = value; return this; }
+        public Builder studentsEndingSoonWithDates(List<StudentEndingSoonDto> value) { this.studentsEndingSoonWithDates = value; return this; }
+        public Builder refreshedAt(Instant value) { this.refreshedAt = value; return this; }
+        public Builder refreshDurationMillis(long value) { this.refreshDurationMillis = value; return this; }
+
+        public DashboardSnapshot build() {
+            return new DashboardSnapshot(this);
+        }
+    }
+}
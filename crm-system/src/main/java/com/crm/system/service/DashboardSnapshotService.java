@@ -0,0 +1,196 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.StudentEndingSoonDto;
+import com.crm.system.dto.StudentLessonSummaryDto;
+import com.crm.system.model.LessonPackage;
+import com.crm.system.model.Student;
+import com.crm.system.model.User;
+import com.crm.system.repository.DashboardStatsRepository;
+import com.crm.system.repository.LessonPackageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the dashboard counters in memory. The snapshot is recomputed in the background
+ * with a handful of grouped queries, so dashboard requests never hit the database.
+ */
+@Service
+public class DashboardSnapshotService {
+
+    private static final Logger logger = Logger.getLogger(DashboardSnapshotService.class.getName());
+
+    private static final int ENDING_SOON_THRESHOLD = 3;
+
+    @Autowired
+    private DashboardStatsRepository dashboardStatsRepository;
+
+    @Autowired
+    private LessonPackageRepository lessonPackageRepository;
+
+    @Value("${dashboard.snapshot.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile DashboardSnapshot snapshot;
+
+    private ScheduledExecutorService scheduler;
+
+    public DashboardSnapshotService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void startRefreshing() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopRefreshing() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the latest snapshot. Only the very first call after startup may block
+     * while the initial snapshot is computed.
+     */
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = refresh();
+                }
+            }
+        }
+        return current;
+    }
+
+    public synchronized DashboardSnapshot refresh() {
+        DashboardSnapshot fresh = readOnlyTransaction.execute(status -> computeSnapshot());
+        snapshot = fresh;
+        return fresh;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Keep serving the previous snapshot, it will be retried on the next tick
+            logger.log(Level.WARNING, "Failed to refresh dashboard snapshot", e);
+        }
+    }
+
+    private DashboardSnapshot computeSnapshot() {
+        long started = System.currentTimeMillis();
+        DashboardSnapshot.Builder builder = DashboardSnapshot.builder();
+
+        // Indexed by role: [total, active]
+        long[] teachers = new long[2];
+        long[] managers = new long[2];
+        long[] admins = new long[2];
+        long totalUsers = 0;
+        long totalActiveUsers = 0;
+        for (Object[] row : dashboardStatsRepository.countUsersByRoleAndActive()) {
+            boolean active = Boolean.TRUE.equals(row[1]);
+            long count = toLong(row[2]);
+            long[] bucket;
+            switch (String.valueOf(row[0])) {
+                case "TEACHER":
+                    bucket = teachers;
+                    break;
+                case "MANAGER":
+                    bucket = managers;
+                    break;
+                case "ADMIN":
+                    bucket = admins;
+                    break;
+                default:
+                    bucket = new long[2];
+            }
+            bucket[0] += count;
+            totalUsers += count;
+            if (active) {
+                bucket[1] += count;
+                totalActiveUsers += count;
+            }
+        }
+        builder.totalTeachers(teachers[0]).activeTeachers(teachers[1])
+                .totalManagers(managers[0]).activeManagers(managers[1])
+                .totalAdmins(admins[0]).activeAdmins(admins[1]);
+        builder.totalUsers(totalUsers).totalActiveUsers(totalActiveUsers);
+
+        LocalDate today = LocalDate.now();
+        Object[] counters = dashboardStatsRepository.loadActivityCounters(
+                today,
+                today.with(DayOfWeek.MONDAY),
+                today.with(DayOfWeek.SUNDAY),
+                today.withDayOfMonth(1),
+                today.withDayOfMonth(today.lengthOfMonth()),
+                LocalDateTime.now());
+        builder.totalStudents(toLong(counters[0]))
+                .studentsWithoutTeacher(toLong(counters[1]))
+                .totalLessons(toLong(counters[2]))
+                .lessonsToday(toLong(counters[3]))
+                .lessonsThisWeek(toLong(counters[4]))
+                .lessonsThisMonth(toLong(counters[5]))
+                .completedLessons(toLong(counters[6]))
+                .cancelledLessons(toLong(counters[7]))
+                .missedLessons(toLong(counters[8]))
+                .scheduledLessons(toLong(counters[9]))
+                .totalLessonPackages(toLong(counters[10]))
+                .activeLessonPackages(toLong(counters[11]))
+                .expiredLessonPackages(toLong(counters[12]))
+                .pendingNotifications(toLong(counters[13]))
+                .failedNotifications(toLong(counters[14]));
+
+        List<StudentLessonSummaryDto> endingSoon = new ArrayList<>();
+        List<StudentEndingSoonDto> endingSoonWithDates = new ArrayList<>();
+        for (LessonPackage pkg : lessonPackageRepository.findWithStudentAndTeacherByRemainingLessonsLessThanEqual(ENDING_SOON_THRESHOLD)) {
+            Student student = pkg.getStudent();
+            User teacher = student.getAssignedTeacher();
+            String studentName = student.getFirstName() + " " + student.getLastName();
+            String teacherName = teacher != null ? teacher.getFirstName() + " " + teacher.getLastName() : "Не назначен";
+
+            endingSoon.add(new StudentLessonSummaryDto(
+                    student.getId(), studentName, teacherName, pkg.getRemainingLessons(), pkg.getTotalLessons()));
+            endingSoonWithDates.add(new StudentEndingSoonDto(
+                    student.getId(), studentName, teacherName, pkg.getRemainingLessons(), pkg.getTotalLessons(),
+                    pkg.getCreatedAt().toLocalDate().plusDays(30))); // Assuming 30-day package duration
+        }
+
+        return builder.studentsEndingSoon(endingSoon)
+                .studentsEndingSoonWithDates(endingSoonWithDates)
+                .refreshedAt(Instant.now())
+                .refreshDurationMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
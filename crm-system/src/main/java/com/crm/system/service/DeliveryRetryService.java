@@ -0,0 +1,169 @@
+package com.crm.system.service;
+
+import com.crm.system.config.DeliveryRetryProperties;
+import com.crm.system.model.Notification;
+import com.crm.system.model.TelegramMessage;
+import com.crm.system.repository.DeliveryQueueRepository;
+import com.crm.system.repository.NotificationRepository;
+import com.crm.system.telegram.TelegramOutboundDispatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Retries failed Telegram messages and email notifications.
+ *
+ * Each failure stores next_attempt_at with an exponential, jittered delay. The engine claims due
+ * rows in pages (one UPDATE ... FOR UPDATE SKIP LOCKED per page, so instances never share a row)
+ * and hands them to the regular senders. Rows that fail max-attempts times are moved to DEAD_LETTER
+ * and are not retried any more.
+ */
+@Service
+public class DeliveryRetryService {
+
+    private static final Logger logger = Logger.getLogger(DeliveryRetryService.class.getName());
+
+    @Autowired
+    private DeliveryRetryProperties properties;
+
+    @Autowired
+    private DeliveryQueueRepository deliveryQueueRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private TelegramOutboundDispatcher telegramOutboundDispatcher;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ScheduledExecutorService scheduler;
+
+    private Counter telegramRetriedCounter;
+    private Counter telegramDeadLetterCounter;
+    private Counter emailRetriedCounter;
+    private Counter emailDeadLetterCounter;
+
+    @PostConstruct
+    public void start() {
+        telegramRetriedCounter = meterRegistry.counter("delivery.retry.claimed", "channel", "telegram");
+        telegramDeadLetterCounter = meterRegistry.counter("delivery.retry.dead_letter", "channel", "telegram");
+        emailRetriedCounter = meterRegistry.counter("delivery.retry.claimed", "channel", "email");
+        emailDeadLetterCounter = meterRegistry.counter("delivery.retry.dead_letter", "channel", "email");
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delivery-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::retryQuietly,
+                properties.getPollIntervalMs(), properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Puts due FAILED Telegram messages back to PENDING and queues them in the dispatcher, which
+     * records the outcome. Claims no more than the dispatcher queue can take.
+     *
+     * @return number of messages queued for another attempt
+     */
+    public int retryDueTelegramMessages() {
+        int deadLettered = deliveryQueueRepository.deadLetterTelegramMessages();
+        if (deadLettered > 0) {
+            telegramDeadLetterCounter.increment(deadLettered);
+            logger.warning(deadLettered + " Telegram messages moved to DEAD_LETTER");
+        }
+
+        int retried = 0;
+        for (int page = 0; page < properties.getMaxPagesPerRun(); page++) {
+            int limit = Math.min(properties.getPageSize(), telegramOutboundDispatcher.getRemainingCapacity());
+            if (limit == 0) {
+                break;
+            }
+            List<TelegramMessage> claimed = deliveryQueueRepository.claimDueTelegramMessages(
+                    telegramOutboundDispatcher.claimLeaseDeadline(), limit);
+            for (TelegramMessage message : claimed) {
+                telegramOutboundDispatcher.submit(message);
+            }
+            retried += claimed.size();
+            if (claimed.size() < limit) {
+                break;
+            }
+        }
+        if (retried > 0) {
+            telegramRetriedCounter.increment(retried);
+            logger.info("Queued " + retried + " failed Telegram messages for retry");
+        }
+        return retried;
+    }
+
+    /**
+     * Claims due FAILED notifications and sends their emails again. The next attempt is already
+     * scheduled by the claim, so a failure only has to mark the row FAILED.
+     *
+     * @return number of notifications sent again
+     */
+    public int retryDueNotifications() {
+        int deadLettered = deliveryQueueRepository.deadLetterNotifications();
+        if (deadLettered > 0) {
+            emailDeadLetterCounter.increment(deadLettered);
+            logger.warning(deadLettered + " notifications moved to DEAD_LETTER");
+        }
+
+        int retried = 0;
+        for (int page = 0; page < properties.getMaxPagesPerRun(); page++) {
+            List<Long> claimedIds = deliveryQueueRepository.claimDueNotifications(properties.getPageSize());
+            if (claimedIds.isEmpty()) {
+                break;
+            }
+            for (Notification notification : notificationRepository.findAllById(claimedIds)) {
+                emailService.sendNotificationEmail(notification);
+            }
+            retried += claimedIds.size();
+            if (claimedIds.size() < properties.getPageSize()) {
+                break;
+            }
+        }
+        if (retried > 0) {
+            emailRetriedCounter.increment(retried);
+            logger.info("Retrying " + retried + " failed notifications");
+        }
+        return retried;
+    }
+
+    private void retryQuietly() {
+        try {
+            retryDueTelegramMessages();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to retry Telegram messages", e);
+        }
+        try {
+            retryDueNotifications();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to retry notifications", e);
+        }
+    }
+}
@@ -3,29 +3,150 @@ package com.crm.system.service;
 import com.crm.system.config.EmailGatewayProperties;
 import com.crm.system.model.User;
 import com.crm.system.model.UserRole;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Client of the email service.
+ *
+ * Emails are queued and sent by one background thread in batches of up to email.gateway.batch-size,
+ * waiting at most email.gateway.batch-wait-ms for a batch to fill, over a pool of keep-alive
+ * connections. If the email service rejects the batch endpoint, the batch is sent item by item.
+ *
+ * Batches are posted with async=true: the email service only validates and queues the items and
+ * answers with a message id per accepted item, well within the read timeout whatever the batch
+ * size. The outcome of the accepted emails is then polled on a separate thread with one
+ * /messages/status call per batch for up to email.gateway.status-timeout-ms. Items the service
+ * could not queue (its queue is full) are sent again through the synchronous /welcome endpoint.
+ * A batch that fails on I/O (connection refused, timeout) is not resent: the service may already
+ * have accepted part of it.
+ */
 @Service
 public class EmailGatewayService {
 
     private static final Logger log = LoggerFactory.getLogger(EmailGatewayService.class);
 
+    // After the batch endpoint is found missing, it is tried again only after this pause
+    private static final long BATCH_UNSUPPORTED_PAUSE_MS = TimeUnit.MINUTES.toMillis(10);
+
     private final EmailGatewayProperties properties;
-    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private BlockingQueue<Map<String, Object>> queue;
+    private ExecutorService batcher;
+    private ScheduledExecutorService statusPoller;
+    // Batches with emails accepted by the batch endpoint whose outcome is not known yet
+    private final Queue<AcceptedBatch> accepted = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private volatile long batchRetryAt;
 
-    public EmailGatewayService(EmailGatewayProperties properties) {
+    public EmailGatewayService(EmailGatewayProperties properties, MeterRegistry meterRegistry) {
         this.properties = properties;
-        this.restTemplate = new RestTemplate();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(properties.getMaxConnections())
+                        .setMaxConnPerRoute(properties.getMaxConnections())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeoutMs()))
+                                .setSocketTimeout(Timeout.ofMilliseconds(properties.getReadTimeoutMs()))
+                                .build())
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout(properties.getConnectTimeoutMs());
+        restTemplate = new RestTemplate(requestFactory);
+
+        queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+        meterRegistry.gaugeCollectionSize("email.gateway.queue", Tags.empty(), queue);
+        running = true;
+        batcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-gateway-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher.execute(this::runBatcher);
+
+        statusPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-gateway-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        statusPoller.scheduleWithFixedDelay(this::pollStatuses, properties.getStatusPollIntervalMs(),
+                properties.getStatusPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        batcher.shutdown();
+        try {
+            if (!batcher.awaitTermination(properties.getReadTimeoutMs() + 5000L, TimeUnit.MILLISECONDS)) {
+                batcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batcher.shutdownNow();
+        }
+        statusPoller.shutdownNow();
+        if (!queue.isEmpty()) {
+            log.warn("{} queued emails were not sent before shutdown", queue.size());
+        }
+        int unknown = accepted.stream().mapToInt(batch -> batch.recipients.size()).sum();
+        if (unknown > 0) {
+            log.info("Outcome of {} emails accepted by the email service is unknown at shutdown", unknown);
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.debug("Failed to close email gateway HTTP client: {}", e.getMessage());
+        }
     }
 
     public void sendWelcomeEmail(User user, String plainPassword) {
@@ -40,23 +161,185 @@ public class EmailGatewayService {
             log.debug("Skipped welcome email: email gateway base URL not configured");
             return;
         }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("recipientEmail", user.getEmail());
+        payload.put("recipientName", user.getFullName());
+        payload.put("role", user.getRole() != null ? user.getRole().name() : UserRole.STUDENT.name());
+        payload.put("temporaryPassword", plainPassword);
+        payload.put("loginUrl", properties.getFrontendLoginUrl());
+        payload.put("supportEmail", properties.getSupportEmail());
+        payload.put("telegramBotUrl", properties.getTelegramBotUrl());
+
+        Map<String, Object> item = new HashMap<>();
+        item.put("type", "WELCOME");
+        item.put("welcome", payload);
+        if (!running || !queue.offer(item)) {
+            // Queue is full or the service is stopping: send from the caller thread
+            sendItem(item);
+        }
+    }
+
+    private void runBatcher() {
+        List<Map<String, Object>> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Map<String, Object> first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getBatchWaitMs());
+                while (batch.size() < properties.getBatchSize()) {
+                    Map<String, Object> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to send a batch of {} emails: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<Map<String, Object>> items) {
+        if (items.size() == 1 || System.currentTimeMillis() < batchRetryAt) {
+            items.forEach(this::sendItem);
+            return;
+        }
+        ResponseEntity<JsonNode> response;
         try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("recipientEmail", user.getEmail());
-            payload.put("recipientName", user.getFullName());
-            payload.put("role", user.getRole() != null ? user.getRole().name() : UserRole.STUDENT.name());
-            payload.put("temporaryPassword", plainPassword);
-            payload.put("loginUrl", properties.getFrontendLoginUrl());
-            payload.put("supportEmail", properties.getSupportEmail());
-            payload.put("telegramBotUrl", properties.getTelegramBotUrl());
-
-            sendPost("/welcome", payload);
+            response = post("/batch?async=true", Map.of("items", items), JsonNode.class);
+            count("batch", "success");
+        } catch (HttpStatusCodeException ex) {
+            count("batch", "failure");
+            int status = ex.getStatusCode().value();
+            if (status == HttpStatus.NOT_FOUND.value() || status == HttpStatus.METHOD_NOT_ALLOWED.value()) {
+                log.info("Email service has no batch endpoint, sending emails one by one");
+                batchRetryAt = System.currentTimeMillis() + BATCH_UNSUPPORTED_PAUSE_MS;
+            } else {
+                log.warn("Email batch rejected with status {}, sending {} emails one by one",
+                        ex.getStatusCode(), items.size());
+            }
+            items.forEach(this::sendItem);
+            return;
+        } catch (RestClientException ex) {
+            count("batch", "failure");
+            log.warn("Failed to send a batch of {} emails: {}", items.size(), ex.getMessage());
+            return;
+        }
+        trackResults(items, response.getBody());
+    }
+
+    // Accepted items carry a message id and are polled; a service without async mode returns final results
+    private void trackResults(List<Map<String, Object>> items, JsonNode body) {
+        JsonNode results = body != null ? body.path("results") : null;
+        if (results == null || !results.isArray()) {
+            return;
+        }
+        Map<String, Object> recipients = new LinkedHashMap<>();
+        for (int i = 0; i < results.size() && i < items.size(); i++) {
+            JsonNode result = results.get(i);
+            Map<String, Object> item = items.get(i);
+            if (result.path("success").asBoolean(false)) {
+                if (result.hasNonNull("messageId")) {
+                    recipients.put(result.get("messageId").asText(), recipientOf(item));
+                }
+            } else if (result.path("retryable").asBoolean(false)) {
+                // Not queued by the service: send it through /welcome, which does not use that queue
+                count("batch-item", "rejected");
+                statusPoller.schedule(() -> sendItem(item), properties.getStatusPollIntervalMs(), TimeUnit.MILLISECONDS);
+            } else {
+                log.warn("Email service failed to send email to {}: {}", recipientOf(item), result.path("message").asText());
+            }
+        }
+        if (!recipients.isEmpty()) {
+            accepted.add(new AcceptedBatch(recipients, System.currentTimeMillis() + properties.getStatusTimeoutMs()));
+        }
+    }
+
+    private void pollStatuses() {
+        long now = System.currentTimeMillis();
+        for (Iterator<AcceptedBatch> it = accepted.iterator(); it.hasNext(); ) {
+            AcceptedBatch batch = it.next();
+            JsonNode statuses;
+            try {
+                statuses = post("/messages/status", Map.of("messageIds", List.copyOf(batch.recipients.keySet())),
+                        JsonNode.class).getBody();
+            } catch (HttpStatusCodeException ex) {
+                log.debug("Email service returned {} for the status of {} emails, no longer polled",
+                        ex.getStatusCode(), batch.recipients.size());
+                it.remove();
+                continue;
+            } catch (RestClientException ex) {
+                log.debug("Failed to poll email statuses: {}", ex.getMessage());
+                return;
+            }
+            Set<String> known = new HashSet<>();
+            if (statuses != null && statuses.isArray()) {
+                for (JsonNode status : statuses) {
+                    String messageId = status.path("messageId").asText();
+                    known.add(messageId);
+                    String state = status.path("status").asText();
+                    if ("SENT".equals(state)) {
+                        count("status", "success");
+                        batch.recipients.remove(messageId);
+                    } else if ("FAILED".equals(state)) {
+                        count("status", "failure");
+                        log.warn("Email service failed to send email to {}: {}",
+                                batch.recipients.remove(messageId), status.path("error").asText());
+                    }
+                }
+            }
+            // The service no longer knows these messages: restarted or past its status retention
+            batch.recipients.keySet().retainAll(known);
+            if (batch.recipients.isEmpty()) {
+                it.remove();
+            } else if (now > batch.deadline) {
+                log.warn("{} emails are still not sent after {} ms, no longer polled: {}",
+                        batch.recipients.size(), properties.getStatusTimeoutMs(), batch.recipients.values());
+                it.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendItem(Map<String, Object> item) {
+        Map<String, Object> payload = (Map<String, Object>) item.get("welcome");
+        try {
+            post("/welcome", payload, String.class);
+            count("single", "success");
         } catch (Exception ex) {
-            log.warn("Failed to send welcome email for user {}: {}", user.getEmail(), ex.getMessage());
+            count("single", "failure");
+            log.warn("Failed to send welcome email for user {}: {}", payload.get("recipientEmail"), ex.getMessage());
         }
     }
 
-    private void sendPost(String path, Map<String, Object> body) {
+    @SuppressWarnings("unchecked")
+    private Object recipientOf(Map<String, Object> item) {
+        return ((Map<String, Object>) item.get("welcome")).get("recipientEmail");
+    }
+
+    // Lets tests bind a mock server to the client
+    void setRestTemplate(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    private void count(String endpoint, String result) {
+        meterRegistry.counter("email.gateway.calls", "endpoint", endpoint, "result", result).increment();
+    }
+
+    private <T> ResponseEntity<T> post(String path, Object body, Class<T> responseType) {
+        return exchange(HttpMethod.POST, path, body, responseType);
+    }
+
+    private <T> ResponseEntity<T> exchange(HttpMethod method, String path, Object body, Class<T> responseType) {
         String url = properties.getBaseUrl();
         if (!url.endsWith("/")) {
             url += "/";
@@ -69,12 +352,20 @@ public class EmailGatewayService {
             headers.set("X-API-Key", properties.getApiKey());
         }
 
-        HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class);
-        if (response.getStatusCode().is2xxSuccessful()) {
-            log.debug("Email gateway response: {} - {}", response.getStatusCode(), response.getBody());
-        } else {
-            log.warn("Email gateway responded with status {} and body {}", response.getStatusCode(), response.getBody());
+        HttpEntity<Object> requestEntity = new HttpEntity<>(body, headers);
+        ResponseEntity<T> response = restTemplate.exchange(url, method, requestEntity, responseType);
+        log.debug("Email gateway response: {} for {}", response.getStatusCode(), path);
+        return response;
+    }
+
+    // Used by the status thread only once published in the queue
+    private static final class AcceptedBatch {
+        private final Map<String, Object> recipients;
+        private final long deadline;
+
+        private AcceptedBatch(Map<String, Object> recipients, long deadline) {
+            this.recipients = recipients;
+            this.deadline = deadline;
         }
     }
 }
@@ -0,0 +1,299 @@
+package com.crm.system.service;
+
+import com.crm.system.config.EmailOutboxProperties;
+import com.crm.system.repository.EmailOutboxRepository;
+import com.crm.system.repository.EmailOutboxRepository.OutboxEmail;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends emails through the email_outbox table.
+ *
+ * {@link #enqueue} writes the rendered email in the caller's transaction, so an email exists
+ * exactly when the change that caused it was committed, and survives restarts. After the commit
+ * the bounded mail executor drains the outbox: it claims due rows in pages and sends each page
+ * over one SMTP connection. A failed row is retried after email.outbox.retry-delay-ms, up to
+ * email.outbox.max-attempts; then it is FAILED together with its notification, which the
+ * delivery retry engine picks up.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = Logger.getLogger(EmailOutboxService.class.getName());
+
+    @Autowired
+    private EmailOutboxProperties properties;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${email.sender.name}")
+    private String senderName;
+
+    @Value("${email.sender.address}")
+    private String senderAddress;
+
+    private ThreadPoolTaskExecutor mailExecutor;
+    private ScheduledExecutorService poller;
+
+    private final AtomicInteger activeDrains = new AtomicInteger();
+    private final AtomicLong unsent = new AtomicLong();
+
+    private Timer sendTimer;
+    private Timer deliveryDelayTimer;
+    private Counter sentCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void start() {
+        // Задачи только будят разбор таблицы, поэтому лишние задачи при полной очереди отбрасываются
+        mailExecutor = new ThreadPoolTaskExecutor();
+        mailExecutor.setCorePoolSize(properties.getWorkerThreads());
+        mailExecutor.setMaxPoolSize(properties.getWorkerThreads());
+        mailExecutor.setQueueCapacity(properties.getQueueCapacity());
+        mailExecutor.setThreadNamePrefix("mail-");
+        mailExecutor.setDaemon(true);
+        mailExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        mailExecutor.initialize();
+
+        sendTimer = meterRegistry.timer("email.outbox.send.duration");
+        deliveryDelayTimer = meterRegistry.timer("email.outbox.delivery.delay");
+        sentCounter = meterRegistry.counter("email.outbox.messages", "result", "sent");
+        failedCounter = meterRegistry.counter("email.outbox.messages", "result", "failed");
+        meterRegistry.gauge("email.outbox.depth", unsent);
+        meterRegistry.gauge("email.outbox.executor.queue", mailExecutor,
+                executor -> executor.getThreadPoolExecutor().getQueue().size());
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollQuietly, properties.getPollIntervalMs(),
+                properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+        mailExecutor.shutdown();
+    }
+
+    /**
+     * Adds a rendered email to the outbox in the current transaction. The mail executor is woken
+     * up after the commit; without a transaction the row is visible right away.
+     *
+     * @param notificationId notification whose status follows the email, or null
+     */
+    public void enqueue(String recipientEmail, String subject, String htmlBody, Long notificationId) {
+        emailOutboxRepository.insert(recipientEmail, subject, htmlBody, notificationId);
+        wakeUpAfterCommit();
+    }
+
+    /**
+     * Adds the same rendered email for every recipient in the current transaction, in multi-row
+     * inserts of email.outbox.insert-chunk-size recipients.
+     */
+    public void enqueueAll(List<String> recipientEmails, String subject, String htmlBody) {
+        enqueueAll(recipientEmails, null, subject, htmlBody);
+    }
+
+    /**
+     * Same as {@link #enqueueAll(List, String, String)}, with the notification of each recipient.
+     *
+     * @param notificationIds notifications in the order of recipientEmails, or null
+     */
+    public void enqueueAll(List<String> recipientEmails, List<Long> notificationIds, String subject, String htmlBody) {
+        insertAll(recipientEmails, notificationIds, null, subject, htmlBody);
+    }
+
+    /**
+     * Same as {@link #enqueueAll(List, String, String)}, with the rows tagged by a bulk email id
+     * whose status is then counted from them.
+     */
+    public void enqueueBulk(String bulkJobId, List<String> recipientEmails, String subject, String htmlBody) {
+        insertAll(recipientEmails, null, bulkJobId, subject, htmlBody);
+    }
+
+    private void insertAll(List<String> recipientEmails, List<Long> notificationIds, String bulkJobId,
+                           String subject, String htmlBody) {
+        for (int from = 0; from < recipientEmails.size(); from += properties.getInsertChunkSize()) {
+            int to = Math.min(from + properties.getInsertChunkSize(), recipientEmails.size());
+            Long[] chunkNotificationIds = notificationIds != null
+                    ? notificationIds.subList(from, to).toArray(new Long[0])
+                    : new Long[to - from];
+            emailOutboxRepository.insertAll(recipientEmails.subList(from, to).toArray(new String[0]),
+                    chunkNotificationIds, bulkJobId, subject, htmlBody);
+        }
+        wakeUpAfterCommit();
+    }
+
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Starts another drain of the outbox unless all mail threads are already draining it.
+     */
+    public void wakeUp() {
+        if (activeDrains.incrementAndGet() > properties.getWorkerThreads()) {
+            activeDrains.decrementAndGet();
+            return;
+        }
+        mailExecutor.execute(() -> {
+            try {
+                drain();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to drain email outbox", e);
+            } finally {
+                activeDrains.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Sends due outbox emails page by page until none are left.
+     *
+     * @return number of emails sent
+     */
+    public int drain() {
+        int sent = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<OutboxEmail> claimed = emailOutboxRepository.claimDue(
+                    LocalDateTime.now().plus(Duration.ofMillis(properties.getClaimLeaseMs())),
+                    properties.getBatchSize());
+            if (claimed.isEmpty()) {
+                break;
+            }
+            sent += sendPage(claimed);
+            if (claimed.size() < properties.getBatchSize()) {
+                break;
+            }
+        }
+        return sent;
+    }
+
+    private int sendPage(List<OutboxEmail> emails) {
+        Map<MimeMessage, OutboxEmail> messages = new LinkedHashMap<>();
+        List<Long> failedIds = new ArrayList<>();
+        List<String> failedErrors = new ArrayList<>();
+        for (OutboxEmail email : emails) {
+            try {
+                messages.put(buildMessage(email), email);
+            } catch (Exception e) {
+                failedIds.add(email.getId());
+                failedErrors.add("Invalid message: " + e.getMessage());
+            }
+        }
+
+        List<OutboxEmail> sent = new ArrayList<>();
+        if (!messages.isEmpty()) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                // Одно SMTP-соединение на всю страницу
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+                sent.addAll(messages.values());
+            } catch (MailSendException e) {
+                Map<Object, Exception> failedMessages = e.getFailedMessages();
+                messages.forEach((message, email) -> {
+                    Exception failure = failedMessages.isEmpty() ? e : failedMessages.get(message);
+                    if (failure != null) {
+                        failedIds.add(email.getId());
+                        failedErrors.add(failure.getMessage());
+                    } else {
+                        sent.add(email);
+                    }
+                });
+            } catch (MailException e) {
+                messages.values().forEach(email -> {
+                    failedIds.add(email.getId());
+                    failedErrors.add(e.getMessage());
+                });
+            } finally {
+                sample.stop(sendTimer);
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            emailOutboxRepository.markSent(sent.stream().map(OutboxEmail::getId).toArray(Long[]::new));
+            LocalDateTime now = LocalDateTime.now();
+            for (OutboxEmail email : sent) {
+                deliveryDelayTimer.record(Duration.between(email.getCreatedAt(), now));
+            }
+            sentCounter.increment(sent.size());
+        }
+        if (!failedIds.isEmpty()) {
+            emailOutboxRepository.markFailed(failedIds.toArray(new Long[0]), failedErrors.toArray(new String[0]),
+                    properties.getMaxAttempts(),
+                    LocalDateTime.now().plus(Duration.ofMillis(properties.getRetryDelayMs())));
+            failedCounter.increment(failedIds.size());
+            logger.warning("Failed to send " + failedIds.size() + " outbox emails, first error: " + failedErrors.get(0));
+        }
+        return sent.size();
+    }
+
+    private MimeMessage buildMessage(OutboxEmail email) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(senderAddress, senderName);
+        helper.setTo(email.getRecipientEmail());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), true);
+        return message;
+    }
+
+    private void pollQuietly() {
+        try {
+            unsent.set(emailOutboxRepository.countUnsent());
+            if (unsent.get() > 0) {
+                wakeUp();
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to poll email outbox", e);
+        }
+    }
+}
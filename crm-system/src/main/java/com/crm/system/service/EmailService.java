@@ -1,37 +1,42 @@
 package com.crm.system.service;
 
+import com.crm.system.dto.BulkEmailJobDto;
+import com.crm.system.exception.NotFoundException;
+import com.crm.system.exception.ValidationException;
 import com.crm.system.model.Notification;
 import com.crm.system.model.User;
 import com.crm.system.model.Student;
 import com.crm.system.model.Notification.RecipientType;
 import com.crm.system.model.Notification.NotificationType;
+import com.crm.system.repository.EmailOutboxRepository;
+import com.crm.system.repository.EmailOutboxRepository.BulkJob;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.logging.Logger;
 
 @Service
 public class EmailService {
 
     private static final Logger logger = Logger.getLogger(EmailService.class.getName());
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final String BULK_QUEUED = "QUEUED";
+    private static final String BULK_RUNNING = "RUNNING";
+    private static final String BULK_COMPLETED = "COMPLETED";
+    private static final int RECENT_BULK_EMAILS = 50;
 
     @Autowired
     private TemplateEngine templateEngine;
@@ -45,22 +50,15 @@ public class EmailService {
     @Autowired
     private NotificationService notificationService;
 
-    @Value("${email.sender.name}")
-    private String senderName;
-
-    @Value("${email.sender.address}")
-    private String senderAddress;
-
-    @Value("${email.retry.max-attempts:3}")
-    private int maxRetryAttempts;
+    @Autowired
+    private EmailOutboxService emailOutboxService;
 
-    @Value("${email.retry.delay-ms:5000}")
-    private long retryDelayMs;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
 
     /**
      * Отправляет email уведомление на основе объекта Notification
      */
-    @Async
     @Transactional
     public CompletableFuture<Boolean> sendNotificationEmail(Notification notification) {
         String recipientEmail = getRecipientEmail(notification.getRecipientId(), notification.getRecipientType());
@@ -75,85 +73,77 @@ public class EmailService {
 
         String subject = notification.getTitle();
         String templateName = getTemplateName(notification.getNotificationType());
-        Map<String, Object> templateVariables = createTemplateVariables(notification);
+        Map<String, Object> templateVariables = createTemplateVariables(notification,
+                getRecipientName(notification.getRecipientId(), notification.getRecipientType()));
 
-        return sendEmailWithRetry(recipientEmail, subject, templateName, templateVariables, notification);
+        return enqueueEmail(recipientEmail, subject, templateName, templateVariables, notification);
     }
 
     /**
-     * Отправляет email с повторными попытками при ошибках
+     * Ставит в outbox письма уведомлений одной рассылки. У них общие тип, заголовок и текст,
+     * поэтому шаблон рендерится один раз с обращением по умолчанию, а адреса передает рассылка,
+     * уже выбравшая их вместе с получателями; recipientEmails идут в том же порядке, что и notifications
+     *
+     * @return количество поставленных в очередь email
      */
-    private CompletableFuture<Boolean> sendEmailWithRetry(String recipientEmail, String subject, 
-                                                        String templateName, Map<String, Object> variables,
-                                                        Notification notification) {
-        return CompletableFuture.supplyAsync(() -> {
-            int attempt = 0;
-            while (attempt < maxRetryAttempts) {
-                try {
-                    boolean success = sendEmail(recipientEmail, subject, templateName, variables);
-                    if (success) {
-                        if (notification != null) {
-                            notification.markAsSent();
-                            notificationService.updateNotification(notification);
-                        }
-                        logger.info("Email sent successfully to: " + recipientEmail);
-                        return true;
-                    }
-                } catch (Exception e) {
-                    logger.warning("Email sending attempt " + (attempt + 1) + " failed for: " + 
-                                 recipientEmail + ". Error: " + e.getMessage());
-                }
-
-                attempt++;
-                if (attempt < maxRetryAttempts) {
-                    try {
-                        Thread.sleep(retryDelayMs);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-            }
+    @Transactional
+    public int enqueueBroadcastEmails(List<Notification> notifications, List<String> recipientEmails) {
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+        Notification first = notifications.get(0);
+        String recipientName = first.getRecipientType() == RecipientType.STUDENT ? "Student" : "User";
+        String htmlContent = renderTemplate(getTemplateName(first.getNotificationType()),
+                createTemplateVariables(first, recipientName));
+        List<Long> notificationIds = notifications.stream().map(Notification::getId).collect(Collectors.toList());
+        emailOutboxService.enqueueAll(recipientEmails, notificationIds, first.getTitle(), htmlContent);
+        return notifications.size();
+    }
 
+    /**
+     * Рендерит шаблон и ставит письмо в outbox в текущей транзакции; отправляет его почтовый
+     * executor, он же повторяет попытки при ошибках
+     */
+    private CompletableFuture<Boolean> enqueueEmail(String recipientEmail, String subject, String templateName,
+                                                    Map<String, Object> variables, Notification notification) {
+        String htmlContent;
+        try {
+            htmlContent = renderTemplate(templateName, variables);
+        } catch (Exception e) {
+            logger.severe("Failed to render email template " + templateName + " for: " + recipientEmail +
+                         ". Error: " + e.getMessage());
             if (notification != null) {
                 notification.markAsFailed();
                 notificationService.updateNotification(notification);
             }
-            logger.severe("Failed to send email after " + maxRetryAttempts + " attempts to: " + recipientEmail);
-            return false;
-        });
+            return CompletableFuture.completedFuture(false);
+        }
+        emailOutboxService.enqueue(recipientEmail, subject, htmlContent,
+                notification != null ? notification.getId() : null);
+        return CompletableFuture.completedFuture(true);
     }
 
     /**
-     * Отправляет email с использованием Thymeleaf шаблона
+     * Ставит одно и то же письмо в outbox для каждого получателя многострочными вставками;
+     * шаблон рендерится один раз
      */
-    public boolean sendEmail(String recipientEmail, String subject, String templateName, 
-                           Map<String, Object> variables) {
+    private CompletableFuture<Boolean> enqueueEmails(List<String> recipientEmails, String subject, String templateName,
+                                                     Map<String, Object> variables) {
+        String htmlContent;
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(senderAddress, senderName);
-            helper.setTo(recipientEmail);
-            helper.setSubject(subject);
-
-            // Подготавливаем контекст для шаблона
-            Context context = new Context();
-            context.setVariables(variables);
-
-            // Генерируем HTML содержимое из шаблона
-            String htmlContent = templateEngine.process(templateName, context);
-            helper.setText(htmlContent, true);
-
-            mailSender.send(message);
-            return true;
-        } catch (MessagingException e) {
-            logger.severe("Failed to send email to: " + recipientEmail + ". Error: " + e.getMessage());
-            return false;
+            htmlContent = renderTemplate(templateName, variables);
         } catch (Exception e) {
-            logger.severe("Unexpected error while sending email to: " + recipientEmail + ". Error: " + e.getMessage());
-            return false;
+            logger.severe("Failed to render email template " + templateName + ". Error: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
         }
+        emailOutboxService.enqueueAll(recipientEmails, subject, htmlContent);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private String renderTemplate(String templateName, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return templateEngine.process(templateName, context);
     }
 
     /**
@@ -210,10 +200,10 @@ public class EmailService {
     /**
      * Создает переменные для шаблона на основе уведомления
      */
-    private Map<String, Object> createTemplateVariables(Notification notification) {
+    private Map<String, Object> createTemplateVariables(Notification notification, String recipientName) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("notification", notification);
-        variables.put("recipientName", getRecipientName(notification.getRecipientId(), notification.getRecipientType()));
+        variables.put("recipientName", recipientName);
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
@@ -266,43 +256,95 @@ public class EmailService {
     }
 
     /**
-     * Массовая отправка email администратором
+     * Массовая отправка email администратором. Письма ставятся в outbox в одной транзакции;
+     * future завершается после commit, отправляет их почтовый executor.
      */
-    @Async
+    @Transactional
     public CompletableFuture<Boolean> sendBulkEmail(List<String> recipientEmails, String subject, String message, 
                                                    String senderName) {
         logger.info("Sending bulk email to " + recipientEmails.size() + " recipients");
-        
-        // Создаем переменные для шаблона
+        return enqueueEmails(recipientEmails, subject, "bulk-email", createBulkEmailVariables(message, senderName));
+    }
+
+    /**
+     * Ставит массовую рассылку в outbox под новым идентификатором и сразу возвращает ее состояние.
+     * Повторяющиеся и пустые адреса отбрасываются; ход рассылки считается по строкам outbox,
+     * см. {@link #getBulkEmail(String)}
+     */
+    @Transactional
+    public BulkEmailJobDto startBulkEmail(List<String> recipientEmails, String subject, String message,
+                                          String senderName) {
+        Set<String> recipients = new LinkedHashSet<>();
+        for (String email : recipientEmails) {
+            if (email != null && !email.isBlank()) {
+                recipients.add(email.trim());
+            }
+        }
+        if (recipients.isEmpty()) {
+            throw new ValidationException("No recipient emails given");
+        }
+        String jobId = UUID.randomUUID().toString();
+        logger.info("Starting bulk email " + jobId + " to " + recipients.size() + " recipients");
+        String htmlContent = renderTemplate("bulk-email", createBulkEmailVariables(message, senderName));
+        emailOutboxService.enqueueBulk(jobId, new ArrayList<>(recipients), subject, htmlContent);
+
+        BulkEmailJobDto job = new BulkEmailJobDto();
+        job.setId(jobId);
+        job.setSubject(subject);
+        job.setStatus(BULK_QUEUED);
+        job.setTotalRecipients(recipients.size());
+        job.setFailedRecipients(Map.of());
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    /**
+     * Состояние массовой рассылки и адреса, на которые письмо не ушло после всех попыток
+     */
+    public BulkEmailJobDto getBulkEmail(String jobId) {
+        BulkJob job = emailOutboxRepository.findBulkJob(jobId)
+                .orElseThrow(() -> new NotFoundException("Bulk email not found with id: " + jobId));
+        return toBulkEmailJobDto(job, emailOutboxRepository.findBulkJobFailures(jobId));
+    }
+
+    /**
+     * Последние массовые рассылки, новые первыми; адреса с ошибками доступны по каждой рассылке
+     */
+    public List<BulkEmailJobDto> getBulkEmails() {
+        return emailOutboxRepository.findRecentBulkJobs(RECENT_BULK_EMAILS).stream()
+                .map(job -> toBulkEmailJobDto(job, Map.of()))
+                .collect(Collectors.toList());
+    }
+
+    private BulkEmailJobDto toBulkEmailJobDto(BulkJob job, Map<String, String> failedRecipients) {
+        boolean completed = job.getSent() + job.getFailed() == job.getTotal();
+        BulkEmailJobDto dto = new BulkEmailJobDto();
+        dto.setId(job.getId());
+        dto.setSubject(job.getSubject());
+        dto.setStatus(completed ? BULK_COMPLETED : job.getAttempted() > 0 ? BULK_RUNNING : BULK_QUEUED);
+        dto.setTotalRecipients(job.getTotal());
+        dto.setSent(job.getSent());
+        dto.setFailed(job.getFailed());
+        dto.setFailedRecipients(failedRecipients);
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getFirstSentAt());
+        dto.setCompletedAt(completed ? job.getLastSentAt() : null);
+        return dto;
+    }
+
+    private Map<String, Object> createBulkEmailVariables(String message, String senderName) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("message", message);
         variables.put("senderName", senderName);
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
-        
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому получателю
-        for (String email : recipientEmails) {
-            try {
-                boolean success = sendEmail(email, subject, "bulk-email", variables);
-                if (!success) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send bulk email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending bulk email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return variables;
     }
 
     /**
      * Массовая отправка email администратором с фильтрацией по типу получателя
      */
-    @Async
+    @Transactional
     public CompletableFuture<Boolean> sendBulkEmailByRecipientType(RecipientType recipientType, 
                                                                    String subject, String message, 
                                                                    String senderName) {
@@ -311,30 +353,18 @@ public class EmailService {
     }
 
     /**
-     * Получает список email адресов по типу получателя
+     * Получает список email адресов по типу получателя; читается только колонка email
      */
     private List<String> getRecipientEmailsByType(RecipientType recipientType) {
         switch (recipientType) {
             case STUDENT:
-                return studentService.findAll().stream()
-                    .map(Student::getEmail)
-                    .filter(email -> email != null && !email.isEmpty())
-                    .collect(Collectors.toList());
+                return studentService.findAllEmails();
             case TEACHER:
-                return userService.findByRole(com.crm.system.model.UserRole.TEACHER).stream()
-                    .map(User::getEmail)
-                    .filter(email -> email != null && !email.isEmpty())
-                    .collect(Collectors.toList());
+                return userService.findEmailsByRole(com.crm.system.model.UserRole.TEACHER);
             case MANAGER:
-                return userService.findByRole(com.crm.system.model.UserRole.MANAGER).stream()
-                    .map(User::getEmail)
-                    .filter(email -> email != null && !email.isEmpty())
-                    .collect(Collectors.toList());
+                return userService.findEmailsByRole(com.crm.system.model.UserRole.MANAGER);
             case ADMIN:
-                return userService.findByRole(com.crm.system.model.UserRole.ADMIN).stream()
-                    .map(User::getEmail)
-                    .filter(email -> email != null && !email.isEmpty())
-                    .collect(Collectors.toList());
+                return userService.findEmailsByRole(com.crm.system.model.UserRole.ADMIN);
             default:
                 return List.of();
         }
@@ -343,19 +373,17 @@ public class EmailService {
     /**
      * Массовая отправка email администратором с фильтрацией по критериям
      */
-    @Async
+    @Transactional
     public CompletableFuture<Boolean> sendFilteredBulkEmail(List<Long> recipientIds, RecipientType recipientType,
                                                           String subject, String message, String senderName) {
-        List<String> recipientEmails = recipientIds.stream()
-            .map(id -> getRecipientEmail(id, recipientType))
-            .filter(email -> email != null && !email.isEmpty())
-            .collect(Collectors.toList());
+        List<String> recipientEmails = recipientType == RecipientType.STUDENT
+            ? studentService.findEmailsByIds(recipientIds)
+            : userService.findEmailsByIds(recipientIds);
         
         return sendBulkEmail(recipientEmails, subject, message, senderName);
     }
 
     // Методы для отправки конкретных типов уведомлений
-    @Async
     public CompletableFuture<Boolean> sendLessonScheduledEmail(Long recipientId, RecipientType recipientType,
                                                               String recipientEmail, String lessonInfo) {
         logger.info("Sending lesson scheduled email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -364,10 +392,9 @@ public class EmailService {
         variables.put("lessonInfo", lessonInfo);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "lesson-scheduled", variables, null);
+        return enqueueEmail(recipientEmail, subject, "lesson-scheduled", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendLessonCancelledEmail(Long recipientId, RecipientType recipientType,
                                                             String recipientEmail, String lessonInfo, String reason) {
         logger.info("Sending lesson cancelled email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -377,10 +404,9 @@ public class EmailService {
         variables.put("reason", reason);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "lesson-cancelled", variables, null);
+        return enqueueEmail(recipientEmail, subject, "lesson-cancelled", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendLessonReminderEmail(Long recipientId, RecipientType recipientType,
                                                              String recipientEmail, String lessonInfo) {
         logger.info("Sending lesson reminder email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -389,10 +415,9 @@ public class EmailService {
         variables.put("lessonInfo", lessonInfo);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "lesson-reminder", variables, null);
+        return enqueueEmail(recipientEmail, subject, "lesson-reminder", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendPackageEndingSoonEmail(Long recipientId, RecipientType recipientType,
                                                                 String recipientEmail, String packageInfo) {
         logger.info("Sending package ending soon email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -401,10 +426,9 @@ public class EmailService {
         variables.put("packageInfo", packageInfo);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "package-ending-soon", variables, null);
+        return enqueueEmail(recipientEmail, subject, "package-ending-soon", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendPaymentDueEmail(Long recipientId, RecipientType recipientType,
                                                         String recipientEmail, String paymentInfo) {
         logger.info("Sending payment due email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -413,10 +437,9 @@ public class EmailService {
         variables.put("paymentInfo", paymentInfo);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "payment-due", variables, null);
+        return enqueueEmail(recipientEmail, subject, "payment-due", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendSystemMessageEmail(Long recipientId, RecipientType recipientType,
                                                            String recipientEmail, String message) {
         logger.info("Sending system message email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -425,10 +448,9 @@ public class EmailService {
         variables.put("message", message);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "system-message", variables, null);
+        return enqueueEmail(recipientEmail, subject, "system-message", variables, null);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendSystemMaintenanceEmail(String subject, String message) {
         logger.info("Sending system maintenance email to all users");
         
@@ -454,7 +476,6 @@ public class EmailService {
             });
     }
 
-    @Async
     public CompletableFuture<Boolean> sendFeedbackRequestEmail(Long recipientId, RecipientType recipientType,
                                                               String recipientEmail, String feedbackInfo) {
         logger.info("Sending feedback request email to: " + recipientEmail + ", recipient ID: " + recipientId);
@@ -463,19 +484,15 @@ public class EmailService {
         variables.put("feedbackInfo", feedbackInfo);
         variables.put("recipientName", getRecipientName(recipientId, recipientType));
         
-        return sendEmailWithRetry(recipientEmail, subject, "feedback-request", variables, null);
+        return enqueueEmail(recipientEmail, subject, "feedback-request", variables, null);
     }
 
     // Расширенные методы для системных уведомлений
-    @Async
     public CompletableFuture<Boolean> sendSystemAlertEmail(String subject, String message, String alertLevel) {
         logger.info("Sending system alert email with level: " + alertLevel);
         
         // Получаем все email адреса администраторов
-        List<String> adminEmails = userService.findByRole(com.crm.system.model.UserRole.ADMIN).stream()
-            .map(User::getEmail)
-            .filter(email -> email != null && !email.isEmpty())
-            .collect(Collectors.toList());
+        List<String> adminEmails = userService.findEmailsByRole(com.crm.system.model.UserRole.ADMIN);
         
         // Создаем переменные для шаблона
         Map<String, Object> variables = new HashMap<>();
@@ -485,26 +502,9 @@ public class EmailService {
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому администратору
-        for (String email : adminEmails) {
-            try {
-                boolean success = sendEmail(email, subject, "system-alert", variables);
-                if (!success) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send system alert email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending system alert email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return enqueueEmails(adminEmails, subject, "system-alert", variables);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendSystemReportEmail(String subject, String reportContent, 
                                                            List<String> recipientEmails) {
         logger.info("Sending system report email to " + recipientEmails.size() + " recipients");
@@ -516,35 +516,15 @@ public class EmailService {
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому получателю
-        for (String email : recipientEmails) {
-            try {
-                boolean success = sendEmail(email, subject, "system-report", variables);
-                if (!success) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send system report email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending system report email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return enqueueEmails(recipientEmails, subject, "system-report", variables);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendSecurityAlertEmail(String subject, String alertMessage, 
                                                            String ipAddress, String userAgent) {
         logger.info("Sending security alert email for IP: " + ipAddress);
         
         // Получаем все email адреса администраторов
-        List<String> adminEmails = userService.findByRole(com.crm.system.model.UserRole.ADMIN).stream()
-            .map(User::getEmail)
-            .filter(email -> email != null && !email.isEmpty())
-            .collect(Collectors.toList());
+        List<String> adminEmails = userService.findEmailsByRole(com.crm.system.model.UserRole.ADMIN);
         
         // Создаем переменные для шаблона
         Map<String, Object> variables = new HashMap<>();
@@ -555,36 +535,16 @@ public class EmailService {
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому администратору
-        for (String email : adminEmails) {
-            try {
-                boolean success = sendEmail(email, subject, "security-alert", variables);
-                if (!success) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send security alert email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending security alert email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return enqueueEmails(adminEmails, subject, "security-alert", variables);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendPerformanceAlertEmail(String subject, String alertMessage, 
                                                                double cpuUsage, double memoryUsage, 
                                                                double diskUsage) {
         logger.info("Sending performance alert email with CPU: " + cpuUsage + "%, Memory: " + memoryUsage + "%, Disk: " + diskUsage + "%");
         
         // Получаем все email адреса администраторов
-        List<String> adminEmails = userService.findByRole(com.crm.system.model.UserRole.ADMIN).stream()
-            .map(User::getEmail)
-            .filter(email -> email != null && !email.isEmpty())
-            .collect(Collectors.toList());
+        List<String> adminEmails = userService.findEmailsByRole(com.crm.system.model.UserRole.ADMIN);
         
         // Создаем переменные для шаблона
         Map<String, Object> variables = new HashMap<>();
@@ -596,35 +556,15 @@ public class EmailService {
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому администратору
-        for (String email : adminEmails) {
-            try {
-                boolean success = sendEmail(email, subject, "performance-alert", variables);
-                if (!success) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send performance alert email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending performance alert email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return enqueueEmails(adminEmails, subject, "performance-alert", variables);
     }
 
-    @Async
     public CompletableFuture<Boolean> sendBackupStatusEmail(String subject, String backupStatus, 
                                                            boolean success, String details) {
         logger.info("Sending backup status email with status: " + backupStatus);
         
         // Получаем все email адреса администраторов
-        List<String> adminEmails = userService.findByRole(com.crm.system.model.UserRole.ADMIN).stream()
-            .map(User::getEmail)
-            .filter(email -> email != null && !email.isEmpty())
-            .collect(Collectors.toList());
+        List<String> adminEmails = userService.findEmailsByRole(com.crm.system.model.UserRole.ADMIN);
         
         // Создаем переменные для шаблона
         Map<String, Object> variables = new HashMap<>();
@@ -635,22 +575,6 @@ public class EmailService {
         variables.put("currentYear", LocalDateTime.now().getYear());
         variables.put("schoolName", "CRM English School");
         
-        boolean allSuccessful = true;
-        
-        // Отправляем каждому администратору
-        for (String email : adminEmails) {
-            try {
-                boolean successResult = sendEmail(email, subject, "backup-status", variables);
-                if (!successResult) {
-                    allSuccessful = false;
-                    logger.warning("Failed to send backup status email to: " + email);
-                }
-            } catch (Exception e) {
-                allSuccessful = false;
-                logger.severe("Exception while sending backup status email to: " + email + ". Error: " + e.getMessage());
-            }
-        }
-        
-        return CompletableFuture.completedFuture(allSuccessful);
+        return enqueueEmails(adminEmails, subject, "backup-status", variables);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.crm.system.service;
 
+import com.crm.system.exception.NotFoundException;
+import com.crm.system.exception.ValidationException;
 import com.crm.system.model.GroupLesson;
 import com.crm.system.model.GroupLessonRegistration;
 import com.crm.system.model.Student;
@@ -7,12 +9,15 @@ import com.crm.system.model.User;
 import com.crm.system.model.GroupLessonRegistration.RegistrationStatus;
 import com.crm.system.repository.GroupLessonRegistrationRepository;
 import com.crm.system.repository.GroupLessonRepository;
+import com.crm.system.repository.GroupLessonSeatRepository;
 import com.crm.system.repository.StudentRepository;
 import com.crm.system.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -28,7 +33,7 @@ public class GroupLessonRegistrationService {
     private GroupLessonRepository groupLessonRepository;
 
     @Autowired
-    private GroupLessonService groupLessonService;
+    private GroupLessonSeatRepository groupLessonSeatRepository;
 
     @Autowired
     private StudentRepository studentRepository;
@@ -44,9 +49,12 @@ public class GroupLessonRegistrationService {
         return groupLessonRegistrationRepository.save(registration);
     }
 
+    /**
+     * Registers the student through {@link #bookSlot}, so the seat limit and waitlist apply
+     */
+    @Transactional
     public GroupLessonRegistration createRegistration(GroupLesson groupLesson, Student student) {
-        GroupLessonRegistration registration = new GroupLessonRegistration(groupLesson, student);
-        return groupLessonRegistrationRepository.save(registration);
+        return bookSlot(groupLesson, student);
     }
 
     public List<GroupLessonRegistration> findByStudentIdAndDateRange(Long studentId, LocalDate startDate, LocalDate endDate) {
@@ -152,9 +160,9 @@ public class GroupLessonRegistrationService {
         groupLessonRegistrationRepository.save(registration);
     }
 
+    @Transactional
     public void cancelRegistration(GroupLessonRegistration registration, String reason) {
-        registration.cancelRegistration(reason);
-        groupLessonRegistrationRepository.save(registration);
+        cancelBooking(registration, reason);
     }
 
     public boolean isRegistrationActive(GroupLessonRegistration registration) {
@@ -173,73 +181,86 @@ public class GroupLessonRegistrationService {
         return registration.isCancelled();
     }
 
+    /**
+     * Registers the student for the group lesson. A seat is taken by one conditional UPDATE of the
+     * lesson's counter, so concurrent bookings cannot overfill it; when the lesson is full the
+     * student is put on its waitlist instead.
+     *
+     * @return the registration, REGISTERED or WAITLISTED
+     */
+    @Transactional
     public GroupLessonRegistration bookSlot(GroupLesson groupLesson, Student student) {
-        // Проверяем, что слот доступен для бронирования
-        if (!groupLessonService.isSlotAvailableForBooking(groupLesson.getId())) {
-            throw new RuntimeException("Slot is not available for booking");
+        Long groupLessonId = groupLesson.getId();
+
+        // Проверяем, что у студента нет действующей регистрации; после отмены он может записаться снова
+        if (groupLessonRegistrationRepository.findActiveRegistrationByGroupLessonIdAndStudentId(groupLessonId, student.getId()).isPresent()) {
+            throw new ValidationException("Student is already registered for this slot");
         }
 
-        // Проверяем, что студент еще не зарегистрирован на этот слот
-        Optional<GroupLessonRegistration> existingRegistration = 
-            groupLessonRegistrationRepository.findByStudentIdAndGroupLessonId(student.getId(), groupLesson.getId());
-        
-        if (existingRegistration.isPresent()) {
-            throw new RuntimeException("Student is already registered for this slot");
+        RegistrationStatus status = RegistrationStatus.REGISTERED;
+        if (!groupLessonSeatRepository.reserveSeat(groupLessonId)) {
+            // Мест нет или урок закрыт для записи. Под блокировкой урока проверяем еще раз:
+            // отмена, освободившая место, либо уже видна, либо дождется записи в лист ожидания
+            Boolean bookable = groupLessonSeatRepository.lockLesson(groupLessonId);
+            if (bookable == null) {
+                throw new NotFoundException("Group lesson not found with id: " + groupLessonId);
+            }
+            if (!bookable) {
+                throw new ValidationException("Slot is not available for booking");
+            }
+            if (!groupLessonSeatRepository.reserveSeat(groupLessonId)) {
+                status = RegistrationStatus.WAITLISTED;
+            }
         }
 
-        // Создаем регистрацию
         GroupLessonRegistration registration = new GroupLessonRegistration(groupLesson, student);
-        GroupLessonRegistration savedRegistration = groupLessonRegistrationRepository.save(registration);
-        
-        // Обновляем слот (увеличиваем счетчик студентов)
-        groupLesson.incrementStudentCount();
-        groupLessonRepository.save(groupLesson);
-        
-        return savedRegistration;
+        registration.setRegistrationStatus(status);
+        try {
+            return groupLessonRegistrationRepository.saveAndFlush(registration);
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный запрос того же студента успел первым; занятое место откатывается
+            throw new ValidationException("Student is already registered for this slot");
+        }
     }
 
+    @Transactional
     public void cancelBooking(Long registrationId) {
-        GroupLessonRegistration registration = groupLessonRegistrationRepository.findById(registrationId)
-                .orElseThrow(() -> new RuntimeException("Registration not found with id: " + registrationId));
-        
-        // Отменяем регистрацию
-        registration.cancelRegistration("Cancelled by user");
-        groupLessonRegistrationRepository.save(registration);
-
-        // Обновляем слот (освобождаем место)
-        GroupLesson groupLesson = registration.getGroupLesson();
-        groupLesson.decrementStudentCount();
-        groupLessonRepository.save(groupLesson);
+        cancelBooking(registrationId, "Cancelled by user");
     }
 
+    /**
+     * Cancels a registered or waitlisted registration. The seat of a registered student passes to
+     * the first student on the waitlist, or is freed if nobody is waiting.
+     */
+    @Transactional
     public void cancelBooking(Long registrationId, String reason) {
         GroupLessonRegistration registration = groupLessonRegistrationRepository.findById(registrationId)
-                .orElseThrow(() -> new RuntimeException("Registration not found with id: " + registrationId));
-        
-        // Отменяем регистрацию
-        registration.cancelRegistration(reason);
-        groupLessonRegistrationRepository.save(registration);
-
-        // Обновляем слот (освобождаем место)
-        GroupLesson groupLesson = registration.getGroupLesson();
-        groupLesson.decrementStudentCount();
-        groupLessonRepository.save(groupLesson);
+                .orElseThrow(() -> new NotFoundException("Registration not found with id: " + registrationId));
+        cancelBooking(registration, reason);
     }
 
+    @Transactional
     public void cancelBooking(GroupLessonRegistration registration, String reason) {
-        // Отменяем регистрацию
+        Long groupLessonId = registration.getGroupLesson().getId();
+        groupLessonSeatRepository.lockLesson(groupLessonId);
+
+        // Отменяем регистрацию, если она еще действует
+        String previousStatus = groupLessonSeatRepository.cancelRegistration(registration.getId(), reason);
+        if (previousStatus == null) {
+            throw new ValidationException("Registration is not active");
+        }
         registration.cancelRegistration(reason);
-        groupLessonRegistrationRepository.save(registration);
 
-        // Обновляем слот (освобождаем место)
-        GroupLesson groupLesson = registration.getGroupLesson();
-        groupLesson.decrementStudentCount();
-        groupLessonRepository.save(groupLesson);
+        // Место переходит первому из листа ожидания, иначе освобождается
+        if (RegistrationStatus.REGISTERED.name().equals(previousStatus)
+                && groupLessonSeatRepository.promoteFromWaitlist(groupLessonId) == null) {
+            groupLessonSeatRepository.releaseSeat(groupLessonId);
+        }
     }
 
     public boolean isSlotBookedByStudent(Long groupLessonId, Long studentId) {
         Optional<GroupLessonRegistration> registration = 
-            groupLessonRegistrationRepository.findByStudentIdAndGroupLessonId(studentId, groupLessonId);
+            groupLessonRegistrationRepository.findActiveRegistrationByGroupLessonIdAndStudentId(groupLessonId, studentId);
         return registration.isPresent() && registration.get().isRegistered();
     }
 
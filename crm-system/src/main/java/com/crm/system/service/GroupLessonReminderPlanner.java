@@ -0,0 +1,263 @@
+package com.crm.system.service;
+
+import com.crm.system.model.Notification;
+import com.crm.system.model.NotificationSettings;
+import com.crm.system.model.TelegramMessage;
+import com.crm.system.repository.DeliveryQueueRepository;
+import com.crm.system.repository.GroupLessonReminderRepository;
+import com.crm.system.repository.GroupLessonReminderRepository.DueReminder;
+import com.crm.system.telegram.TelegramOutboundDispatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Напоминания о групповых уроках.
+ *
+ * Уроки, регистрации, студенты и преподаватели читаются одним запросом порциями. Для каждой
+ * порции в одной транзакции ставятся отметки об отправке (group_lesson_reminders_sent),
+ * уведомления сохраняются пакетом через NotificationService, сообщения Telegram - одним INSERT.
+ * Сообщения передаются диспетчеру после commit и отправляются в фоне. Напоминание с отметкой
+ * повторно не создается, поэтому урок обрабатывается один раз, сколько бы раз ни запускался
+ * планировщик.
+ *
+ * Таймеры LessonReminderScheduler отправляют напоминания вовремя; периодический проход раз в
+ * plan-interval-ms (и сразу после старта) подбирает напоминания, пропущенные таймерами.
+ */
+@Service
+public class GroupLessonReminderPlanner {
+
+    private static final Logger logger = Logger.getLogger(GroupLessonReminderPlanner.class.getName());
+
+    private static final String TITLE = "Напоминание о групповом уроке";
+    private static final String RELATED_ENTITY_TYPE = "GroupLesson";
+    private static final int HIGH_PRIORITY = 1;
+
+    @Autowired
+    private GroupLessonReminderRepository reminderRepository;
+
+    @Autowired
+    private DeliveryQueueRepository deliveryQueueRepository;
+
+    @Autowired
+    private NotificationSettingsService notificationSettingsService;
+
+    @Autowired
+    private TelegramOutboundDispatcher telegramOutboundDispatcher;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${notifications.group-reminders.lead-hours:24}")
+    private int leadHours;
+
+    @Value("${notifications.group-reminders.chunk-size:500}")
+    private int chunkSize;
+
+    // 0 отключает периодический проход
+    @Value("${notifications.group-reminders.plan-interval-ms:300000}")
+    private long planIntervalMs;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService scheduler;
+
+    public GroupLessonReminderPlanner(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void startPlanning() {
+        if (planIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "group-lesson-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::planQuietly, 0, planIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPlanning() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Создает напоминания для уроков, которые начнутся в ближайшие lead-hours часов
+     *
+     * @return количество созданных напоминаний
+     */
+    public int planDayBeforeReminders() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusHours(leadHours);
+        return plan((afterLessonId, afterStudentId) -> reminderRepository.findDue(
+                GroupLessonReminderRepository.DAY_BEFORE, now, until, afterLessonId, afterStudentId, chunkSize));
+    }
+
+    /**
+     * Создает напоминания об одном уроке, если он подтвержден и все еще начинается в lessonStart
+     *
+     * @return количество созданных напоминаний
+     */
+    public int planDayBeforeReminders(long groupLessonId, LocalDateTime lessonStart) {
+        return plan((afterLessonId, afterStudentId) -> reminderRepository.findDueOfLesson(
+                GroupLessonReminderRepository.DAY_BEFORE, groupLessonId, lessonStart, afterLessonId, afterStudentId,
+                chunkSize));
+    }
+
+    /**
+     * За сколько до начала урока отправляется напоминание
+     */
+    public Duration getLeadTime() {
+        return Duration.ofHours(leadHours);
+    }
+
+    private void planQuietly() {
+        try {
+            planDayBeforeReminders();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Planning group lesson reminders failed", e);
+        }
+    }
+
+    private int plan(ReminderPager pager) {
+        long afterLessonId = 0;
+        long afterStudentId = 0;
+        int planned = 0;
+        List<DueReminder> page;
+        do {
+            page = pager.next(afterLessonId, afterStudentId);
+            if (page.isEmpty()) {
+                break;
+            }
+            List<DueReminder> chunk = page;
+            planned += transactionTemplate.execute(status -> planChunk(chunk));
+            DueReminder last = page.get(page.size() - 1);
+            afterLessonId = last.getLessonId();
+            afterStudentId = last.getStudentId();
+        } while (page.size() == chunkSize);
+
+        if (planned > 0) {
+            logger.info("Planned " + planned + " group lesson reminders");
+        }
+        return planned;
+    }
+
+    private int planChunk(List<DueReminder> chunk) {
+        // Отметки ставятся первыми: напоминания, отмеченные другим экземпляром, пропускаются
+        List<DueReminder> claimed = reminderRepository.claim(GroupLessonReminderRepository.DAY_BEFORE, chunk);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, String> lessonInfos = new HashMap<>();
+        List<Notification> notifications = new ArrayList<>(claimed.size());
+        for (DueReminder reminder : claimed) {
+            String lessonInfo = lessonInfos.computeIfAbsent(reminder.getLessonId(), id -> buildLessonInfo(reminder));
+            Notification notification = new Notification(reminder.getStudentId(), Notification.RecipientType.STUDENT,
+                    Notification.NotificationType.GROUP_LESSON_REMINDER, TITLE, lessonInfo);
+            notification.setRelatedEntityId(reminder.getLessonId());
+            notification.setRelatedEntityType(RELATED_ENTITY_TYPE);
+            notification.setPriority(HIGH_PRIORITY);
+            notifications.add(notification);
+        }
+        // Вставки группируются Hibernate в JDBC-пакеты (hibernate.jdbc.batch_size),
+        // подписчики получают уведомления порции после commit
+        notificationService.saveNotifications(notifications);
+        entityManager.flush();
+        entityManager.clear();
+
+        queueTelegramMessages(claimed, lessonInfos);
+        return claimed.size();
+    }
+
+    private void queueTelegramMessages(List<DueReminder> reminders, Map<Long, String> lessonInfos) {
+        List<Long> studentIds = new ArrayList<>();
+        for (DueReminder reminder : reminders) {
+            if (reminder.getTelegramChatId() != null) {
+                studentIds.add(reminder.getStudentId());
+            }
+        }
+        Set<Long> recipients = notificationSettingsService.filterTelegramRecipients(studentIds,
+                NotificationSettings.UserType.STUDENT, TelegramMessage.MessageType.GROUP_LESSON_REMINDER);
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        List<DueReminder> toSend = new ArrayList<>(recipients.size());
+        for (DueReminder reminder : reminders) {
+            if (reminder.getTelegramChatId() != null && recipients.contains(reminder.getStudentId())) {
+                toSend.add(reminder);
+            }
+        }
+        Long[] chatIds = new Long[toSend.size()];
+        Long[] recipientIds = new Long[toSend.size()];
+        String[] messageTexts = new String[toSend.size()];
+        Long[] lessonIds = new Long[toSend.size()];
+        for (int i = 0; i < toSend.size(); i++) {
+            DueReminder reminder = toSend.get(i);
+            chatIds[i] = reminder.getTelegramChatId();
+            recipientIds[i] = reminder.getStudentId();
+            messageTexts[i] = TelegramNotificationService.GROUP_LESSON_REMINDER_PREFIX
+                    + lessonInfos.get(reminder.getLessonId());
+            lessonIds[i] = reminder.getLessonId();
+        }
+
+        List<TelegramMessage> messages = deliveryQueueRepository.insertPendingTelegramMessages(
+                TelegramMessage.RecipientType.STUDENT.name(), TelegramMessage.MessageType.GROUP_LESSON_REMINDER.name(),
+                RELATED_ENTITY_TYPE, chatIds, recipientIds, messageTexts, lessonIds,
+                telegramOutboundDispatcher.claimLeaseDeadline());
+        // Диспетчер ставит сообщения в очередь после commit
+        for (TelegramMessage message : messages) {
+            telegramOutboundDispatcher.submit(message);
+        }
+    }
+
+    private static String buildLessonInfo(DueReminder reminder) {
+        StringBuilder lessonInfo = new StringBuilder();
+        lessonInfo.append("Групповой урок: ").append(reminder.getLessonTopic()).append("\n");
+        lessonInfo.append("Дата: ").append(reminder.getScheduledDate()).append("\n");
+        lessonInfo.append("Время: ").append(reminder.getScheduledTime()).append("\n");
+        lessonInfo.append("Преподаватель: ")
+                .append(reminder.getTeacherFirstName())
+                .append(" ")
+                .append(reminder.getTeacherLastName())
+                .append("\n");
+
+        if (reminder.getMeetingLink() != null && !reminder.getMeetingLink().isEmpty()) {
+            lessonInfo.append("Ссылка на урок: ").append(reminder.getMeetingLink()).append("\n");
+        }
+        return lessonInfo.toString();
+    }
+
+    @FunctionalInterface
+    private interface ReminderPager {
+        List<DueReminder> next(long afterLessonId, long afterStudentId);
+    }
+}
@@ -28,22 +28,31 @@ public class GroupLessonService {
     @Autowired
     private GroupLessonRegistrationService groupLessonRegistrationService;
 
+    @Autowired
+    private LessonReminderScheduler lessonReminderScheduler;
+
     public Optional<GroupLesson> findById(Long id) {
         return groupLessonRepository.findById(id);
     }
 
     public GroupLesson saveGroupLesson(GroupLesson groupLesson) {
-        return groupLessonRepository.save(groupLesson);
+        GroupLesson saved = groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(saved);
+        return saved;
     }
 
     public GroupLesson createGroupLesson(User teacher, String lessonTopic, LocalDate scheduledDate, LocalTime scheduledTime) {
         GroupLesson groupLesson = new GroupLesson(teacher, lessonTopic, scheduledDate, scheduledTime);
-        return groupLessonRepository.save(groupLesson);
+        GroupLesson saved = groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(saved);
+        return saved;
     }
 
     public GroupLesson createGroupLesson(User teacher, String lessonTopic, LocalDate scheduledDate, LocalTime scheduledTime, Integer durationMinutes) {
         GroupLesson groupLesson = new GroupLesson(teacher, lessonTopic, scheduledDate, scheduledTime, durationMinutes);
-        return groupLessonRepository.save(groupLesson);
+        GroupLesson saved = groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(saved);
+        return saved;
     }
 
     public List<GroupLesson> findByTeacherIdAndDate(Long teacherId, LocalDate date) {
@@ -105,36 +114,39 @@ public class GroupLessonService {
     }
 
     public GroupLesson updateGroupLesson(GroupLesson groupLesson) {
-        return groupLessonRepository.save(groupLesson);
+        GroupLesson saved = groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(saved);
+        return saved;
     }
 
     public void deleteGroupLesson(Long id) {
         groupLessonRepository.deleteById(id);
+        lessonReminderScheduler.groupLessonRemoved(id);
     }
 
     public void confirmLesson(GroupLesson groupLesson) {
         groupLesson.confirmLesson();
-        groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(groupLessonRepository.save(groupLesson));
     }
 
     public void startLesson(GroupLesson groupLesson) {
         groupLesson.startLesson();
-        groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(groupLessonRepository.save(groupLesson));
     }
 
     public void completeLesson(GroupLesson groupLesson) {
         groupLesson.completeLesson();
-        groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(groupLessonRepository.save(groupLesson));
     }
 
     public void cancelLesson(GroupLesson groupLesson) {
         groupLesson.cancelLesson();
-        groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(groupLessonRepository.save(groupLesson));
     }
 
     public void postponeLesson(GroupLesson groupLesson) {
         groupLesson.postponeLesson();
-        groupLessonRepository.save(groupLesson);
+        lessonReminderScheduler.groupLessonChanged(groupLessonRepository.save(groupLesson));
     }
 
     public boolean isLessonScheduled(GroupLesson groupLesson) {
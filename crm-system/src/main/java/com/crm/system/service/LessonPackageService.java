@@ -1,32 +1,59 @@
 package com.crm.system.service;
 
+import com.crm.system.exception.NotFoundException;
 import com.crm.system.model.LessonPackage;
 import com.crm.system.model.Student;
+import com.crm.system.repository.LessonBalanceRepository;
+import com.crm.system.repository.LessonBalanceRepository.LedgerEntry;
+import com.crm.system.repository.LessonBalanceRepository.Reason;
 import com.crm.system.repository.LessonPackageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Lesson packages and the per-student lesson balance.
+ *
+ * Every change of remaining lessons goes through the student's balance row first: the row is
+ * updated with a conditional UPDATE, which both checks and locks the balance, then the packages
+ * are changed and a ledger row is appended, all in one transaction. Balance checks read the
+ * maintained total instead of summing packages.
+ */
 @Service
 public class LessonPackageService {
 
     @Autowired
     private LessonPackageRepository lessonPackageRepository;
 
+    @Autowired
+    private LessonBalanceRepository lessonBalanceRepository;
+
     public Optional<LessonPackage> findById(Long id) {
         return lessonPackageRepository.findById(id);
     }
 
+    /**
+     * Saves a package changed outside of this service and brings the balance in line with it.
+     */
+    @Transactional
     public LessonPackage saveLessonPackage(LessonPackage lessonPackage) {
-        return lessonPackageRepository.save(lessonPackage);
+        lessonBalanceRepository.lockBalance(lessonPackage.getStudent().getId());
+        LessonPackage saved = lessonPackageRepository.saveAndFlush(lessonPackage);
+        reconcileBalance(saved.getStudent().getId());
+        return saved;
     }
 
+    @Transactional
     public LessonPackage createLessonPackage(Student student, Integer totalLessons) {
-        LessonPackage lessonPackage = new LessonPackage(student, totalLessons);
-        return lessonPackageRepository.save(lessonPackage);
+        LessonPackage lessonPackage = lessonPackageRepository.save(new LessonPackage(student, totalLessons));
+        int balance = lessonBalanceRepository.credit(student.getId(), totalLessons);
+        lessonBalanceRepository.appendLedger(student.getId(), lessonPackage.getId(), totalLessons, balance,
+                Reason.PACKAGE_PURCHASE, null);
+        return lessonPackage;
     }
 
     public List<LessonPackage> findByStudent(Student student) {
@@ -41,41 +68,139 @@ public class LessonPackageService {
         return lessonPackageRepository.findActivePackagesByStudentId(studentId);
     }
 
+    @Transactional
     public LessonPackage updateLessonPackage(LessonPackage lessonPackage) {
-        return lessonPackageRepository.save(lessonPackage);
+        return saveLessonPackage(lessonPackage);
     }
 
+    @Transactional
     public void deleteLessonPackage(Long id) {
-        lessonPackageRepository.deleteById(id);
+        Long studentId = findPackageStudentId(id);
+        lessonBalanceRepository.lockBalance(studentId);
+        Integer remaining = lessonBalanceRepository.deletePackage(id);
+        if (remaining == null) {
+            throw new NotFoundException("Lesson package not found with id: " + id);
+        }
+        if (remaining > 0) {
+            Integer balance = lessonBalanceRepository.debit(studentId, remaining);
+            if (balance == null) {
+                reconcileBalance(studentId);
+                return;
+            }
+            lessonBalanceRepository.appendLedger(studentId, null, -remaining, balance, Reason.PACKAGE_DELETED, id);
+        }
+    }
+
+    /**
+     * Remaining lessons of the student over all packages, read from the maintained balance.
+     */
+    public int getRemainingLessons(Long studentId) {
+        return lessonBalanceRepository.getBalance(studentId);
     }
 
     public boolean hasEnoughLessons(Long studentId, int lessonsNeeded) {
-        List<LessonPackage> activePackages = findActivePackagesByStudentId(studentId);
-        int totalRemaining = activePackages.stream()
-                .mapToInt(LessonPackage::getRemainingLessons)
-                .sum();
-        return totalRemaining >= lessonsNeeded;
-    }
-
-    public void deductLessons(Long studentId, int lessonsToDeduct) {
-        List<LessonPackage> activePackages = findActivePackagesByStudentId(studentId);
-        int remainingToDeduct = lessonsToDeduct;
-        
-        for (LessonPackage pkg : activePackages) {
-            if (remainingToDeduct <= 0) break;
-            
-            int availableInPackage = pkg.getRemainingLessons();
-            if (availableInPackage > 0) {
-                int deductFromThisPackage = Math.min(availableInPackage, remainingToDeduct);
-                pkg.deductLessons(deductFromThisPackage);
-                lessonPackageRepository.save(pkg);
-                remainingToDeduct -= deductFromThisPackage;
-            }
+        return getRemainingLessons(studentId) >= lessonsNeeded;
+    }
+
+    @Transactional
+    public int deductLessons(Long studentId, int lessonsToDeduct) {
+        return deductLessons(studentId, lessonsToDeduct, null);
+    }
+
+    /**
+     * Takes lessons from the student's packages, oldest package first. The balance check and the
+     * deduction are one conditional UPDATE, so concurrent deductions can never overdraw it.
+     *
+     * @param referenceId what the lessons are deducted for (e.g. lesson id), stored in the ledger
+     * @return remaining lessons after the deduction
+     * @throws IllegalArgumentException if the student has fewer lessons left
+     */
+    @Transactional
+    public int deductLessons(Long studentId, int lessonsToDeduct, Long referenceId) {
+        if (lessonsToDeduct <= 0) {
+            throw new IllegalArgumentException("Number of lessons to deduct must be positive");
         }
-        
-        if (remainingToDeduct > 0) {
+        Integer balance = lessonBalanceRepository.debit(studentId, lessonsToDeduct);
+        if (balance == null) {
             throw new IllegalArgumentException("Not enough lessons available for deduction");
         }
+        int taken = lessonBalanceRepository.deductFromPackagesFifo(studentId, lessonsToDeduct,
+                balance + lessonsToDeduct, referenceId);
+        if (taken != lessonsToDeduct) {
+            // Пакеты изменены в обход баланса; откатываем списание
+            throw new IllegalStateException("Lesson balance of student " + studentId +
+                    " does not match the packages, deducted " + taken + " of " + lessonsToDeduct);
+        }
+        return balance;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the package has fewer lessons left
+     */
+    @Transactional
+    public LessonPackage deductLessonsFromPackage(Long packageId, int lessons) {
+        if (lessons <= 0) {
+            throw new IllegalArgumentException("Number of lessons to deduct must be positive");
+        }
+        Long studentId = findPackageStudentId(packageId);
+        Integer balance = lessonBalanceRepository.debit(studentId, lessons);
+        if (balance == null || !lessonBalanceRepository.deductFromPackage(packageId, lessons)) {
+            throw new IllegalArgumentException("Not enough lessons in the package");
+        }
+        lessonBalanceRepository.appendLedger(studentId, packageId, -lessons, balance, Reason.LESSONS_DEDUCTED, null);
+        return findPackage(packageId);
+    }
+
+    @Transactional
+    public LessonPackage addLessonsToPackage(Long packageId, int lessons) {
+        if (lessons <= 0) {
+            throw new IllegalArgumentException("Number of lessons to add must be positive");
+        }
+        Long studentId = findPackageStudentId(packageId);
+        int balance = lessonBalanceRepository.credit(studentId, lessons);
+        lessonBalanceRepository.addToPackage(packageId, lessons);
+        lessonBalanceRepository.appendLedger(studentId, packageId, lessons, balance, Reason.LESSONS_ADDED, null);
+        return findPackage(packageId);
+    }
+
+    /**
+     * Latest balance changes of the student, newest first.
+     */
+    public List<LedgerEntry> getBalanceLedger(Long studentId, int limit) {
+        return lessonBalanceRepository.findLedger(studentId, limit);
+    }
+
+    /**
+     * Sets the balance to the sum of the student's packages, recording the difference as an
+     * adjustment. Needed only after packages were changed without this service.
+     *
+     * @return the balance
+     */
+    @Transactional
+    public int reconcileBalance(Long studentId) {
+        Integer current = lessonBalanceRepository.lockBalance(studentId);
+        int actual = lessonBalanceRepository.sumPackages(studentId);
+        int previous = current != null ? current : 0;
+        if (current == null || actual != previous) {
+            lessonBalanceRepository.setBalance(studentId, actual);
+            if (actual != previous) {
+                lessonBalanceRepository.appendLedger(studentId, null, actual - previous, actual, Reason.ADJUSTMENT, null);
+            }
+        }
+        return actual;
+    }
+
+    private Long findPackageStudentId(Long packageId) {
+        Long studentId = lessonBalanceRepository.findPackageStudentId(packageId);
+        if (studentId == null) {
+            throw new NotFoundException("Lesson package not found with id: " + packageId);
+        }
+        return studentId;
+    }
+
+    private LessonPackage findPackage(Long packageId) {
+        return lessonPackageRepository.findById(packageId)
+                .orElseThrow(() -> new NotFoundException("Lesson package not found with id: " + packageId));
     }
 
     public List<LessonPackage> findPackagesWithLowRemainingLessons(int threshold) {
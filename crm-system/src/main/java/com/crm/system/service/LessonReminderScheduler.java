@@ -0,0 +1,422 @@
+package com.crm.system.service;
+
+import com.crm.system.config.ReminderSchedulerProperties;
+import com.crm.system.model.GroupLesson;
+import com.crm.system.model.Lesson;
+import com.crm.system.repository.LessonRepository;
+import com.crm.system.repository.ReminderScheduleRepository;
+import com.crm.system.repository.ReminderScheduleRepository.LessonStart;
+import com.crm.system.telegram.CrmTelegramBot;
+import com.crm.system.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Напоминания об уроках по таймерам вместо периодического опроса базы.
+ *
+ * Моменты напоминаний на ближайшие horizon часов хранятся в иерархическом колесе таймеров
+ * ({@link TimingWheel}): при старте они загружаются одним запросом по диапазону, дальше горизонт
+ * раз в refill-interval сдвигается догрузкой только новой части диапазона. LessonService и
+ * GroupLessonService сообщают о создании, переносе и отмене уроков, и таймер урока заменяется
+ * или снимается за O(1). Сработавший таймер перечитывает урок из базы и отправляет напоминание
+ * только если урок все еще в том же состоянии и на то же время, поэтому устаревший таймер
+ * (откат транзакции, изменение на другом экземпляре) ничего не отправляет.
+ *
+ * Таймеры загружает каждый экземпляр приложения, поэтому перед отправкой напоминание отмечается в
+ * lesson_reminders_sent (групповые - в group_lesson_reminders_sent): отправляет только экземпляр,
+ * поставивший отметку.
+ */
+@Service
+public class LessonReminderScheduler {
+
+    private static final Logger logger = Logger.getLogger(LessonReminderScheduler.class.getName());
+
+    // Запас для запроса уроков, которые уже начались, но еще не закончились
+    private static final Duration MAX_LESSON_DURATION = Duration.ofHours(24);
+
+    // Сколько после конца урока еще отправляется опоздавший запрос о присутствии
+    private static final Duration ATTENDANCE_REQUEST_GRACE = Duration.ofHours(24);
+
+    public enum Kind {
+        LESSON_REMINDER,
+        ATTENDANCE_REQUEST,
+        GROUP_LESSON_REMINDER
+    }
+
+    @Autowired
+    private ReminderSchedulerProperties properties;
+
+    @Autowired
+    private ReminderScheduleRepository reminderScheduleRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private GroupLessonReminderPlanner groupLessonReminderPlanner;
+
+    @Autowired
+    private CrmTelegramBot crmTelegramBot;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Kind, Counter> firedCounters = new EnumMap<>(Kind.class);
+
+    private volatile TimingWheel<ReminderKey> wheel;
+    private volatile LocalDateTime loadedUntil;
+    private Thread ticker;
+    private ExecutorService workers;
+
+    public LessonReminderScheduler(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            logger.info("Lesson reminder scheduler is disabled");
+            return;
+        }
+        wheel = new TimingWheel<>(properties.getTickMs(), properties.getWheelSize(), properties.getLevels(),
+                System.currentTimeMillis());
+        if (wheel.getMaxDelayMs() < properties.getHorizon().toMillis()) {
+            throw new IllegalStateException("reminders.scheduler wheel covers " + wheel.getMaxDelayMs() +
+                    " ms, less than the horizon of " + properties.getHorizon().toMillis() + " ms");
+        }
+        for (Kind kind : Kind.values()) {
+            firedCounters.put(kind, Counter.builder("reminders.fired").tag("kind", kind.name()).register(meterRegistry));
+        }
+        Gauge.builder("reminders.scheduled", wheel, TimingWheel::size).register(meterRegistry);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(properties.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "reminder-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = new Thread(this::run, "reminder-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Ставит, переносит или снимает таймеры индивидуального урока после его изменения
+     */
+    public void lessonChanged(Lesson lesson) {
+        if (wheel == null || lesson == null || lesson.getId() == null) {
+            return;
+        }
+        LocalDateTime startsAt = lesson.getScheduledDate().atTime(lesson.getScheduledTime());
+        int duration = lesson.getDurationMinutes() != null ? lesson.getDurationMinutes() : 60;
+        LocalDateTime attendanceRequestAt = attendanceRequestAt(startsAt, duration);
+        update(new ReminderKey(Kind.LESSON_REMINDER, lesson.getId()),
+                lesson.isScheduled() ? lessonReminderAt(startsAt) : null, startsAt);
+        update(new ReminderKey(Kind.ATTENDANCE_REQUEST, lesson.getId()),
+                wantsAttendanceRequest(lesson) ? attendanceRequestAt : null,
+                attendanceRequestAt.plus(ATTENDANCE_REQUEST_GRACE));
+    }
+
+    public void lessonRemoved(Long lessonId) {
+        if (wheel == null || lessonId == null) {
+            return;
+        }
+        wheel.cancel(new ReminderKey(Kind.LESSON_REMINDER, lessonId));
+        wheel.cancel(new ReminderKey(Kind.ATTENDANCE_REQUEST, lessonId));
+    }
+
+    /**
+     * Ставит, переносит или снимает таймер группового урока после его изменения
+     */
+    public void groupLessonChanged(GroupLesson groupLesson) {
+        if (wheel == null || groupLesson == null || groupLesson.getId() == null) {
+            return;
+        }
+        LocalDateTime startsAt = groupLesson.getScheduledDate().atTime(groupLesson.getScheduledTime());
+        update(new ReminderKey(Kind.GROUP_LESSON_REMINDER, groupLesson.getId()),
+                groupLesson.isConfirmed() ? groupLessonReminderAt(startsAt) : null, startsAt);
+    }
+
+    public void groupLessonRemoved(Long groupLessonId) {
+        if (wheel == null || groupLessonId == null) {
+            return;
+        }
+        wheel.cancel(new ReminderKey(Kind.GROUP_LESSON_REMINDER, groupLessonId));
+    }
+
+    public int getScheduledCount() {
+        return wheel != null ? wheel.size() : 0;
+    }
+
+    private void run() {
+        // Напоминания о групповых уроках, пропущенные пока приложение не работало, подбирает
+        // периодический проход GroupLessonReminderPlanner
+        LocalDateTime now = LocalDateTime.now();
+        load(now, now.plus(properties.getHorizon()));
+        long refillIntervalMs = properties.getRefillInterval().toMillis();
+        long nextRefillMs = System.currentTimeMillis() + refillIntervalMs;
+        long tickMs = properties.getTickMs();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long nowMs = System.currentTimeMillis();
+            for (TimingWheel.Timeout<ReminderKey> timeout : wheel.advance(nowMs)) {
+                try {
+                    workers.execute(() -> fire(timeout.getKey(), timeout.getDeadlineMs()));
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+            if (nowMs >= nextRefillMs) {
+                LocalDateTime until = LocalDateTime.now().plus(properties.getHorizon());
+                load(loadedUntil, until);
+                nextRefillMs = nowMs + refillIntervalMs;
+            }
+            try {
+                Thread.sleep(tickMs - System.currentTimeMillis() % tickMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ставит таймеры с моментами срабатывания после from и не позже to
+     */
+    private void load(LocalDateTime from, LocalDateTime to) {
+        try {
+            Duration reminderBefore = properties.getLessonReminderBefore();
+            Duration attendanceAfter = properties.getAttendanceRequestAfterEnd();
+            // При первой загрузке напоминания, пропущенные пока приложение не работало, отправляются сразу
+            boolean catchUp = loadedUntil == null;
+            int scheduled = 0;
+            for (LessonStart lesson : reminderScheduleRepository.findLessonStarts(
+                    from.minus(MAX_LESSON_DURATION).minus(attendanceAfter), to.plus(reminderBefore))) {
+                scheduled += loadTimer(new ReminderKey(Kind.LESSON_REMINDER, lesson.getId()),
+                        lessonReminderAt(lesson.getStartsAt()), catchUp ? lesson.getStartsAt() : null, from, to);
+                LocalDateTime attendanceRequestAt = attendanceRequestAt(lesson.getStartsAt(), lesson.getDurationMinutes());
+                scheduled += loadTimer(new ReminderKey(Kind.ATTENDANCE_REQUEST, lesson.getId()), attendanceRequestAt,
+                        catchUp ? attendanceRequestAt.plus(ATTENDANCE_REQUEST_GRACE) : null, from, to);
+            }
+            Duration groupLead = groupLessonReminderPlanner.getLeadTime();
+            for (LessonStart groupLesson : reminderScheduleRepository.findGroupLessonStarts(
+                    from.plus(groupLead), to.plus(groupLead))) {
+                scheduled += loadTimer(new ReminderKey(Kind.GROUP_LESSON_REMINDER, groupLesson.getId()),
+                        groupLessonReminderAt(groupLesson.getStartsAt()), null, from, to);
+            }
+            loadedUntil = to;
+            logger.info("Loaded " + scheduled + " lesson reminders due until " + to);
+        } catch (RuntimeException e) {
+            // Горизонт не сдвигается, следующая догрузка повторит тот же диапазон
+            logger.log(Level.SEVERE, "Loading lesson reminders from " + from + " to " + to + " failed", e);
+            if (loadedUntil == null) {
+                loadedUntil = from;
+            }
+        }
+    }
+
+    /**
+     * @param sendUntil до какого момента отправляется напоминание, время которого уже прошло, или
+     *                  null, если такие напоминания не отправляются
+     */
+    private int loadTimer(ReminderKey key, LocalDateTime fireAt, LocalDateTime sendUntil,
+                          LocalDateTime from, LocalDateTime to) {
+        if (!fireAt.isAfter(from)) {
+            if (sendUntil != null && from.isBefore(sendUntil)) {
+                fireNow(key, toEpochMs(fireAt));
+            }
+            return 0;
+        }
+        if (fireAt.isAfter(to)) {
+            return 0;
+        }
+        wheel.schedule(key, toEpochMs(fireAt));
+        return 1;
+    }
+
+    /**
+     * Таймеры за пределами загруженного горизонта не ставятся: их поставит следующая догрузка.
+     * Если время напоминания уже прошло (урок создан или подтвержден позже), а sendUntil еще нет,
+     * напоминание отправляется сразу после commit изменения.
+     */
+    private void update(ReminderKey key, LocalDateTime fireAt, LocalDateTime sendUntil) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = loadedUntil;
+        if (fireAt != null && !fireAt.isAfter(now)) {
+            wheel.cancel(key);
+            if (now.isBefore(sendUntil)) {
+                fireAfterCommit(key, toEpochMs(fireAt));
+            }
+        } else if (fireAt == null || until == null || fireAt.isAfter(until)) {
+            wheel.cancel(key);
+        } else {
+            wheel.schedule(key, toEpochMs(fireAt));
+        }
+    }
+
+    // Рабочий поток перечитывает урок, поэтому запускается только после commit изменения
+    private void fireAfterCommit(ReminderKey key, long deadlineMs) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fireNow(key, deadlineMs);
+                }
+            });
+        } else {
+            fireNow(key, deadlineMs);
+        }
+    }
+
+    private void fireNow(ReminderKey key, long deadlineMs) {
+        try {
+            workers.execute(() -> fire(key, deadlineMs));
+        } catch (RejectedExecutionException e) {
+            logger.warning("Reminder " + key + " dropped, the scheduler is stopping");
+        }
+    }
+
+    private void fire(ReminderKey key, long deadlineMs) {
+        try {
+            boolean sent = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                switch (key.kind) {
+                    case LESSON_REMINDER:
+                        return fireLessonReminder(key.entityId, deadlineMs);
+                    case ATTENDANCE_REQUEST:
+                        return fireAttendanceRequest(key.entityId, deadlineMs);
+                    case GROUP_LESSON_REMINDER:
+                        return groupLessonReminderPlanner.planDayBeforeReminders(key.entityId,
+                                toLocalDateTime(deadlineMs).plus(groupLessonReminderPlanner.getLeadTime())) > 0;
+                    default:
+                        return false;
+                }
+            }));
+            if (sent) {
+                firedCounters.get(key.kind).increment();
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Reminder " + key + " failed", e);
+        }
+    }
+
+    private boolean fireLessonReminder(long lessonId, long deadlineMs) {
+        Optional<Lesson> lesson = lessonRepository.findById(lessonId);
+        if (lesson.isEmpty() || !lesson.get().isScheduled()
+                || toEpochMs(lessonReminderAt(startsAt(lesson.get()))) != deadlineMs
+                || !reminderScheduleRepository.claim(Kind.LESSON_REMINDER.name(), lessonId, startsAt(lesson.get()))) {
+            return false;
+        }
+        crmTelegramBot.sendLessonReminder(lesson.get());
+        return true;
+    }
+
+    private boolean fireAttendanceRequest(long lessonId, long deadlineMs) {
+        Optional<Lesson> lesson = lessonRepository.findById(lessonId);
+        if (lesson.isEmpty() || !wantsAttendanceRequest(lesson.get())
+                || lesson.get().getStudent() == null || lesson.get().getStudent().getTelegramChatId() == null) {
+            return false;
+        }
+        int duration = lesson.get().getDurationMinutes() != null ? lesson.get().getDurationMinutes() : 60;
+        if (toEpochMs(attendanceRequestAt(startsAt(lesson.get()), duration)) != deadlineMs
+                || !reminderScheduleRepository.claim(Kind.ATTENDANCE_REQUEST.name(), lessonId, startsAt(lesson.get()))) {
+            return false;
+        }
+        crmTelegramBot.sendAttendanceConfirmationRequest(lesson.get());
+        return true;
+    }
+
+    private static boolean wantsAttendanceRequest(Lesson lesson) {
+        return (lesson.isScheduled() || lesson.isCompleted()) && !Boolean.TRUE.equals(lesson.getAttendanceConfirmed());
+    }
+
+    private static LocalDateTime startsAt(Lesson lesson) {
+        return lesson.getScheduledDate().atTime(lesson.getScheduledTime());
+    }
+
+    private LocalDateTime lessonReminderAt(LocalDateTime startsAt) {
+        return startsAt.minus(properties.getLessonReminderBefore());
+    }
+
+    private LocalDateTime attendanceRequestAt(LocalDateTime startsAt, int durationMinutes) {
+        return startsAt.plusMinutes(durationMinutes).plus(properties.getAttendanceRequestAfterEnd());
+    }
+
+    private LocalDateTime groupLessonReminderAt(LocalDateTime startsAt) {
+        return startsAt.minus(groupLessonReminderPlanner.getLeadTime());
+    }
+
+    private static long toEpochMs(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static final class ReminderKey {
+        private final Kind kind;
+        private final long entityId;
+
+        private ReminderKey(Kind kind, long entityId) {
+            this.kind = kind;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ReminderKey)) {
+                return false;
+            }
+            ReminderKey other = (ReminderKey) o;
+            return kind == other.kind && entityId == other.entityId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, entityId);
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + entityId;
+        }
+    }
+}
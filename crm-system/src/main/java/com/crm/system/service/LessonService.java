@@ -3,11 +3,13 @@ package com.crm.system.service;
 import com.crm.system.model.Lesson;
 import com.crm.system.model.Student;
 import com.crm.system.model.User;
+import com.crm.system.repository.DailyLessonStatsRepository.LessonDay;
 import com.crm.system.repository.LessonRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,17 +23,25 @@ public class LessonService {
     @Autowired
     private LessonRepository lessonRepository;
 
+    @Autowired
+    private LessonReminderScheduler lessonReminderScheduler;
+
+    @Autowired
+    private DailyLessonStatsService dailyLessonStatsService;
+
     public Optional<Lesson> findById(Long id) {
         return lessonRepository.findById(id);
     }
 
+    @Transactional
     public Lesson saveLesson(Lesson lesson) {
-        return lessonRepository.save(lesson);
+        return saveAndCount(lesson);
     }
 
+    @Transactional
     public Lesson createLesson(Student student, User teacher, LocalDate scheduledDate, LocalTime scheduledTime) {
         Lesson lesson = new Lesson(student, teacher, scheduledDate, scheduledTime);
-        return lessonRepository.save(lesson);
+        return saveAndCount(lesson);
     }
 
     public List<Lesson> findByTeacherIdAndDateRange(Long teacherId, LocalDate startDate, LocalDate endDate) {
@@ -86,27 +96,35 @@ public class LessonService {
         return lessonRepository.countScheduledLessonsByStudentId(studentId);
     }
 
+    @Transactional
     public Lesson updateLesson(Lesson lesson) {
-        return lessonRepository.save(lesson);
+        return saveAndCount(lesson);
     }
 
+    @Transactional
     public void deleteLesson(Long id) {
+        LessonDay before = dailyLessonStatsService.lockLessonDay(id);
         lessonRepository.deleteById(id);
+        dailyLessonStatsService.recordChange(before, null);
+        lessonReminderScheduler.lessonRemoved(id);
     }
 
+    @Transactional
     public void completeLesson(Lesson lesson) {
         lesson.completeLesson();
-        lessonRepository.save(lesson);
+        saveAndCount(lesson);
     }
 
+    @Transactional
     public void cancelLesson(Lesson lesson, Lesson.CancelledBy cancelledBy, String reason) {
         lesson.cancelLesson(cancelledBy, reason);
-        lessonRepository.save(lesson);
+        saveAndCount(lesson);
     }
 
+    @Transactional
     public void markAsMissed(Lesson lesson) {
         lesson.markAsMissed();
-        lessonRepository.save(lesson);
+        saveAndCount(lesson);
     }
 
     public boolean isLessonScheduled(Lesson lesson) {
@@ -137,7 +155,7 @@ public class LessonService {
         if (lessonOpt.isPresent()) {
             Lesson lesson = lessonOpt.get();
             lesson.confirmAttendance();
-            lessonRepository.save(lesson);
+            lessonReminderScheduler.lessonChanged(lessonRepository.save(lesson));
             return true;
         }
         return false;
@@ -146,4 +164,13 @@ public class LessonService {
     public Page<Lesson> getAllLessons(Pageable pageable) {
         return lessonRepository.findAll(pageable);
     }
+
+    private Lesson saveAndCount(Lesson lesson) {
+        // Прежний день читается из базы до сохранения: сущность уже изменена вызывающим кодом
+        LessonDay before = dailyLessonStatsService.lockLessonDay(lesson.getId());
+        Lesson saved = lessonRepository.save(lesson);
+        dailyLessonStatsService.recordChange(before, saved);
+        lessonReminderScheduler.lessonChanged(saved);
+        return saved;
+    }
 }
\ No newline at end of file
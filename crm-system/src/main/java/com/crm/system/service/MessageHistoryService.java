@@ -0,0 +1,146 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.HistoryPageDto;
+import com.crm.system.dto.NotificationDto;
+import com.crm.system.dto.TelegramMessageDto;
+import com.crm.system.exception.ValidationException;
+import com.crm.system.model.Notification;
+import com.crm.system.model.TelegramMessage;
+import com.crm.system.repository.MessageHistoryRepository;
+import com.crm.system.repository.MessageHistoryRepository.HistoryKey;
+import com.crm.system.repository.MessageHistoryRepository.NotificationEntry;
+import com.crm.system.repository.MessageHistoryRepository.TelegramMessageEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset-paginated notification and Telegram message history of a recipient, newest first.
+ *
+ * The cursor of a page is "createdAt:id" of its last entry. Unlike the offset endpoints, a page
+ * does not count the whole history: the total is only computed when the client asks for it.
+ */
+@Service
+public class MessageHistoryService {
+
+    public static final int MAX_SIZE = 100;
+
+    @Autowired
+    private MessageHistoryRepository messageHistoryRepository;
+
+    /**
+     * @param statuses only notifications in these statuses, or null or empty for all
+     * @param types only notifications of these types, or null or empty for all
+     */
+    public HistoryPageDto<NotificationDto> getNotificationHistory(
+            Long recipientId, Notification.RecipientType recipientType,
+            List<Notification.NotificationStatus> statuses, List<Notification.NotificationType> types,
+            String cursor, int size, boolean includeTotal) {
+        String[] statusNames = names(statuses);
+        String[] typeNames = names(types);
+        int pageSize = clampSize(size);
+        List<NotificationEntry> entries = messageHistoryRepository.findNotifications(
+                recipientId, recipientType.name(), statusNames, typeNames, parseCursor(cursor), pageSize);
+        Long total = includeTotal
+                ? messageHistoryRepository.countNotifications(recipientId, recipientType.name(), statusNames, typeNames)
+                : null;
+        return toPage(entries, pageSize, total, this::toDto, NotificationEntry::getCreatedAt, NotificationEntry::getId);
+    }
+
+    /**
+     * @param statuses only messages in these delivery statuses, or null or empty for all
+     */
+    public HistoryPageDto<TelegramMessageDto> getTelegramMessageHistory(
+            Long recipientId, TelegramMessage.RecipientType recipientType,
+            List<TelegramMessage.DeliveryStatus> statuses, String cursor, int size, boolean includeTotal) {
+        String[] statusNames = names(statuses);
+        int pageSize = clampSize(size);
+        List<TelegramMessageEntry> entries = messageHistoryRepository.findTelegramMessages(
+                recipientId, recipientType.name(), statusNames, parseCursor(cursor), pageSize);
+        Long total = includeTotal
+                ? messageHistoryRepository.countTelegramMessages(recipientId, recipientType.name(), statusNames)
+                : null;
+        return toPage(entries, pageSize, total, this::toDto, TelegramMessageEntry::getCreatedAt,
+                TelegramMessageEntry::getId);
+    }
+
+    private <E, D> HistoryPageDto<D> toPage(List<E> entries, int pageSize, Long total, Function<E, D> toDto,
+                                            Function<E, LocalDateTime> createdAt, Function<E, Long> id) {
+        List<D> items = entries.stream().map(toDto).collect(Collectors.toList());
+        String nextCursor = null;
+        if (entries.size() == pageSize) {
+            E last = entries.get(entries.size() - 1);
+            nextCursor = createdAt.apply(last) + ":" + id.apply(last);
+        }
+        return new HistoryPageDto<>(items, nextCursor, total);
+    }
+
+    private NotificationDto toDto(NotificationEntry entry) {
+        NotificationDto dto = new NotificationDto();
+        dto.setId(entry.getId());
+        dto.setRecipientId(entry.getRecipientId());
+        dto.setRecipientType(Notification.RecipientType.valueOf(entry.getRecipientType()));
+        dto.setNotificationType(Notification.NotificationType.valueOf(entry.getNotificationType()));
+        dto.setTitle(entry.getTitle());
+        dto.setMessage(entry.getMessage());
+        dto.setStatus(entry.getStatus() != null ? Notification.NotificationStatus.valueOf(entry.getStatus()) : null);
+        dto.setSentAt(entry.getSentAt());
+        dto.setReadAt(entry.getReadAt());
+        dto.setCreatedAt(entry.getCreatedAt() != null ? entry.getCreatedAt().toString() : null);
+        dto.setUpdatedAt(entry.getUpdatedAt() != null ? entry.getUpdatedAt().toString() : null);
+        return dto;
+    }
+
+    private TelegramMessageDto toDto(TelegramMessageEntry entry) {
+        TelegramMessageDto dto = new TelegramMessageDto();
+        dto.setId(entry.getId());
+        dto.setChatId(entry.getChatId());
+        dto.setMessageId(entry.getMessageId());
+        dto.setRecipientId(entry.getRecipientId());
+        dto.setRecipientType(TelegramMessage.RecipientType.valueOf(entry.getRecipientType()));
+        dto.setMessageText(entry.getMessageText());
+        dto.setMessageType(entry.getMessageType() != null ? TelegramMessage.MessageType.valueOf(entry.getMessageType()) : null);
+        dto.setDeliveryStatus(entry.getDeliveryStatus() != null
+                ? TelegramMessage.DeliveryStatus.valueOf(entry.getDeliveryStatus()) : null);
+        dto.setSentAt(entry.getSentAt());
+        dto.setDeliveredAt(entry.getDeliveredAt());
+        dto.setReadAt(entry.getReadAt());
+        dto.setErrorMessage(entry.getErrorMessage());
+        dto.setRetryCount(entry.getRetryCount());
+        dto.setRelatedEntityId(entry.getRelatedEntityId());
+        dto.setRelatedEntityType(entry.getRelatedEntityType());
+        dto.setCreatedAt(entry.getCreatedAt() != null ? entry.getCreatedAt().toString() : null);
+        dto.setUpdatedAt(entry.getUpdatedAt() != null ? entry.getUpdatedAt().toString() : null);
+        return dto;
+    }
+
+    private String[] names(List<? extends Enum<?>> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.stream().map(Enum::name).toArray(String[]::new);
+    }
+
+    private int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    // createdAt is an ISO date-time and contains ':' itself, the id follows the last one
+    private HistoryKey parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.lastIndexOf(':');
+        try {
+            LocalDateTime createdAt = LocalDateTime.parse(cursor.substring(0, separator));
+            long id = Long.parseLong(cursor.substring(separator + 1));
+            return new HistoryKey(createdAt, id);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid history cursor: " + cursor);
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -45,16 +44,4 @@ public class MessageRetryService {
             }
         }
     }
-
-    /**
-     * Ежедневная очистка старых неудачных сообщений
-     */
-    @Scheduled(cron = "0 0 2 * * *") // Каждый день в 02:00
-    public void cleanupOldFailedMessages() {
-        LocalDateTime weekAgo = LocalDateTime.now().minusDays(7);
-        List<TelegramMessage> oldFailedMessages = telegramMessageRepository.findByDeliveryStatusAndCreatedAtBefore(
-            TelegramMessage.DeliveryStatus.FAILED, weekAgo);
-        
-        telegramMessageRepository.deleteAll(oldFailedMessages);
-    }
 }
\ No newline at end of file
@@ -1,36 +1,74 @@
 package com.crm.system.service;
 
+import com.crm.system.dto.BroadcastProgressDto;
+import com.crm.system.exception.NotFoundException;
 import com.crm.system.model.Notification;
 import com.crm.system.model.Notification.RecipientType;
 import com.crm.system.model.Notification.NotificationType;
 import com.crm.system.model.Notification.NotificationStatus;
-import com.crm.system.model.User;
-import com.crm.system.model.Student;
+import com.crm.system.model.UserRole;
+import com.crm.system.repository.BroadcastRecipientRepository;
+import com.crm.system.repository.BroadcastRecipientRepository.Recipient;
 import com.crm.system.repository.NotificationRepository;
-import com.crm.system.repository.UserRepository;
-import com.crm.system.repository.StudentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Широковещательные уведомления.
+ *
+ * Получатели выбираются SQL-запросом по критериям фильтрации и читаются порциями по id
+ * (keyset pagination). Каждая порция сохраняется пакетной вставкой в отдельной транзакции и
+ * сразу отправляется, поэтому расход памяти не зависит от числа получателей. Рассылка
+ * выполняется в фоне: методы broadcast* сразу возвращают ее идентификатор, ход рассылки
+ * доступен через {@link #getBroadcastProgress(String)}.
+ */
 @Service
 public class NotificationBroadcastService {
 
     private static final Logger logger = Logger.getLogger(NotificationBroadcastService.class.getName());
 
+    private static final int HIGH_PRIORITY = 1;
+    private static final long FINISHED_BROADCAST_RETENTION_HOURS = 24;
+
+    public enum BroadcastStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
     @Autowired
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private BroadcastRecipientRepository broadcastRecipientRepository;
 
     @Autowired
-    private StudentRepository studentRepository;
+    private NotificationPushService notificationPushService;
 
     @Autowired
     private NotificationService notificationService;
@@ -38,233 +76,282 @@ public class NotificationBroadcastService {
     @Autowired
     private EmailService emailService;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${notifications.broadcast.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${notifications.broadcast.worker-threads:2}")
+    private int workerThreads;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, BroadcastJob> broadcasts = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    public NotificationBroadcastService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * Создает и отправляет широковещательное уведомление всем пользователям определенного типа
      */
-    public CompletableFuture<List<Notification>> broadcastToRecipientType(
+    public BroadcastProgressDto broadcastToRecipientType(
             RecipientType recipientType, NotificationType notificationType, 
             String title, String message) {
         
         logger.info("Broadcasting notification to all " + recipientType + " recipients");
         
-        // Создаем уведомления для всех получателей указанного типа
-        List<Notification> notifications = createNotificationsForRecipientType(
-                recipientType, notificationType, title, message);
-        
-        // Сохраняем все уведомления
-        List<Notification> savedNotifications = notificationRepository.saveAll(notifications);
-        
-        // Отправляем уведомления асинхронно
-        sendNotificationsAsync(savedNotifications);
-        
-        return CompletableFuture.completedFuture(savedNotifications);
+        return startBroadcast(recipientType, notificationType, title, message, 0, true,
+                (afterId, limit) -> findRecipients(recipientType, null, afterId, limit));
     }
 
     /**
      * Создает и отправляет широковещательное уведомление фильтрованному списку пользователей
      */
-    public CompletableFuture<List<Notification>> broadcastToFilteredRecipients(
+    public BroadcastProgressDto broadcastToFilteredRecipients(
             List<Long> recipientIds, RecipientType recipientType, 
             NotificationType notificationType, String title, String message) {
         
         logger.info("Broadcasting notification to " + recipientIds.size() + " filtered recipients");
         
-        // Создаем уведомления для отфильтрованных получателей
-        List<Notification> notifications = createNotificationsForFilteredRecipients(
-                recipientIds, recipientType, notificationType, title, message);
-        
-        // Сохраняем все уведомления
-        List<Notification> savedNotifications = notificationRepository.saveAll(notifications);
+        long[] sortedIds = recipientIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return startBroadcast(recipientType, notificationType, title, message, 0, true,
+                (afterId, limit) -> findRecipientsByIds(recipientType, sortedIds, afterId, limit));
+    }
+
+    /**
+     * Отправляет широковещательное уведомление с приоритетом
+     */
+    public BroadcastProgressDto broadcastWithPriority(
+            RecipientType recipientType, NotificationType notificationType, 
+            String title, String message, boolean highPriority) {
         
-        // Отправляем уведомления асинхронно
-        sendNotificationsAsync(savedNotifications);
+        logger.info("Broadcasting " + (highPriority ? "high priority" : "normal priority") + 
+                   " notification to all " + recipientType + " recipients");
         
-        return CompletableFuture.completedFuture(savedNotifications);
+        return startBroadcast(recipientType, notificationType, title, message, highPriority ? HIGH_PRIORITY : 0, true,
+                (afterId, limit) -> findRecipients(recipientType, null, afterId, limit));
     }
 
     /**
-     * Создает уведомления для всех получателей указанного типа
+     * Отправляет широковещательное уведомление с отложенной доставкой
      */
-    private List<Notification> createNotificationsForRecipientType(
+    public BroadcastProgressDto broadcastScheduled(
             RecipientType recipientType, NotificationType notificationType, 
-            String title, String message) {
+            String title, String message, LocalDateTime scheduledTime) {
         
-        switch (recipientType) {
-            case STUDENT:
-                List<Student> students = studentRepository.findAll();
-                return students.stream()
-                    .map(student -> new Notification(student.getId(), recipientType, notificationType, title, message))
-                    .collect(Collectors.toList());
-                    
-            case TEACHER:
-                List<User> teachers = userRepository.findByRole(com.crm.system.model.UserRole.TEACHER);
-                return teachers.stream()
-                    .map(teacher -> new Notification(teacher.getId(), recipientType, notificationType, title, message))
-                    .collect(Collectors.toList());
-                    
-            case MANAGER:
-                List<User> managers = userRepository.findByRole(com.crm.system.model.UserRole.MANAGER);
-                return managers.stream()
-                    .map(manager -> new Notification(manager.getId(), recipientType, notificationType, title, message))
-                    .collect(Collectors.toList());
-                    
-            case ADMIN:
-                List<User> admins = userRepository.findByRole(com.crm.system.model.UserRole.ADMIN);
-                return admins.stream()
-                    .map(admin -> new Notification(admin.getId(), recipientType, notificationType, title, message))
-                    .collect(Collectors.toList());
-                    
-            default:
-                return List.of();
-        }
+        logger.info("Scheduling broadcast notification for " + scheduledTime + 
+                   " to all " + recipientType + " recipients");
+        
+        // Уведомления только сохраняются; в реальной реализации их отправку
+        // запланирует планировщик задач Spring @Scheduled или Quartz
+        return startBroadcast(recipientType, notificationType, title, message, 0, false,
+                (afterId, limit) -> findRecipients(recipientType, null, afterId, limit));
     }
 
     /**
-     * Создает уведомления для отфильтрованных получателей
+     * Отправляет широковещательное уведомление с фильтрацией получателей
      */
-    private List<Notification> createNotificationsForFilteredRecipients(
-            List<Long> recipientIds, RecipientType recipientType, 
-            NotificationType notificationType, String title, String message) {
+    public BroadcastProgressDto broadcastWithFilters(
+            RecipientType recipientType, NotificationType notificationType, 
+            String title, String message, BaseFilterCriteria filterCriteria) {
         
-        return recipientIds.stream()
-            .map(id -> new Notification(id, recipientType, notificationType, title, message))
-            .collect(Collectors.toList());
+        logger.info("Broadcasting notification with filters to " + recipientType + " recipients");
+        
+        return startBroadcast(recipientType, notificationType, title, message, 0, true,
+                (afterId, limit) -> findRecipients(recipientType, filterCriteria, afterId, limit));
     }
 
     /**
-     * Асинхронно отправляет уведомления
+     * Возвращает ход рассылки по ее идентификатору
      */
-    private void sendNotificationsAsync(List<Notification> notifications) {
-        for (Notification notification : notifications) {
-            // Отправляем email уведомление
-            sendEmailNotificationAsync(notification);
-            
-            // Отправляем push-уведомление (в реальной реализации)
-            sendPushNotificationAsync(notification);
+    public BroadcastProgressDto getBroadcastProgress(String broadcastId) {
+        BroadcastJob job = broadcasts.get(broadcastId);
+        if (job == null) {
+            throw new NotFoundException("Broadcast not found with id: " + broadcastId);
         }
+        return job.toDto();
     }
 
-    /**
-     * Асинхронно отправляет email уведомление
-     */
-    private void sendEmailNotificationAsync(Notification notification) {
-        String recipientEmail = getRecipientEmail(notification.getRecipientId(), notification.getRecipientType());
-        
-        if (recipientEmail != null && !recipientEmail.isEmpty()) {
-            emailService.sendNotificationEmail(notification);
+    public List<BroadcastProgressDto> getBroadcasts() {
+        return broadcasts.values().stream()
+                .sorted(Comparator.comparing((BroadcastJob job) -> job.createdAt).reversed())
+                .map(BroadcastJob::toDto)
+                .collect(Collectors.toList());
+    }
+
+    private BroadcastProgressDto startBroadcast(
+            RecipientType recipientType, NotificationType notificationType, String title, String message,
+            int priority, boolean send, RecipientPager pager) {
+        purgeFinishedBroadcasts();
+        BroadcastJob job = new BroadcastJob(UUID.randomUUID().toString(), recipientType, notificationType);
+        broadcasts.put(job.id, job);
+        executor.execute(() -> runBroadcast(job, title, message, priority, send, pager));
+        return job.toDto();
+    }
+
+    private void runBroadcast(BroadcastJob job, String title, String message,
+                              int priority, boolean send, RecipientPager pager) {
+        job.status = BroadcastStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        try {
+            long afterId = 0;
+            List<Recipient> page;
+            do {
+                page = pager.next(afterId, chunkSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Recipient> chunk = page;
+                // Письма попадают в outbox в той же транзакции, что и уведомления порции
+                List<Notification> created = transactionTemplate.execute(status -> {
+                    List<Notification> inserted = insertNotifications(chunk, job.recipientType,
+                            job.notificationType, title, message, priority);
+                    if (send) {
+                        job.emailsQueued += sendNotificationsAsync(inserted, chunk);
+                    }
+                    return inserted;
+                });
+                job.notificationsCreated += created.size();
+                job.chunksProcessed++;
+                afterId = page.get(page.size() - 1).getId();
+            } while (page.size() == chunkSize);
+
+            job.status = BroadcastStatus.COMPLETED;
+            logger.info("Broadcast " + job.id + " completed: " + job.notificationsCreated + " notifications created");
+        } catch (RuntimeException e) {
+            job.status = BroadcastStatus.FAILED;
+            job.errorMessage = e.getMessage();
+            logger.log(Level.SEVERE, "Broadcast " + job.id + " failed after " + job.notificationsCreated +
+                    " notifications", e);
+        } finally {
+            job.completedAt = LocalDateTime.now();
         }
     }
 
     /**
-     * Асинхронно отправляет push-уведомление
+     * Сохраняет уведомления порции. Вставки группируются Hibernate в JDBC-пакеты
+     * (hibernate.jdbc.batch_size), после flush контекст очищается, чтобы не накапливать сущности
      */
-    private void sendPushNotificationAsync(Notification notification) {
-        // В реальной реализации здесь будет отправка push-уведомления
-        // через Firebase Cloud Messaging, Apple Push Notification Service и т.д.
-        logger.info("Sending push notification to recipient ID: " + notification.getRecipientId());
+    private List<Notification> insertNotifications(List<Recipient> recipients, RecipientType recipientType,
+                                                   NotificationType notificationType, String title, String message,
+                                                   int priority) {
+        List<Notification> notifications = new ArrayList<>(recipients.size());
+        for (Recipient recipient : recipients) {
+            Notification notification = new Notification(recipient.getId(), recipientType, notificationType, title, message);
+            notification.setPriority(priority);
+            entityManager.persist(notification);
+            notifications.add(notification);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        notificationPushService.notificationsCreated(notifications);
+        return notifications;
     }
 
-    /**
-     * Получает email адрес получателя по ID и типу
-     */
-    private String getRecipientEmail(Long recipientId, RecipientType recipientType) {
-        switch (recipientType) {
-            case STUDENT:
-                return studentRepository.findById(recipientId)
-                    .map(Student::getEmail)
-                    .orElse(null);
-            case TEACHER:
-            case MANAGER:
-            case ADMIN:
-                return userRepository.findById(recipientId)
-                    .map(User::getEmail)
-                    .orElse(null);
-            default:
-                return null;
+    private List<Recipient> findRecipients(RecipientType recipientType, BaseFilterCriteria filterCriteria,
+                                           long afterId, int limit) {
+        if (recipientType == RecipientType.STUDENT) {
+            StudentFilterCriteria studentCriteria = filterCriteria instanceof StudentFilterCriteria
+                    ? (StudentFilterCriteria) filterCriteria : null;
+            if (filterCriteria != null && studentCriteria == null) {
+                return List.of();
+            }
+            return broadcastRecipientRepository.findStudents(studentCriteria, afterId, limit);
+        }
+        if (filterCriteria != null && !matchesRecipientType(recipientType, filterCriteria)) {
+            return List.of();
         }
+        return broadcastRecipientRepository.findUsers(UserRole.valueOf(recipientType.name()), filterCriteria, afterId, limit);
     }
 
-    /**
-     * Получает имя получателя по ID и типу
-     */
-    private String getRecipientName(Long recipientId, RecipientType recipientType) {
+    // Критерии должны соответствовать типу получателя, иначе рассылка пустая
+    private boolean matchesRecipientType(RecipientType recipientType, BaseFilterCriteria filterCriteria) {
         switch (recipientType) {
-            case STUDENT:
-                return studentRepository.findById(recipientId)
-                    .map(student -> student.getFirstName() + " " + student.getLastName())
-                    .orElse("Student");
             case TEACHER:
+                return filterCriteria instanceof TeacherFilterCriteria;
             case MANAGER:
+                return filterCriteria instanceof ManagerFilterCriteria;
             case ADMIN:
-                return userRepository.findById(recipientId)
-                    .map(user -> user.getFirstName() + " " + user.getLastName())
-                    .orElse("User");
+                return filterCriteria instanceof AdminFilterCriteria;
             default:
-                return "User";
+                return false;
         }
     }
 
     /**
-     * Отправляет широковещательное уведомление с приоритетом
+     * Возвращает следующую порцию из явно заданного списка id. Уведомление создается для каждого id,
+     * адрес email подставляется, если получатель найден
      */
-    public CompletableFuture<List<Notification>> broadcastWithPriority(
-            RecipientType recipientType, NotificationType notificationType, 
-            String title, String message, boolean highPriority) {
-        
-        logger.info("Broadcasting " + (highPriority ? "high priority" : "normal priority") + 
-                   " notification to all " + recipientType + " recipients");
-        
-        // Создаем уведомления для всех получателей указанного типа
-        List<Notification> notifications = createNotificationsForRecipientType(
-                recipientType, notificationType, title, message);
-        
-        // Если это высокоприоритетное уведомление, устанавливаем соответствующий флаг
-        if (highPriority) {
-            notifications.forEach(notification -> {
-                // В реальной реализации здесь можно установить специальный флаг приоритета
-                // или использовать отдельную таблицу для высокоприоритетных уведомлений
-                logger.info("High priority notification created for recipient ID: " + notification.getRecipientId());
-            });
+    private List<Recipient> findRecipientsByIds(RecipientType recipientType, long[] sortedIds, long afterId, int limit) {
+        int from = Arrays.binarySearch(sortedIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        if (from >= sortedIds.length) {
+            return List.of();
         }
-        
-        // Сохраняем все уведомления
-        List<Notification> savedNotifications = notificationRepository.saveAll(notifications);
-        
-        // Отправляем уведомления асинхронно
-        sendNotificationsAsync(savedNotifications);
-        
-        return CompletableFuture.completedFuture(savedNotifications);
+        int to = Math.min(sortedIds.length, from + limit);
+        Long[] ids = new Long[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = sortedIds[i];
+        }
+
+        List<Recipient> found = recipientType == RecipientType.STUDENT
+                ? broadcastRecipientRepository.findStudentsByIds(ids)
+                : broadcastRecipientRepository.findUsersByIds(ids);
+        Map<Long, String> emails = new HashMap<>();
+        for (Recipient recipient : found) {
+            emails.put(recipient.getId(), recipient.getEmail());
+        }
+        List<Recipient> recipients = new ArrayList<>(ids.length);
+        for (Long id : ids) {
+            recipients.add(new Recipient(id, emails.get(id)));
+        }
+        return recipients;
     }
 
     /**
-     * Отправляет широковещательное уведомление с отложенной доставкой
+     * Ставит email уведомлений порции в outbox одной многострочной вставкой; recipients идут
+     * в том же порядке, что и notifications. Получатели без email остаются без письма
+     *
+     * @return количество поставленных в очередь email
      */
-    public CompletableFuture<List<Notification>> broadcastScheduled(
-            RecipientType recipientType, NotificationType notificationType, 
-            String title, String message, LocalDateTime scheduledTime) {
-        
-        logger.info("Scheduling broadcast notification for " + scheduledTime + 
-                   " to all " + recipientType + " recipients");
-        
-        // Создаем уведомления для всех получателей указанного типа
-        List<Notification> notifications = createNotificationsForRecipientType(
-                recipientType, notificationType, title, message);
-        
-        // Устанавливаем запланированное время доставки
-        notifications.forEach(notification -> {
-            // В реальной реализации здесь будет установлено запланированное время
-            // и уведомления будут отправляться планировщиком задач
-            logger.info("Scheduled notification created for recipient ID: " + notification.getRecipientId() + 
-                       " at " + scheduledTime);
-        });
-        
-        // Сохраняем все уведомления
-        List<Notification> savedNotifications = notificationRepository.saveAll(notifications);
-        
-        // В реальной реализации здесь будет запланирована отправка уведомлений
-        // через планировщик задач Spring @Scheduled или Quartz
-        
-        return CompletableFuture.completedFuture(savedNotifications);
+    private int sendNotificationsAsync(List<Notification> notifications, List<Recipient> recipients) {
+        List<Notification> withEmail = new ArrayList<>(notifications.size());
+        List<String> emails = new ArrayList<>(notifications.size());
+        for (int i = 0; i < notifications.size(); i++) {
+            String recipientEmail = recipients.get(i).getEmail();
+            if (recipientEmail != null && !recipientEmail.isEmpty()) {
+                withEmail.add(notifications.get(i));
+                emails.add(recipientEmail);
+            }
+        }
+        // В реальной реализации здесь будет отправка push-уведомлений
+        // через Firebase Cloud Messaging, Apple Push Notification Service и т.д.
+        logger.fine("Sending push notifications to " + notifications.size() + " recipients");
+        return emailService.enqueueBroadcastEmails(withEmail, emails);
+    }
+
+    private void purgeFinishedBroadcasts() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_BROADCAST_RETENTION_HOURS);
+        broadcasts.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
     }
 
     /**
@@ -303,6 +390,7 @@ public class NotificationBroadcastService {
         for (Notification notification : scheduledNotifications) {
             notification.markAsFailed();
             notificationRepository.save(notification);
+            notificationPushService.notificationStatusChanged(notification, true);
             logger.info("Cancelled scheduled notification ID: " + notification.getId());
         }
     }
@@ -325,11 +413,12 @@ public class NotificationBroadcastService {
                 // Сбрасываем статус уведомления
                 notification.resetStatus();
                 
-                // Повторно отправляем уведомление
-                sendNotificationsAsync(List.of(notification));
+                // Повторно отправляем уведомление; без адреса получателя оно снова помечается неудавшимся
+                emailService.sendNotificationEmail(notification);
                 
                 // Обновляем уведомление в базе данных
                 notificationRepository.save(notification);
+                notificationPushService.notificationStatusChanged(notification, false);
                 
                 resentCount++;
                 logger.info("Resent notification ID: " + notification.getId());
@@ -345,221 +434,93 @@ public class NotificationBroadcastService {
     // Методы фильтрации получателей
 
     /**
-     * Получает список всех студентов с фильтрацией по критериям
+     * Получает список студентов, подходящих под критерии
      */
     public List<Long> getFilteredStudentIds(StudentFilterCriteria filterCriteria) {
-        List<Student> students = studentRepository.findAll();
-        
-        return students.stream()
-            .filter(student -> filterByCriteria(student, filterCriteria))
-            .map(Student::getId)
-            .collect(Collectors.toList());
+        return collectIds((afterId, limit) -> broadcastRecipientRepository.findStudents(filterCriteria, afterId, limit));
     }
 
     /**
-     * Получает список всех преподавателей с фильтрацией по критериям
+     * Получает список преподавателей, подходящих под критерии
      */
     public List<Long> getFilteredTeacherIds(TeacherFilterCriteria filterCriteria) {
-        List<User> teachers = userRepository.findByRole(com.crm.system.model.UserRole.TEACHER);
-        
-        return teachers.stream()
-            .filter(teacher -> filterByCriteria(teacher, filterCriteria))
-            .map(User::getId)
-            .collect(Collectors.toList());
+        return collectIds((afterId, limit) -> broadcastRecipientRepository.findUsers(UserRole.TEACHER, filterCriteria, afterId, limit));
     }
 
     /**
-     * Получает список всех менеджеров с фильтрацией по критериям
+     * Получает список менеджеров, подходящих под критерии
      */
     public List<Long> getFilteredManagerIds(ManagerFilterCriteria filterCriteria) {
-        List<User> managers = userRepository.findByRole(com.crm.system.model.UserRole.MANAGER);
-        
-        return managers.stream()
-            .filter(manager -> filterByCriteria(manager, filterCriteria))
-            .map(User::getId)
-            .collect(Collectors.toList());
+        return collectIds((afterId, limit) -> broadcastRecipientRepository.findUsers(UserRole.MANAGER, filterCriteria, afterId, limit));
     }
 
     /**
-     * Получает список всех администраторов с фильтрацией по критериям
+     * Получает список администраторов, подходящих под критерии
      */
     public List<Long> getFilteredAdminIds(AdminFilterCriteria filterCriteria) {
-        List<User> admins = userRepository.findByRole(com.crm.system.model.UserRole.ADMIN);
-        
-        return admins.stream()
-            .filter(admin -> filterByCriteria(admin, filterCriteria))
-            .map(User::getId)
-            .collect(Collectors.toList());
+        return collectIds((afterId, limit) -> broadcastRecipientRepository.findUsers(UserRole.ADMIN, filterCriteria, afterId, limit));
     }
 
-    /**
-     * Фильтрует студентов по критериям
-     */
-    private boolean filterByCriteria(Student student, StudentFilterCriteria filterCriteria) {
-        // Фильтрация по наличию назначенного преподавателя
-        if (filterCriteria.getHasAssignedTeacher() != null) {
-            boolean hasAssignedTeacher = student.getAssignedTeacher() != null;
-            if (filterCriteria.getHasAssignedTeacher() != hasAssignedTeacher) {
-                return false;
-            }
-        }
-        
-        // Фильтрация по количеству оставшихся уроков
-        if (filterCriteria.getMinRemainingLessons() != null || filterCriteria.getMaxRemainingLessons() != null) {
-            // В реальной реализации здесь нужно получить информацию о пакетах уроков студента
-            // и сравнить с критериями фильтрации
-        }
-        
-        // Фильтрация по дате регистрации
-        if (filterCriteria.getRegisteredAfter() != null) {
-            if (student.getCreatedAt() == null || student.getCreatedAt().isBefore(filterCriteria.getRegisteredAfter())) {
-                return false;
+    private List<Long> collectIds(RecipientPager pager) {
+        List<Long> ids = new ArrayList<>();
+        long afterId = 0;
+        List<Recipient> page;
+        do {
+            page = pager.next(afterId, chunkSize);
+            for (Recipient recipient : page) {
+                ids.add(recipient.getId());
             }
-        }
-        
-        if (filterCriteria.getRegisteredBefore() != null) {
-            if (student.getCreatedAt() == null || student.getCreatedAt().isAfter(filterCriteria.getRegisteredBefore())) {
-                return false;
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
             }
-        }
-        
-        // Фильтрация по активности
-        if (filterCriteria.getActiveOnly() != null && filterCriteria.getActiveOnly()) {
-            // В реальной реализации здесь нужно проверить активность студента
-            // (например, наличие недавних уроков или взаимодействий)
-        }
-        
-        return true;
+        } while (page.size() == chunkSize);
+        return ids;
     }
 
     /**
-     * Фильтрует преподавателей по критериям
+     * Источник получателей: следующая порция после afterId размером не больше limit
      */
-    private boolean filterByCriteria(User teacher, TeacherFilterCriteria filterCriteria) {
-        // Фильтрация по активности
-        if (filterCriteria.getActiveOnly() != null) {
-            if (filterCriteria.getActiveOnly() != teacher.getIsActive()) {
-                return false;
-            }
-        }
-        
-        // Фильтрация по дате регистрации
-        if (filterCriteria.getRegisteredAfter() != null) {
-            if (teacher.getCreatedAt() == null || teacher.getCreatedAt().isBefore(filterCriteria.getRegisteredAfter())) {
-                return false;
-            }
-        }
-        
-        if (filterCriteria.getRegisteredBefore() != null) {
-            if (teacher.getCreatedAt() == null || teacher.getCreatedAt().isAfter(filterCriteria.getRegisteredBefore())) {
-                return false;
-            }
-        }
-        
-        // Фильтрация по наличию назначенных студентов
-        if (filterCriteria.getHasAssignedStudents() != null) {
-            // В реальной реализации здесь нужно проверить, есть ли у преподавателя назначенные студенты
-        }
-        
-        return true;
+    @FunctionalInterface
+    private interface RecipientPager {
+        List<Recipient> next(long afterId, int limit);
     }
 
-    /**
-     * Фильтрует менеджеров по критериям
-     */
-    private boolean filterByCriteria(User manager, ManagerFilterCriteria filterCriteria) {
-        // Фильтрация по активности
-        if (filterCriteria.getActiveOnly() != null) {
-            if (filterCriteria.getActiveOnly() != manager.getIsActive()) {
-                return false;
-            }
+    private static final class BroadcastJob {
+        private final String id;
+        private final RecipientType recipientType;
+        private final NotificationType notificationType;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        // Пишет только поток рассылки, читают запросы хода рассылки
+        private volatile BroadcastStatus status = BroadcastStatus.QUEUED;
+        private volatile long notificationsCreated;
+        private volatile long emailsQueued;
+        private volatile int chunksProcessed;
+        private volatile String errorMessage;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+
+        private BroadcastJob(String id, RecipientType recipientType, NotificationType notificationType) {
+            this.id = id;
+            this.recipientType = recipientType;
+            this.notificationType = notificationType;
         }
-        
-        // Фильтрация по дате регистрации
-        if (filterCriteria.getRegisteredAfter() != null) {
-            if (manager.getCreatedAt() == null || manager.getCreatedAt().isBefore(filterCriteria.getRegisteredAfter())) {
-                return false;
-            }
-        }
-        
-        if (filterCriteria.getRegisteredBefore() != null) {
-            if (manager.getCreatedAt() == null || manager.getCreatedAt().isAfter(filterCriteria.getRegisteredBefore())) {
-                return false;
-            }
-        }
-        
-        return true;
-    }
 
-    /**
-     * Фильтрует администраторов по критериям
-     */
-    private boolean filterByCriteria(User admin, AdminFilterCriteria filterCriteria) {
-        // Фильтрация по активности
-        if (filterCriteria.getActiveOnly() != null) {
-            if (filterCriteria.getActiveOnly() != admin.getIsActive()) {
-                return false;
-            }
-        }
-        
-        // Фильтрация по дате регистрации
-        if (filterCriteria.getRegisteredAfter() != null) {
-            if (admin.getCreatedAt() == null || admin.getCreatedAt().isBefore(filterCriteria.getRegisteredAfter())) {
-                return false;
-            }
-        }
-        
-        if (filterCriteria.getRegisteredBefore() != null) {
-            if (admin.getCreatedAt() == null || admin.getCreatedAt().isAfter(filterCriteria.getRegisteredBefore())) {
-                return false;
-            }
+        private BroadcastProgressDto toDto() {
+            BroadcastProgressDto dto = new BroadcastProgressDto();
+            dto.setId(id);
+            dto.setRecipientType(recipientType.name());
+            dto.setNotificationType(notificationType.name());
+            dto.setStatus(status.name());
+            dto.setNotificationsCreated(notificationsCreated);
+            dto.setEmailsQueued(emailsQueued);
+            dto.setChunksProcessed(chunksProcessed);
+            dto.setErrorMessage(errorMessage);
+            dto.setCreatedAt(createdAt);
+            dto.setStartedAt(startedAt);
+            dto.setCompletedAt(completedAt);
+            return dto;
         }
-        
-        return true;
-    }
-
-    /**
-     * Отправляет широковещательное уведомление с фильтрацией получателей
-     */
-    public CompletableFuture<List<Notification>> broadcastWithFilters(
-            RecipientType recipientType, NotificationType notificationType, 
-            String title, String message, BaseFilterCriteria filterCriteria) {
-        
-        logger.info("Broadcasting notification with filters to " + recipientType + " recipients");
-        
-        List<Long> filteredRecipientIds = getFilteredRecipientIds(recipientType, filterCriteria);
-        
-        return broadcastToFilteredRecipients(filteredRecipientIds, recipientType, notificationType, title, message);
-    }
-
-    /**
-     * Получает отфильтрованные ID получателей по типу и критериям
-     */
-    private List<Long> getFilteredRecipientIds(RecipientType recipientType, BaseFilterCriteria filterCriteria) {
-        switch (recipientType) {
-            case STUDENT:
-                if (filterCriteria instanceof StudentFilterCriteria) {
-                    return getFilteredStudentIds((StudentFilterCriteria) filterCriteria);
-                }
-                break;
-            case TEACHER:
-                if (filterCriteria instanceof TeacherFilterCriteria) {
-                    return getFilteredTeacherIds((TeacherFilterCriteria) filterCriteria);
-                }
-                break;
-            case MANAGER:
-                if (filterCriteria instanceof ManagerFilterCriteria) {
-                    return getFilteredManagerIds((ManagerFilterCriteria) filterCriteria);
-                }
-                break;
-            case ADMIN:
-                if (filterCriteria instanceof AdminFilterCriteria) {
-                    return getFilteredAdminIds((AdminFilterCriteria) filterCriteria);
-                }
-                break;
-        }
-        
-        return List.of();
     }
 
     /**
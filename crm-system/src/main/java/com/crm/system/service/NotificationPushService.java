@@ -0,0 +1,372 @@
+package com.crm.system.service;
+
+import com.crm.system.config.NotificationPushProperties;
+import com.crm.system.model.Notification;
+import com.crm.system.model.TelegramMessage;
+import com.crm.system.repository.UnreadCountRepository;
+import com.crm.system.repository.UnreadCountRepository.UnreadCount;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes unread counts and new notifications to recipients over server-sent events.
+ *
+ * Counts are held in memory only for recipients with an open stream: they are loaded when the
+ * first stream of a recipient opens and then follow the changes reported by the notification and
+ * Telegram services after commit. Changes made around the services (bulk SQL of the delivery
+ * queues) are picked up by a periodic recount of all connected recipients in one statement per table.
+ *
+ * Streams and counts are only touched by the single "notification-push" thread, which also writes
+ * the events, so a slow client never blocks the transaction that reported a change.
+ */
+@Service
+public class NotificationPushService {
+
+    private static final Logger logger = Logger.getLogger(NotificationPushService.class.getName());
+
+    private static final String UNREAD_COUNT_EVENT = "unread-count";
+    private static final String NOTIFICATION_EVENT = "notification";
+
+    @Autowired
+    private NotificationPushProperties properties;
+
+    @Autowired
+    private UnreadCountRepository unreadCountRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Read by the reporting threads to skip recipients without streams, written by the push thread only
+    private final Map<String, Recipient> recipients = new ConcurrentHashMap<>();
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    private ScheduledExecutorService pusher;
+
+    @PostConstruct
+    public void start() {
+        pusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMs = properties.getHeartbeatInterval().toMillis();
+        long resyncMs = properties.getResyncInterval().toMillis();
+        pusher.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        pusher.scheduleWithFixedDelay(this::resyncQuietly, resyncMs, resyncMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("notifications.push.streams", openStreams, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pusher.shutdownNow();
+        for (Recipient recipient : recipients.values()) {
+            for (SseEmitter emitter : recipient.emitters) {
+                emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Opens a stream for the recipient. The current unread counts are the first event.
+     */
+    public SseEmitter subscribe(long recipientId, String recipientType) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        String key = key(recipientId, recipientType);
+        emitter.onCompletion(() -> execute(() -> remove(key, emitter)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> emitter.complete());
+        execute(() -> add(key, recipientId, emitter));
+        return emitter;
+    }
+
+    /**
+     * Pushes created notifications to their recipients and counts the unread ones.
+     */
+    public void notificationsCreated(List<Notification> notifications) {
+        if (recipients.isEmpty() || notifications == null) {
+            return;
+        }
+        // Copied now: the entities may change before the push thread gets to them
+        List<CreatedNotification> created = new ArrayList<>();
+        for (Notification notification : notifications) {
+            String key = key(notification.getRecipientId(), notification.getRecipientType().name());
+            if (recipients.containsKey(key)) {
+                created.add(new CreatedNotification(key, isUnread(notification), payload(notification)));
+            }
+        }
+        if (!created.isEmpty()) {
+            afterCommit(() -> pushCreated(created));
+        }
+    }
+
+    public void notificationCreated(Notification notification) {
+        notificationsCreated(List.of(notification));
+    }
+
+    /**
+     * Reports a status change of a notification whose previous status is known.
+     */
+    public void notificationStatusChanged(Notification notification, boolean wasUnread) {
+        boolean unread = isUnread(notification);
+        String key = key(notification.getRecipientId(), notification.getRecipientType().name());
+        if (unread != wasUnread && recipients.containsKey(key)) {
+            int delta = unread ? 1 : -1;
+            afterCommit(() -> {
+                Recipient recipient = recipients.get(key);
+                if (recipient != null) {
+                    recipient.notificationsUnread = Math.max(0, recipient.notificationsUnread + delta);
+                    pushCounts(key, recipient);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reports a change of a notification whose previous status is not known; the recipient is recounted.
+     */
+    public void notificationChanged(Notification notification) {
+        recountAfterCommit(key(notification.getRecipientId(), notification.getRecipientType().name()));
+    }
+
+    /**
+     * Reports a change of the delivery or read status of a Telegram message; the recipient is recounted.
+     */
+    public void telegramMessageChanged(TelegramMessage message) {
+        if (message.getRecipientId() != null && message.getRecipientType() != null) {
+            recountAfterCommit(key(message.getRecipientId(), message.getRecipientType().name()));
+        }
+    }
+
+    public static boolean isUnread(Notification notification) {
+        Notification.NotificationStatus status = notification.getStatus();
+        return status == Notification.NotificationStatus.PENDING
+                || status == Notification.NotificationStatus.SENT
+                || status == Notification.NotificationStatus.DELIVERED;
+    }
+
+    private void add(String key, long recipientId, SseEmitter emitter) {
+        Recipient recipient = recipients.get(key);
+        if (recipient == null) {
+            recipient = new Recipient(recipientId);
+            try {
+                Long[] ids = { recipientId };
+                recipient.notificationsUnread = find(unreadCountRepository.countUnreadNotifications(ids), key);
+                recipient.telegramMessagesUnread = find(unreadCountRepository.countUnreadTelegramMessages(ids), key);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to load unread counts of " + key, e);
+                emitter.completeWithError(e);
+                return;
+            }
+            recipients.put(key, recipient);
+        }
+        recipient.emitters.add(emitter);
+        openStreams.incrementAndGet();
+        if (recipient.emitters.size() > properties.getMaxStreamsPerRecipient()) {
+            SseEmitter oldest = recipient.emitters.get(0);
+            remove(key, oldest);
+            oldest.complete();
+        }
+        if (!send(emitter, countsEvent(recipient))) {
+            remove(key, emitter);
+        }
+    }
+
+    private void remove(String key, SseEmitter emitter) {
+        Recipient recipient = recipients.get(key);
+        if (recipient != null && recipient.emitters.remove(emitter)) {
+            openStreams.decrementAndGet();
+            if (recipient.emitters.isEmpty()) {
+                recipients.remove(key);
+            }
+        }
+    }
+
+    private void pushCreated(List<CreatedNotification> created) {
+        Map<String, Recipient> changed = new LinkedHashMap<>();
+        for (CreatedNotification notification : created) {
+            Recipient recipient = recipients.get(notification.key);
+            if (recipient == null) {
+                continue;
+            }
+            if (notification.unread) {
+                recipient.notificationsUnread++;
+            }
+            pushEvent(notification.key, recipient,
+                    SseEmitter.event().name(NOTIFICATION_EVENT).data(notification.payload));
+            changed.put(notification.key, recipient);
+        }
+        changed.forEach(this::pushCounts);
+    }
+
+    private void recountAfterCommit(String key) {
+        if (recipients.containsKey(key)) {
+            afterCommit(() -> {
+                Recipient recipient = recipients.get(key);
+                if (recipient != null) {
+                    resync(Map.of(key, recipient));
+                }
+            });
+        }
+    }
+
+    private void resyncQuietly() {
+        try {
+            if (!recipients.isEmpty()) {
+                resync(new HashMap<>(recipients));
+            }
+        } catch (Exception e) {
+            // Counts stay as they are until the next resync
+            logger.log(Level.WARNING, "Failed to recount unread counts", e);
+        }
+    }
+
+    private void resync(Map<String, Recipient> connected) {
+        Long[] ids = connected.values().stream().map(recipient -> recipient.id).distinct().toArray(Long[]::new);
+        Map<String, Long> notifications = byKey(unreadCountRepository.countUnreadNotifications(ids));
+        Map<String, Long> telegramMessages = byKey(unreadCountRepository.countUnreadTelegramMessages(ids));
+        connected.forEach((key, recipient) -> {
+            long notificationsUnread = notifications.getOrDefault(key, 0L);
+            long telegramMessagesUnread = telegramMessages.getOrDefault(key, 0L);
+            if (notificationsUnread != recipient.notificationsUnread
+                    || telegramMessagesUnread != recipient.telegramMessagesUnread) {
+                recipient.notificationsUnread = notificationsUnread;
+                recipient.telegramMessagesUnread = telegramMessagesUnread;
+                pushCounts(key, recipient);
+            }
+        });
+    }
+
+    private void heartbeat() {
+        recipients.forEach((key, recipient) -> pushEvent(key, recipient, SseEmitter.event().comment("heartbeat")));
+    }
+
+    private void pushCounts(String key, Recipient recipient) {
+        pushEvent(key, recipient, countsEvent(recipient));
+    }
+
+    private void pushEvent(String key, Recipient recipient, SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : new ArrayList<>(recipient.emitters)) {
+            if (!send(emitter, event)) {
+                remove(key, emitter);
+            }
+        }
+    }
+
+    // A failed send means the client is gone; the stream is dropped without waiting for the container
+    private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Dropping closed notification stream", e);
+            return false;
+        }
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    execute(task);
+                }
+            });
+        } else {
+            execute(task);
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            pusher.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Failed to push notification event", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the streams are closed anyway
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder countsEvent(Recipient recipient) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("notifications", recipient.notificationsUnread);
+        counts.put("telegramMessages", recipient.telegramMessagesUnread);
+        return SseEmitter.event().name(UNREAD_COUNT_EVENT).data(counts);
+    }
+
+    private static Map<String, Object> payload(Notification notification) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", notification.getId());
+        payload.put("notificationType", notification.getNotificationType());
+        payload.put("title", notification.getTitle());
+        payload.put("message", notification.getMessage());
+        payload.put("priority", notification.getPriority());
+        payload.put("status", notification.getStatus());
+        payload.put("createdAt", notification.getCreatedAt());
+        return payload;
+    }
+
+    private static long find(List<UnreadCount> counts, String key) {
+        return byKey(counts).getOrDefault(key, 0L);
+    }
+
+    private static Map<String, Long> byKey(List<UnreadCount> counts) {
+        Map<String, Long> byKey = new HashMap<>();
+        for (UnreadCount count : counts) {
+            byKey.put(key(count.getRecipientId(), count.getRecipientType()), count.getUnread());
+        }
+        return byKey;
+    }
+
+    private static String key(long recipientId, String recipientType) {
+        return recipientType + ":" + recipientId;
+    }
+
+    private static final class Recipient {
+        private final long id;
+        private final List<SseEmitter> emitters = new ArrayList<>();
+        private long notificationsUnread;
+        private long telegramMessagesUnread;
+
+        private Recipient(long id) {
+            this.id = id;
+        }
+    }
+
+    private static final class CreatedNotification {
+        private final String key;
+        private final boolean unread;
+        private final Map<String, Object> payload;
+
+        private CreatedNotification(String key, boolean unread, Map<String, Object> payload) {
+            this.key = key;
+            this.unread = unread;
+            this.payload = payload;
+        }
+    }
+}
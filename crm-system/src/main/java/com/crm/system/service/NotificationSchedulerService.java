@@ -50,107 +50,10 @@ public class NotificationSchedulerService {
     @Autowired
     private TelegramMessageService telegramMessageService;
 
-    /**
-     * Планировщик для отправки уведомлений о предстоящих индивидуальных уроках
-     */
-    @Scheduled(fixedRate = 300000) // Выполнять каждые 5 минут
-    public void sendIndividualLessonReminders() {
-        logger.info("Starting individual lesson reminders scheduler");
-        
-        try {
-            // Получаем уроки, которые начнутся через 24 часа
-            LocalDateTime startTime = LocalDateTime.now().plusHours(23);
-            LocalDateTime endTime = LocalDateTime.now().plusHours(25);
-            
-            // TODO: Реализовать поиск уроков в этом временном диапазоне
-            // Когда будет реализована сущность Lesson
-            
-        } catch (Exception e) {
-            logger.severe("Error in sendIndividualLessonReminders: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Планировщик для отправки уведомлений о предстоящих групповых уроках
-     */
-    @Scheduled(fixedRate = 300000) // Выполнять каждые 5 минут
-    public void sendGroupLessonReminders() {
-        logger.info("Starting group lesson reminders scheduler");
-        
-        try {
-            LocalDateTime oneDayBefore = LocalDateTime.now().plusHours(23);
-            LocalDateTime oneDayAfter = LocalDateTime.now().plusHours(25);
-            
-            // Ищем групповые уроки, запланированные на завтра
-            List<GroupLesson> upcomingLessons = groupLessonService.findByDateRangeAndStatuses(
-                    oneDayBefore.toLocalDate(),
-                    oneDayAfter.toLocalDate(),
-                    java.util.Collections.singletonList(GroupLesson.GroupLessonStatus.CONFIRMED)
-            );
-
-            for (GroupLesson lesson : upcomingLessons) {
-                sendGroupLessonReminder(lesson);
-            }
-            
-        } catch (Exception e) {
-            logger.severe("Error in sendGroupLessonReminders: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Отправка напоминаний о групповом уроке всем зарегистрированным студентам
-     */
-    private void sendGroupLessonReminder(GroupLesson lesson) {
-        try {
-            // Получаем всех зарегистрированных студентов
-            List<GroupLessonRegistration> registrations = groupLessonRegistrationService
-                    .findByGroupLessonId(lesson.getId());
-
-            StringBuilder lessonInfo = new StringBuilder();
-            lessonInfo.append("Групповой урок: ").append(lesson.getLessonTopic()).append("\n");
-            lessonInfo.append("Дата: ").append(lesson.getScheduledDate()).append("\n");
-            lessonInfo.append("Время: ").append(lesson.getScheduledTime()).append("\n");
-            lessonInfo.append("Преподаватель: ")
-                    .append(lesson.getTeacher().getFirstName())
-                    .append(" ")
-                    .append(lesson.getTeacher().getLastName())
-                    .append("\n");
-            
-            if (lesson.getMeetingLink() != null && !lesson.getMeetingLink().isEmpty()) {
-                lessonInfo.append("Ссылка на урок: ").append(lesson.getMeetingLink()).append("\n");
-            }
+    @Autowired
+    private DeliveryRetryService deliveryRetryService;
 
-            for (GroupLessonRegistration registration : registrations) {
-                Student student = registration.getStudent();
-                
-                // Отправляем уведомление в системе
-                Notification notification = new Notification();
-                notification.setRecipientId(student.getId());
-                notification.setRecipientType(Notification.RecipientType.STUDENT);
-                notification.setNotificationType(Notification.NotificationType.GROUP_LESSON_REMINDER);
-                notification.setTitle("Напоминание о групповом уроке");
-                notification.setMessage(lessonInfo.toString());
-                notification.setRelatedEntityId(lesson.getId());
-                notification.setRelatedEntityType("GroupLesson");
-                notification.setPriority(1);
-                
-                notificationService.saveNotification(notification);
-                
-                // Отправляем уведомление в Telegram, если есть chatId
-                if (student.getTelegramChatId() != null) {
-                    telegramNotificationService.sendGroupLessonReminderNotification(
-                            student.getTelegramChatId(),
-                            student.getId(),
-                            TelegramMessage.RecipientType.STUDENT,
-                            lessonInfo.toString()
-                    );
-                }
-            }
-            
-        } catch (Exception e) {
-            logger.severe("Error in sendGroupLessonReminder for lesson " + lesson.getId() + ": " + e.getMessage());
-        }
-    }
+    // Напоминания о предстоящих уроках отправляет LessonReminderScheduler в момент, рассчитанный по времени урока
 
     /**
      * Планировщик для отправки уведомлений об отмене уроков
@@ -188,50 +91,22 @@ public class NotificationSchedulerService {
     }
 
     /**
-     * Планировщик для повторной отправки неудачных уведомлений
+     * Планировщик для повторной отправки неудачных уведомлений.
+     * Сроки повторов и перевод в DEAD_LETTER определяет DeliveryRetryService
      */
     @Scheduled(fixedRate = 600000) // Выполнять каждые 10 минут
     public void retryFailedNotifications() {
         logger.info("Starting failed notifications retry scheduler");
         
         try {
-            List<TelegramMessage> failedMessages = telegramMessageService.findFailedMessagesWithRetriesBelow(3);
-            
-            for (TelegramMessage message : failedMessages) {
-                // Увеличиваем счетчик попыток
-                telegramMessageService.incrementRetryCount(message);
-                
-                // Повторная отправка
-                telegramNotificationService.sendNotification(
-                        message.getChatId(),
-                        message.getRecipientId(),
-                        message.getRecipientType(),
-                        message.getMessageText(),
-                        message.getMessageType()
-                );
-            }
-            
+            deliveryRetryService.retryDueTelegramMessages();
+            deliveryRetryService.retryDueNotifications();
         } catch (Exception e) {
             logger.severe("Error in retryFailedNotifications: " + e.getMessage());
         }
     }
 
-    /**
-     * Планировщик для очистки старых уведомлений
-     */
-    @Scheduled(cron = "0 0 2 * * ?") // Выполнять ежедневно в 02:00
-    public void cleanupOldNotifications() {
-        logger.info("Starting old notifications cleanup scheduler");
-        
-        try {
-            LocalDateTime cutoffDate = LocalDateTime.now().minusMonths(6);
-            
-            // TODO: Реализовать очистку уведомлений старше 6 месяцев
-            
-        } catch (Exception e) {
-            logger.severe("Error in cleanupOldNotifications: " + e.getMessage());
-        }
-    }
+    // Старые уведомления удаляет RetentionService по настройкам retention.tables.notifications.*
 
     /**
      * Планировщик для отправки уведомлений о заканчивающихся пакетах уроков
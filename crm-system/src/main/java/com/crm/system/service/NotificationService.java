@@ -34,18 +34,37 @@ public class NotificationService {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private NotificationPushService notificationPushService;
+
     public Optional<Notification> findById(Long id) {
         return notificationRepository.findById(id);
     }
 
     public Notification saveNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        boolean created = notification.getId() == null;
+        Notification saved = notificationRepository.save(notification);
+        if (created) {
+            notificationPushService.notificationCreated(saved);
+        } else {
+            notificationPushService.notificationChanged(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Сохраняет новые уведомления пакетом и сообщает о них подписчикам
+     */
+    public List<Notification> saveNotifications(List<Notification> notifications) {
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        notificationPushService.notificationsCreated(saved);
+        return saved;
     }
 
     public Notification createNotification(Long recipientId, RecipientType recipientType, 
                                          NotificationType notificationType, String title, String message) {
         Notification notification = new Notification(recipientId, recipientType, notificationType, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Page<Notification> findByRecipientIdAndRecipientTypeAndDateRange(
@@ -131,31 +150,42 @@ public class NotificationService {
     }
 
     public Notification updateNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public void deleteNotification(Long id) {
-        notificationRepository.deleteById(id);
+        notificationRepository.findById(id).ifPresent(notification -> {
+            notificationRepository.delete(notification);
+            notificationPushService.notificationChanged(notification);
+        });
     }
 
     public void markAsSent(Notification notification) {
+        boolean wasUnread = NotificationPushService.isUnread(notification);
         notification.markAsSent();
         notificationRepository.save(notification);
+        notificationPushService.notificationStatusChanged(notification, wasUnread);
     }
 
     public void markAsDelivered(Notification notification) {
+        boolean wasUnread = NotificationPushService.isUnread(notification);
         notification.markAsDelivered();
         notificationRepository.save(notification);
+        notificationPushService.notificationStatusChanged(notification, wasUnread);
     }
 
     public void markAsRead(Notification notification) {
+        boolean wasUnread = NotificationPushService.isUnread(notification);
         notification.markAsRead();
         notificationRepository.save(notification);
+        notificationPushService.notificationStatusChanged(notification, wasUnread);
     }
 
     public void markAsFailed(Notification notification) {
+        boolean wasUnread = NotificationPushService.isUnread(notification);
         notification.markAsFailed();
         notificationRepository.save(notification);
+        notificationPushService.notificationStatusChanged(notification, wasUnread);
     }
 
     public boolean isNotificationPending(Notification notification) {
@@ -224,7 +254,9 @@ public class NotificationService {
         }
         
         if (notifications != null) {
-            return notificationRepository.saveAll(notifications);
+            List<Notification> saved = notificationRepository.saveAll(notifications);
+            notificationPushService.notificationsCreated(saved);
+            return saved;
         }
         
         return null;
@@ -238,7 +270,9 @@ public class NotificationService {
             .map(id -> new Notification(id, recipientType, notificationType, title, message))
             .collect(Collectors.toList());
         
-        return notificationRepository.saveAll(notifications);
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        notificationPushService.notificationsCreated(saved);
+        return saved;
     }
 
     // Business methods
@@ -249,7 +283,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.LESSON_SCHEDULED, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendLessonCancelledNotification(Long recipientId, RecipientType recipientType, 
@@ -259,7 +293,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.LESSON_CANCELLED, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendLessonReminderNotification(Long recipientId, RecipientType recipientType, 
@@ -269,7 +303,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.LESSON_REMINDER, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendGroupLessonScheduledNotification(Long recipientId, RecipientType recipientType, 
@@ -279,7 +313,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.GROUP_LESSON_SCHEDULED, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendGroupLessonCancelledNotification(Long recipientId, RecipientType recipientType, 
@@ -289,7 +323,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.GROUP_LESSON_CANCELLED, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendGroupLessonReminderNotification(Long recipientId, RecipientType recipientType, 
@@ -299,7 +333,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.GROUP_LESSON_REMINDER, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendPackageEndingSoonNotification(Long recipientId, RecipientType recipientType, 
@@ -309,7 +343,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.PACKAGE_ENDING_SOON, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendPaymentDueNotification(Long recipientId, RecipientType recipientType, 
@@ -319,7 +353,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.PAYMENT_DUE, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendSystemMessageNotification(Long recipientId, RecipientType recipientType, 
@@ -328,7 +362,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.SYSTEM_MESSAGE, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public Notification sendSystemMaintenanceNotification(String title, String message) {
@@ -363,7 +397,7 @@ public class NotificationService {
         
         Notification notification = new Notification(recipientId, recipientType, 
                                                    NotificationType.FEEDBACK_REQUEST, title, message);
-        return notificationRepository.save(notification);
+        return saveNotification(notification);
     }
 
     public List<Notification> findFutureScheduledLessonsNotificationsByRecipient(
@@ -5,7 +5,10 @@ import com.crm.system.repository.NotificationSettingsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class NotificationSettingsService {
@@ -83,6 +86,24 @@ public class NotificationSettingsService {
         return settings.shouldSendTelegramNotification(messageType);
     }
 
+    /**
+     * Оставляет из userIds тех, кому нужно отправлять уведомление через Telegram. Настройки
+     * читаются одним запросом; пользователи без сохраненных настроек получают значения по умолчанию
+     */
+    public Set<Long> filterTelegramRecipients(Collection<Long> userIds, NotificationSettings.UserType userType,
+                                              com.crm.system.model.TelegramMessage.MessageType messageType) {
+        Set<Long> recipients = new HashSet<>(userIds);
+        if (recipients.isEmpty()) {
+            return recipients;
+        }
+        for (NotificationSettings settings : notificationSettingsRepository.findByUserTypeAndUserIdIn(userType, recipients)) {
+            if (!settings.shouldSendTelegramNotification(messageType)) {
+                recipients.remove(settings.getUserId());
+            }
+        }
+        return recipients;
+    }
+
     /**
      * Получить время напоминания для пользователя
      */
@@ -0,0 +1,332 @@
+package com.crm.system.service;
+
+import com.crm.system.config.ReportJobProperties;
+import com.crm.system.dto.ReportJobDto;
+import com.crm.system.exception.NotFoundException;
+import com.crm.system.exception.ValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds reports in the background. Jobs are executed by a bounded worker pool,
+ * results are written to a spool directory and downloaded later, so request
+ * threads are not held while large workbooks are generated.
+ *
+ * A job is only visible to the user who submitted it and to admins, and report types are
+ * restricted to the same roles as the synchronous report endpoints.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = Logger.getLogger(ReportJobService.class.getName());
+
+    private static final Set<String> MASS_EXPORT_TYPES = Set.of("all_data", "users_only", "lessons_and_packages");
+
+    private static final Set<String> REPORT_TYPES = Set.of(
+            "students", "teachers", "lessons", "packages",
+            "system-stats", "teacher-performance", "student-progress");
+
+    // Types the synchronous endpoints also serve to managers; all others are admin-only
+    private static final Set<String> MANAGER_REPORT_TYPES = Set.of("students", "teachers", "lessons");
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportJobProperties properties;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    // Jobs that are queued or running, keyed by report type and date range
+    private final Map<String, ReportJob> inFlightJobs = new ConcurrentHashMap<>();
+
+    private Path spoolDir;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = Paths.get(properties.getSpoolDir());
+        Files.createDirectories(spoolDir);
+        deleteSpoolFilesOlderThan(LocalDateTime.now().minusMinutes(properties.getRetentionMinutes()));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                properties.getWorkerThreads(),
+                properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-worker-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param admin whether the requesting user is an admin; other users may only submit manager report types
+     */
+    public synchronized ReportJobDto submitJob(String reportType, LocalDateTime startDate, LocalDateTime endDate,
+                                               String requestedBy, boolean admin) {
+        String type = normalizeReportType(reportType);
+        if (!admin && !MANAGER_REPORT_TYPES.contains(type)) {
+            throw new AccessDeniedException("Report type " + type + " is only available to admins");
+        }
+        purgeExpiredJobs();
+
+        // Identical requests of the same user share the job that is already queued or running
+        String coalesceKey = requestedBy + "|" + type + "|" + startDate + "|" + endDate;
+        ReportJob existing = inFlightJobs.get(coalesceKey);
+        if (existing != null) {
+            return existing.toDto();
+        }
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), type, startDate, endDate, requestedBy, coalesceKey);
+        jobs.put(job.id, job);
+        inFlightJobs.put(coalesceKey, job);
+
+        try {
+            executor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            inFlightJobs.remove(coalesceKey);
+            throw new ValidationException("Report queue is full, please try again later");
+        }
+
+        return job.toDto();
+    }
+
+    public ReportJobDto getJob(String jobId, String requestedBy, boolean admin) {
+        return findJob(jobId, requestedBy, admin).toDto();
+    }
+
+    /**
+     * Jobs of the requesting user, or of all users for an admin, newest first
+     */
+    public List<ReportJobDto> getJobs(String requestedBy, boolean admin) {
+        return jobs.values().stream()
+                .filter(job -> admin || Objects.equals(job.requestedBy, requestedBy))
+                .sorted(Comparator.comparing((ReportJob job) -> job.createdAt).reversed())
+                .map(ReportJob::toDto)
+                .collect(Collectors.toList());
+    }
+
+    public Path getJobResult(String jobId, String requestedBy, boolean admin) {
+        ReportJob job = findJob(jobId, requestedBy, admin);
+        if (job.status != JobStatus.COMPLETED) {
+            throw new ValidationException("Report job " + jobId + " is not completed yet (status: " + job.status + ")");
+        }
+        if (!Files.exists(job.resultFile)) {
+            throw new NotFoundException("Report file for job " + jobId + " is no longer available");
+        }
+        return job.resultFile;
+    }
+
+    public int getQueuedJobCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningJobCount() {
+        return executor.getActiveCount();
+    }
+
+    private void runJob(ReportJob job) {
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Path tempFile = spoolDir.resolve(job.id + ".part");
+        try {
+            job.fileName = resolveFileName(job.reportType);
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                writeReport(job, out);
+            }
+            Path resultFile = spoolDir.resolve(job.id + ".xlsx");
+            Files.move(tempFile, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.resultFile = resultFile;
+            job.sizeBytes = Files.size(resultFile);
+            job.status = JobStatus.COMPLETED;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Report job " + job.id + " (" + job.reportType + ") failed", e);
+            job.errorMessage = e.getMessage();
+            job.status = JobStatus.FAILED;
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // best effort, the file is removed on the next startup
+            }
+        } finally {
+            job.completedAt = LocalDateTime.now();
+            inFlightJobs.remove(job.coalesceKey, job);
+        }
+    }
+
+    private void writeReport(ReportJob job, OutputStream out) throws IOException {
+        switch (job.reportType) {
+            case "students":
+                reportService.writeStudentsReport(out);
+                break;
+            case "teachers":
+                reportService.writeTeachersReport(out);
+                break;
+            case "lessons":
+                reportService.writeLessonsReport(job.startDate, job.endDate, out);
+                break;
+            case "packages":
+                reportService.writePackagesReport(out);
+                break;
+            case "system-stats":
+                out.write(reportService.generateSystemStatsReport(job.startDate, job.endDate).getData());
+                break;
+            case "teacher-performance":
+                out.write(reportService.generateTeacherPerformanceReport(job.startDate, job.endDate).getData());
+                break;
+            case "student-progress":
+                out.write(reportService.generateStudentProgressReport(job.startDate, job.endDate).getData());
+                break;
+            default:
+                reportService.writeMassExportReport(job.reportType, job.startDate, job.endDate, out);
+        }
+    }
+
+    private String resolveFileName(String reportType) {
+        if (MASS_EXPORT_TYPES.contains(reportType)) {
+            return reportService.getMassExportFileName(reportType);
+        }
+        return reportService.buildFileName(reportType.replace('-', '_') + "_report");
+    }
+
+    private String normalizeReportType(String reportType) {
+        String type = reportType != null ? reportType.trim().toLowerCase() : "";
+        if (!REPORT_TYPES.contains(type) && !MASS_EXPORT_TYPES.contains(type)) {
+            throw new ValidationException("Unsupported report type: " + reportType);
+        }
+        return type;
+    }
+
+    // Jobs of other users are reported as missing, so their ids cannot be probed
+    private ReportJob findJob(String jobId, String requestedBy, boolean admin) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || (!admin && !Objects.equals(job.requestedBy, requestedBy))) {
+            throw new NotFoundException("Report job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(properties.getRetentionMinutes());
+        jobs.values().removeIf(job -> {
+            boolean expired = job.completedAt != null && job.completedAt.isBefore(threshold);
+            if (expired && job.resultFile != null) {
+                try {
+                    Files.deleteIfExists(job.resultFile);
+                } catch (IOException e) {
+                    logger.warning("Could not delete expired report file " + job.resultFile + ": " + e.getMessage());
+                }
+            }
+            return expired;
+        });
+    }
+
+    private void deleteSpoolFilesOlderThan(LocalDateTime threshold) throws IOException {
+        long thresholdMillis = threshold.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.filter(file -> {
+                try {
+                    return file.getFileName().toString().endsWith(".part")
+                            || Files.getLastModifiedTime(file).toMillis() < thresholdMillis;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warning("Could not delete stale report file " + file + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static final class ReportJob {
+        private final String id;
+        private final String reportType;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+        private final String requestedBy;
+        private final String coalesceKey;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile String fileName;
+        private volatile Path resultFile;
+        private volatile Long sizeBytes;
+        private volatile String errorMessage;
+
+        private ReportJob(String id, String reportType, LocalDateTime startDate, LocalDateTime endDate,
+                          String requestedBy, String coalesceKey) {
+            this.id = id;
+            this.reportType = reportType;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.requestedBy = requestedBy;
+            this.coalesceKey = coalesceKey;
+        }
+
+        private ReportJobDto toDto() {
+            ReportJobDto dto = new ReportJobDto();
+            dto.setId(id);
+            dto.setReportType(reportType);
+            dto.setStatus(status.name());
+            dto.setStartDate(startDate);
+            dto.setEndDate(endDate);
+            dto.setFileName(fileName);
+            dto.setSizeBytes(sizeBytes);
+            dto.setErrorMessage(errorMessage);
+            dto.setRequestedBy(requestedBy);
+            dto.setCreatedAt(createdAt);
+            dto.setStartedAt(startedAt);
+            dto.setCompletedAt(completedAt);
+            return dto;
+        }
+    }
+}
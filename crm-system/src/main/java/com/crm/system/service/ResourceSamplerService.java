@@ -0,0 +1,313 @@
+package com.crm.system.service;
+
+import com.crm.system.config.ResourceSamplerProperties;
+import com.crm.system.util.SampleRing;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Samples CPU, heap, GC, thread, connection pool and database size readings into an in-memory ring
+ * at a fixed resolution. The admin monitoring endpoints reduce the ring to hourly buckets, and the
+ * latest sample is published as crm.resources.* gauges for Prometheus.
+ */
+@Service
+public class ResourceSamplerService {
+
+    private static final Logger logger = Logger.getLogger(ResourceSamplerService.class.getName());
+
+    private static final String DATABASE_SIZE_SQL = "SELECT pg_database_size(current_database())";
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    // Columns of the ring
+    private static final int PROCESS_CPU = 0;
+    private static final int SYSTEM_CPU = 1;
+    private static final int HEAP_USED = 2;
+    private static final int HEAP_COMMITTED = 3;
+    private static final int HEAP_MAX = 4;
+    private static final int GC_PAUSE_MS = 5;
+    private static final int THREADS = 6;
+    private static final int POOL_ACTIVE = 7;
+    private static final int POOL_IDLE = 8;
+    private static final int POOL_PENDING = 9;
+    private static final int DATABASE_SIZE = 10;
+    private static final int COLUMNS = 11;
+
+    @Autowired
+    private ResourceSamplerProperties properties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private volatile SampleRing ring;
+    private volatile double[] latest;
+    private ScheduledExecutorService sampler;
+
+    // Only touched by the sampler thread
+    private long previousGcTimeMs = -1;
+    private long databaseSizeReadAtMs;
+    private double databaseSizeBytes = -1;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            logger.info("Resource sampler is disabled");
+            return;
+        }
+        ring = new SampleRing(properties.getCapacity(), COLUMNS);
+        registerGauges();
+
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long resolutionMs = properties.getResolution().toMillis();
+        sampler.scheduleAtFixedRate(this::sampleQuietly, 0, resolutionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    /**
+     * Hourly reduction of the samples taken between from and to, oldest hour first. Hours without
+     * samples are absent, as are hours older than the ring.
+     */
+    public List<HourlyUsage> getHourlyUsage(LocalDateTime from, LocalDateTime to) {
+        SampleRing current = ring;
+        if (current == null) {
+            return List.of();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        long fromMs = from.atZone(zone).toInstant().toEpochMilli();
+        long toMs = to.atZone(zone).toInstant().toEpochMilli();
+        long offsetMs = zone.getRules().getOffset(Instant.ofEpochMilli(fromMs)).getTotalSeconds() * 1000L;
+
+        List<HourlyUsage> hours = new ArrayList<>();
+        for (SampleRing.Bucket bucket : current.aggregate(fromMs, toMs, HOUR_MS, offsetMs)) {
+            hours.add(new HourlyUsage(LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.getStartMs()), zone), bucket));
+        }
+        return hours;
+    }
+
+    /**
+     * @return size of the database at the latest read, or -1 if it has not been read
+     */
+    public long getDatabaseSizeBytes() {
+        double[] values = latest;
+        return values != null ? (long) values[DATABASE_SIZE] : -1;
+    }
+
+    /**
+     * Share of the uptime window during which this instance has been running
+     */
+    public double getUptimePercentage() {
+        long windowMs = properties.getUptimeWindow().toMillis();
+        long uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        return Math.min(uptimeMs, windowMs) * 100.0 / windowMs;
+    }
+
+    private void registerGauges() {
+        gauge("crm.resources.cpu.process", PROCESS_CPU, null, "CPU load of the JVM process, 0 to 1");
+        gauge("crm.resources.cpu.system", SYSTEM_CPU, null, "CPU load of the host, 0 to 1");
+        gauge("crm.resources.heap.used", HEAP_USED, "bytes", "Used heap");
+        gauge("crm.resources.heap.committed", HEAP_COMMITTED, "bytes", "Committed heap");
+        gauge("crm.resources.heap.max", HEAP_MAX, "bytes", "Maximum heap");
+        gauge("crm.resources.gc.pause", GC_PAUSE_MS, "milliseconds", "GC time since the previous sample");
+        gauge("crm.resources.threads", THREADS, null, "Live threads");
+        gauge("crm.resources.db.pool.active", POOL_ACTIVE, null, "Connections in use");
+        gauge("crm.resources.db.pool.idle", POOL_IDLE, null, "Idle connections");
+        gauge("crm.resources.db.pool.pending", POOL_PENDING, null, "Threads waiting for a connection");
+        gauge("crm.resources.db.size", DATABASE_SIZE, "bytes", "Size of the database");
+    }
+
+    private void gauge(String name, int column, String baseUnit, String description) {
+        Gauge.builder(name, this, service -> service.latestValue(column))
+                .baseUnit(baseUnit)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private double latestValue(int column) {
+        double[] values = latest;
+        return values != null ? values[column] : Double.NaN;
+    }
+
+    private void sampleQuietly() {
+        try {
+            sample();
+        } catch (Exception e) {
+            // A failed sample leaves a gap, the next tick samples again
+            logger.log(Level.WARNING, "Failed to sample resource usage", e);
+        }
+    }
+
+    private void sample() {
+        long now = System.currentTimeMillis();
+        double[] values = new double[COLUMNS];
+
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean os) {
+            // Negative while the load is not yet known
+            values[PROCESS_CPU] = Math.max(0, os.getProcessCpuLoad());
+            values[SYSTEM_CPU] = Math.max(0, os.getCpuLoad());
+        }
+
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        values[HEAP_USED] = heap.getUsed();
+        values[HEAP_COMMITTED] = heap.getCommitted();
+        values[HEAP_MAX] = heap.getMax() >= 0 ? heap.getMax() : heap.getCommitted();
+
+        long gcTimeMs = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcTimeMs += Math.max(0, collector.getCollectionTime());
+        }
+        values[GC_PAUSE_MS] = previousGcTimeMs >= 0 ? gcTimeMs - previousGcTimeMs : 0;
+        previousGcTimeMs = gcTimeMs;
+
+        values[THREADS] = threads.getThreadCount();
+
+        HikariPoolMXBean pool = hikariPool();
+        if (pool != null) {
+            values[POOL_ACTIVE] = pool.getActiveConnections();
+            values[POOL_IDLE] = pool.getIdleConnections();
+            values[POOL_PENDING] = pool.getThreadsAwaitingConnection();
+        }
+
+        if (now - databaseSizeReadAtMs >= properties.getDatabaseSizeInterval().toMillis()) {
+            databaseSizeReadAtMs = now;
+            readDatabaseSize();
+        }
+        values[DATABASE_SIZE] = databaseSizeBytes;
+
+        ring.add(now, values);
+        latest = values;
+    }
+
+    private void readDatabaseSize() {
+        try {
+            Long size = jdbcTemplate.queryForObject(DATABASE_SIZE_SQL, Long.class);
+            if (size != null) {
+                databaseSizeBytes = size;
+            }
+        } catch (DataAccessException e) {
+            // Keep the previous reading until the next read
+            logger.log(Level.WARNING, "Failed to read database size", e);
+        }
+    }
+
+    // Null until the pool has been started by the first connection
+    private HikariPoolMXBean hikariPool() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Data source is not a Hikari pool", e);
+        }
+        return null;
+    }
+
+    public static class HourlyUsage {
+        private final LocalDateTime hour;
+        private final SampleRing.Bucket bucket;
+
+        private HourlyUsage(LocalDateTime hour, SampleRing.Bucket bucket) {
+            this.hour = hour;
+            this.bucket = bucket;
+        }
+
+        public LocalDateTime getHour() {
+            return hour;
+        }
+
+        public int getSamples() {
+            return bucket.getCount();
+        }
+
+        public double getProcessCpuAverage() {
+            return bucket.getAverage(PROCESS_CPU);
+        }
+
+        public double getProcessCpuMax() {
+            return bucket.getMax(PROCESS_CPU);
+        }
+
+        public double getSystemCpuAverage() {
+            return bucket.getAverage(SYSTEM_CPU);
+        }
+
+        public double getSystemCpuMax() {
+            return bucket.getMax(SYSTEM_CPU);
+        }
+
+        public double getHeapUsedAverage() {
+            return bucket.getAverage(HEAP_USED);
+        }
+
+        public double getHeapUsedMax() {
+            return bucket.getMax(HEAP_USED);
+        }
+
+        public double getHeapMax() {
+            return bucket.getLast(HEAP_MAX);
+        }
+
+        public double getGcPauseMs() {
+            return bucket.getSum(GC_PAUSE_MS);
+        }
+
+        public double getThreadsMax() {
+            return bucket.getMax(THREADS);
+        }
+
+        public double getPoolActiveMax() {
+            return bucket.getMax(POOL_ACTIVE);
+        }
+
+        public double getPoolPendingMax() {
+            return bucket.getMax(POOL_PENDING);
+        }
+    }
+}
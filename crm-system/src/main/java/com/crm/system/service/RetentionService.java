@@ -0,0 +1,213 @@
+package com.crm.system.service;
+
+import com.crm.system.config.RetentionProperties;
+import com.crm.system.config.RetentionProperties.Table;
+import com.crm.system.config.RetentionProperties.TableRetention;
+import com.crm.system.repository.RetentionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Purges old notifications and Telegram messages according to the retention settings.
+ *
+ * Rows are deleted with set-based statements in chunks of retention.chunk-size, each chunk in
+ * its own short transaction, so the purge never loads rows into memory and never holds long locks.
+ * Optionally the rows are first moved into monthly archive tables (e.g. notifications_archive_2025_01).
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = Logger.getLogger(RetentionService.class.getName());
+
+    private static final DateTimeFormatter ARCHIVE_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String ANY_STATUS = "any";
+    private static final String OTHER_STATUSES = "other";
+
+    @Autowired
+    private RetentionProperties properties;
+
+    @Autowired
+    private RetentionRepository retentionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextRun = now.toLocalDate().atTime(properties.getRunAt());
+        if (!nextRun.isAfter(now)) {
+            nextRun = nextRun.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(this::runRetentionQuietly, Duration.between(now, nextRun).toMillis(),
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies the configured retention to every table.
+     *
+     * @return number of purged rows per table
+     */
+    public synchronized Map<Table, Long> runRetention() {
+        Map<Table, Long> purged = new EnumMap<>(Table.class);
+        for (Table table : properties.getTables().keySet()) {
+            purged.put(table, purgeTable(table));
+        }
+        return purged;
+    }
+
+    /**
+     * Applies the configured retention to one table: statuses with their own age first, then
+     * the table-wide age for all other statuses.
+     *
+     * @return number of purged rows
+     */
+    public long purgeTable(Table table) {
+        TableRetention retention = properties.getTables().get(table);
+        if (retention == null) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long purged = 0;
+        Set<String> statuses = retention.getStatuses().keySet().stream()
+                .map(status -> status.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        for (Map.Entry<String, Duration> entry : retention.getStatuses().entrySet()) {
+            purged += purge(table, entry.getKey().toUpperCase(Locale.ROOT), null,
+                    now.minus(entry.getValue()), retention.isArchive());
+        }
+        if (retention.getMaxAge() != null) {
+            purged += purge(table, null, statuses, now.minus(retention.getMaxAge()), retention.isArchive());
+        }
+        return purged;
+    }
+
+    /**
+     * Purges rows created before the cutoff.
+     *
+     * @param status           only rows with this status, or null for any status
+     * @param excludedStatuses statuses to keep when status is null
+     * @param archive          move the rows into monthly archive tables instead of dropping them
+     * @return number of purged rows
+     */
+    public long purge(Table table, String status, Collection<String> excludedStatuses,
+                      LocalDateTime createdBefore, boolean archive) {
+        String statusTag = status != null ? status
+                : excludedStatuses != null && !excludedStatuses.isEmpty() ? OTHER_STATUSES : ANY_STATUS;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long purged = 0;
+        try {
+            purged = archive
+                    ? archiveAndDelete(table, status, excludedStatuses, createdBefore)
+                    : delete(table, status, excludedStatuses, createdBefore);
+        } finally {
+            sample.stop(meterRegistry.timer("retention.purge.duration", "table", table.getTableName()));
+            meterRegistry.counter("retention.rows.purged", "table", table.getTableName(),
+                    "status", statusTag, "archived", String.valueOf(archive)).increment(purged);
+        }
+        if (purged > 0) {
+            logger.info("Purged " + purged + " rows from " + table.getTableName() + " (status " + statusTag +
+                    ") created before " + createdBefore + (archive ? " into archive tables" : ""));
+        }
+        return purged;
+    }
+
+    private long delete(Table table, String status, Collection<String> excludedStatuses,
+                        LocalDateTime createdBefore) {
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = retentionRepository.deleteChunk(table, createdBefore, status, excludedStatuses,
+                    properties.getChunkSize());
+            deleted += chunk;
+        } while (chunk == properties.getChunkSize() && pause());
+        return deleted;
+    }
+
+    private long archiveAndDelete(Table table, String status, Collection<String> excludedStatuses,
+                                  LocalDateTime createdBefore) {
+        LocalDateTime oldest = retentionRepository.findOldestCreatedAt(table, createdBefore, status, excludedStatuses);
+        if (oldest == null) {
+            return 0;
+        }
+        long moved = 0;
+        // One archive table per month of created_at
+        for (YearMonth month = YearMonth.from(oldest);
+             month.atDay(1).atStartOfDay().isBefore(createdBefore) && !Thread.currentThread().isInterrupted();
+             month = month.plusMonths(1)) {
+            LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+            LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+            LocalDateTime rangeEnd = monthEnd.isBefore(createdBefore) ? monthEnd : createdBefore;
+
+            String archiveTable = table.getTableName() + "_archive_" + month.format(ARCHIVE_SUFFIX);
+            List<String> columns = retentionRepository.prepareArchiveTable(table, archiveTable);
+            int chunk;
+            do {
+                chunk = retentionRepository.archiveChunk(table, archiveTable, columns, monthStart, rangeEnd,
+                        status, excludedStatuses, properties.getChunkSize());
+                moved += chunk;
+            } while (chunk == properties.getChunkSize() && pause());
+        }
+        return moved;
+    }
+
+    // Returns false if the thread was interrupted, so the purge stops after the current chunk
+    private boolean pause() {
+        if (properties.getPauseBetweenChunksMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPauseBetweenChunksMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runRetentionQuietly() {
+        try {
+            runRetention();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Retention run failed", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.SearchPageDto;
+import com.crm.system.dto.SearchResultDto;
+import com.crm.system.exception.ValidationException;
+import com.crm.system.model.UserRole;
+import com.crm.system.repository.SearchRepository;
+import com.crm.system.repository.SearchRepository.SearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Typeahead search of students and users ranked by similarity to the typed text.
+ *
+ * Terms shorter than {@link #MIN_TERM_LENGTH} return nothing: they have no trigrams and would
+ * need a full scan. The cursor of a page is "distance:id" of its last hit.
+ */
+@Service
+public class SearchService {
+
+    public static final int MIN_TERM_LENGTH = 3;
+    public static final int MAX_LIMIT = 50;
+
+    @Autowired
+    private SearchRepository searchRepository;
+
+    public SearchPageDto searchStudents(String term, String cursor, int limit) {
+        String normalized = normalize(term);
+        if (normalized == null) {
+            return new SearchPageDto(Collections.emptyList(), null);
+        }
+        int pageSize = clampLimit(limit);
+        return toPage(searchRepository.searchStudents(normalized, parseCursor(cursor), pageSize), pageSize);
+    }
+
+    public SearchPageDto searchUsers(String term, UserRole role, String cursor, int limit) {
+        String normalized = normalize(term);
+        if (normalized == null) {
+            return new SearchPageDto(Collections.emptyList(), null);
+        }
+        int pageSize = clampLimit(limit);
+        return toPage(searchRepository.searchUsers(normalized, role != null ? role.name() : null,
+                parseCursor(cursor), pageSize), pageSize);
+    }
+
+    private SearchPageDto toPage(List<SearchHit> hits, int pageSize) {
+        List<SearchResultDto> items = hits.stream()
+                .map(hit -> new SearchResultDto(hit.getId(), hit.getFirstName(), hit.getLastName(), hit.getEmail(),
+                        hit.getRole(), 1 - hit.getDistance()))
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hits.size() == pageSize) {
+            SearchHit last = hits.get(hits.size() - 1);
+            nextCursor = last.getDistance() + ":" + last.getId();
+        }
+        return new SearchPageDto(items, nextCursor);
+    }
+
+    private String normalize(String term) {
+        if (term == null) {
+            return null;
+        }
+        String trimmed = term.trim().replaceAll("\\s+", " ");
+        return trimmed.length() >= MIN_TERM_LENGTH ? trimmed : null;
+    }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private SearchHit parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.lastIndexOf(':');
+        try {
+            float distance = Float.parseFloat(cursor.substring(0, separator));
+            long id = Long.parseLong(cursor.substring(separator + 1));
+            return new SearchHit(id, null, null, null, null, distance);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid search cursor: " + cursor);
+        }
+    }
+}
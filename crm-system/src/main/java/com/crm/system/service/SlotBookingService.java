@@ -1,6 +1,8 @@
 package com.crm.system.service;
 
 import com.crm.system.dto.BookSlotDto;
+import com.crm.system.exception.NotFoundException;
+import com.crm.system.exception.ValidationException;
 import com.crm.system.model.AvailabilitySlot;
 import com.crm.system.model.Lesson;
 import com.crm.system.model.Student;
@@ -8,13 +10,17 @@ import com.crm.system.model.User;
 import com.crm.system.repository.AvailabilitySlotRepository;
 import com.crm.system.repository.LessonRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Service
 public class SlotBookingService {
 
+    private static final int MAX_BOOKING_KEY_LENGTH = 100;
+
     @Autowired
     private AvailabilitySlotRepository availabilitySlotRepository;
 
@@ -27,29 +33,54 @@ public class SlotBookingService {
     @Autowired
     private LessonService lessonService;
 
+    @Autowired
+    private LessonReminderScheduler lessonReminderScheduler;
+
+    @Autowired
+    private DailyLessonStatsService dailyLessonStatsService;
+
     @Autowired
     private StudentService studentService;
 
     @Autowired
     private UserService userService;
 
+    /**
+     * Books the slot for the student. The availability check and the booking are one conditional
+     * UPDATE, so concurrent requests for the same slot cannot both succeed. Requests carrying the
+     * same booking key return the lesson created by the first one instead of booking again.
+     */
+    @Transactional
     public Lesson bookSlot(BookSlotDto bookSlotDto) {
-        // Проверяем существование слота
-        AvailabilitySlot slot = availabilitySlotService.findById(bookSlotDto.getSlotId())
-                .orElseThrow(() -> new RuntimeException("Availability slot not found with id: " + bookSlotDto.getSlotId()));
-
-        // Проверяем, что слот доступен для бронирования
-        if (!slot.isAvailable()) {
-            throw new RuntimeException("Slot is not available for booking");
+        String bookingKey = normalizeBookingKey(bookSlotDto.getIdempotencyKey());
+        if (bookingKey != null) {
+            Optional<Lesson> existing = lessonRepository.findByBookingKey(bookingKey);
+            if (existing.isPresent()) {
+                return replayBooking(existing.get(), bookSlotDto);
+            }
         }
 
         // Проверяем существование студента
         Student student = studentService.findById(bookSlotDto.getStudentId())
-                .orElseThrow(() -> new RuntimeException("Student not found with id: " + bookSlotDto.getStudentId()));
+                .orElseThrow(() -> new NotFoundException("Student not found with id: " + bookSlotDto.getStudentId()));
+
+        // Атомарно бронируем слот: обновление проходит только если слот еще доступен
+        if (availabilitySlotRepository.claimAvailableSlot(bookSlotDto.getSlotId()) == 0) {
+            // The claim waited for a concurrent request with the same key, whose lesson is now committed
+            if (bookingKey != null) {
+                Optional<Lesson> existing = lessonRepository.findByBookingKey(bookingKey);
+                if (existing.isPresent()) {
+                    return replayBooking(existing.get(), bookSlotDto);
+                }
+            }
+            if (!availabilitySlotRepository.existsById(bookSlotDto.getSlotId())) {
+                throw new NotFoundException("Availability slot not found with id: " + bookSlotDto.getSlotId());
+            }
+            throw new ValidationException("Slot is not available for booking");
+        }
 
-        // Бронируем слот
-        slot.bookSlot();
-        availabilitySlotService.updateAvailabilitySlot(slot);
+        AvailabilitySlot slot = availabilitySlotService.findById(bookSlotDto.getSlotId())
+                .orElseThrow(() -> new NotFoundException("Availability slot not found with id: " + bookSlotDto.getSlotId()));
 
         // Создаем урок
         Lesson lesson = new Lesson(
@@ -61,8 +92,36 @@ public class SlotBookingService {
         lesson.setDurationMinutes(slot.getDurationMinutes());
         lesson.setSlot(slot);
         lesson.setNotes(bookSlotDto.getNotes());
+        lesson.setBookingKey(bookingKey);
+
+        try {
+            Lesson saved = lessonRepository.saveAndFlush(lesson);
+            dailyLessonStatsService.recordChange(null, saved);
+            lessonReminderScheduler.lessonChanged(saved);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Another request with the same booking key won the race; the slot claim is rolled back
+            throw new ValidationException("Booking with key " + bookingKey + " is already being processed");
+        }
+    }
+
+    private Lesson replayBooking(Lesson lesson, BookSlotDto bookSlotDto) {
+        Long slotId = lesson.getSlot() != null ? lesson.getSlot().getId() : null;
+        if (!bookSlotDto.getSlotId().equals(slotId) || !bookSlotDto.getStudentId().equals(lesson.getStudent().getId())) {
+            throw new ValidationException("Booking key " + lesson.getBookingKey() + " was already used for a different booking");
+        }
+        return lesson;
+    }
 
-        return lessonService.saveLesson(lesson);
+    private String normalizeBookingKey(String key) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        String trimmed = key.trim();
+        if (trimmed.length() > MAX_BOOKING_KEY_LENGTH) {
+            throw new ValidationException("Booking key must not be longer than " + MAX_BOOKING_KEY_LENGTH + " characters");
+        }
+        return trimmed;
     }
 
     public void cancelBooking(Long slotId) {
@@ -0,0 +1,322 @@
+package com.crm.system.service;
+
+import com.crm.system.model.Lesson;
+import com.crm.system.model.LessonPackage;
+import com.crm.system.model.Student;
+import com.crm.system.model.User;
+import com.crm.system.model.UserRole;
+import com.crm.system.repository.LessonPackageRepository;
+import com.crm.system.repository.LessonRepository;
+import com.crm.system.repository.StudentRepository;
+import com.crm.system.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes Excel reports straight to an output stream with bounded memory.
+ * Rows are produced from server-side cursors and flushed to disk by SXSSF,
+ * so heap usage does not depend on the number of exported rows.
+ */
+@Component
+public class StreamingReportExporter {
+
+    // Rows kept in memory per sheet before SXSSF flushes them to a temp file
+    private static final int ROW_ACCESS_WINDOW = 200;
+
+    // Persistence context is cleared after this many streamed entities
+    private static final int CLEAR_INTERVAL = 500;
+
+    private static final int MAX_COLUMN_CHARS = 80;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private LessonPackageRepository lessonPackageRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public StreamingReportExporter(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void writeStudents(OutputStream out) throws IOException {
+        write(out, workbook -> writeStudentsSheet(workbook, "Students"));
+    }
+
+    public void writeTeachers(OutputStream out) throws IOException {
+        write(out, workbook -> writeTeachersSheet(workbook, "Teachers"));
+    }
+
+    public void writeLessons(LocalDateTime startDate, LocalDateTime endDate, OutputStream out) throws IOException {
+        write(out, workbook -> writeLessonsSheet(workbook, "Lessons", startDate, endDate));
+    }
+
+    public void writePackages(OutputStream out) throws IOException {
+        write(out, workbook -> writePackagesSheet(workbook, "Lesson Packages"));
+    }
+
+    public void writeMassExport(String exportType, LocalDateTime startDate, LocalDateTime endDate,
+                                OutputStream out) throws IOException {
+        switch (exportType.toLowerCase()) {
+            case "all_data":
+                write(out, workbook -> {
+                    writeStudentsSheet(workbook, "Students");
+                    writeTeachersSheet(workbook, "Teachers");
+                    writeManagersSheet(workbook, "Managers");
+                    writeLessonsSheet(workbook, "Lessons", startDate, endDate);
+                    writePackagesSheet(workbook, "Packages");
+                    writeSystemStatsSheet(workbook, "System Stats");
+                });
+                break;
+            case "users_only":
+                write(out, workbook -> {
+                    writeStudentsSheet(workbook, "Students");
+                    writeTeachersSheet(workbook, "Teachers");
+                    writeManagersSheet(workbook, "Managers");
+                });
+                break;
+            case "lessons_and_packages":
+                write(out, workbook -> {
+                    writeLessonsSheet(workbook, "Lessons", startDate, endDate);
+                    writePackagesSheet(workbook, "Packages");
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported export type: " + exportType);
+        }
+    }
+
+    private void write(OutputStream out, WorkbookFiller filler) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, ROW_ACCESS_WINDOW, true, false);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> filler.fill(workbook));
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeStudentsSheet(SXSSFWorkbook workbook, String sheetName) {
+        SheetWriter writer = new SheetWriter(workbook, sheetName,
+                "ID", "First Name", "Last Name", "Email", "Phone", "Telegram", "Date of Birth", "Assigned Teacher", "Created At");
+        try (Stream<Student> students = studentRepository.streamAllForExport()) {
+            forEachDetached(students, student -> writer.row(
+                    student.getId(),
+                    student.getFirstName(),
+                    student.getLastName(),
+                    orEmpty(student.getEmail()),
+                    orEmpty(student.getPhone()),
+                    orEmpty(student.getTelegramUsername()),
+                    orEmpty(student.getDateOfBirth()),
+                    student.getAssignedTeacher() != null ? fullName(student.getAssignedTeacher()) : "Not assigned",
+                    orEmpty(student.getCreatedAt())));
+        }
+        writer.finish();
+    }
+
+    private void writeTeachersSheet(SXSSFWorkbook workbook, String sheetName) {
+        SheetWriter writer = new SheetWriter(workbook, sheetName,
+                "ID", "First Name", "Last Name", "Email", "Phone", "Telegram", "Specialization", "Active", "Created At");
+        for (User teacher : userRepository.findByRole(UserRole.TEACHER)) {
+            writer.row(
+                    teacher.getId(),
+                    teacher.getFirstName(),
+                    teacher.getLastName(),
+                    teacher.getEmail(),
+                    orEmpty(teacher.getPhone()),
+                    orEmpty(teacher.getTelegramUsername()),
+                    "", // Specialization field - could be added to User model
+                    Boolean.TRUE.equals(teacher.getIsActive()) ? "Yes" : "No",
+                    orEmpty(teacher.getCreatedAt()));
+        }
+        writer.finish();
+    }
+
+    private void writeManagersSheet(SXSSFWorkbook workbook, String sheetName) {
+        SheetWriter writer = new SheetWriter(workbook, sheetName,
+                "ID", "First Name", "Last Name", "Email", "Phone", "Telegram", "Active", "Created At");
+        for (User manager : userRepository.findByRole(UserRole.MANAGER)) {
+            writer.row(
+                    manager.getId(),
+                    manager.getFirstName(),
+                    manager.getLastName(),
+                    manager.getEmail(),
+                    orEmpty(manager.getPhone()),
+                    orEmpty(manager.getTelegramUsername()),
+                    Boolean.TRUE.equals(manager.getIsActive()) ? "Yes" : "No",
+                    orEmpty(manager.getCreatedAt()));
+        }
+        writer.finish();
+    }
+
+    private void writeLessonsSheet(SXSSFWorkbook workbook, String sheetName,
+                                   LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDate start = startDate != null ? startDate.toLocalDate() : LocalDate.now().minusMonths(1);
+        LocalDate end = endDate != null ? endDate.toLocalDate() : LocalDate.now();
+
+        SheetWriter writer = new SheetWriter(workbook, sheetName,
+                "ID", "Student", "Teacher", "Date", "Time", "Duration (min)", "Status", "Cancelled By", "Notes", "Created At");
+        try (Stream<Lesson> lessons = lessonRepository.streamByDateRangeForExport(start, end)) {
+            forEachDetached(lessons, lesson -> writer.row(
+                    lesson.getId(),
+                    lesson.getStudent() != null ? lesson.getStudent().getFirstName() + " " + lesson.getStudent().getLastName() : "",
+                    lesson.getTeacher() != null ? fullName(lesson.getTeacher()) : "",
+                    orEmpty(lesson.getScheduledDate()),
+                    orEmpty(lesson.getScheduledTime()),
+                    lesson.getDurationMinutes(),
+                    lesson.getStatus() != null ? lesson.getStatus().name() : "",
+                    lesson.getCancelledBy() != null ? lesson.getCancelledBy().name() : "",
+                    orEmpty(lesson.getNotes()),
+                    orEmpty(lesson.getCreatedAt())));
+        }
+        writer.finish();
+    }
+
+    private void writePackagesSheet(SXSSFWorkbook workbook, String sheetName) {
+        LocalDateTime expirationThreshold = LocalDateTime.now().minusMonths(3);
+        SheetWriter writer = new SheetWriter(workbook, sheetName,
+                "ID", "Student", "Total Lessons", "Remaining Lessons", "Created At", "Status");
+        try (Stream<LessonPackage> packages = lessonPackageRepository.streamAllForExport()) {
+            forEachDetached(packages, pkg -> {
+                String status = "Active";
+                if (pkg.getRemainingLessons() <= 0) {
+                    status = "Completed";
+                } else if (pkg.getCreatedAt() != null && pkg.getCreatedAt().isBefore(expirationThreshold)) {
+                    status = "Expired";
+                }
+                writer.row(
+                        pkg.getId(),
+                        pkg.getStudent() != null ? pkg.getStudent().getFirstName() + " " + pkg.getStudent().getLastName() : "",
+                        pkg.getTotalLessons(),
+                        pkg.getRemainingLessons(),
+                        orEmpty(pkg.getCreatedAt()),
+                        status);
+            });
+        }
+        writer.finish();
+    }
+
+    private void writeSystemStatsSheet(SXSSFWorkbook workbook, String sheetName) {
+        SheetWriter writer = new SheetWriter(workbook, sheetName, "Metric", "Value");
+        writer.row("Total Students", studentRepository.count());
+        writer.row("Total Teachers", userRepository.countByRole(UserRole.TEACHER));
+        writer.row("Total Managers", userRepository.countByRole(UserRole.MANAGER));
+        writer.row("Total Lessons", lessonRepository.count());
+        writer.row("Active Lesson Packages", lessonPackageRepository.countByRemainingLessonsGreaterThan(0));
+        writer.finish();
+    }
+
+    /**
+     * Feeds every streamed entity to the consumer and periodically clears the
+     * persistence context so that already written rows can be garbage collected.
+     */
+    private <T> void forEachDetached(Stream<T> stream, Consumer<T> consumer) {
+        int processed = 0;
+        Iterator<T> iterator = stream.iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+            if (++processed % CLEAR_INTERVAL == 0) {
+                entityManager.clear();
+            }
+        }
+    }
+
+    private static String fullName(User user) {
+        return user.getFirstName() + " " + user.getLastName();
+    }
+
+    private static String orEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    @FunctionalInterface
+    private interface WorkbookFiller {
+        void fill(SXSSFWorkbook workbook);
+    }
+
+    /**
+     * Appends rows to a single sheet and keeps track of the widest value per column,
+     * replacing {@code autoSizeColumn} which needs every row in memory and measures fonts.
+     */
+    private static final class SheetWriter {
+        private final Sheet sheet;
+        private final int[] maxChars;
+        private int rowNum = 0;
+
+        SheetWriter(SXSSFWorkbook workbook, String sheetName, String... headers) {
+            this.sheet = workbook.createSheet(sheetName);
+            this.maxChars = new int[headers.length];
+
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            headerStyle.setFont(font);
+
+            Row headerRow = sheet.createRow(rowNum++);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+                track(i, headers[i]);
+            }
+        }
+
+        void row(Object... values) {
+            Row row = sheet.createRow(rowNum++);
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                Cell cell = row.createCell(i);
+                if (value instanceof Number) {
+                    cell.setCellValue(((Number) value).doubleValue());
+                } else {
+                    cell.setCellValue(value != null ? value.toString() : "");
+                }
+                track(i, value);
+            }
+        }
+
+        void finish() {
+            for (int i = 0; i < maxChars.length; i++) {
+                int chars = Math.min(maxChars[i] + 2, MAX_COLUMN_CHARS);
+                sheet.setColumnWidth(i, chars * 256);
+            }
+        }
+
+        private void track(int column, Object value) {
+            if (column < maxChars.length && value != null) {
+                maxChars[column] = Math.max(maxChars[column], value.toString().length());
+            }
+        }
+    }
+}
@@ -35,6 +35,14 @@ public class StudentService {
         return studentRepository.findAll();
     }
 
+    public List<String> findAllEmails() {
+        return studentRepository.findAllEmails();
+    }
+
+    public List<String> findEmailsByIds(List<Long> ids) {
+        return studentRepository.findEmailsByIdIn(ids);
+    }
+
     public Page<Student> findAll(Pageable pageable) {
         return studentRepository.findAll(pageable);
     }
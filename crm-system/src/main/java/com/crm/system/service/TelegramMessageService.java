@@ -24,6 +24,9 @@ public class TelegramMessageService {
     @Autowired
     private TelegramMessageRepository telegramMessageRepository;
 
+    @Autowired
+    private NotificationPushService notificationPushService;
+
     public Optional<TelegramMessage> findById(Long id) {
         return telegramMessageRepository.findById(id);
     }
@@ -160,11 +163,13 @@ public class TelegramMessageService {
     public void markAsDelivered(TelegramMessage telegramMessage) {
         telegramMessage.markAsDelivered();
         telegramMessageRepository.save(telegramMessage);
+        notificationPushService.telegramMessageChanged(telegramMessage);
     }
 
     public void markAsRead(TelegramMessage telegramMessage) {
         telegramMessage.markAsRead();
         telegramMessageRepository.save(telegramMessage);
+        notificationPushService.telegramMessageChanged(telegramMessage);
     }
 
     public void markAsFailed(TelegramMessage telegramMessage, String errorMessage) {
@@ -1,5 +1,6 @@
 package com.crm.system.service;
 
+import com.crm.system.config.RetentionProperties;
 import com.crm.system.model.TelegramMessage;
 import com.crm.system.model.TelegramMessage.RecipientType;
 import com.crm.system.model.TelegramMessage.MessageType;
@@ -11,14 +12,13 @@ import com.crm.system.model.Student;
 import com.crm.system.model.User;
 import com.crm.system.model.UserRole;
 import com.crm.system.repository.TelegramMessageRepository;
+import com.crm.system.telegram.TelegramOutboundDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.bots.DefaultAbsSender;
 import org.telegram.telegrambots.bots.DefaultBotOptions;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,6 +30,8 @@ public class TelegramNotificationService extends DefaultAbsSender {
 
     private static final Logger logger = Logger.getLogger(TelegramNotificationService.class.getName());
 
+    static final String GROUP_LESSON_REMINDER_PREFIX = "Напоминание: У вас групповой урок сегодня:\n\n";
+
     @Autowired
     private TelegramMessageRepository telegramMessageRepository;
 
@@ -48,6 +50,18 @@ public class TelegramNotificationService extends DefaultAbsSender {
     @Autowired
     private TelegramMessageService telegramMessageService;
 
+    @Autowired
+    private TelegramOutboundDispatcher telegramOutboundDispatcher;
+
+    @Autowired
+    private DeliveryRetryService deliveryRetryService;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
     @Value("${telegram.bot.token}")
     private String botToken;
 
@@ -74,32 +88,14 @@ public class TelegramNotificationService extends DefaultAbsSender {
             return;
         }
 
-        try {
-            // Создаем запись в БД
-            TelegramMessage telegramMessage = new TelegramMessage(chatId, recipientId, recipientType, messageText);
-            telegramMessage.setMessageType(messageType);
-            telegramMessage.setDeliveryStatus(DeliveryStatus.PENDING);
-            telegramMessage.setSentAt(LocalDateTime.now());
-            
-            telegramMessage = telegramMessageRepository.save(telegramMessage);
-
-            // Отправляем сообщение в Telegram
-            SendMessage message = new SendMessage();
-            message.setChatId(String.valueOf(chatId));
-            message.setText(messageText);
-
-            execute(message);
-            telegramMessage.setDeliveryStatus(DeliveryStatus.SENT);
-            telegramMessageRepository.save(telegramMessage);
-            logger.info("Successfully sent message to chatId: " + chatId);
-        } catch (TelegramApiException e) {
-            logger.severe("Failed to send message to chatId: " + chatId + ". Error: " + e.getMessage());
-            TelegramMessage telegramMessage = new TelegramMessage(chatId, recipientId, recipientType, messageText);
-            telegramMessage.setMessageType(messageType);
-            telegramMessage.setDeliveryStatus(DeliveryStatus.FAILED);
-            telegramMessage.setErrorMessage(e.getMessage());
-            telegramMessageRepository.save(telegramMessage);
-        }
+        // Создаем запись в БД; отправку и обновление статуса выполняет диспетчер в фоне
+        TelegramMessage telegramMessage = new TelegramMessage(chatId, recipientId, recipientType, messageText);
+        telegramMessage.setMessageType(messageType);
+        telegramMessage.setDeliveryStatus(DeliveryStatus.PENDING);
+        telegramMessage.setNextAttemptAt(telegramOutboundDispatcher.claimLeaseDeadline());
+
+        telegramMessage = telegramMessageRepository.save(telegramMessage);
+        telegramOutboundDispatcher.submit(telegramMessage);
     }
 
     /**
@@ -171,7 +167,7 @@ public class TelegramNotificationService extends DefaultAbsSender {
 
     public void sendGroupLessonReminderNotification(Long chatId, Long recipientId, RecipientType recipientType, 
                                                   String lessonInfo) {
-        String messageText = "Напоминание: У вас групповой урок сегодня:\n\n" + lessonInfo;
+        String messageText = GROUP_LESSON_REMINDER_PREFIX + lessonInfo;
         sendNotification(chatId, recipientId, recipientType, messageText, MessageType.GROUP_LESSON_REMINDER);
     }
 
@@ -472,33 +468,12 @@ public class TelegramNotificationService extends DefaultAbsSender {
     }
 
     // Методы для повторной отправки неудачных сообщений
-    public void retryFailedMessages(Integer maxRetries) {
-        List<TelegramMessage> failedMessages = telegramMessageRepository.findFailedMessagesWithRetriesBelow(maxRetries);
-        
-        for (TelegramMessage message : failedMessages) {
-            try {
-                // Увеличиваем счетчик попыток
-                message.incrementRetryCount();
-                
-                // Повторная отправка
-                SendMessage sendMessage = new SendMessage();
-                sendMessage.setChatId(String.valueOf(message.getChatId()));
-                sendMessage.setText(message.getMessageText());
-                
-                execute(sendMessage);
-                
-                // Обновляем статус
-                message.setDeliveryStatus(DeliveryStatus.SENT);
-                telegramMessageRepository.save(message);
-                
-                logger.info("Successfully resent message ID: " + message.getId() + " to chatId: " + message.getChatId());
-            } catch (TelegramApiException e) {
-                logger.severe("Failed to resend message ID: " + message.getId() + " to chatId: " + message.getChatId() + 
-                             ". Error: " + e.getMessage());
-                message.setErrorMessage(e.getMessage());
-                telegramMessageRepository.save(message);
-            }
-        }
+    /**
+     * Ставит в очередь сообщения, для которых подошло время повторной попытки.
+     * Лимит попыток задается delivery.retry.max-attempts
+     */
+    public void retryFailedMessages() {
+        deliveryRetryService.retryDueTelegramMessages();
     }
 
     // Методы для обработки подтверждений доставки
@@ -509,6 +484,7 @@ public class TelegramNotificationService extends DefaultAbsSender {
             message.setDeliveryStatus(DeliveryStatus.DELIVERED);
             message.setDeliveredAt(LocalDateTime.now());
             telegramMessageRepository.save(message);
+            notificationPushService.telegramMessageChanged(message);
             logger.info("Message ID: " + messageId + " delivered to chatId: " + message.getChatId());
         }
     }
@@ -521,6 +497,7 @@ public class TelegramNotificationService extends DefaultAbsSender {
             message.setDeliveryStatus(DeliveryStatus.READ);
             message.setReadAt(LocalDateTime.now());
             telegramMessageRepository.save(message);
+            notificationPushService.telegramMessageChanged(message);
             logger.info("Message ID: " + messageId + " read by chatId: " + message.getChatId());
         }
     }
@@ -548,11 +525,10 @@ public class TelegramNotificationService extends DefaultAbsSender {
 
     // Методы для очистки старых сообщений
     public void cleanupOldMessages(LocalDateTime beforeDateTime) {
-        List<TelegramMessage> oldMessages = telegramMessageRepository.findMessagesBeforeDateTime(beforeDateTime);
-        for (TelegramMessage message : oldMessages) {
-            telegramMessageRepository.delete(message);
-        }
-        logger.info("Cleaned up " + oldMessages.size() + " old messages");
+        // Удаление порциями одним запросом, без загрузки сообщений в память
+        long deleted = retentionService.purge(RetentionProperties.Table.TELEGRAM_MESSAGES, null, null,
+                beforeDateTime, false);
+        logger.info("Cleaned up " + deleted + " old messages");
     }
 
     // Методы для получения сообщений по различным критериям
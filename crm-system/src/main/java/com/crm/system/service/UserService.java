@@ -61,6 +61,14 @@ public class UserService {
         return userRepository.findByRoleAndIsActive(role, true);
     }
 
+    public List<String> findEmailsByRole(UserRole role) {
+        return userRepository.findActiveEmailsByRole(role);
+    }
+
+    public List<String> findEmailsByIds(List<Long> ids) {
+        return userRepository.findEmailsByIdIn(ids);
+    }
+
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
@@ -81,6 +89,14 @@ public class UserService {
         return userRepository.existsByEmail(email);
     }
 
+    /**
+     * Reference to the user with the given id that is not loaded until one of its fields other
+     * than the id is read. Enough to link the user to another entity.
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     public User getById(Long id) {
         return findById(id).orElseThrow(() -> new com.crm.system.exception.UserNotFoundException(id));
     }
@@ -11,7 +11,6 @@ import com.crm.system.service.UserService;
 import com.crm.system.service.StudentService;
 import com.crm.system.service.LessonService;
 import com.crm.system.service.GroupLessonService;
-import com.crm.system.service.GroupLessonRegistrationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -48,8 +47,6 @@ public class CrmTelegramBot extends TelegramLongPollingBot {
     @Autowired
     private GroupLessonService groupLessonService;
 
-    @Autowired
-    private GroupLessonRegistrationService groupLessonRegistrationService;
 
     @Value("${telegram.bot.token}")
     private String botToken;
@@ -442,97 +439,22 @@ public class CrmTelegramBot extends TelegramLongPollingBot {
                 chatId, teacherId, RecipientType.TEACHER, messageText, MessageType.TEXT);
     }
     
-        // Методы для работы с напоминаниями о уроках
-        public void sendLessonReminders() {
-            try {
-                LocalDate today = LocalDate.now();
-                LocalDate tomorrow = today.plusDays(1);
-                
-                // Отправляем напоминания об индивидуальных уроках
-                sendIndividualLessonReminders(today, tomorrow);
-                
-                // Отправляем напоминания о групповых уроках
-                sendGroupLessonReminders(today, tomorrow);
-                
-            } catch (Exception e) {
-                logger.severe("Error sending lesson reminders: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-        
-        private void sendIndividualLessonReminders(LocalDate today, LocalDate tomorrow) {
-            try {
-                // Получаем уроки на сегодня и завтра
-                List<com.crm.system.model.Lesson> todayLessons = lessonService.findByDateRange(today, today);
-                List<com.crm.system.model.Lesson> tomorrowLessons = lessonService.findByDateRange(tomorrow, tomorrow);
-                
-                // Отправляем напоминания о сегодняшних уроках
-                for (com.crm.system.model.Lesson lesson : todayLessons) {
-                    if (lesson.isScheduled() && lesson.getStudent() != null && lesson.getStudent().getTelegramChatId() != null) {
-                        String reminderText = formatIndividualLessonReminder(lesson, "сегодня");
-                        sendTextMessage(lesson.getStudent().getTelegramChatId(), reminderText);
-                    }
-                }
-                
-                // Отправляем напоминания о завтрашних уроках
-                for (com.crm.system.model.Lesson lesson : tomorrowLessons) {
-                    if (lesson.isScheduled() && lesson.getStudent() != null && lesson.getStudent().getTelegramChatId() != null) {
-                        String reminderText = formatIndividualLessonReminder(lesson, "завтра");
-                        sendTextMessage(lesson.getStudent().getTelegramChatId(), reminderText);
-                    }
-                }
-                
-            } catch (Exception e) {
-                logger.severe("Error sending individual lesson reminders: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-        
-        private void sendGroupLessonReminders(LocalDate today, LocalDate tomorrow) {
-            try {
-                // Получаем групповые уроки на сегодня и завтра
-                List<com.crm.system.model.GroupLesson> todayGroupLessons = groupLessonService.findByDateRangeAndStatuses(
-                    today, today, List.of(com.crm.system.model.GroupLesson.GroupLessonStatus.SCHEDULED,
-                                        com.crm.system.model.GroupLesson.GroupLessonStatus.CONFIRMED));
-                
-                List<com.crm.system.model.GroupLesson> tomorrowGroupLessons = groupLessonService.findByDateRangeAndStatuses(
-                    tomorrow, tomorrow, List.of(com.crm.system.model.GroupLesson.GroupLessonStatus.SCHEDULED,
-                                               com.crm.system.model.GroupLesson.GroupLessonStatus.CONFIRMED));
-                
-                // Отправляем напоминания о сегодняшних групповых уроках
-                for (com.crm.system.model.GroupLesson groupLesson : todayGroupLessons) {
-                    sendGroupLessonReminderToParticipants(groupLesson, "сегодня");
-                }
-                
-                // Отправляем напоминания о завтрашних групповых уроках
-                for (com.crm.system.model.GroupLesson groupLesson : tomorrowGroupLessons) {
-                    sendGroupLessonReminderToParticipants(groupLesson, "завтра");
-                }
-                
-            } catch (Exception e) {
-                logger.severe("Error sending group lesson reminders: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-        
-        private void sendGroupLessonReminderToParticipants(com.crm.system.model.GroupLesson groupLesson, String day) {
+        // Напоминания об уроках и запросы подтверждения присутствия отправляет
+        // LessonReminderScheduler в момент, рассчитанный по времени урока
+        public void sendLessonReminder(Lesson lesson) {
             try {
-                // Получаем всех участников группового урока
-                List<com.crm.system.model.GroupLessonRegistration> registrations = groupLessonRegistrationService.findByGroupLessonId(groupLesson.getId());
-                List<com.crm.system.model.Student> participants = registrations.stream()
-                        .map(com.crm.system.model.GroupLessonRegistration::getStudent)
-                        .collect(java.util.stream.Collectors.toList());
-                
-                for (com.crm.system.model.Student student : participants) {
-                    if (student.getTelegramChatId() != null) {
-                        String reminderText = formatGroupLessonReminder(groupLesson, student, day);
-                        sendTextMessage(student.getTelegramChatId(), reminderText);
-                    }
+                if (lesson.getStudent() == null || lesson.getStudent().getTelegramChatId() == null) {
+                    return;
                 }
-                
+                LocalDate today = LocalDate.now();
+                String day = lesson.getScheduledDate().equals(today) ? "сегодня"
+                        : lesson.getScheduledDate().equals(today.plusDays(1)) ? "завтра"
+                        : String.valueOf(lesson.getScheduledDate());
+                telegramNotificationService.sendNotification(
+                        lesson.getStudent().getTelegramChatId(), lesson.getStudent().getId(), RecipientType.STUDENT,
+                        formatIndividualLessonReminder(lesson, day), MessageType.LESSON_REMINDER);
             } catch (Exception e) {
-                logger.severe("Error sending group lesson reminder to participants: " + e.getMessage());
-                e.printStackTrace();
+                logger.severe("Error sending lesson reminder for lesson " + lesson.getId() + ": " + e.getMessage());
             }
         }
         
@@ -545,45 +467,7 @@ public class CrmTelegramBot extends TelegramLongPollingBot {
                    "Не забудьте подготовиться к уроку!";
         }
         
-        private String formatGroupLessonReminder(com.crm.system.model.GroupLesson groupLesson, com.crm.system.model.Student student, String day) {
-            return "🔔 Напоминание о групповом уроке " + day + ":\n\n" +
-                   "📚 Тема: " + groupLesson.getLessonTopic() + "\n" +
-                   "👨‍🏫 Преподаватель: " + groupLesson.getTeacher().getFirstName() + " " + groupLesson.getTeacher().getLastName() + "\n" +
-                   "⏰ Время: " + groupLesson.getScheduledTime() + "\n" +
-                   "📍 Платформа: " + groupLesson.getPlatform() + "\n" +
-                   "👥 Участников: " + groupLesson.getCurrentParticipants() + "/" + groupLesson.getMaxParticipants() + "\n\n" +
-                   "Не забудьте подготовиться к уроку!";
-        }
-        
-        // Метод для отправки напоминаний о предстоящих уроках (вызывается из планировщика)
-        public void scheduleLessonReminders() {
-            logger.info("Starting scheduled lesson reminders...");
-            sendLessonReminders();
-            logger.info("Scheduled lesson reminders completed.");
-        }
-        
-        // Метод для отправки запросов на подтверждение присутствия после уроков
-        public void sendAttendanceConfirmationRequests() {
-            try {
-                LocalDate today = LocalDate.now();
-                LocalDateTime now = LocalDateTime.now();
-                
-                // Получаем завершенные уроки за сегодня
-                List<Lesson> completedLessons = lessonService.findCompletedLessonsForAttendanceConfirmation(today, now);
-                
-                for (Lesson lesson : completedLessons) {
-                    if (lesson.getStudent() != null && lesson.getStudent().getTelegramChatId() != null) {
-                        sendAttendanceConfirmationRequest(lesson);
-                    }
-                }
-                
-            } catch (Exception e) {
-                logger.severe("Error sending attendance confirmation requests: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-        
-        private void sendAttendanceConfirmationRequest(Lesson lesson) {
+        public void sendAttendanceConfirmationRequest(Lesson lesson) {
             try {
                 Long chatId = lesson.getStudent().getTelegramChatId();
                 String messageText = "📋 Подтверждение присутствия на уроке\n\n" +
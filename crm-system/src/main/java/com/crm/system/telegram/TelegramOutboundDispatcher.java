@@ -0,0 +1,382 @@
+package com.crm.system.telegram;
+
+import com.crm.system.config.TelegramDispatchProperties;
+import com.crm.system.model.TelegramMessage;
+import com.crm.system.repository.DeliveryQueueRepository;
+import com.crm.system.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends outbound Telegram messages in the background.
+ *
+ * Messages are persisted as PENDING rows first and then handed to an in-memory queue, either
+ * directly by {@link #submit(TelegramMessage)} or by a poller that claims PENDING rows left
+ * behind (queue overflow, restart, another instance that stopped). Workers respect a global and
+ * a per-chat token bucket, and delivery results are written back to telegram_messages in batches,
+ * one statement per batch. Failed rows get their next attempt scheduled and are retried by
+ * {@link com.crm.system.service.DeliveryRetryService}.
+ */
+@Component
+public class TelegramOutboundDispatcher {
+
+    private static final Logger logger = Logger.getLogger(TelegramOutboundDispatcher.class.getName());
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long IDLE_CHAT_BUCKET_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @Autowired
+    private TelegramDispatchProperties properties;
+
+    @Autowired
+    private DeliveryQueueRepository deliveryQueueRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telegram.bot.token}")
+    private String botToken;
+
+    // Ids that are queued, being sent or waiting for their result to be written
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Queue<DeliveryResult> results = new ConcurrentLinkedQueue<>();
+    private final Map<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+
+    private BlockingQueue<OutboundMessage> queue;
+    private TokenBucket globalBucket;
+    private DefaultAbsSender sender;
+    private ExecutorService workers;
+    private ScheduledExecutorService scheduler;
+
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter rateLimitedCounter;
+    private Counter rejectedCounter;
+    private Timer sendTimer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        globalBucket = new TokenBucket(properties.getGlobalRatePerSecond(), properties.getGlobalRatePerSecond());
+        sender = new DefaultAbsSender(new DefaultBotOptions()) {
+            @Override
+            public String getBotToken() {
+                return botToken;
+            }
+        };
+
+        Gauge.builder("telegram.dispatch.queue.size", queue, BlockingQueue::size)
+                .description("Messages waiting for a dispatch worker")
+                .register(meterRegistry);
+        Gauge.builder("telegram.dispatch.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free places in the dispatch queue")
+                .register(meterRegistry);
+        Gauge.builder("telegram.dispatch.inflight", inFlight, Set::size)
+                .description("Messages queued or sent but not yet written back")
+                .register(meterRegistry);
+        Gauge.builder("telegram.dispatch.results.pending", results, Queue::size)
+                .description("Delivery results waiting for the next batch update")
+                .register(meterRegistry);
+        sentCounter = meterRegistry.counter("telegram.dispatch.messages", "result", "sent");
+        failedCounter = meterRegistry.counter("telegram.dispatch.messages", "result", "failed");
+        rateLimitedCounter = meterRegistry.counter("telegram.dispatch.messages", "result", "rate_limited");
+        rejectedCounter = meterRegistry.counter("telegram.dispatch.messages", "result", "queue_full");
+        sendTimer = meterRegistry.timer("telegram.dispatch.send");
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(properties.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "telegram-dispatch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < properties.getWorkerThreads(); i++) {
+            workers.execute(this::runWorker);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "telegram-dispatch-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushResultsQuietly,
+                properties.getFlushIntervalMs(), properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pollPendingQuietly,
+                properties.getPollIntervalMs(), properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Unsent messages stay PENDING and are picked up again after restart
+        flushResultsQuietly();
+    }
+
+    /**
+     * Queues a persisted PENDING message for sending. Inside a transaction the message is queued
+     * only after commit, so workers never update a row that is not visible yet.
+     */
+    public void submit(TelegramMessage message) {
+        OutboundMessage outbound = new OutboundMessage(message.getId(), message.getChatId(), message.getMessageText());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(outbound);
+                }
+            });
+        } else {
+            enqueue(outbound);
+        }
+    }
+
+    /**
+     * Time until which a PENDING row handed to this dispatcher is reserved for it; pollers of
+     * other instances do not pick the row up before that.
+     */
+    public LocalDateTime claimLeaseDeadline() {
+        return LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(properties.getClaimLeaseMs()));
+    }
+
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private boolean enqueue(OutboundMessage message) {
+        if (message.id == null || !inFlight.add(message.id)) {
+            return false;
+        }
+        if (!queue.offer(message)) {
+            // Backpressure: the row stays PENDING and the poller retries once there is room
+            inFlight.remove(message.id);
+            rejectedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void requeue(OutboundMessage message) {
+        if (!queue.offer(message)) {
+            inFlight.remove(message.id);
+            rejectedCounter.increment();
+        }
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                dispatch(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Unexpected error in Telegram dispatch worker", e);
+            }
+        }
+    }
+
+    private void dispatch(OutboundMessage message) throws InterruptedException {
+        TokenBucket chatBucket = chatBuckets.computeIfAbsent(message.chatId,
+                chatId -> new TokenBucket(properties.getPerChatRatePerSecond(), properties.getPerChatBurst()));
+        long chatWaitNanos = chatBucket.tryAcquire();
+        if (chatWaitNanos > 0) {
+            // Do not hold a worker for one busy chat, put the message back when its chat has a token
+            scheduler.schedule(() -> requeue(message), chatWaitNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        globalBucket.acquire();
+
+        SendMessage sendMessage = new SendMessage();
+        sendMessage.setChatId(String.valueOf(message.chatId));
+        sendMessage.setText(message.text);
+
+        long started = System.nanoTime();
+        try {
+            Message sent = sender.execute(sendMessage);
+            results.add(DeliveryResult.sent(message.id, sent != null ? sent.getMessageId() : null));
+            sentCounter.increment();
+        } catch (TelegramApiRequestException e) {
+            if (e.getErrorCode() != null && e.getErrorCode() == TOO_MANY_REQUESTS) {
+                int retryAfterSeconds = e.getParameters() != null && e.getParameters().getRetryAfter() != null
+                        ? e.getParameters().getRetryAfter() : 1;
+                long pauseNanos = TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+                chatBucket.pause(pauseNanos);
+                globalBucket.pause(pauseNanos);
+                rateLimitedCounter.increment();
+                logger.warning("Telegram rate limit hit for chatId " + message.chatId + ", retrying in " + retryAfterSeconds + "s");
+                scheduler.schedule(() -> requeue(message), pauseNanos, TimeUnit.NANOSECONDS);
+            } else {
+                fail(message, e);
+            }
+        } catch (TelegramApiException e) {
+            fail(message, e);
+        } finally {
+            sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void fail(OutboundMessage message, TelegramApiException e) {
+        logger.severe("Failed to send message " + message.id + " to chatId: " + message.chatId + ". Error: " + e.getMessage());
+        results.add(DeliveryResult.failed(message.id, e.getMessage()));
+        failedCounter.increment();
+    }
+
+    private void pollPendingQuietly() {
+        try {
+            pollPending();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to load pending Telegram messages", e);
+        }
+    }
+
+    private void pollPending() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        LocalDateTime createdBefore = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(properties.getPollGraceMs()));
+        List<TelegramMessage> pending = deliveryQueueRepository.claimPendingTelegramMessages(
+                createdBefore, claimLeaseDeadline(), Math.min(room, properties.getBatchSize()));
+        for (TelegramMessage message : pending) {
+            enqueue(new OutboundMessage(message.getId(), message.getChatId(), message.getMessageText()));
+        }
+        chatBuckets.values().removeIf(bucket -> bucket.isIdle(IDLE_CHAT_BUCKET_NANOS));
+    }
+
+    private void flushResultsQuietly() {
+        try {
+            flushResults();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to write Telegram delivery results", e);
+        }
+    }
+
+    private void flushResults() {
+        List<DeliveryResult> batch = new ArrayList<>(properties.getBatchSize());
+        DeliveryResult result;
+        while ((result = results.poll()) != null) {
+            batch.add(result);
+            if (batch.size() == properties.getBatchSize()) {
+                writeBatch(batch);
+                batch = new ArrayList<>(properties.getBatchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<DeliveryResult> batch) {
+        List<DeliveryResult> sent = new ArrayList<>();
+        List<DeliveryResult> failed = new ArrayList<>();
+        for (DeliveryResult result : batch) {
+            (result.sent ? sent : failed).add(result);
+        }
+        try {
+            if (!sent.isEmpty()) {
+                Long[] ids = new Long[sent.size()];
+                Long[] messageIds = new Long[sent.size()];
+                for (int i = 0; i < sent.size(); i++) {
+                    ids[i] = sent.get(i).id;
+                    messageIds[i] = sent.get(i).telegramMessageId;
+                }
+                deliveryQueueRepository.markTelegramMessagesSent(ids, messageIds);
+            }
+            if (!failed.isEmpty()) {
+                Long[] ids = new Long[failed.size()];
+                String[] errorMessages = new String[failed.size()];
+                for (int i = 0; i < failed.size(); i++) {
+                    ids[i] = failed.get(i).id;
+                    errorMessages[i] = failed.get(i).errorMessage;
+                }
+                deliveryQueueRepository.markTelegramMessagesFailed(ids, errorMessages);
+            }
+        } catch (RuntimeException e) {
+            // Keep the results and try again on the next flush; the rows stay in flight meanwhile
+            results.addAll(batch);
+            throw e;
+        }
+        for (DeliveryResult r : batch) {
+            inFlight.remove(r.id);
+        }
+    }
+
+    private static final class OutboundMessage {
+        private final Long id;
+        private final Long chatId;
+        private final String text;
+
+        private OutboundMessage(Long id, Long chatId, String text) {
+            this.id = id;
+            this.chatId = chatId;
+            this.text = text;
+        }
+    }
+
+    private static final class DeliveryResult {
+        private final long id;
+        private final boolean sent;
+        private final Long telegramMessageId;
+        private final String errorMessage;
+
+        private DeliveryResult(long id, boolean sent, Long telegramMessageId, String errorMessage) {
+            this.id = id;
+            this.sent = sent;
+            this.telegramMessageId = telegramMessageId;
+            this.errorMessage = errorMessage;
+        }
+
+        private static DeliveryResult sent(long id, Integer telegramMessageId) {
+            return new DeliveryResult(id, true, telegramMessageId != null ? telegramMessageId.longValue() : null, null);
+        }
+
+        private static DeliveryResult failed(long id, String errorMessage) {
+            return new DeliveryResult(id, false, null, errorMessage);
+        }
+    }
+}
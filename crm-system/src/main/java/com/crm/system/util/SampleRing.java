@@ -0,0 +1,170 @@
+package com.crm.system.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-size ring of timestamped samples with a fixed number of values each. Thread-safe.
+ *
+ * Values are kept in one primitive array per column, so adding a sample allocates nothing and
+ * the oldest sample is overwritten once the ring is full. Samples must be added in timestamp order.
+ */
+public class SampleRing {
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final double[][] columns;
+
+    // Index of the next sample to write and number of samples held
+    private int next;
+    private int size;
+
+    public SampleRing(int capacity, int columnCount) {
+        if (capacity < 1 || columnCount < 1) {
+            throw new IllegalArgumentException("capacity and columnCount must be positive");
+        }
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.columns = new double[columnCount][capacity];
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest one if the ring is full.
+     *
+     * @throws IllegalArgumentException if the number of values does not match the column count
+     */
+    public synchronized void add(long timestampMs, double... values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " values, got " + values.length);
+        }
+        timestamps[next] = timestampMs;
+        for (int column = 0; column < columns.length; column++) {
+            columns[column][next] = values[column];
+        }
+        next = (next + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return timestamp of the oldest sample held, or -1 if the ring is empty
+     */
+    public synchronized long oldestTimestamp() {
+        return size == 0 ? -1 : timestamps[index(0)];
+    }
+
+    /**
+     * @return values of the latest sample, or null if the ring is empty
+     */
+    public synchronized double[] latest() {
+        if (size == 0) {
+            return null;
+        }
+        int latest = index(size - 1);
+        double[] values = new double[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            values[column] = columns[column][latest];
+        }
+        return values;
+    }
+
+    /**
+     * Reduces the samples with fromMs <= timestamp < toMs to buckets of bucketMs. Buckets start
+     * at multiples of bucketMs shifted by offsetMs, e.g. the zone offset for local hours.
+     *
+     * @return buckets that hold at least one sample, oldest first
+     */
+    public synchronized List<Bucket> aggregate(long fromMs, long toMs, long bucketMs, long offsetMs) {
+        List<Bucket> buckets = new ArrayList<>();
+        Bucket current = null;
+        for (int i = firstAtOrAfter(fromMs); i < size; i++) {
+            int index = index(i);
+            long timestamp = timestamps[index];
+            if (timestamp >= toMs) {
+                break;
+            }
+            long bucketStart = Math.floorDiv(timestamp + offsetMs, bucketMs) * bucketMs - offsetMs;
+            if (current == null || current.startMs != bucketStart) {
+                current = new Bucket(bucketStart, columns.length);
+                buckets.add(current);
+            }
+            current.add(columns, index);
+        }
+        return buckets;
+    }
+
+    // Binary search over the samples in timestamp order
+    private int firstAtOrAfter(long timestampMs) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] < timestampMs) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int index(int position) {
+        return (next - size + position + capacity) % capacity;
+    }
+
+    public static final class Bucket {
+        private final long startMs;
+        private final double[] sums;
+        private final double[] maxima;
+        private final double[] last;
+        private int count;
+
+        private Bucket(long startMs, int columnCount) {
+            this.startMs = startMs;
+            this.sums = new double[columnCount];
+            this.maxima = new double[columnCount];
+            this.last = new double[columnCount];
+            Arrays.fill(maxima, Double.NEGATIVE_INFINITY);
+        }
+
+        private void add(double[][] columns, int index) {
+            for (int column = 0; column < columns.length; column++) {
+                double value = columns[column][index];
+                sums[column] += value;
+                maxima[column] = Math.max(maxima[column], value);
+                last[column] = value;
+            }
+            count++;
+        }
+
+        public long getStartMs() {
+            return startMs;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getSum(int column) {
+            return sums[column];
+        }
+
+        public double getAverage(int column) {
+            return sums[column] / count;
+        }
+
+        public double getMax(int column) {
+            return maxima[column];
+        }
+
+        public double getLast(int column) {
+            return last[column];
+        }
+    }
+}
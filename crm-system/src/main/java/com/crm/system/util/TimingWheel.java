@@ -0,0 +1,199 @@
+package com.crm.system.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical hashed timing wheel. Thread-safe.
+ *
+ * Level 0 has wheelSize buckets of tickMs each, every next level has wheelSize buckets spanning a
+ * whole rotation of the level below. A timeout is put into the lowest level that covers its
+ * deadline and moves down one level each time the clock reaches its bucket, so scheduling and
+ * cancelling are O(1) and advancing costs one bucket per tick plus the timeouts that move.
+ * There is at most one timeout per key; scheduling a key again replaces its timeout.
+ */
+public class TimingWheel<K> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] levelTicks;
+    private final Node<K>[][] buckets;
+    private final Map<K, Node<K>> timeouts = new HashMap<>();
+    private final List<Timeout<K>> expired = new ArrayList<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("tickMs must be positive, wheelSize at least 2 and levels at least 1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levels + 1];
+        this.levelTicks[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            levelTicks[level] = Math.multiplyExact(levelTicks[level - 1], wheelSize);
+        }
+        this.buckets = new Node[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            for (int index = 0; index < wheelSize; index++) {
+                Node<K> head = new Node<>(null, 0);
+                head.prev = head;
+                head.next = head;
+                buckets[level][index] = head;
+            }
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * Latest deadline, relative to the current time of the wheel, that can be scheduled.
+     */
+    public long getMaxDelayMs() {
+        return (levelTicks[levelTicks.length - 1] - 1) * tickMs;
+    }
+
+    /**
+     * Schedules key to expire at deadlineMs, replacing its previous timeout. A deadline that is
+     * already due expires on the next {@link #advance}.
+     *
+     * @throws IllegalArgumentException if the deadline is further away than {@link #getMaxDelayMs()}
+     */
+    public synchronized void schedule(K key, long deadlineMs) {
+        if (deadlineMs / tickMs - currentTick >= levelTicks[levelTicks.length - 1]) {
+            throw new IllegalArgumentException("Deadline " + deadlineMs + " is beyond the wheel");
+        }
+        cancel(key);
+        Node<K> node = new Node<>(key, deadlineMs);
+        timeouts.put(key, node);
+        place(node);
+    }
+
+    /**
+     * @return true if key had a pending timeout
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K> node = timeouts.remove(key);
+        if (node == null) {
+            return false;
+        }
+        if (node.prev != null) {
+            unlink(node);
+        } else {
+            expired.removeIf(timeout -> timeout.node == node);
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(K key) {
+        return timeouts.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    /**
+     * Moves the clock to nowMs.
+     *
+     * @return the timeouts that expired, in deadline order within a tick
+     */
+    public synchronized List<Timeout<K>> advance(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Higher levels first, so timeouts moved down can move further in the same tick
+            for (int level = buckets.length - 1; level >= 1; level--) {
+                if (currentTick % levelTicks[level] == 0) {
+                    cascade(buckets[level][(int) ((currentTick / levelTicks[level]) % wheelSize)]);
+                }
+            }
+            Node<K> head = buckets[0][(int) (currentTick % wheelSize)];
+            for (Node<K> node = head.next; node != head; ) {
+                Node<K> next = node.next;
+                unlink(node);
+                expire(node);
+                node = next;
+            }
+        }
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+        List<Timeout<K>> result = new ArrayList<>(expired);
+        expired.clear();
+        result.sort((a, b) -> Long.compare(a.getDeadlineMs(), b.getDeadlineMs()));
+        for (Timeout<K> timeout : result) {
+            timeouts.remove(timeout.getKey(), timeout.node);
+        }
+        return result;
+    }
+
+    private void cascade(Node<K> head) {
+        for (Node<K> node = head.next; node != head; ) {
+            Node<K> next = node.next;
+            unlink(node);
+            place(node);
+            node = next;
+        }
+    }
+
+    private void place(Node<K> node) {
+        long deadlineTick = node.deadlineMs / tickMs;
+        long delay = deadlineTick - currentTick;
+        if (delay <= 0) {
+            expire(node);
+            return;
+        }
+        int level = 0;
+        while (delay >= levelTicks[level + 1]) {
+            level++;
+        }
+        Node<K> head = buckets[level][(int) ((deadlineTick / levelTicks[level]) % wheelSize)];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void expire(Node<K> node) {
+        expired.add(new Timeout<>(node));
+    }
+
+    private static <K> void unlink(Node<K> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private final long deadlineMs;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long deadlineMs) {
+            this.key = key;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    public static final class Timeout<K> {
+        private final Node<K> node;
+
+        private Timeout(Node<K> node) {
+            this.node = node;
+        }
+
+        public K getKey() {
+            return node.key;
+        }
+
+        public long getDeadlineMs() {
+            return node.deadlineMs;
+        }
+    }
+}
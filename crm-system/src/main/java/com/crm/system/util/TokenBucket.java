@@ -0,0 +1,72 @@
+package com.crm.system.util;
+
+/**
+ * Token bucket rate limiter. Thread-safe; callers either take a token or learn
+ * how long to wait before the next one is available.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastUsedNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.refillPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastUsedNanos = lastRefillNanos;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the number of nanoseconds until one is available
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        refill(now);
+        lastUsedNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+
+    /**
+     * Blocks until a token is available.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    /**
+     * Empties the bucket and keeps it empty for the given time, e.g. after a 429 with retry_after.
+     */
+    public synchronized void pause(long nanos) {
+        long now = System.nanoTime();
+        refill(now);
+        tokens = Math.min(tokens, 0) - nanos * refillPerNano;
+    }
+
+    /**
+     * True if the bucket is full and has not been used for the given time, so it can be dropped.
+     */
+    public synchronized boolean isIdle(long idleNanos) {
+        long now = System.nanoTime();
+        refill(now);
+        return tokens >= capacity && now - lastUsedNanos >= idleNanos;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
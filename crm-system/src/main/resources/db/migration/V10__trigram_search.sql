@@ -0,0 +1,14 @@
+-- Fuzzy search over names and emails. The indexed expressions must match the ones in
+-- SearchRepository and StudentRepository.findBySearchTerm exactly to be used by the planner.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- GIN: substring filters (LIKE '%term%') of the paged student list
+CREATE INDEX idx_students_search_trgm ON students
+    USING gin ((lower(first_name || ' ' || last_name || ' ' || coalesce(email, ''))) gin_trgm_ops);
+
+-- GiST: typeahead, returns the closest rows in similarity order (<<->) without ranking every match
+CREATE INDEX idx_students_search_trgm_gist ON students
+    USING gist ((lower(first_name || ' ' || last_name || ' ' || coalesce(email, ''))) gist_trgm_ops);
+
+CREATE INDEX idx_users_search_trgm_gist ON users
+    USING gist ((lower(first_name || ' ' || last_name || ' ' || email)) gist_trgm_ops);
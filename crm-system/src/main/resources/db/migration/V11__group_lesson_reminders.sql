@@ -0,0 +1,14 @@
+-- Reminders already sent for a group lesson: one row per lesson, student, reminder type and lesson start.
+-- A rescheduled lesson has a new start and so is reminded again.
+CREATE TABLE group_lesson_reminders_sent (
+    group_lesson_id BIGINT NOT NULL REFERENCES group_lessons(id) ON DELETE CASCADE,
+    student_id BIGINT NOT NULL REFERENCES students(id) ON DELETE CASCADE,
+    reminder_type VARCHAR(30) NOT NULL,
+    lesson_start TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_group_lesson_reminders_sent PRIMARY KEY (group_lesson_id, student_id, reminder_type, lesson_start)
+);
+
+-- The planner reads confirmed lessons by start time
+CREATE INDEX idx_group_lessons_confirmed_start ON group_lessons((scheduled_date + scheduled_time))
+    WHERE status = 'CONFIRMED';
@@ -0,0 +1,27 @@
+-- Group lesson seats: current_students is kept by conditional updates, full lessons get a waitlist
+
+-- Store registration statuses as VARCHAR to match JPA @Enumerated(EnumType.STRING), as done for lessons.status in V4
+ALTER TABLE group_lesson_registrations ALTER COLUMN registration_status DROP DEFAULT;
+ALTER TABLE group_lesson_registrations ALTER COLUMN registration_status TYPE VARCHAR(20) USING registration_status::TEXT;
+ALTER TABLE group_lesson_registrations ALTER COLUMN registration_status SET DEFAULT 'REGISTERED';
+
+-- Registrations made before bookings were checked atomically may repeat a student; keep the earliest
+UPDATE group_lesson_registrations r
+SET registration_status = 'CANCELLED', cancellation_reason = 'Duplicate registration', updated_at = CURRENT_TIMESTAMP
+WHERE r.registration_status <> 'CANCELLED'
+  AND EXISTS (SELECT 1 FROM group_lesson_registrations o
+              WHERE o.group_lesson_id = r.group_lesson_id AND o.student_id = r.student_id
+                AND o.registration_status <> 'CANCELLED' AND o.id < r.id);
+
+-- At most one live registration per student and lesson, so concurrent bookings of one student cannot both win
+CREATE UNIQUE INDEX uq_group_lesson_registrations_live ON group_lesson_registrations(group_lesson_id, student_id)
+    WHERE registration_status <> 'CANCELLED';
+
+-- Waitlisted registrations in the order they are promoted
+CREATE INDEX idx_group_lesson_registrations_waitlist ON group_lesson_registrations(group_lesson_id, id)
+    WHERE registration_status = 'WAITLISTED';
+
+-- Every registration that was not cancelled holds a seat
+UPDATE group_lessons gl
+SET current_students = (SELECT COUNT(*) FROM group_lesson_registrations r
+                        WHERE r.group_lesson_id = gl.id AND r.registration_status <> 'CANCELLED');
@@ -0,0 +1,18 @@
+-- Composite and partial indexes for the hottest repository queries
+
+-- Lessons of a teacher or a student in a date range, ordered by date and time (LessonRepository).
+-- The range scan returns rows already in ORDER BY order, so no sort is needed. These indexes
+-- start with the same column as the single-column ones, which they replace.
+CREATE INDEX idx_lessons_teacher_schedule ON lessons(teacher_id, scheduled_date, scheduled_time);
+CREATE INDEX idx_lessons_student_schedule ON lessons(student_id, scheduled_date, scheduled_time);
+DROP INDEX idx_lessons_teacher;
+DROP INDEX idx_lessons_student;
+
+-- Failed Telegram messages below the retry limit, oldest first (findFailedMessagesWithRetriesBelow).
+-- The retry limit is checked on the index entries, before rows are fetched.
+CREATE INDEX idx_telegram_messages_failed_created ON telegram_messages(created_at, retry_count)
+    WHERE delivery_status = 'FAILED';
+
+-- Pending notifications created before a moment, oldest first (findPendingNotificationsBeforeDateTime)
+CREATE INDEX idx_notifications_pending_created ON notifications(created_at)
+    WHERE status = 'PENDING';
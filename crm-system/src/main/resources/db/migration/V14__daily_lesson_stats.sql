@@ -0,0 +1,22 @@
+-- Lessons per day, teacher and status for the dashboard trends. Kept current by LessonService
+-- with incremental updates and reconciled with lessons every night.
+CREATE TABLE daily_lesson_stats (
+    stat_date DATE NOT NULL,
+    teacher_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL,
+    lesson_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_daily_lesson_stats PRIMARY KEY (stat_date, teacher_id, status)
+);
+
+CREATE INDEX idx_daily_lesson_stats_teacher ON daily_lesson_stats(teacher_id);
+
+INSERT INTO daily_lesson_stats (stat_date, teacher_id, status, lesson_count)
+SELECT scheduled_date, teacher_id, status, COUNT(*)
+FROM lessons
+WHERE status IS NOT NULL
+GROUP BY scheduled_date, teacher_id, status;
+
+-- Registrations per day are counted over a date window of these columns
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users(created_at);
+CREATE INDEX IF NOT EXISTS idx_students_created_at ON students(created_at);
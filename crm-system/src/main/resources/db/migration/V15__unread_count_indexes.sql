@@ -0,0 +1,8 @@
+-- Unread counts per recipient, loaded when a recipient opens the push stream and recounted
+-- periodically for the connected recipients (UnreadCountRepository). Only unread rows are indexed,
+-- so a count reads a handful of index entries however long the history is.
+CREATE INDEX idx_notifications_unread_recipient ON notifications(recipient_id, recipient_type)
+    WHERE status IN ('PENDING', 'SENT', 'DELIVERED');
+
+CREATE INDEX idx_telegram_messages_unread_recipient ON telegram_messages(recipient_id, recipient_type)
+    WHERE delivery_status = 'DELIVERED' AND read_at IS NULL;
@@ -0,0 +1,8 @@
+-- Notification and Telegram message history of a recipient, newest first (MessageHistoryRepository).
+-- A page is a backward range scan that starts right before the cursor (created_at, id) and stops
+-- after the page size, so neither a deep page nor the ORDER BY needs a sort or an offset. These
+-- indexes start with the same columns as the recipient ones, which they replace.
+CREATE INDEX idx_notifications_recipient_history ON notifications(recipient_id, recipient_type, created_at, id);
+CREATE INDEX idx_telegram_messages_recipient_history ON telegram_messages(recipient_id, recipient_type, created_at, id);
+DROP INDEX idx_notifications_recipient;
+DROP INDEX idx_telegram_messages_recipient;
@@ -0,0 +1,10 @@
+-- Reminders and attendance requests already sent for an individual lesson: one row per lesson,
+-- reminder type and lesson start. Every instance loads the same reminder timers, and only the
+-- instance that inserts the row sends; a rescheduled lesson has a new start and is reminded again.
+CREATE TABLE lesson_reminders_sent (
+    lesson_id BIGINT NOT NULL REFERENCES lessons(id) ON DELETE CASCADE,
+    reminder_type VARCHAR(30) NOT NULL,
+    lesson_start TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_lesson_reminders_sent PRIMARY KEY (lesson_id, reminder_type, lesson_start)
+);
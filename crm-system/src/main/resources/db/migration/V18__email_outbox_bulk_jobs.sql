@@ -0,0 +1,5 @@
+-- Bulk emails started by an administrator: their rows share a job id, and the job status is
+-- counted from the rows themselves
+ALTER TABLE email_outbox ADD COLUMN bulk_job_id VARCHAR(36);
+
+CREATE INDEX idx_email_outbox_bulk_job_id ON email_outbox(bulk_job_id, created_at) WHERE bulk_job_id IS NOT NULL;
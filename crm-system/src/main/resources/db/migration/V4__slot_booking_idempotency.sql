@@ -0,0 +1,21 @@
+-- Slot booking: atomic claim of availability slots and idempotent lesson creation
+
+-- Columns mapped by the Lesson entity but missing from the initial schema
+ALTER TABLE lessons ADD COLUMN IF NOT EXISTS attendance_confirmed BOOLEAN DEFAULT FALSE;
+ALTER TABLE lessons ADD COLUMN IF NOT EXISTS end_time TIMESTAMP;
+
+-- Store statuses as VARCHAR to match JPA @Enumerated(EnumType.STRING), as done for users.role in V3
+ALTER TABLE availability_slots ALTER COLUMN status DROP DEFAULT;
+ALTER TABLE availability_slots ALTER COLUMN status TYPE VARCHAR(20) USING status::TEXT;
+ALTER TABLE availability_slots ALTER COLUMN status SET DEFAULT 'AVAILABLE';
+
+ALTER TABLE lessons ALTER COLUMN status DROP DEFAULT;
+ALTER TABLE lessons ALTER COLUMN status TYPE VARCHAR(20) USING status::TEXT;
+ALTER TABLE lessons ALTER COLUMN status SET DEFAULT 'SCHEDULED';
+ALTER TABLE lessons ALTER COLUMN cancelled_by TYPE VARCHAR(20) USING cancelled_by::TEXT;
+
+-- Client supplied key of the booking request; retries with the same key return the same lesson
+ALTER TABLE lessons ADD COLUMN booking_key VARCHAR(100);
+CREATE UNIQUE INDEX uq_lessons_booking_key ON lessons(booking_key) WHERE booking_key IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_lessons_slot ON lessons(slot_id);
@@ -0,0 +1,32 @@
+-- Delivery retries: persisted retry schedule and dead-letter state for Telegram messages and notifications
+
+-- Store enum columns as VARCHAR to match JPA @Enumerated(EnumType.STRING), as done in V3 and V4.
+-- The Java enums also have values (RETRY_PENDING, DEAD_LETTER) that the PostgreSQL types do not.
+ALTER TABLE telegram_messages ALTER COLUMN delivery_status DROP DEFAULT;
+ALTER TABLE telegram_messages ALTER COLUMN delivery_status TYPE VARCHAR(20) USING delivery_status::TEXT;
+ALTER TABLE telegram_messages ALTER COLUMN delivery_status SET DEFAULT 'PENDING';
+ALTER TABLE telegram_messages ALTER COLUMN message_type DROP DEFAULT;
+ALTER TABLE telegram_messages ALTER COLUMN message_type TYPE VARCHAR(50) USING message_type::TEXT;
+ALTER TABLE telegram_messages ALTER COLUMN message_type SET DEFAULT 'TEXT';
+ALTER TABLE telegram_messages ALTER COLUMN recipient_type TYPE VARCHAR(20) USING recipient_type::TEXT;
+
+ALTER TABLE notifications ALTER COLUMN status DROP DEFAULT;
+ALTER TABLE notifications ALTER COLUMN status TYPE VARCHAR(20) USING status::TEXT;
+ALTER TABLE notifications ALTER COLUMN status SET DEFAULT 'PENDING';
+ALTER TABLE notifications ALTER COLUMN notification_type TYPE VARCHAR(50) USING notification_type::TEXT;
+ALTER TABLE notifications ALTER COLUMN recipient_type TYPE VARCHAR(20) USING recipient_type::TEXT;
+
+-- Earliest time the row may be picked up again: the backoff for FAILED rows,
+-- the claim lease for PENDING rows that are being sent
+ALTER TABLE telegram_messages ADD COLUMN next_attempt_at TIMESTAMP;
+UPDATE telegram_messages SET retry_count = 0 WHERE retry_count IS NULL;
+ALTER TABLE telegram_messages ALTER COLUMN retry_count SET NOT NULL;
+
+ALTER TABLE notifications ADD COLUMN retry_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE notifications ADD COLUMN next_attempt_at TIMESTAMP;
+
+-- Due rows are claimed in next_attempt_at order; the partial indexes stay small
+CREATE INDEX idx_telegram_messages_retry_due ON telegram_messages(next_attempt_at)
+    WHERE delivery_status IN ('PENDING', 'FAILED');
+CREATE INDEX idx_notifications_retry_due ON notifications(next_attempt_at)
+    WHERE status IN ('PENDING', 'FAILED');
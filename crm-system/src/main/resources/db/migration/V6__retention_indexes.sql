@@ -0,0 +1,2 @@
+-- Retention purges select old rows by creation time; notifications already has idx_notifications_created_at
+CREATE INDEX IF NOT EXISTS idx_telegram_messages_created_at ON telegram_messages(created_at);
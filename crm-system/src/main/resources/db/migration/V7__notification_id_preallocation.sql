@@ -0,0 +1,3 @@
+-- Notification ids are preallocated by Hibernate in blocks of 50 (allocationSize on Notification.id),
+-- so batched inserts do not need a round trip per row to fetch the generated id
+ALTER SEQUENCE notifications_id_seq INCREMENT BY 50;
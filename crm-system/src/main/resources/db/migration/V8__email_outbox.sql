@@ -0,0 +1,19 @@
+-- Outbox of emails: rows are written in the caller's transaction and sent by the mail executor
+CREATE TABLE email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    recipient_email VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    body TEXT NOT NULL,
+    notification_id BIGINT REFERENCES notifications(id) ON DELETE SET NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+-- Claims read only unsent rows by due time; SENDING rows with an expired lease are claimed again
+CREATE INDEX idx_email_outbox_due ON email_outbox(next_attempt_at) WHERE status IN ('PENDING', 'SENDING');
+CREATE INDEX idx_email_outbox_created_at ON email_outbox(created_at);
+CREATE INDEX idx_email_outbox_notification_id ON email_outbox(notification_id);
@@ -0,0 +1,33 @@
+-- Remaining lessons per student, maintained together with lesson_packages.
+-- Every change of a student's packages updates this row first, so the row also serializes them.
+CREATE TABLE student_lesson_balances (
+    student_id BIGINT PRIMARY KEY REFERENCES students(id) ON DELETE CASCADE,
+    remaining_lessons INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT chk_balance_remaining_lessons CHECK (remaining_lessons >= 0)
+);
+
+-- Append-only history of balance changes
+CREATE TABLE lesson_balance_ledger (
+    id BIGSERIAL PRIMARY KEY,
+    student_id BIGINT NOT NULL REFERENCES students(id) ON DELETE CASCADE,
+    package_id BIGINT REFERENCES lesson_packages(id) ON DELETE SET NULL,
+    delta INTEGER NOT NULL,
+    balance_after INTEGER NOT NULL,
+    reason VARCHAR(30) NOT NULL,
+    reference_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_lesson_balance_ledger_student ON lesson_balance_ledger(student_id, id);
+CREATE INDEX idx_lesson_balance_ledger_package ON lesson_balance_ledger(package_id);
+
+-- Packages with lessons left, in the FIFO order deductions take them
+CREATE INDEX idx_lesson_packages_student_fifo ON lesson_packages(student_id, created_at, id)
+    WHERE remaining_lessons > 0;
+
+INSERT INTO student_lesson_balances (student_id, remaining_lessons)
+SELECT student_id, SUM(remaining_lessons) FROM lesson_packages GROUP BY student_id;
+
+INSERT INTO lesson_balance_ledger (student_id, delta, balance_after, reason)
+SELECT student_id, remaining_lessons, remaining_lessons, 'OPENING_BALANCE' FROM student_lesson_balances;
@@ -0,0 +1,142 @@
+package com.crm.system.repository;
+
+import com.crm.system.repository.EmailOutboxRepository.OutboxEmail;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Claims outbox rows from several threads and checks that each row is handed out once per
+ * attempt, and that the notification retry leaves alone notifications whose email is still
+ * in the outbox. The outbox poller and the delivery retry are kept out of the way.
+ */
+@SpringBootTest
+@Testcontainers
+class EmailOutboxRetryIT {
+
+    private static final int EMAILS = 200;
+    private static final int CLAIMERS = 4;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+        registry.add("notifications.group-reminders.plan-interval-ms", () -> "0");
+        registry.add("email.outbox.poll-interval-ms", () -> "3600000");
+        registry.add("delivery.retry.enabled", () -> "false");
+    }
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private DeliveryQueueRepository deliveryQueueRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentClaimsHandOutEachEmailOncePerAttempt() throws Exception {
+        String[] recipients = new String[EMAILS];
+        for (int i = 0; i < EMAILS; i++) {
+            recipients[i] = "outbox" + i + "@example.com";
+        }
+        emailOutboxRepository.insertAll(recipients, new Long[EMAILS], null, "Outbox claim check", "<p>Body</p>");
+        Set<Long> inserted = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM email_outbox WHERE subject = 'Outbox claim check'", Long.class));
+        assertEquals(EMAILS, inserted.size());
+
+        List<Long> firstAttempt = claimConcurrently(inserted);
+        assertEquals(EMAILS, firstAttempt.size());
+        assertEquals(inserted, new HashSet<>(firstAttempt), "every email claimed exactly once");
+        assertTrue(claimConcurrently(inserted).isEmpty(), "leased emails are not claimed again");
+
+        // Half of them fail: they come back once their retry is due, and only once
+        Long[] failed = firstAttempt.subList(0, EMAILS / 2).toArray(new Long[0]);
+        String[] errors = new String[failed.length];
+        Arrays.fill(errors, "550 Mailbox unavailable");
+        emailOutboxRepository.markFailed(failed, errors, 3, LocalDateTime.now().minusSeconds(1));
+        emailOutboxRepository.markSent(firstAttempt.subList(EMAILS / 2, EMAILS).toArray(new Long[0]));
+
+        List<Long> secondAttempt = claimConcurrently(inserted);
+        assertEquals(failed.length, secondAttempt.size());
+        assertEquals(Set.of(failed), new HashSet<>(secondAttempt));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT MAX(attempts) FROM email_outbox WHERE subject = 'Outbox claim check'", Integer.class));
+    }
+
+    @Test
+    void notificationWithUnsentEmailIsNotClaimedByTheNotificationRetry() {
+        Long notificationId = jdbcTemplate.queryForObject(
+                "INSERT INTO notifications (recipient_id, recipient_type, notification_type, title, message, " +
+                "                           status, retry_count, next_attempt_at, created_at, updated_at) " +
+                "VALUES (1, 'STUDENT', 'SYSTEM_MESSAGE', 'Retry check', 'Message', 'PENDING', 1, " +
+                "        now() - interval '1 hour', now(), now()) RETURNING id", Long.class);
+        emailOutboxRepository.insert("retry.check@example.com", "Retry check", "<p>Body</p>", notificationId);
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = now() + interval '1 hour' " +
+                "WHERE notification_id = ?", notificationId);
+
+        assertFalse(deliveryQueueRepository.claimDueNotifications(1000).contains(notificationId),
+                "a pending outbox email must not be queued a second time");
+
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'SENDING' WHERE notification_id = ?", notificationId);
+        assertFalse(deliveryQueueRepository.claimDueNotifications(1000).contains(notificationId),
+                "an email being sent must not be queued a second time");
+
+        // The outbox gave up on the email: now the notification retry owns it
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'FAILED' WHERE notification_id = ?", notificationId);
+        jdbcTemplate.update("UPDATE notifications SET status = 'FAILED' WHERE id = ?", notificationId);
+        assertTrue(deliveryQueueRepository.claimDueNotifications(1000).contains(notificationId));
+    }
+
+    // Claims from several threads until nothing is due and returns the claimed ids of this test's rows
+    private List<Long> claimConcurrently(Set<Long> ours) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLAIMERS);
+        try {
+            List<Callable<List<Long>>> claimers = new ArrayList<>();
+            for (int i = 0; i < CLAIMERS; i++) {
+                claimers.add(() -> {
+                    List<Long> claimed = new ArrayList<>();
+                    List<OutboxEmail> page;
+                    do {
+                        page = emailOutboxRepository.claimDue(LocalDateTime.now().plusMinutes(5), 7);
+                        page.forEach(email -> claimed.add(email.getId()));
+                    } while (!page.isEmpty());
+                    return claimed;
+                });
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> future : executor.invokeAll(claimers)) {
+                all.addAll(future.get());
+            }
+            return all.stream().filter(ours::contains).collect(Collectors.toList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.crm.system.repository;
+
+import com.crm.system.model.Lesson;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the hot repository queries against seeded tables, EXPLAINs the SQL Hibernate issued for
+ * them and fails if the table they read is scanned sequentially.
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HotQueryPlanIT {
+
+    private static final int TEACHERS = 200;
+    private static final int STUDENTS = 2_000;
+    private static final int LESSONS = 200_000;
+    private static final int TELEGRAM_MESSAGES = 100_000;
+    private static final int NOTIFICATIONS = 100_000;
+
+    private static final ThreadLocal<String> lastSql = new ThreadLocal<>();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+    }
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        // Remembers the last statement prepared on each thread, so the test sees the SQL of its own query
+        @Bean
+        HibernatePropertiesCustomizer sqlCapture() {
+            StatementInspector inspector = sql -> {
+                lastSql.set(sql);
+                return sql;
+            };
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private TelegramMessageRepository telegramMessageRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long teacherId;
+    private long studentId;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "SELECT 'Teacher', 'No' || g, 'plan.teacher' || g || '@example.com', 'x', 'TEACHER' " +
+                "FROM generate_series(1, ?) AS g", TEACHERS);
+        jdbcTemplate.update(
+                "INSERT INTO students (first_name, last_name, created_at, updated_at) " +
+                "SELECT 'Student', 'No' || g, now(), now() FROM generate_series(1, ?) AS g", STUDENTS);
+        jdbcTemplate.update(
+                "INSERT INTO lessons (student_id, teacher_id, scheduled_date, scheduled_time, status) " +
+                "SELECT s.ids[1 + g % array_length(s.ids, 1)], t.ids[1 + (g / 7) % array_length(t.ids, 1)], " +
+                "       CURRENT_DATE - 365 + g % 730, TIME '08:00' + (g % 12) * INTERVAL '1 hour', " +
+                "       (ARRAY['SCHEDULED', 'COMPLETED', 'CANCELLED', 'MISSED'])[1 + g % 4] " +
+                "FROM generate_series(1, ?) AS g, " +
+                "     (SELECT array_agg(id) AS ids FROM students) s, " +
+                "     (SELECT array_agg(id) AS ids FROM users WHERE role = 'TEACHER') t", LESSONS);
+        jdbcTemplate.update(
+                "INSERT INTO telegram_messages (chat_id, recipient_id, recipient_type, message_text, " +
+                "                               delivery_status, retry_count, created_at, updated_at) " +
+                "SELECT g, g % 1000, 'STUDENT', 'Message ' || g, " +
+                "       CASE WHEN g % 50 = 0 THEN 'FAILED' ELSE 'SENT' END, g % 5, " +
+                "       now() - g * INTERVAL '1 minute', now() " +
+                "FROM generate_series(1, ?) AS g", TELEGRAM_MESSAGES);
+        jdbcTemplate.update(
+                "INSERT INTO notifications (recipient_id, recipient_type, notification_type, title, message, " +
+                "                           status, created_at, updated_at) " +
+                "SELECT g % 1000, 'STUDENT', 'LESSON_REMINDER', 'Title', 'Message ' || g, " +
+                "       CASE WHEN g % 100 = 0 THEN 'PENDING' ELSE 'SENT' END, " +
+                "       now() - g * INTERVAL '1 minute', now() " +
+                "FROM generate_series(1, ?) AS g", NOTIFICATIONS);
+        jdbcTemplate.execute("ANALYZE users, students, lessons, telegram_messages, notifications");
+
+        teacherId = jdbcTemplate.queryForObject("SELECT min(id) FROM users WHERE role = 'TEACHER'", Long.class);
+        studentId = jdbcTemplate.queryForObject("SELECT min(id) FROM students", Long.class);
+    }
+
+    @Test
+    void lessonsOfTeacherInDateRangeUseIndex() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusWeeks(1);
+
+        lessonRepository.findByTeacherIdAndDateRange(teacherId, from, to);
+        assertNoSeqScan("lessons", teacherId, from, to);
+
+        lessonRepository.findCalendarLessonsByTeacherIdAndDateRange(teacherId, from, to);
+        assertNoSeqScan("lessons", teacherId, from, to);
+
+        List<Lesson.LessonStatus> statuses = List.of(Lesson.LessonStatus.SCHEDULED, Lesson.LessonStatus.COMPLETED);
+        lessonRepository.findByTeacherIdAndStatusesAndDateRange(teacherId, statuses, from, to);
+        assertNoSeqScan("lessons", teacherId, statuses, from, to);
+    }
+
+    @Test
+    void lessonsOfStudentInDateRangeUseIndex() {
+        LocalDate from = LocalDate.now().minusMonths(1);
+        LocalDate to = LocalDate.now();
+
+        lessonRepository.findByStudentIdAndDateRange(studentId, from, to);
+        assertNoSeqScan("lessons", studentId, from, to);
+
+        lessonRepository.findCalendarLessonsByStudentIdAndDateRange(studentId, from, to);
+        assertNoSeqScan("lessons", studentId, from, to);
+
+        List<Lesson.LessonStatus> statuses = List.of(Lesson.LessonStatus.COMPLETED);
+        lessonRepository.findByStudentIdAndStatusesAndDateRange(studentId, statuses, from, to);
+        assertNoSeqScan("lessons", studentId, statuses, from, to);
+    }
+
+    @Test
+    void failedTelegramMessagesUsePartialIndex() {
+        telegramMessageRepository.findFailedMessagesWithRetriesBelow(3);
+        assertNoSeqScan("telegram_messages", 3);
+    }
+
+    @Test
+    void pendingNotificationsUsePartialIndex() {
+        LocalDateTime before = LocalDateTime.now().minusDays(1);
+        notificationRepository.findPendingNotificationsBeforeDateTime(before);
+        assertNoSeqScan("notifications", before);
+    }
+
+    /**
+     * EXPLAINs the last statement Hibernate prepared on this thread, with the parameters inlined
+     * in the order they were bound.
+     */
+    private void assertNoSeqScan(String table, Object... parameters) {
+        String sql = lastSql.get();
+        assertNotNull(sql, "no statement was captured");
+
+        List<String> literals = new ArrayList<>();
+        for (Object parameter : parameters) {
+            if (parameter instanceof Collection<?> values) {
+                for (Object value : values) {
+                    literals.add(literal(value));
+                }
+            } else {
+                literals.add(literal(parameter));
+            }
+        }
+        StringBuilder explained = new StringBuilder("EXPLAIN ");
+        int next = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                assertTrue(next < literals.size(), "more parameters than given in: " + sql);
+                explained.append(literals.get(next++));
+            } else {
+                explained.append(c);
+            }
+        }
+        assertEquals(literals.size(), next, "fewer parameters than given in: " + sql);
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(explained.toString(), String.class));
+        System.out.println(plan);
+        assertFalse(plan.contains("Seq Scan on " + table + " "), "sequential scan of " + table + ":\n" + plan);
+    }
+
+    private static String literal(Object value) {
+        String text = value instanceof Enum<?> constant ? constant.name() : value.toString();
+        return "'" + text.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,108 @@
+package com.crm.system.security;
+
+import com.crm.system.config.AuthCacheProperties;
+import com.crm.system.model.User;
+import com.crm.system.model.UserRole;
+import com.crm.system.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    private AuthenticationCache authenticationCache;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        authenticationCache = new AuthenticationCache();
+        ReflectionTestUtils.setField(authenticationCache, "properties", new AuthCacheProperties());
+        ReflectionTestUtils.setField(authenticationCache, "meterRegistry", new SimpleMeterRegistry());
+        authenticationCache.init();
+        ReflectionTestUtils.setField(userDetailsService, "authenticationCache", authenticationCache);
+
+        user = new User("Ivan", "Petrov", "teacher@example.com", "hash", UserRole.TEACHER);
+        user.setId(1L);
+        when(userService.findByEmail("teacher@example.com")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void testCachedLookupHitsDatabaseOnce() {
+        UserDetails first = userDetailsService.loadCachedUserByUsername("teacher@example.com");
+        UserDetails second = userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        assertSame(first, second);
+        verify(userService, times(1)).findByEmail("teacher@example.com");
+    }
+
+    @Test
+    void testRoleChangeEvictsCachedUser() {
+        userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        User updated = new User("Ivan", "Petrov", "teacher@example.com", "hash", UserRole.ADMIN);
+        updated.setId(1L);
+        authenticationCache.onUserChanged(updated);
+        when(userService.findByEmail("teacher@example.com")).thenReturn(Optional.of(updated));
+
+        UserDetails reloaded = userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        assertTrue(reloaded.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+        verify(userService, times(2)).findByEmail("teacher@example.com");
+    }
+
+    @Test
+    void testPrincipalCarriesIdRoleAndName() {
+        UserDetails userDetails = userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, userDetails);
+        assertEquals(1L, principal.getId());
+        assertEquals(UserRole.TEACHER, principal.getRole());
+        assertEquals("Ivan", principal.getFirstName());
+        assertEquals("Petrov", principal.getLastName());
+        assertEquals("teacher@example.com", principal.getEmail());
+    }
+
+    @Test
+    void testNameChangeEvictsCachedUser() {
+        userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        User renamed = new User("Ivan", "Sidorov", "teacher@example.com", "hash", UserRole.TEACHER);
+        renamed.setId(1L);
+        authenticationCache.onUserChanged(renamed);
+        when(userService.findByEmail("teacher@example.com")).thenReturn(Optional.of(renamed));
+
+        AuthenticatedUser reloaded = (AuthenticatedUser) userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        assertEquals("Sidorov", reloaded.getLastName());
+        verify(userService, times(2)).findByEmail("teacher@example.com");
+    }
+
+    @Test
+    void testUnrelatedChangeKeepsCachedUser() {
+        userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        user.setPhone("+79990000000");
+        authenticationCache.onUserChanged(user);
+        userDetailsService.loadCachedUserByUsername("teacher@example.com");
+
+        verify(userService, times(1)).findByEmail("teacher@example.com");
+    }
+}
@@ -0,0 +1,197 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.CalendarDayDto;
+import com.crm.system.dto.CalendarSlotDto;
+import com.crm.system.model.AvailabilitySlot;
+import com.crm.system.model.GroupLesson;
+import com.crm.system.model.Lesson;
+import com.crm.system.model.Student;
+import com.crm.system.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the previous per-day filtering of the teacher calendar with the indexed assembly
+ * on a synthetic teacher with 500 slots over 90 days.
+ *
+ * Not part of the test run, start it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.crm.system.service.CalendarAssemblyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalendarAssemblyBenchmark {
+
+    private static final int DAYS = 90;
+    private static final int SLOTS = 500;
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<AvailabilitySlot> slots;
+    private List<Lesson> lessons;
+    private List<GroupLesson> groupLessons;
+
+    @Setup
+    public void setUp() {
+        startDate = LocalDate.of(2025, 1, 6);
+        endDate = startDate.plusDays(DAYS - 1);
+
+        User teacher = new User();
+        teacher.setId(1L);
+        teacher.setFirstName("Anna");
+        teacher.setLastName("Petrova");
+
+        List<Student> students = new ArrayList<>();
+        for (long i = 1; i <= 40; i++) {
+            Student student = new Student();
+            student.setId(i);
+            student.setFirstName("Student" + i);
+            student.setLastName("Test");
+            students.add(student);
+        }
+
+        slots = new ArrayList<>();
+        lessons = new ArrayList<>();
+        for (int i = 0; i < SLOTS; i++) {
+            LocalDate date = startDate.plusDays(i % DAYS);
+            LocalTime time = LocalTime.of(9 + (i / DAYS) % 10, 0);
+
+            AvailabilitySlot slot = new AvailabilitySlot(teacher, date, time);
+            slot.setId((long) i + 1);
+
+            // Roughly three quarters of the slots are booked
+            if (i % 4 != 0) {
+                slot.setIsBooked(true);
+                slot.setStatus(AvailabilitySlot.SlotStatus.BOOKED);
+                Lesson lesson = new Lesson(students.get(i % students.size()), teacher, date, time);
+                lesson.setId((long) lessons.size() + 1);
+                lesson.setSlot(slot);
+                lessons.add(lesson);
+            }
+            slots.add(slot);
+        }
+
+        // Lessons booked outside of availability slots
+        for (int i = 0; i < 60; i++) {
+            Lesson lesson = new Lesson(students.get(i % students.size()), teacher,
+                    startDate.plusDays(i % DAYS), LocalTime.of(20, 0));
+            lesson.setId((long) lessons.size() + 1);
+            lessons.add(lesson);
+        }
+
+        groupLessons = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            GroupLesson groupLesson = new GroupLesson(teacher, "Topic " + i, startDate.plusDays(i * 3L), LocalTime.of(18, 0));
+            groupLesson.setId((long) i + 1);
+            groupLessons.add(groupLesson);
+        }
+    }
+
+    @Benchmark
+    public List<CalendarDayDto> perDayFiltering() {
+        return assembleByFilteringEachDay(startDate, endDate, slots, lessons, groupLessons);
+    }
+
+    @Benchmark
+    public List<CalendarDayDto> indexedAssembly() {
+        return CalendarService.assembleTeacherCalendar(startDate, endDate, slots, lessons, groupLessons);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CalendarAssemblyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    // Previous implementation of CalendarService.getTeacherCalendar, kept as the baseline
+    private static List<CalendarDayDto> assembleByFilteringEachDay(LocalDate startDate, LocalDate endDate,
+                                                                   List<AvailabilitySlot> slots,
+                                                                   List<Lesson> lessons,
+                                                                   List<GroupLesson> groupLessons) {
+        List<CalendarDayDto> calendarDays = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            List<CalendarSlotDto> daySlots = new ArrayList<>();
+            LocalDate day = date;
+            List<AvailabilitySlot> dayAvailabilitySlots = slots.stream()
+                    .filter(slot -> slot.getSlotDate().equals(day))
+                    .collect(Collectors.toList());
+            List<Lesson> dayLessons = lessons.stream()
+                    .filter(lesson -> lesson.getScheduledDate().equals(day))
+                    .collect(Collectors.toList());
+            List<GroupLesson> dayGroupLessons = groupLessons.stream()
+                    .filter(groupLesson -> groupLesson.getScheduledDate().equals(day))
+                    .collect(Collectors.toList());
+
+            for (AvailabilitySlot slot : dayAvailabilitySlots) {
+                CalendarSlotDto calendarSlot = new CalendarSlotDto();
+                calendarSlot.setSlotId(slot.getId());
+                calendarSlot.setTime(slot.getSlotTime());
+                calendarSlot.setDurationMinutes(slot.getDurationMinutes());
+                calendarSlot.setSlotStatus(slot.getStatus());
+                calendarSlot.setIsBooked(slot.getIsBooked());
+                Lesson lessonInSlot = dayLessons.stream()
+                        .filter(lesson -> lesson.getSlot() != null && lesson.getSlot().getId().equals(slot.getId()))
+                        .findFirst()
+                        .orElse(null);
+                if (lessonInSlot != null) {
+                    calendarSlot.setLessonId(lessonInSlot.getId());
+                    calendarSlot.setLessonStatus(lessonInSlot.getStatus());
+                    calendarSlot.setStudentId(lessonInSlot.getStudent().getId());
+                    calendarSlot.setStudentName(lessonInSlot.getStudent().getFirstName() + " " +
+                                              lessonInSlot.getStudent().getLastName());
+                }
+                daySlots.add(calendarSlot);
+            }
+
+            for (Lesson lesson : dayLessons.stream().filter(lesson -> lesson.getSlot() == null).collect(Collectors.toList())) {
+                CalendarSlotDto calendarSlot = new CalendarSlotDto();
+                calendarSlot.setLessonId(lesson.getId());
+                calendarSlot.setTime(lesson.getScheduledTime());
+                calendarSlot.setDurationMinutes(lesson.getDurationMinutes());
+                calendarSlot.setLessonStatus(lesson.getStatus());
+                calendarSlot.setStudentId(lesson.getStudent().getId());
+                calendarSlot.setStudentName(lesson.getStudent().getFirstName() + " " +
+                                          lesson.getStudent().getLastName());
+                calendarSlot.setIsBooked(true);
+                daySlots.add(calendarSlot);
+            }
+
+            for (GroupLesson groupLesson : dayGroupLessons) {
+                CalendarSlotDto calendarSlot = new CalendarSlotDto();
+                calendarSlot.setGroupLessonId(groupLesson.getId());
+                calendarSlot.setGroupLessonTopic(groupLesson.getLessonTopic());
+                calendarSlot.setTime(groupLesson.getScheduledTime());
+                calendarSlot.setDurationMinutes(groupLesson.getDurationMinutes());
+                calendarSlot.setGroupLessonStatus(groupLesson.getStatus());
+                calendarSlot.setIsBooked(true);
+                calendarSlot.setMaxStudents(groupLesson.getMaxStudents());
+                calendarSlot.setCurrentStudents(groupLesson.getCurrentStudents());
+                daySlots.add(calendarSlot);
+            }
+
+            calendarDays.add(new CalendarDayDto(date, daySlots));
+        }
+        return calendarDays;
+    }
+}
@@ -0,0 +1,166 @@
+package com.crm.system.service;
+
+import com.crm.system.model.Lesson;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seeds a year of lessons, changes them through LessonService and checks the rollup against a recount.
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DailyLessonStatsIT {
+
+    private static final int TEACHERS = 20;
+    private static final int STUDENTS = 400;
+    private static final int LESSONS = 40_000;
+    private static final int MEASURED_QUERIES = 200;
+    private static final int WARMUP_QUERIES = 20;
+
+    // What the rollup replaces: the same year of daily counts recounted from lessons
+    private static final String RECOUNT_TREND_SQL =
+            "SELECT d.day, COUNT(l.id) FILTER (WHERE l.status = 'COMPLETED') AS completed, COUNT(l.id) AS total " +
+            "FROM generate_series(CAST(? AS DATE), CAST(? AS DATE), INTERVAL '1 day') AS d(day) " +
+            "LEFT JOIN lessons l ON l.scheduled_date = d.day " +
+            "GROUP BY d.day ORDER BY d.day";
+
+    // Rows of the rollup that differ from a recount of lessons, in either direction
+    private static final String DRIFT_SQL =
+            "SELECT count(*) FROM (" +
+            "  (SELECT stat_date, teacher_id, status, lesson_count FROM daily_lesson_stats WHERE lesson_count <> 0 " +
+            "   EXCEPT SELECT scheduled_date, teacher_id, status, COUNT(*) FROM lessons GROUP BY 1, 2, 3) " +
+            "  UNION ALL " +
+            "  (SELECT scheduled_date, teacher_id, status, COUNT(*) FROM lessons GROUP BY 1, 2, 3 " +
+            "   EXCEPT SELECT stat_date, teacher_id, status, lesson_count FROM daily_lesson_stats WHERE lesson_count <> 0)" +
+            ") drift";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+    }
+
+    @Autowired
+    private LessonService lessonService;
+
+    @Autowired
+    private DailyLessonStatsService dailyLessonStatsService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seedLessons() {
+        jdbcTemplate.update(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "SELECT 'Teacher', 'No' || g, 'stats.teacher' || g || '@example.com', 'x', 'TEACHER' " +
+                "FROM generate_series(1, ?) AS g", TEACHERS);
+        jdbcTemplate.update(
+                "INSERT INTO students (first_name, last_name, created_at, updated_at) " +
+                "SELECT 'Student', 'No' || g, now(), now() FROM generate_series(1, ?) AS g", STUDENTS);
+        // Inserted directly, so the rollup only learns about them from the reconciliation
+        jdbcTemplate.update(
+                "INSERT INTO lessons (student_id, teacher_id, scheduled_date, scheduled_time, status) " +
+                "SELECT s.ids[1 + g % array_length(s.ids, 1)], t.ids[1 + (g / 3) % array_length(t.ids, 1)], " +
+                "       CURRENT_DATE - 380 + g % 400, TIME '08:00' + (g % 12) * INTERVAL '1 hour', " +
+                "       (ARRAY['COMPLETED', 'COMPLETED', 'COMPLETED', 'CANCELLED', 'MISSED', 'SCHEDULED'])[1 + g % 6] " +
+                "FROM generate_series(1, ?) AS g, " +
+                "     (SELECT array_agg(id) AS ids FROM students) s, " +
+                "     (SELECT array_agg(id) AS ids FROM users WHERE role = 'TEACHER') t", LESSONS);
+        dailyLessonStatsService.reconcile();
+        jdbcTemplate.execute("ANALYZE daily_lesson_stats");
+    }
+
+    @Test
+    void lessonChangesKeepRollupExact() {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM lessons WHERE status = 'SCHEDULED' ORDER BY id LIMIT 5", Long.class);
+
+        lessonService.completeLesson(lesson(ids.get(0)));
+        lessonService.cancelLesson(lesson(ids.get(1)), Lesson.CancelledBy.STUDENT, "Sick");
+        lessonService.markAsMissed(lesson(ids.get(2)));
+        Lesson moved = lesson(ids.get(3));
+        moved.setScheduledDate(moved.getScheduledDate().plusDays(3));
+        lessonService.updateLesson(moved);
+        lessonService.deleteLesson(ids.get(4));
+        Lesson added = lesson(ids.get(0));
+        lessonService.createLesson(added.getStudent(), added.getTeacher(), LocalDate.now(), added.getScheduledTime());
+
+        assertEquals(0, jdbcTemplate.queryForObject(DRIFT_SQL, Integer.class));
+        assertEquals(0, dailyLessonStatsService.reconcile());
+    }
+
+    @Test
+    void reconciliationRepairsChangesMadeAroundTheService() {
+        jdbcTemplate.update("UPDATE lessons SET status = 'CANCELLED' WHERE id IN " +
+                "(SELECT id FROM lessons WHERE status = 'COMPLETED' ORDER BY id LIMIT 50)");
+        assertTrue(jdbcTemplate.queryForObject(DRIFT_SQL, Integer.class) > 0);
+
+        assertTrue(dailyLessonStatsService.reconcile() > 0);
+        assertEquals(0, jdbcTemplate.queryForObject(DRIFT_SQL, Integer.class));
+    }
+
+    @Test
+    void yearTrendIsFasterThanRecountingLessons() {
+        LocalDate end = LocalDate.now();
+        LocalDate start = end.minusDays(365);
+
+        long rollupP50 = measure("365-day completion trend from the rollup",
+                () -> dashboardService.getLessonCompletionTrend(start, end));
+        long recountP50 = measure("365-day completion trend recounted from lessons",
+                () -> jdbcTemplate.queryForList(RECOUNT_TREND_SQL, start, end));
+
+        assertTrue(rollupP50 < recountP50,
+                "rollup p50 " + rollupP50 / 1e6 + " ms, recount p50 " + recountP50 / 1e6 + " ms");
+    }
+
+    // Runs the query after a warmup and returns its p50 latency in nanoseconds
+    private long measure(String label, Supplier<List<Map<String, Object>>> query) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            query.get();
+        }
+        List<Long> latencies = new ArrayList<>(MEASURED_QUERIES);
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long started = System.nanoTime();
+            List<Map<String, Object>> trend = query.get();
+            latencies.add(System.nanoTime() - started);
+            assertEquals(366, trend.size());
+        }
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        long p95 = latencies.get((int) Math.ceil(latencies.size() * 0.95) - 1);
+        System.out.printf("%s: p50 %.2f ms, p95 %.2f ms%n", label, p50 / 1e6, p95 / 1e6);
+        return p50;
+    }
+
+    private Lesson lesson(long id) {
+        return lessonService.findById(id).orElseThrow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.crm.system.service;
+
+import com.crm.system.config.EmailGatewayProperties;
+import com.crm.system.model.User;
+import com.crm.system.model.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class EmailGatewayServiceTest {
+
+    private static final String BASE_URL = "http://email-service.test/api/emails";
+
+    private final EmailGatewayProperties properties = new EmailGatewayProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EmailGatewayService emailGatewayService;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBaseUrl(BASE_URL);
+        properties.setBatchWaitMs(2000);
+        properties.setStatusPollIntervalMs(50);
+        emailGatewayService = new EmailGatewayService(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailGatewayService.stop();
+    }
+
+    @Test
+    void pollsStatusOnceForTheWholeBatch() throws InterruptedException {
+        properties.setBatchSize(3);
+        start(false);
+        server.expect(requestTo(BASE_URL + "/batch?async=true"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.ACCEPTED).contentType(MediaType.APPLICATION_JSON).body("""
+                        {"results": [
+                          {"success": true, "message": "Accepted", "messageId": "m1"},
+                          {"success": true, "message": "Accepted", "messageId": "m2"},
+                          {"success": true, "message": "Accepted", "messageId": "m3"}
+                        ]}"""));
+        server.expect(requestTo(BASE_URL + "/messages/status"))
+                .andExpect(jsonPath("$.messageIds.length()").value(3))
+                .andRespond(withSuccess("""
+                        [{"messageId": "m1", "status": "SENT"},
+                         {"messageId": "m2", "status": "QUEUED"},
+                         {"messageId": "m3", "status": "QUEUED"}]""", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/messages/status"))
+                .andExpect(jsonPath("$.messageIds.length()").value(2))
+                .andRespond(withSuccess("""
+                        [{"messageId": "m2", "status": "SENT"},
+                         {"messageId": "m3", "status": "FAILED", "error": "Mailbox unavailable"}]""",
+                        MediaType.APPLICATION_JSON));
+
+        emailGatewayService.sendWelcomeEmail(user("first@example.com"), "secret1");
+        emailGatewayService.sendWelcomeEmail(user("second@example.com"), "secret2");
+        emailGatewayService.sendWelcomeEmail(user("third@example.com"), "secret3");
+
+        server.verify(Duration.ofSeconds(5));
+        awaitCount("status", "failure", 1);
+        assertEquals(2, count("status", "success"));
+        // Everything is resolved, so the status endpoint is not called again
+        Thread.sleep(200);
+        server.verify();
+    }
+
+    @Test
+    void sendsItemsRejectedByAFullQueueThroughWelcome() throws InterruptedException {
+        properties.setBatchSize(2);
+        start(true);
+        server.expect(requestTo(BASE_URL + "/batch?async=true"))
+                .andRespond(withStatus(HttpStatus.ACCEPTED).contentType(MediaType.APPLICATION_JSON).body("""
+                        {"results": [
+                          {"success": true, "message": "Accepted", "messageId": "m1"},
+                          {"success": false, "message": "Email queue is full, try again later", "retryable": true}
+                        ]}"""));
+        server.expect(requestTo(BASE_URL + "/welcome"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.recipientEmail").value("second@example.com"))
+                .andExpect(jsonPath("$.temporaryPassword").value("secret2"))
+                .andRespond(withSuccess("{\"success\": true, \"message\": \"Welcome email sent\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/messages/status"))
+                .andExpect(jsonPath("$.messageIds[0]").value("m1"))
+                .andRespond(withSuccess("[{\"messageId\": \"m1\", \"status\": \"SENT\"}]", MediaType.APPLICATION_JSON));
+
+        emailGatewayService.sendWelcomeEmail(user("first@example.com"), "secret1");
+        emailGatewayService.sendWelcomeEmail(user("second@example.com"), "secret2");
+
+        server.verify(Duration.ofSeconds(5));
+        awaitCount("single", "success", 1);
+        assertEquals(1, count("batch-item", "rejected"));
+    }
+
+    @Test
+    void doesNotResendItemsRejectedAsInvalid() throws InterruptedException {
+        properties.setBatchSize(2);
+        start(false);
+        server.expect(requestTo(BASE_URL + "/batch?async=true"))
+                .andRespond(withStatus(HttpStatus.ACCEPTED).contentType(MediaType.APPLICATION_JSON).body("""
+                        {"results": [
+                          {"success": false, "message": "Invalid item: welcome.recipientEmail must be a well-formed email address"},
+                          {"success": false, "message": "Invalid item: welcome.recipientEmail must be a well-formed email address"}
+                        ]}"""));
+
+        emailGatewayService.sendWelcomeEmail(user("first@"), "secret1");
+        emailGatewayService.sendWelcomeEmail(user("second@"), "secret2");
+
+        server.verify(Duration.ofSeconds(5));
+        Thread.sleep(200);
+        server.verify();
+        assertEquals(0, count("batch-item", "rejected"));
+    }
+
+    private void start(boolean ignoreExpectOrder) {
+        emailGatewayService.start();
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(ignoreExpectOrder).build();
+        emailGatewayService.setRestTemplate(restTemplate);
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setRole(UserRole.STUDENT);
+        return user;
+    }
+
+    private double count(String endpoint, String result) {
+        return meterRegistry.counter("email.gateway.calls", "endpoint", endpoint, "result", result).count();
+    }
+
+    // Counters are updated after the mock server has answered, on the gateway's own threads
+    private void awaitCount(String endpoint, String result, double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count(endpoint, result) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, count(endpoint, result));
+    }
+}
@@ -0,0 +1,93 @@
+package com.crm.system.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+class GroupLessonReminderPlannerIT {
+
+    private static final int STUDENTS = 30;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("notifications.group-reminders.chunk-size", () -> "7");
+        registry.add("notifications.group-reminders.plan-interval-ms", () -> "0");
+        registry.add("reminders.scheduler.enabled", () -> "false");
+    }
+
+    @Autowired
+    private GroupLessonReminderPlanner planner;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long lessonId;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE group_lessons SET status = 'CANCELLED'");
+        long teacherId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "VALUES ('Anna', 'Teacher', 'teacher' || nextval('users_id_seq') || '@example.com', 'x', 'TEACHER') " +
+                "RETURNING id", Long.class);
+        start = LocalDateTime.now().plusHours(20).truncatedTo(ChronoUnit.MINUTES);
+        lessonId = jdbcTemplate.queryForObject(
+                "INSERT INTO group_lessons (teacher_id, lesson_topic, scheduled_date, scheduled_time, status) " +
+                "VALUES (?, 'Conversation club', CAST(? AS DATE), CAST(? AS TIME), 'CONFIRMED') RETURNING id",
+                Long.class, teacherId, Timestamp.valueOf(start), start.toLocalTime().toString());
+        jdbcTemplate.update(
+                "WITH s AS (INSERT INTO students (first_name, last_name, created_at, updated_at) " +
+                "           SELECT 'Student', 'No' || g, now(), now() FROM generate_series(1, ?) AS g RETURNING id) " +
+                "INSERT INTO group_lesson_registrations (group_lesson_id, student_id) SELECT ?, id FROM s",
+                STUDENTS, lessonId);
+    }
+
+    @Test
+    void remindsEachRegisteredStudentOnce() {
+        assertEquals(STUDENTS, planner.planDayBeforeReminders());
+        assertEquals(0, planner.planDayBeforeReminders());
+
+        assertEquals(STUDENTS, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM notifications WHERE related_entity_id = ? " +
+                "AND notification_type = 'GROUP_LESSON_REMINDER'", Integer.class, lessonId));
+    }
+
+    @Test
+    void remindsAgainAfterReschedule() {
+        planner.planDayBeforeReminders();
+        LocalDateTime rescheduled = start.plusMinutes(30);
+        jdbcTemplate.update("UPDATE group_lessons SET scheduled_date = CAST(? AS DATE), scheduled_time = CAST(? AS TIME) " +
+                "WHERE id = ?", Timestamp.valueOf(rescheduled), rescheduled.toLocalTime().toString(), lessonId);
+
+        assertEquals(STUDENTS, planner.planDayBeforeReminders());
+    }
+
+    @Test
+    void staleTimerOfLessonRemindsNobody() {
+        assertEquals(0, planner.planDayBeforeReminders(lessonId, start.plusMinutes(30)));
+        assertEquals(STUDENTS, planner.planDayBeforeReminders(lessonId, start));
+        assertEquals(0, planner.planDayBeforeReminders(lessonId, start));
+    }
+}
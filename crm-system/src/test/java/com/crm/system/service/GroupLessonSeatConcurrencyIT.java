@@ -0,0 +1,212 @@
+package com.crm.system.service;
+
+import com.crm.system.exception.ValidationException;
+import com.crm.system.model.GroupLesson;
+import com.crm.system.model.GroupLessonRegistration;
+import com.crm.system.model.Student;
+import com.crm.system.repository.GroupLessonRepository;
+import com.crm.system.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+class GroupLessonSeatConcurrencyIT {
+
+    private static final int SEATS = 25;
+    private static final int REGISTRANTS = 300;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+        registry.add("reminders.scheduler.enabled", () -> "false");
+        registry.add("notifications.group-reminders.plan-interval-ms", () -> "0");
+    }
+
+    @Autowired
+    private GroupLessonRegistrationService registrationService;
+
+    @Autowired
+    private GroupLessonRepository groupLessonRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private GroupLesson groupLesson;
+    private List<Student> students;
+
+    @BeforeEach
+    void setUp() {
+        long teacherId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "VALUES ('Anna', 'Teacher', 'teacher' || nextval('users_id_seq') || '@example.com', 'x', 'TEACHER') " +
+                "RETURNING id", Long.class);
+        long lessonId = jdbcTemplate.queryForObject(
+                "INSERT INTO group_lessons (teacher_id, lesson_topic, scheduled_date, scheduled_time, max_students, status) " +
+                "VALUES (?, 'Conversation club', CURRENT_DATE + 7, '18:00', ?, 'SCHEDULED') RETURNING id",
+                Long.class, teacherId, SEATS);
+        List<Long> studentIds = jdbcTemplate.queryForList(
+                "INSERT INTO students (first_name, last_name, created_at, updated_at) " +
+                "SELECT 'Student', 'No' || g, now(), now() FROM generate_series(1, ?) AS g RETURNING id",
+                Long.class, REGISTRANTS);
+        groupLesson = groupLessonRepository.findById(lessonId).orElseThrow();
+        students = studentRepository.findAllById(studentIds);
+    }
+
+    @Test
+    void concurrentBookingsNeverOverfill() throws Exception {
+        List<Callable<GroupLessonRegistration>> bookings = new ArrayList<>();
+        for (Student student : students) {
+            bookings.add(() -> registrationService.bookSlot(groupLesson, student));
+        }
+
+        int waitlisted = 0;
+        for (Future<GroupLessonRegistration> result : runConcurrently(bookings)) {
+            if (result.get().isWaitlisted()) {
+                waitlisted++;
+            }
+        }
+
+        assertEquals(REGISTRANTS - SEATS, waitlisted);
+        assertEquals(SEATS, currentStudents());
+        assertEquals(SEATS, countRegistrations("REGISTERED"));
+        assertEquals(REGISTRANTS - SEATS, countRegistrations("WAITLISTED"));
+    }
+
+    @Test
+    void concurrentBookingsOfOneStudentRegisterOnce() throws Exception {
+        Student student = students.get(0);
+        List<Callable<GroupLessonRegistration>> bookings = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            bookings.add(() -> registrationService.bookSlot(groupLesson, student));
+        }
+
+        int succeeded = 0;
+        for (Future<GroupLessonRegistration> result : runConcurrently(bookings)) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (Exception e) {
+                assertInstanceOf(ValidationException.class, e.getCause());
+            }
+        }
+
+        assertEquals(1, succeeded);
+        assertEquals(1, currentStudents());
+    }
+
+    @Test
+    void freedSeatsGoToWaitlistWhileBookingsContinue() throws Exception {
+        List<GroupLessonRegistration> registered = new ArrayList<>();
+        for (Student student : students.subList(0, SEATS)) {
+            registered.add(registrationService.bookSlot(groupLesson, student));
+        }
+        List<GroupLessonRegistration> firstWaitlisted = new ArrayList<>();
+        for (Student student : students.subList(SEATS, SEATS + 5)) {
+            firstWaitlisted.add(registrationService.bookSlot(groupLesson, student));
+        }
+
+        // Half of the seats are freed while the remaining students register
+        List<Callable<Object>> operations = new ArrayList<>();
+        for (GroupLessonRegistration registration : registered.subList(0, SEATS / 2)) {
+            operations.add(() -> {
+                registrationService.cancelBooking(registration.getId(), "Plans changed");
+                return null;
+            });
+        }
+        for (Student student : students.subList(SEATS + 5, REGISTRANTS)) {
+            operations.add(() -> registrationService.bookSlot(groupLesson, student));
+        }
+        for (Future<Object> result : runConcurrently(operations)) {
+            result.get();
+        }
+
+        // Students waiting before the cancellations were promoted first
+        for (GroupLessonRegistration registration : firstWaitlisted) {
+            assertEquals("REGISTERED", jdbcTemplate.queryForObject(
+                    "SELECT registration_status FROM group_lesson_registrations WHERE id = ?",
+                    String.class, registration.getId()));
+        }
+        assertEquals(SEATS, currentStudents());
+        assertEquals(SEATS, countRegistrations("REGISTERED"));
+        assertEquals(REGISTRANTS - SEATS - SEATS / 2, countRegistrations("WAITLISTED"));
+    }
+
+    @Test
+    void cancelledStudentCanBookAgain() {
+        Student student = students.get(0);
+        GroupLessonRegistration first = registrationService.bookSlot(groupLesson, student);
+        registrationService.cancelBooking(first.getId(), "Plans changed");
+        assertFalse(registrationService.isSlotBookedByStudent(groupLesson.getId(), student.getId()));
+
+        GroupLessonRegistration second = registrationService.bookSlot(groupLesson, student);
+        registrationService.cancelBooking(second.getId(), "Plans changed again");
+        GroupLessonRegistration third = registrationService.bookSlot(groupLesson, student);
+
+        assertTrue(third.isRegistered());
+        // Two cancelled rows and one live row of the same student
+        assertTrue(registrationService.isSlotBookedByStudent(groupLesson.getId(), student.getId()));
+        assertThrows(ValidationException.class, () -> registrationService.bookSlot(groupLesson, student));
+        assertEquals(1, currentStudents());
+        assertEquals(2, countRegistrations("CANCELLED"));
+    }
+
+    private <T> List<Future<T>> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        List<Future<T>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (Callable<T> task : tasks) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private int currentStudents() {
+        return jdbcTemplate.queryForObject(
+                "SELECT current_students FROM group_lessons WHERE id = ?", Integer.class, groupLesson.getId());
+    }
+
+    private int countRegistrations(String status) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM group_lesson_registrations WHERE group_lesson_id = ? AND registration_status = ?",
+                Integer.class, groupLesson.getId(), status);
+    }
+}
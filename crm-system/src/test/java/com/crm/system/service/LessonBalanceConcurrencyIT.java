@@ -0,0 +1,115 @@
+package com.crm.system.service;
+
+import com.crm.system.model.LessonPackage;
+import com.crm.system.model.Student;
+import com.crm.system.repository.LessonPackageRepository;
+import com.crm.system.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+class LessonBalanceConcurrencyIT {
+
+    private static final int DEDUCTORS = 50;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+    }
+
+    @Autowired
+    private LessonPackageService lessonPackageService;
+
+    @Autowired
+    private LessonPackageRepository lessonPackageRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    private Student student;
+    private LessonPackage olderPackage;
+    private LessonPackage newerPackage;
+
+    @BeforeEach
+    void setUp() {
+        student = studentRepository.save(new Student("Ivan", "Sidorov", null, null, null, null));
+        olderPackage = lessonPackageService.createLessonPackage(student, 3);
+        newerPackage = lessonPackageService.createLessonPackage(student, 4);
+    }
+
+    @Test
+    void concurrentDeductionsNeverOverdraw() throws Exception {
+        List<Future<Integer>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(DEDUCTORS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < DEDUCTORS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return lessonPackageService.deductLessons(student.getId(), 1);
+                }));
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int succeeded = 0;
+        for (Future<Integer> result : results) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (Exception e) {
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            }
+        }
+
+        assertEquals(7, succeeded);
+        assertEquals(0, lessonPackageService.getRemainingLessons(student.getId()));
+        assertEquals(0, remaining(olderPackage));
+        assertEquals(0, remaining(newerPackage));
+        assertEquals(0, lessonPackageService.getBalanceLedger(student.getId(), 1).get(0).getBalanceAfter());
+    }
+
+    @Test
+    void deductionTakesOldestPackageFirst() {
+        int balance = lessonPackageService.deductLessons(student.getId(), 4, 42L);
+
+        assertEquals(3, balance);
+        assertEquals(0, remaining(olderPackage));
+        assertEquals(3, remaining(newerPackage));
+        assertFalse(lessonPackageService.hasEnoughLessons(student.getId(), 4));
+        assertThrows(IllegalArgumentException.class, () -> lessonPackageService.deductLessons(student.getId(), 4));
+        assertEquals(3, remaining(newerPackage));
+    }
+
+    private int remaining(LessonPackage lessonPackage) {
+        return lessonPackageRepository.findById(lessonPackage.getId()).orElseThrow().getRemainingLessons();
+    }
+}
@@ -0,0 +1,182 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.HistoryPageDto;
+import com.crm.system.dto.NotificationDto;
+import com.crm.system.dto.TelegramMessageDto;
+import com.crm.system.model.Notification;
+import com.crm.system.model.TelegramMessage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seeds a recipient with a long notification and Telegram message history and compares the
+ * latency of page 500 through the offset queries with the keyset history.
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MessageHistoryPagingIT {
+
+    private static final long RECIPIENT_ID = 1;
+    private static final int HISTORY = 30_000;
+    private static final int OTHER_RECIPIENTS = 1_000;
+    private static final int OTHER_HISTORY = 200_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGE = 500;
+    private static final int WARMUP_QUERIES = 50;
+    private static final int MEASURED_QUERIES = 200;
+
+    private static final List<Notification.NotificationStatus> NOTIFICATION_STATUSES = List.of(
+            Notification.NotificationStatus.SENT, Notification.NotificationStatus.READ);
+    private static final List<TelegramMessage.DeliveryStatus> DELIVERY_STATUSES = List.of(
+            TelegramMessage.DeliveryStatus.PENDING, TelegramMessage.DeliveryStatus.SENT,
+            TelegramMessage.DeliveryStatus.DELIVERED, TelegramMessage.DeliveryStatus.READ);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+    }
+
+    @Autowired
+    private MessageHistoryService messageHistoryService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private TelegramMessageService telegramMessageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seedHistory() {
+        // The recipient gets one entry a minute going back HISTORY minutes, everyone else shares the rest
+        jdbcTemplate.update(
+                "INSERT INTO notifications (recipient_id, recipient_type, notification_type, title, message, " +
+                "                           status, created_at, updated_at) " +
+                "SELECT CASE WHEN g <= ? THEN ? ELSE 2 + g % ? END, 'STUDENT', 'LESSON_REMINDER', " +
+                "       'Title ' || g, 'Message ' || g, CASE WHEN g % 3 = 0 THEN 'READ' ELSE 'SENT' END, " +
+                "       now() - g * INTERVAL '1 minute', now() " +
+                "FROM generate_series(1, ?) AS g",
+                HISTORY, RECIPIENT_ID, OTHER_RECIPIENTS, HISTORY + OTHER_HISTORY);
+        jdbcTemplate.update(
+                "INSERT INTO telegram_messages (chat_id, recipient_id, recipient_type, message_text, " +
+                "                               delivery_status, created_at, updated_at) " +
+                "SELECT g, CASE WHEN g <= ? THEN ? ELSE 2 + g % ? END, 'STUDENT', 'Message ' || g, " +
+                "       CASE WHEN g % 3 = 0 THEN 'READ' ELSE 'DELIVERED' END, " +
+                "       now() - g * INTERVAL '1 minute', now() " +
+                "FROM generate_series(1, ?) AS g",
+                HISTORY, RECIPIENT_ID, OTHER_RECIPIENTS, HISTORY + OTHER_HISTORY);
+        jdbcTemplate.execute("ANALYZE notifications, telegram_messages");
+    }
+
+    @Test
+    void notificationPage500IsFasterWithKeyset() {
+        String cursor = cursorBefore(
+                "SELECT created_at, id FROM notifications WHERE recipient_id = ? AND recipient_type = 'STUDENT' " +
+                "AND status IN ('SENT', 'READ') ORDER BY created_at DESC, id DESC OFFSET ? LIMIT 1");
+
+        long offsetP50 = measure("Notifications, offset page " + PAGE, () ->
+                notificationService.findByRecipientIdAndRecipientTypeAndStatuses(
+                        RECIPIENT_ID, Notification.RecipientType.STUDENT, NOTIFICATION_STATUSES,
+                        PageRequest.of(PAGE - 1, PAGE_SIZE)).getContent().size());
+        long keysetP50 = measure("Notifications, keyset page " + PAGE, () ->
+                messageHistoryService.getNotificationHistory(
+                        RECIPIENT_ID, Notification.RecipientType.STUDENT, NOTIFICATION_STATUSES, null,
+                        cursor, PAGE_SIZE, false).getItems().size());
+
+        assertTrue(keysetP50 < offsetP50, "keyset p50 " + keysetP50 / 1e6 + " ms, offset p50 " + offsetP50 / 1e6 + " ms");
+    }
+
+    @Test
+    void telegramMessagePage500IsFasterWithKeyset() {
+        String cursor = cursorBefore(
+                "SELECT created_at, id FROM telegram_messages WHERE recipient_id = ? AND recipient_type = 'STUDENT' " +
+                "ORDER BY created_at DESC, id DESC OFFSET ? LIMIT 1");
+
+        long offsetP50 = measure("Telegram messages, offset page " + PAGE, () ->
+                telegramMessageService.findByRecipientIdAndRecipientTypeAndDeliveryStatuses(
+                        RECIPIENT_ID, TelegramMessage.RecipientType.STUDENT, DELIVERY_STATUSES,
+                        PageRequest.of(PAGE - 1, PAGE_SIZE)).getContent().size());
+        long keysetP50 = measure("Telegram messages, keyset page " + PAGE, () ->
+                messageHistoryService.getTelegramMessageHistory(
+                        RECIPIENT_ID, TelegramMessage.RecipientType.STUDENT, DELIVERY_STATUSES,
+                        cursor, PAGE_SIZE, false).getItems().size());
+
+        assertTrue(keysetP50 < offsetP50, "keyset p50 " + keysetP50 / 1e6 + " ms, offset p50 " + offsetP50 / 1e6 + " ms");
+    }
+
+    @Test
+    void keysetPagesWalkTheWholeHistoryOnce() {
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            HistoryPageDto<TelegramMessageDto> page = messageHistoryService.getTelegramMessageHistory(
+                    RECIPIENT_ID, TelegramMessage.RecipientType.STUDENT, null, cursor, 100, false);
+            for (TelegramMessageDto item : page.getItems()) {
+                assertTrue(seen.add(item.getId()), "message " + item.getId() + " returned twice");
+            }
+            assertNull(page.getTotal());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(HISTORY, seen.size());
+
+        HistoryPageDto<NotificationDto> first = messageHistoryService.getNotificationHistory(
+                RECIPIENT_ID, Notification.RecipientType.STUDENT, List.of(Notification.NotificationStatus.READ),
+                null, null, PAGE_SIZE, true);
+        assertEquals((long) HISTORY / 3, first.getTotal());
+        assertEquals(PAGE_SIZE, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+    }
+
+    // Cursor of the last entry of the page before PAGE, as the client would have it after paging there
+    private String cursorBefore(String sql) {
+        return jdbcTemplate.queryForObject(sql,
+                (rs, rowNum) -> rs.getTimestamp("created_at").toLocalDateTime() + ":" + rs.getLong("id"),
+                RECIPIENT_ID, (PAGE - 1) * PAGE_SIZE - 1);
+    }
+
+    private long measure(String label, IntSupplier query) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            query.getAsInt();
+        }
+        List<Long> latencies = new ArrayList<>(MEASURED_QUERIES);
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long start = System.nanoTime();
+            int items = query.getAsInt();
+            latencies.add(System.nanoTime() - start);
+            assertEquals(PAGE_SIZE, items);
+        }
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        long p95 = latencies.get((int) Math.ceil(latencies.size() * 0.95) - 1);
+        System.out.printf("%s of %d entries: p50 %.2f ms, p95 %.2f ms%n", label, HISTORY, p50 / 1e6, p95 / 1e6);
+        return p50;
+    }
+}
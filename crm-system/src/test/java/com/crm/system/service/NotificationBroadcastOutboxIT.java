@@ -0,0 +1,87 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.BroadcastProgressDto;
+import com.crm.system.model.Notification.NotificationType;
+import com.crm.system.model.Notification.RecipientType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a broadcast over several chunks and checks that every notification gets exactly one
+ * outbox row, addressed to its recipient and rendered from one shared body.
+ */
+@SpringBootTest
+@Testcontainers
+class NotificationBroadcastOutboxIT {
+
+    private static final int TEACHERS = 25;
+    private static final String TITLE = "Broadcast outbox check";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+        registry.add("notifications.group-reminders.plan-interval-ms", () -> "0");
+        registry.add("notifications.broadcast.chunk-size", () -> "7");
+    }
+
+    @Autowired
+    private NotificationBroadcastService notificationBroadcastService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void broadcastQueuesOneOutboxRowPerNotification() throws InterruptedException {
+        jdbcTemplate.update(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "SELECT 'Broadcast', 'Teacher' || g, 'broadcast.teacher' || g || '@example.com', 'x', 'TEACHER' " +
+                "FROM generate_series(1, ?) AS g", TEACHERS);
+
+        BroadcastProgressDto progress = notificationBroadcastService.broadcastToRecipientType(
+                RecipientType.TEACHER, NotificationType.SYSTEM_MESSAGE, TITLE, "Message for all teachers");
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (progress.getCompletedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            progress = notificationBroadcastService.getBroadcastProgress(progress.getId());
+        }
+
+        assertEquals("COMPLETED", progress.getStatus(), progress.getErrorMessage());
+        assertTrue(progress.getChunksProcessed() > 1, "broadcast should span several chunks");
+        assertTrue(progress.getNotificationsCreated() >= TEACHERS);
+        assertEquals(progress.getNotificationsCreated(), progress.getEmailsQueued());
+
+        Long outboxRows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox o JOIN notifications n ON n.id = o.notification_id " +
+                "WHERE n.title = ?", Long.class, TITLE);
+        Long notifiedRecipients = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT o.notification_id) FROM email_outbox o " +
+                "JOIN notifications n ON n.id = o.notification_id WHERE n.title = ?", Long.class, TITLE);
+        Long misaddressed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox o JOIN notifications n ON n.id = o.notification_id " +
+                "JOIN users u ON u.id = n.recipient_id WHERE n.title = ? AND o.recipient_email <> u.email",
+                Long.class, TITLE);
+        Long bodies = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT o.body) FROM email_outbox o JOIN notifications n ON n.id = o.notification_id " +
+                "WHERE n.title = ? AND o.subject = n.title", Long.class, TITLE);
+
+        assertEquals(progress.getNotificationsCreated(), outboxRows);
+        assertEquals(outboxRows, notifiedRecipients);
+        assertEquals(0L, misaddressed);
+        assertEquals(1L, bodies);
+    }
+}
@@ -0,0 +1,153 @@
+package com.crm.system.service;
+
+import com.crm.system.model.Notification;
+import com.crm.system.security.JwtTokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Opens the notification stream over HTTP and checks that its unread counts follow changes made
+ * through NotificationService, with the periodic recount out of the way.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class NotificationPushIT {
+
+    private static final long EVENT_TIMEOUT_SECONDS = 10;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("reminders.scheduler.enabled", () -> "false");
+        registry.add("notifications.group-reminders.plan-interval-ms", () -> "0");
+        registry.add("notifications.push.resync-interval", () -> "1h");
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void streamFollowsUnreadCountsOfTheAuthenticatedUser() throws Exception {
+        String email = "push.teacher@example.com";
+        long teacherId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (first_name, last_name, email, password_hash, role) " +
+                "VALUES ('Push', 'Teacher', ?, 'x', 'TEACHER') RETURNING id", Long.class, email);
+        jdbcTemplate.update(
+                "INSERT INTO notifications (recipient_id, recipient_type, notification_type, title, message, " +
+                "                           status, created_at, updated_at) " +
+                "SELECT ?, 'TEACHER', 'SYSTEM_MESSAGE', 'Title', 'Message', s, now(), now() " +
+                "FROM unnest(ARRAY['PENDING', 'SENT', 'READ']) AS s", teacherId);
+
+        String token = jwtTokenUtil.generateToken(userDetailsService.loadUserByUsername(email));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/notifications/stream"))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+
+        BlockingQueue<Map<String, Object>> events = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> readEvents(response.body().iterator(), events), "sse-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            assertUnreadCount(events, 2);
+
+            Notification created = notificationService.createNotification(teacherId, Notification.RecipientType.TEACHER,
+                    Notification.NotificationType.SYSTEM_MESSAGE, "Lesson moved", "Tomorrow at 10:00");
+            Map<String, Object> pushed = nextEvent(events, "notification");
+            assertEquals("Lesson moved", ((Map<?, ?>) pushed.get("data")).get("title"));
+            assertUnreadCount(events, 3);
+
+            notificationService.markAsRead(created);
+            assertUnreadCount(events, 2);
+
+            notificationService.markAllAsReadByRecipient(teacherId, Notification.RecipientType.TEACHER);
+            assertUnreadCount(events, 1);
+            assertEquals(1, notificationService.countUnreadNotificationsByRecipient(
+                    teacherId, Notification.RecipientType.TEACHER));
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private void assertUnreadCount(BlockingQueue<Map<String, Object>> events, long expected) throws InterruptedException {
+        Map<?, ?> counts = (Map<?, ?>) nextEvent(events, "unread-count").get("data");
+        assertEquals(expected, ((Number) counts.get("notifications")).longValue());
+    }
+
+    private Map<String, Object> nextEvent(BlockingQueue<Map<String, Object>> events, String name)
+            throws InterruptedException {
+        Map<String, Object> event = events.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(event, "no " + name + " event within " + EVENT_TIMEOUT_SECONDS + " s");
+        assertEquals(name, event.get("event"));
+        return event;
+    }
+
+    // Named events only; heartbeats are comments without a name
+    private void readEvents(Iterator<String> lines, BlockingQueue<Map<String, Object>> events) {
+        String name = null;
+        String data = null;
+        try {
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (line.startsWith("event:")) {
+                    name = line.substring("event:".length()).trim();
+                } else if (line.startsWith("data:")) {
+                    data = line.substring("data:".length());
+                } else if (line.isEmpty()) {
+                    if (name != null && data != null) {
+                        events.add(Map.of("event", name, "data", objectMapper.readValue(data, Map.class)));
+                    }
+                    name = null;
+                    data = null;
+                }
+            }
+        } catch (Exception e) {
+            // The stream was closed by the test
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.BookSlotDto;
+import com.crm.system.model.AvailabilitySlot;
+import com.crm.system.model.Lesson;
+import com.crm.system.model.Student;
+import com.crm.system.model.User;
+import com.crm.system.model.UserRole;
+import com.crm.system.repository.AvailabilitySlotRepository;
+import com.crm.system.repository.LessonRepository;
+import com.crm.system.repository.StudentRepository;
+import com.crm.system.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+class SlotBookingConcurrencyIT {
+
+    private static final int BOOKERS = 200;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+    }
+
+    @Autowired
+    private SlotBookingService slotBookingService;
+
+    @Autowired
+    private AvailabilitySlotRepository availabilitySlotRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private AvailabilitySlot slot;
+    private List<Student> students;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        User teacher = userRepository.save(new User("Anna", "Petrova", "teacher-" + suffix + "@example.com",
+                "hash", UserRole.TEACHER));
+        slot = availabilitySlotRepository.save(
+                new AvailabilitySlot(teacher, LocalDate.now().plusDays(7), LocalTime.of(10, 0)));
+
+        students = new ArrayList<>();
+        for (int i = 0; i < BOOKERS; i++) {
+            students.add(studentRepository.save(new Student("Student" + i, "Test", null, null, null, null)));
+        }
+    }
+
+    @Test
+    void exactlyOneOfConcurrentBookersWins() throws Exception {
+        List<Future<Lesson>> results = runConcurrently(i -> bookRequest(students.get(i).getId(), null));
+
+        int winners = 0;
+        int rejected = 0;
+        for (Future<Lesson> result : results) {
+            try {
+                assertNotNull(result.get());
+                winners++;
+            } catch (Exception e) {
+                rejected++;
+            }
+        }
+
+        assertEquals(1, winners);
+        assertEquals(BOOKERS - 1, rejected);
+        assertEquals(1, lessonRepository.findBySlotId(slot.getId()).size());
+        assertTrue(availabilitySlotRepository.findById(slot.getId()).orElseThrow().isBooked());
+    }
+
+    @Test
+    void retriesWithSameKeyReturnTheSameLesson() {
+        Long studentId = students.get(0).getId();
+        String key = UUID.randomUUID().toString();
+
+        Lesson first = slotBookingService.bookSlot(bookRequest(studentId, key));
+        Lesson retry = slotBookingService.bookSlot(bookRequest(studentId, key));
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(1, lessonRepository.findBySlotId(slot.getId()).size());
+    }
+
+    @Test
+    void concurrentRequestsWithSameKeyReturnTheSameLesson() throws Exception {
+        Long studentId = students.get(0).getId();
+        String key = UUID.randomUUID().toString();
+        List<Future<Lesson>> results = runConcurrently(i -> bookRequest(studentId, key));
+
+        Set<Long> lessonIds = new HashSet<>();
+        for (Future<Lesson> result : results) {
+            lessonIds.add(result.get().getId());
+        }
+
+        assertEquals(1, lessonIds.size());
+        assertEquals(1, lessonRepository.findBySlotId(slot.getId()).size());
+    }
+
+    private List<Future<Lesson>> runConcurrently(IntFunction<BookSlotDto> requests)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(BOOKERS);
+        CountDownLatch ready = new CountDownLatch(BOOKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Lesson>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < BOOKERS; i++) {
+                BookSlotDto request = requests.apply(i);
+                results.add(pool.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return slotBookingService.bookSlot(request);
+                }));
+            }
+            assertTrue(ready.await(30, TimeUnit.SECONDS));
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private BookSlotDto bookRequest(Long studentId, String idempotencyKey) {
+        BookSlotDto dto = new BookSlotDto();
+        dto.setSlotId(slot.getId());
+        dto.setStudentId(studentId);
+        dto.setIdempotencyKey(idempotencyKey);
+        return dto;
+    }
+}
@@ -0,0 +1,127 @@
+package com.crm.system.service;
+
+import com.crm.system.dto.SearchPageDto;
+import com.crm.system.dto.SearchResultDto;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seeds 200k students and compares the latency of the trigram typeahead search with the same
+ * search when the planner may not use the trigram indexes. Latencies are printed; only the
+ * comparison is asserted, so the test does not depend on the speed of the machine.
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StudentSearchLatencyIT {
+
+    private static final int STUDENTS = 200_000;
+    private static final int WARMUP_QUERIES = 200;
+    private static final int MEASURED_QUERIES = 1000;
+    // Every query without the indexes scans the whole table, so the baseline is sampled less
+    private static final int BASELINE_QUERIES = 50;
+
+    private static final String[] TERMS = {
+            "ива", "петр", "smir", "olga", "сидор", "kuznet", "ivanov.12", "мари", "alex", "novik"
+    };
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void seedStudents() {
+        jdbcTemplate.update(
+                "INSERT INTO students (first_name, last_name, email, created_at, updated_at) " +
+                "SELECT (ARRAY['Иван','Мария','Пётр','Ольга','Alex','Olga','Dmitry','Анна','Sergey','Елена'])[1 + g % 10], " +
+                "       (ARRAY['Иванов','Петрова','Сидоров','Smirnova','Kuznetsov','Novikova','Popov','Морозова'])[1 + (g / 10) % 8] || (g % 997), " +
+                "       'student' || g || '.' || (ARRAY['ivanov','petrova','smirnov','kuznetsov','novikov'])[1 + g % 5] || '@example.com', " +
+                "       now(), now() " +
+                "FROM generate_series(1, ?) AS g", STUDENTS);
+        jdbcTemplate.execute("ANALYZE students");
+    }
+
+    @Test
+    void typeaheadIsFasterWithTrigramIndexes() {
+        long indexedP50 = measure("Student search", MEASURED_QUERIES);
+
+        // SET LOCAL applies to the transaction's connection, which the search shares
+        long baselineP50 = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+            jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+            return measure("Student search without indexes", BASELINE_QUERIES);
+        });
+
+        assertTrue(indexedP50 < baselineP50,
+                "indexed p50 " + indexedP50 / 1e6 + " ms, without indexes p50 " + baselineP50 / 1e6 + " ms");
+    }
+
+    @Test
+    void keysetPagesDoNotRepeatHits() {
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        for (int page = 0; page < 5; page++) {
+            SearchPageDto result = searchService.searchStudents("smirnova1", cursor, 20);
+            for (SearchResultDto item : result.getItems()) {
+                assertTrue(seen.add(item.getId()), "hit " + item.getId() + " returned twice");
+            }
+            cursor = result.getNextCursor();
+            if (cursor == null) {
+                break;
+            }
+        }
+        assertFalse(seen.isEmpty());
+    }
+
+    private long measure(String label, int queries) {
+        for (int i = 0; i < Math.min(WARMUP_QUERIES, queries); i++) {
+            searchService.searchStudents(TERMS[i % TERMS.length], null, 10);
+        }
+        List<Long> latencies = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            long start = System.nanoTime();
+            SearchPageDto page = searchService.searchStudents(TERMS[i % TERMS.length], null, 10);
+            latencies.add(System.nanoTime() - start);
+            assertFalse(page.getItems().isEmpty());
+        }
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        long p95 = latencies.get((int) Math.ceil(latencies.size() * 0.95) - 1);
+        System.out.printf("%s over %d rows: p50 %.2f ms, p95 %.2f ms%n", label, STUDENTS, p50 / 1e6, p95 / 1e6);
+        return p50;
+    }
+}
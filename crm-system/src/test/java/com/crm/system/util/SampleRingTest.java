@@ -0,0 +1,66 @@
+package com.crm.system.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleRingTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void overwritesOldestSamplesWhenFull() {
+        SampleRing ring = new SampleRing(4, 1);
+        assertNull(ring.latest());
+        assertEquals(-1, ring.oldestTimestamp());
+
+        for (int i = 0; i < 10; i++) {
+            ring.add(i * 1000L, i);
+        }
+
+        assertEquals(4, ring.size());
+        assertEquals(6000L, ring.oldestTimestamp());
+        assertArrayEquals(new double[] { 9 }, ring.latest());
+    }
+
+    @Test
+    void aggregatesSamplesIntoBucketsWithinRange() {
+        SampleRing ring = new SampleRing(100, 2);
+        // Four samples per hour over five hours: the first column counts up, the second is constant
+        for (int i = 0; i < 20; i++) {
+            ring.add(i * HOUR / 4, i, 7);
+        }
+
+        List<SampleRing.Bucket> buckets = ring.aggregate(HOUR, 4 * HOUR, HOUR, 0);
+
+        assertEquals(3, buckets.size());
+        SampleRing.Bucket first = buckets.get(0);
+        assertEquals(HOUR, first.getStartMs());
+        assertEquals(4, first.getCount());
+        assertEquals(4 + 5 + 6 + 7, first.getSum(0));
+        assertEquals(5.5, first.getAverage(0));
+        assertEquals(7, first.getMax(0));
+        assertEquals(7, first.getLast(0));
+        assertEquals(7, first.getAverage(1));
+        assertEquals(3 * HOUR, buckets.get(2).getStartMs());
+    }
+
+    @Test
+    void alignsBucketsToOffsetAndSkipsOverwrittenSamples() {
+        SampleRing ring = new SampleRing(6, 1);
+        for (int i = 0; i < 12; i++) {
+            ring.add(i * HOUR / 2, i);
+        }
+
+        // Buckets start at half past the hour; samples before 3h were overwritten
+        List<SampleRing.Bucket> buckets = ring.aggregate(0, Long.MAX_VALUE, HOUR, HOUR / 2);
+
+        assertEquals(List.of(5 * HOUR / 2, 7 * HOUR / 2, 9 * HOUR / 2, 11 * HOUR / 2),
+                buckets.stream().map(SampleRing.Bucket::getStartMs).toList());
+        assertEquals(1, buckets.get(0).getCount());
+        assertEquals(6, buckets.get(0).getLast(0));
+        assertEquals(1, buckets.get(3).getCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.crm.system.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void expiresEachTimeoutAtItsTickAcrossLevels() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, 8, 4, START);
+        Random random = new Random(42);
+        long[] deadlines = new long[2000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = START + 100 + random.nextInt((int) wheel.getMaxDelayMs() - 100);
+            wheel.schedule(i, deadlines[i]);
+        }
+
+        int fired = 0;
+        for (long now = START; fired < deadlines.length; now += 100) {
+            for (TimingWheel.Timeout<Integer> timeout : wheel.advance(now)) {
+                long deadline = deadlines[timeout.getKey()];
+                assertEquals(deadline, timeout.getDeadlineMs());
+                assertEquals(deadline / 100, now / 100, "timeout " + timeout.getKey() + " fired at the wrong tick");
+                fired++;
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleReplacesAndCancelRemoves() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 3, START);
+        wheel.schedule("a", START + 5_000);
+        wheel.schedule("b", START + 1_000);
+        wheel.schedule("a", START + 300);
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+
+        assertEquals(List.of("a"), keys(wheel.advance(START + 10_000)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void dueDeadlineExpiresOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 3, START);
+        wheel.schedule("late", START - 1);
+
+        assertEquals(List.of("late"), keys(wheel.advance(START)));
+    }
+
+    @Test
+    void rejectsDeadlineBeyondTheWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 2, START);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule("far", START + 64 * 100));
+    }
+
+    private static <K> List<K> keys(List<TimingWheel.Timeout<K>> timeouts) {
+        List<K> keys = new ArrayList<>();
+        for (TimingWheel.Timeout<K> timeout : timeouts) {
+            keys.add(timeout.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,42 @@
+package com.crm.email.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "email.async")
+public class EmailAsyncProperties {
+
+    /** Number of worker threads sending emails accepted in async mode. */
+    private int workerThreads = 4;
+
+    /** Maximum number of accepted emails waiting for a worker; further requests get 503. */
+    private int queueCapacity = 500;
+
+    /** How long the status of a finished email can be queried, in minutes. */
+    private long statusRetentionMinutes = 60;
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getStatusRetentionMinutes() {
+        return statusRetentionMinutes;
+    }
+
+    public void setStatusRetentionMinutes(long statusRetentionMinutes) {
+        this.statusRetentionMinutes = statusRetentionMinutes;
+    }
+}
@@ -1,19 +1,32 @@
 package com.crm.email.controller;
 
+import com.crm.email.dto.BatchEmailRequest;
+import com.crm.email.dto.BatchEmailResponse;
 import com.crm.email.dto.EmailSendResponse;
+import com.crm.email.dto.EmailStatusRequest;
+import com.crm.email.dto.EmailStatusResponse;
 import com.crm.email.dto.MaintenanceEmailRequest;
 import com.crm.email.dto.PasswordResetEmailRequest;
 import com.crm.email.dto.WelcomeEmailRequest;
+import com.crm.email.service.BatchEmailService;
+import com.crm.email.service.EmailDispatchService;
+import com.crm.email.service.EmailDispatchService.EmailTask;
 import com.crm.email.service.WelcomeEmailService;
 import jakarta.mail.MessagingException;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -23,27 +36,64 @@ public class EmailController {
     private static final Logger log = LoggerFactory.getLogger(EmailController.class);
 
     private final WelcomeEmailService welcomeEmailService;
+    private final EmailDispatchService emailDispatchService;
+    private final BatchEmailService batchEmailService;
 
-    public EmailController(WelcomeEmailService welcomeEmailService) {
+    public EmailController(WelcomeEmailService welcomeEmailService,
+                           EmailDispatchService emailDispatchService,
+                           BatchEmailService batchEmailService) {
         this.welcomeEmailService = welcomeEmailService;
+        this.emailDispatchService = emailDispatchService;
+        this.batchEmailService = batchEmailService;
     }
 
     @PostMapping("/welcome")
-    public ResponseEntity<EmailSendResponse> sendWelcomeEmail(@Valid @RequestBody WelcomeEmailRequest request) throws MessagingException {
-        welcomeEmailService.sendWelcomeEmail(request);
-        return ResponseEntity.ok(new EmailSendResponse(true, "Welcome email sent"));
+    public ResponseEntity<EmailSendResponse> sendWelcomeEmail(@Valid @RequestBody WelcomeEmailRequest request,
+                                                              @RequestParam(defaultValue = "false") boolean async) throws MessagingException {
+        return send(request.getRecipientEmail(), () -> welcomeEmailService.sendWelcomeEmail(request), async, "Welcome email");
     }
 
     @PostMapping("/password-reset")
-    public ResponseEntity<EmailSendResponse> sendPasswordResetEmail(@Valid @RequestBody PasswordResetEmailRequest request) throws MessagingException {
-        welcomeEmailService.sendPasswordResetEmail(request);
-        return ResponseEntity.ok(new EmailSendResponse(true, "Password reset email sent"));
+    public ResponseEntity<EmailSendResponse> sendPasswordResetEmail(@Valid @RequestBody PasswordResetEmailRequest request,
+                                                                    @RequestParam(defaultValue = "false") boolean async) throws MessagingException {
+        return send(request.getRecipientEmail(), () -> welcomeEmailService.sendPasswordResetEmail(request), async, "Password reset email");
     }
 
     @PostMapping("/maintenance")
-    public ResponseEntity<EmailSendResponse> sendMaintenanceEmail(@Valid @RequestBody MaintenanceEmailRequest request) throws MessagingException {
-        welcomeEmailService.sendMaintenanceEmail(request);
-        return ResponseEntity.ok(new EmailSendResponse(true, "Maintenance email sent"));
+    public ResponseEntity<EmailSendResponse> sendMaintenanceEmail(@Valid @RequestBody MaintenanceEmailRequest request,
+                                                                  @RequestParam(defaultValue = "false") boolean async) throws MessagingException {
+        return send(request.getRecipientEmail(), () -> welcomeEmailService.sendMaintenanceEmail(request), async, "Maintenance email");
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchEmailResponse> sendBatch(@Valid @RequestBody BatchEmailRequest request,
+                                                        @RequestParam(defaultValue = "false") boolean async) {
+        BatchEmailResponse response = batchEmailService.send(request.getItems(), async);
+        return async ? ResponseEntity.accepted().body(response) : ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/messages/{messageId}")
+    public ResponseEntity<EmailStatusResponse> getMessageStatus(@PathVariable String messageId) {
+        return emailDispatchService.getStatus(messageId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // One call for all messages of a batch; unknown or expired ids are left out of the response
+    @PostMapping("/messages/status")
+    public ResponseEntity<List<EmailStatusResponse>> getMessageStatuses(@Valid @RequestBody EmailStatusRequest request) {
+        return ResponseEntity.ok(emailDispatchService.getStatuses(request.getMessageIds()));
+    }
+
+    // With async=true the email is only accepted here and sent by the worker pool
+    private ResponseEntity<EmailSendResponse> send(String recipientEmail, EmailTask task, boolean async,
+                                                   String description) throws MessagingException {
+        if (!async) {
+            task.send();
+            return ResponseEntity.ok(new EmailSendResponse(true, description + " sent"));
+        }
+        String messageId = emailDispatchService.submit(recipientEmail, task);
+        return ResponseEntity.accepted().body(new EmailSendResponse(true, description + " accepted", messageId));
     }
 
     @ExceptionHandler(MessagingException.class)
@@ -51,4 +101,11 @@ public class EmailController {
         log.error("Email sending failed", ex);
         return ResponseEntity.internalServerError().body(new EmailSendResponse(false, "Email sending failed: " + ex.getMessage()));
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<EmailSendResponse> handleRejectedExecutionException(RejectedExecutionException ex) {
+        log.warn("Async email queue is full");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new EmailSendResponse(false, "Email queue is full, try again later"));
+    }
 }
@@ -0,0 +1,58 @@
+package com.crm.email.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One email of a batch: the type selects which of the payloads is used.
+ */
+public class BatchEmailItem {
+
+    public enum Type {
+        WELCOME, PASSWORD_RESET, MAINTENANCE
+    }
+
+    @NotNull
+    private Type type;
+
+    @Valid
+    private WelcomeEmailRequest welcome;
+
+    @Valid
+    private PasswordResetEmailRequest passwordReset;
+
+    @Valid
+    private MaintenanceEmailRequest maintenance;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public WelcomeEmailRequest getWelcome() {
+        return welcome;
+    }
+
+    public void setWelcome(WelcomeEmailRequest welcome) {
+        this.welcome = welcome;
+    }
+
+    public PasswordResetEmailRequest getPasswordReset() {
+        return passwordReset;
+    }
+
+    public void setPasswordReset(PasswordResetEmailRequest passwordReset) {
+        this.passwordReset = passwordReset;
+    }
+
+    public MaintenanceEmailRequest getMaintenance() {
+        return maintenance;
+    }
+
+    public void setMaintenance(MaintenanceEmailRequest maintenance) {
+        this.maintenance = maintenance;
+    }
+}
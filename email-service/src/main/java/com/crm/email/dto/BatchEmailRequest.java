@@ -0,0 +1,23 @@
+package com.crm.email.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BatchEmailRequest {
+
+    public static final int MAX_ITEMS = 500;
+
+    // Items are validated one by one, so that one invalid email does not reject the whole batch
+    @NotEmpty
+    @Size(max = MAX_ITEMS)
+    private List<BatchEmailItem> items;
+
+    public List<BatchEmailItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BatchEmailItem> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,46 @@
+package com.crm.email.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch; results are in the order of the request items.
+ */
+public class BatchEmailResponse {
+
+    private int succeeded;
+    private int failed;
+    private List<EmailSendResponse> results;
+
+    public BatchEmailResponse() {
+    }
+
+    public BatchEmailResponse(List<EmailSendResponse> results) {
+        this.results = results;
+        this.succeeded = (int) results.stream().filter(EmailSendResponse::isSuccess).count();
+        this.failed = results.size() - succeeded;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<EmailSendResponse> getResults() {
+        return results;
+    }
+
+    public void setResults(List<EmailSendResponse> results) {
+        this.results = results;
+    }
+}
@@ -4,6 +4,9 @@ public class EmailSendResponse {
 
     private boolean success;
     private String message;
+    private String messageId;
+    // The item was not processed for a transient reason and can be sent again
+    private boolean retryable;
 
     public EmailSendResponse() {
     }
@@ -13,6 +16,12 @@ public class EmailSendResponse {
         this.message = message;
     }
 
+    public EmailSendResponse(boolean success, String message, String messageId) {
+        this.success = success;
+        this.message = message;
+        this.messageId = messageId;
+    }
+
     public boolean isSuccess() {
         return success;
     }
@@ -28,4 +37,20 @@ public class EmailSendResponse {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public void setRetryable(boolean retryable) {
+        this.retryable = retryable;
+    }
 }
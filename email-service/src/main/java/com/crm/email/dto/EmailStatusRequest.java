@@ -0,0 +1,20 @@
+package com.crm.email.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class EmailStatusRequest {
+
+    @NotEmpty
+    @Size(max = BatchEmailRequest.MAX_ITEMS)
+    private List<String> messageIds;
+
+    public List<String> getMessageIds() {
+        return messageIds;
+    }
+
+    public void setMessageIds(List<String> messageIds) {
+        this.messageIds = messageIds;
+    }
+}
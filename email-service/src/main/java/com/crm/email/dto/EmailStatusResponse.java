@@ -0,0 +1,70 @@
+package com.crm.email.dto;
+
+import java.time.LocalDateTime;
+
+public class EmailStatusResponse {
+
+    private String messageId;
+    private String recipientEmail;
+    private volatile String status;
+    private volatile String error;
+    private LocalDateTime acceptedAt = LocalDateTime.now();
+    private volatile LocalDateTime completedAt;
+
+    public EmailStatusResponse() {
+    }
+
+    public EmailStatusResponse(String messageId, String recipientEmail, String status) {
+        this.messageId = messageId;
+        this.recipientEmail = recipientEmail;
+        this.status = status;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getRecipientEmail() {
+        return recipientEmail;
+    }
+
+    public void setRecipientEmail(String recipientEmail) {
+        this.recipientEmail = recipientEmail;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    public void setAcceptedAt(LocalDateTime acceptedAt) {
+        this.acceptedAt = acceptedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
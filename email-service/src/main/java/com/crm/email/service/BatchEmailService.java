@@ -0,0 +1,119 @@
+package com.crm.email.service;
+
+import com.crm.email.dto.BatchEmailItem;
+import com.crm.email.dto.BatchEmailResponse;
+import com.crm.email.dto.EmailSendResponse;
+import com.crm.email.service.EmailDispatchService.EmailTask;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends a batch of emails posted in one request. Every item is validated and sent on its own:
+ * an invalid or failed item is reported in its result and does not affect the others.
+ */
+@Service
+public class BatchEmailService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchEmailService.class);
+
+    private final WelcomeEmailService welcomeEmailService;
+    private final EmailDispatchService emailDispatchService;
+    private final Validator validator;
+
+    public BatchEmailService(WelcomeEmailService welcomeEmailService,
+                             EmailDispatchService emailDispatchService,
+                             Validator validator) {
+        this.welcomeEmailService = welcomeEmailService;
+        this.emailDispatchService = emailDispatchService;
+        this.validator = validator;
+    }
+
+    /**
+     * @param async hand the items to the worker pool instead of sending them in this thread
+     */
+    public BatchEmailResponse send(List<BatchEmailItem> items, boolean async) {
+        List<EmailSendResponse> results = new ArrayList<>(items.size());
+        for (BatchEmailItem item : items) {
+            results.add(sendItem(item, async));
+        }
+        BatchEmailResponse response = new BatchEmailResponse(results);
+        log.info("Batch of {} emails processed: {} succeeded, {} failed",
+                items.size(), response.getSucceeded(), response.getFailed());
+        return response;
+    }
+
+    private EmailSendResponse sendItem(BatchEmailItem item, boolean async) {
+        if (item == null) {
+            return new EmailSendResponse(false, "Empty item");
+        }
+        String violations = validate(item);
+        if (violations != null) {
+            return new EmailSendResponse(false, "Invalid item: " + violations);
+        }
+        String recipientEmail;
+        EmailTask task;
+        switch (item.getType()) {
+            case WELCOME -> {
+                if (item.getWelcome() == null) {
+                    return missingPayload(item);
+                }
+                recipientEmail = item.getWelcome().getRecipientEmail();
+                task = () -> welcomeEmailService.sendWelcomeEmail(item.getWelcome());
+            }
+            case PASSWORD_RESET -> {
+                if (item.getPasswordReset() == null) {
+                    return missingPayload(item);
+                }
+                recipientEmail = item.getPasswordReset().getRecipientEmail();
+                task = () -> welcomeEmailService.sendPasswordResetEmail(item.getPasswordReset());
+            }
+            default -> {
+                if (item.getMaintenance() == null) {
+                    return missingPayload(item);
+                }
+                recipientEmail = item.getMaintenance().getRecipientEmail();
+                task = () -> welcomeEmailService.sendMaintenanceEmail(item.getMaintenance());
+            }
+        }
+
+        if (async) {
+            try {
+                return new EmailSendResponse(true, "Accepted", emailDispatchService.submit(recipientEmail, task));
+            } catch (RejectedExecutionException e) {
+                EmailSendResponse response = new EmailSendResponse(false, "Email queue is full, try again later");
+                response.setRetryable(true);
+                return response;
+            }
+        }
+        try {
+            task.send();
+            return new EmailSendResponse(true, "Sent");
+        } catch (Exception e) {
+            log.warn("Batch email to {} failed: {}", recipientEmail, e.getMessage());
+            return new EmailSendResponse(false, "Email sending failed: " + e.getMessage());
+        }
+    }
+
+    private EmailSendResponse missingPayload(BatchEmailItem item) {
+        return new EmailSendResponse(false, "Missing payload for type " + item.getType());
+    }
+
+    private String validate(BatchEmailItem item) {
+        Set<ConstraintViolation<BatchEmailItem>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,123 @@
+package com.crm.email.service;
+
+import com.crm.email.config.EmailAsyncProperties;
+import com.crm.email.dto.EmailStatusResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends emails accepted in async mode on a bounded worker pool. The caller gets a message id
+ * right away; the outcome can be queried by that id for email.async.status-retention-minutes.
+ */
+@Service
+public class EmailDispatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatchService.class);
+
+    public enum Status {
+        QUEUED, SENT, FAILED
+    }
+
+    @FunctionalInterface
+    public interface EmailTask {
+        void send() throws MessagingException;
+    }
+
+    private final EmailAsyncProperties properties;
+    private final Map<String, EmailStatusResponse> statuses = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    public EmailDispatchService(EmailAsyncProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(properties.getWorkerThreads(), properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "email-worker-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("{} accepted emails were not sent before shutdown", executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues the email and returns its message id.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public String submit(String recipientEmail, EmailTask task) {
+        purgeFinished();
+        String messageId = UUID.randomUUID().toString();
+        EmailStatusResponse status = new EmailStatusResponse(messageId, recipientEmail, Status.QUEUED.name());
+        statuses.put(messageId, status);
+        try {
+            executor.execute(() -> send(status, task));
+        } catch (RejectedExecutionException e) {
+            statuses.remove(messageId);
+            throw e;
+        }
+        return messageId;
+    }
+
+    public Optional<EmailStatusResponse> getStatus(String messageId) {
+        return Optional.ofNullable(statuses.get(messageId));
+    }
+
+    public List<EmailStatusResponse> getStatuses(List<String> messageIds) {
+        return messageIds.stream()
+                .map(statuses::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void send(EmailStatusResponse status, EmailTask task) {
+        try {
+            task.send();
+            status.setStatus(Status.SENT.name());
+        } catch (Exception e) {
+            log.error("Async email {} to {} failed", status.getMessageId(), status.getRecipientEmail(), e);
+            status.setStatus(Status.FAILED.name());
+            status.setError(e.getMessage());
+        } finally {
+            status.setCompletedAt(LocalDateTime.now());
+        }
+    }
+
+    private void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(properties.getStatusRetentionMinutes());
+        statuses.values().removeIf(status -> status.getCompletedAt() != null && status.getCompletedAt().isBefore(cutoff));
+    }
+}
@@ -1,24 +1,107 @@
 package com.crm.email.service;
 
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+/**
+ * Renders email templates.
+ *
+ * With spring.thymeleaf.cache enabled the engine keeps every parsed template, so a template is
+ * parsed once and every later render only evaluates it. All templates under the Thymeleaf prefix
+ * are rendered once at startup to fill that cache before the first request. Output is written
+ * into a per-thread buffer that is reused between renders instead of a new one per email.
+ */
 @Service
 public class EmailTemplateService {
 
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateService.class);
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    // A buffer grown beyond this by an unusually large email is dropped instead of kept per thread
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
     private final TemplateEngine templateEngine;
+    private final ThymeleafProperties thymeleafProperties;
+    private final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(() -> new StringWriter(INITIAL_BUFFER_SIZE));
 
-    public EmailTemplateService(TemplateEngine templateEngine) {
+    public EmailTemplateService(TemplateEngine templateEngine, ThymeleafProperties thymeleafProperties) {
         this.templateEngine = templateEngine;
+        this.thymeleafProperties = thymeleafProperties;
     }
 
     public String render(String templateName, Map<String, Object> variables) {
-        Context context = new Context();
+        Context context = new Context(Locale.getDefault());
         if (variables != null) {
             context.setVariables(variables);
         }
-        return templateEngine.process(templateName, context);
+        StringWriter buffer = buffers.get();
+        buffer.getBuffer().setLength(0);
+        templateEngine.process(templateName, context, buffer);
+        String body = buffer.toString();
+        if (buffer.getBuffer().capacity() > MAX_POOLED_BUFFER_SIZE) {
+            buffers.remove();
+        }
+        return body;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        preloadTemplates();
+    }
+
+    /**
+     * Parses every template under the Thymeleaf prefix so that the first emails do not pay for it.
+     *
+     * @return number of templates loaded into the cache
+     */
+    public int preloadTemplates() {
+        if (!thymeleafProperties.isCache()) {
+            log.warn("Thymeleaf template cache is disabled, email templates are parsed on every render");
+            return 0;
+        }
+        List<String> names = findTemplateNames();
+        int loaded = 0;
+        for (String name : names) {
+            try {
+                templateEngine.process(name, new Context(Locale.getDefault()), Writer.nullWriter());
+                loaded++;
+            } catch (Exception e) {
+                log.warn("Could not preload email template {}: {}", name, e.getMessage());
+            }
+        }
+        log.info("Preloaded {} of {} email templates", loaded, names.size());
+        return loaded;
+    }
+
+    private List<String> findTemplateNames() {
+        String prefix = thymeleafProperties.getPrefix();
+        String suffix = thymeleafProperties.getSuffix();
+        List<String> names = new ArrayList<>();
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(prefix + "*" + suffix);
+            for (Resource resource : resources) {
+                String filename = resource.getFilename();
+                if (filename != null && filename.endsWith(suffix)) {
+                    names.add(filename.substring(0, filename.length() - suffix.length()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list email templates under {}: {}", prefix, e.getMessage());
+        }
+        return names;
     }
 }
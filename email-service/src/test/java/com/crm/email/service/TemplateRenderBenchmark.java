@@ -0,0 +1,107 @@
+package com.crm.email.service;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+/**
+ * Render throughput of the welcome, password reset and maintenance templates: the previous
+ * rendering without a template cache and with a new buffer per email, against
+ * {@link EmailTemplateService} with the preloaded cache and per-thread buffers.
+ *
+ * Not part of the test run, start it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.crm.email.service.TemplateRenderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    @Param({"welcome-student", "password-reset", "system-maintenance"})
+    private String templateName;
+
+    private TemplateEngine uncachedEngine;
+    private EmailTemplateService templateService;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        uncachedEngine = createEngine(false);
+
+        ThymeleafProperties properties = new ThymeleafProperties();
+        properties.setPrefix("classpath:/templates/email/");
+        properties.setSuffix(".html");
+        properties.setCache(true);
+        templateService = new EmailTemplateService(createEngine(true), properties);
+        templateService.preloadTemplates();
+
+        variables = new HashMap<>();
+        variables.put("name", "Анна Петрова");
+        variables.put("role", "STUDENT");
+        variables.put("temporaryPassword", "Tmp-4821-xQ");
+        variables.put("loginUrl", "https://crm-synergy.local/login");
+        variables.put("telegramBotUrl", "https://t.me/crm_synergy_bot");
+        variables.put("resetLink", "https://crm-synergy.local/reset?token=3f9a1c7e5b2d4e8f");
+        variables.put("windowStart", "20.01.2025 02:00");
+        variables.put("windowEnd", "20.01.2025 04:00");
+        variables.put("details", "Обновление базы данных и серверов приложения.");
+        variables.put("supportEmail", "support@crm-synergy.local");
+    }
+
+    @Benchmark
+    public String uncachedRender() {
+        Context context = new Context(Locale.getDefault());
+        context.setVariables(variables);
+        StringWriter writer = new StringWriter();
+        uncachedEngine.process(templateName, context, writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String cachedRender() {
+        return templateService.render(templateName, variables);
+    }
+
+    private static TemplateEngine createEngine(boolean cacheable) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/email/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(cacheable);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TemplateRenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}